@@ -0,0 +1,112 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Dos peticiones seguidas al mismo servidor local por el cliente compartido: una sola conexion TCP
+// nueva y dos adquisiciones (la segunda sale del pool). En Android no hay com.sun.net.httpserver,
+// asi que el servidor es un ServerSocket que responde con keep-alive.
+@RunWith(AndroidJUnit4.class)
+public class MediaHttpClientTest {
+    private static final byte[] BODY = "#EXTM3U\n".getBytes(StandardCharsets.UTF_8);
+
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private String baseUrl;
+    private final AtomicInteger acceptedSockets = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        baseUrl = "http://127.0.0.1:" + serverSocket.getLocalPort();
+        acceptThread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    acceptedSockets.incrementAndGet();
+                    new Thread(() -> serve(socket)).start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptThread.start();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        serverSocket.close();
+        acceptThread.join(1000L);
+    }
+
+    // Atiende peticiones en la misma conexion hasta que el cliente la cierre
+    private static void serve(Socket socket) {
+        try (Socket connection = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = connection.getOutputStream();
+            while (true) {
+                String requestLine = reader.readLine();
+                if (requestLine == null) {
+                    return;
+                }
+                String header;
+                do {
+                    header = reader.readLine();
+                } while (header != null && !header.isEmpty());
+                String head = "HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: application/vnd.apple.mpegurl\r\n"
+                    + "Content-Length: " + BODY.length + "\r\n"
+                    + "Connection: keep-alive\r\n\r\n";
+                out.write(head.getBytes(StandardCharsets.US_ASCII));
+                out.write(BODY);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Cliente desconectado
+        }
+    }
+
+    @Test
+    public void sequentialRequestsReuseOneConnection() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        OkHttpClient client = MediaHttpClient.get(context);
+        // Los contadores son del proceso: se comparan diferencias
+        MediaHttpClient.Stats before = MediaHttpClient.stats();
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request.Builder().url(baseUrl + "/live/user/pass/" + i).build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals(200, response.code());
+                assertEquals("#EXTM3U\n", response.body().string());
+            }
+        }
+
+        MediaHttpClient.Stats after = MediaHttpClient.stats();
+        assertEquals(1L, after.newConnections - before.newConnections);
+        assertEquals(2L, after.connectionsAcquired - before.connectionsAcquired);
+        assertEquals(1, acceptedSockets.get());
+    }
+}
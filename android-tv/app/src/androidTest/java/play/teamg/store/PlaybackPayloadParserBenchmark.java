@@ -0,0 +1,110 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.getcapacitor.JSArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Tiempo y asignaciones al leer listas de 1k/10k/50k canales y capitulos: lectura en streaming del string
+// (chaptersJson/channelsJson) frente al arbol JSArray que antes construia el bridge y luego se recorria.
+// Resultados en logcat (tag PayloadBenchmark) y en la salida de "am instrument".
+@RunWith(AndroidJUnit4.class)
+public class PlaybackPayloadParserBenchmark {
+    private static final String TAG = "PayloadBenchmark";
+    private static final int[] SIZES = { 1000, 10000, 50000 };
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    private interface Parse {
+        int run(String json) throws Exception;
+    }
+
+    @Test
+    public void channels() throws Exception {
+        for (int size : SIZES) {
+            String json = channelsJson(size);
+            measure("channels", size, json, value -> PlaybackPayloadParser.parseChannels(value).size());
+            measure("channels_tree", size, json, value -> PlaybackPayloadParser.readChannels(new JSArray(value)).size());
+        }
+    }
+
+    @Test
+    public void chapters() throws Exception {
+        for (int size : SIZES) {
+            String json = chaptersJson(size);
+            measure("chapters", size, json, value -> PlaybackPayloadParser.parseChapters(value).size());
+            measure("chapters_tree", size, json, value -> PlaybackPayloadParser.readChapters(new JSArray(value)).size());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void measure(String name, int size, String json, Parse parse) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertEquals(size, parse.run(json));
+        }
+        long totalNanos = 0L;
+        long totalBytes = 0L;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            Runtime.getRuntime().gc();
+            Debug.resetThreadAllocSize();
+            Debug.startAllocCounting();
+            long startedAt = SystemClock.elapsedRealtimeNanos();
+            int parsed = parse.run(json);
+            totalNanos += SystemClock.elapsedRealtimeNanos() - startedAt;
+            Debug.stopAllocCounting();
+            totalBytes += Debug.getThreadAllocSize();
+            assertEquals(size, parsed);
+        }
+
+        long averageMs = totalNanos / MEASURED_RUNS / 1000000L;
+        long averageKb = totalBytes / MEASURED_RUNS / 1024L;
+        Log.i(TAG, name + " x" + size + ": " + averageMs + "ms, " + averageKb + "KB asignados");
+        Bundle status = new Bundle();
+        status.putLong(name + "_" + size + "_ms", averageMs);
+        status.putLong(name + "_" + size + "_kb", averageKb);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    private static String channelsJson(int count) {
+        StringBuilder json = new StringBuilder(count * 160);
+        json.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"ch").append(i)
+                .append("\",\"name\":\"Canal ").append(i)
+                .append("\",\"logo\":\"https://img.example.com/logos/").append(i)
+                .append(".png\",\"url\":\"http://iptv.example.com:8080/live/user/pass/").append(i)
+                .append("\",\"group\":\"Grupo ").append(i % 40).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String chaptersJson(int count) {
+        StringBuilder json = new StringBuilder(count * 140);
+        json.append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int season = i / 24 + 1;
+            json.append("{\"title\":\"Capitulo ").append(i % 24 + 1)
+                .append("\",\"url\":\"http://vod.example.com/series/user/pass/").append(i)
+                .append(".mkv\",\"seasonNumber\":").append(season)
+                .append(",\"seasonIndex\":").append(season - 1)
+                .append(",\"chapterIndex\":").append(i % 24).append('}');
+        }
+        return json.append(']').toString();
+    }
+}
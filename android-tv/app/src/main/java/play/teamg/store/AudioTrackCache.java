@@ -0,0 +1,162 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Pistas de audio ya resueltas por serie. Los capitulos de una serie suelen tener las mismas pistas
+// (mismo codec, canales e idioma en el mismo orden); si la disposicion coincide, la pista elegida se
+// pasa como :audio-track antes de play() y no hay cambio de pista (ni reinicio del decoder) a los
+// 500 ms. Solo se vuelve a puntuar cuando la disposicion cambia.
+// Tambien guarda el idioma elegido a mano por el usuario, que suma en la puntuacion.
+// LRU de MAX_ENTRIES series persistida en SharedPreferences.
+public final class AudioTrackCache {
+    private static final String TAG = "AudioTrackCache";
+    private static final String PREFS_NAME = "vlc_audio_tracks";
+    private static final String KEY_LAYOUTS = "layouts";
+    private static final String KEY_PREFERRED_LANGUAGE = "preferred_language";
+    private static final int MAX_ENTRIES = 64;
+
+    private static AudioTrackCache instance;
+
+    private final SharedPreferences preferences;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private String preferredLanguage;
+
+    private static final class Entry {
+        final String layout;
+        final int audioIndex;
+        final boolean manual;
+
+        Entry(String layout, int audioIndex, boolean manual) {
+            this.layout = layout;
+            this.audioIndex = audioIndex;
+            this.manual = manual;
+        }
+    }
+
+    public static synchronized AudioTrackCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AudioTrackCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AudioTrackCache(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        load();
+    }
+
+    // Serie = host + primer capitulo de la lista; contenido suelto = host + URL.
+    public static String keyFor(String url, String firstChapterUrl) {
+        if (url == null) {
+            return null;
+        }
+        String host = Uri.parse(url).getHost();
+        String series = firstChapterUrl != null && !firstChapterUrl.isEmpty() ? firstChapterUrl : url;
+        return (host != null ? host : "") + "|" + Integer.toHexString(series.hashCode());
+    }
+
+    // Descripcion de una pista para la firma de disposicion (codec/canales/idioma).
+    public static String describeTrack(String codec, int channels, String language) {
+        return (codec != null ? codec.toLowerCase(Locale.ROOT) : "") + "/" + channels + "/"
+            + (language != null ? language.toLowerCase(Locale.ROOT) : "");
+    }
+
+    // Indice (entre las pistas de audio) a pasar como :audio-track, o -1 si la serie no tiene historial.
+    public synchronized int audioIndexFor(String key) {
+        Entry entry = key != null ? entries.get(key) : null;
+        return entry != null ? entry.audioIndex : -1;
+    }
+
+    public synchronized boolean matches(String key, String layout) {
+        Entry entry = key != null ? entries.get(key) : null;
+        return entry != null && entry.layout.equals(layout);
+    }
+
+    // Una eleccion manual no se sustituye por una automatica con la misma disposicion.
+    public synchronized void remember(String key, String layout, int audioIndex, boolean manual) {
+        if (key == null || layout == null || audioIndex < 0) {
+            return;
+        }
+        Entry previous = entries.get(key);
+        if (!manual && previous != null && previous.manual && previous.layout.equals(layout)) {
+            return;
+        }
+        if (previous != null && previous.layout.equals(layout) && previous.audioIndex == audioIndex && previous.manual == manual) {
+            return;
+        }
+        entries.put(key, new Entry(layout, audioIndex, manual));
+        Log.d(TAG, key + ": pista de audio " + audioIndex + (manual ? " (manual)" : ""));
+        save();
+    }
+
+    public synchronized String getPreferredLanguage() {
+        return preferredLanguage;
+    }
+
+    public synchronized void setPreferredLanguage(String language) {
+        if (language == null || language.isEmpty() || language.equalsIgnoreCase(preferredLanguage)) {
+            return;
+        }
+        preferredLanguage = language.toLowerCase(Locale.ROOT);
+        save();
+    }
+
+    private void load() {
+        preferredLanguage = preferences.getString(KEY_PREFERRED_LANGUAGE, null);
+        String raw = preferences.getString(KEY_LAYOUTS, null);
+        if (raw == null) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject(raw);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject entry = json.optJSONObject(key);
+                if (entry == null || !entry.has("l")) {
+                    continue;
+                }
+                entries.put(key, new Entry(entry.optString("l"), entry.optInt("i", -1), entry.optBoolean("m", false)));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Cache de pistas corrupta, se descarta", e);
+            entries.clear();
+        }
+    }
+
+    private void save() {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                JSONObject value = new JSONObject();
+                value.put("l", entry.getValue().layout);
+                value.put("i", entry.getValue().audioIndex);
+                value.put("m", entry.getValue().manual);
+                json.put(entry.getKey(), value);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "No se pudo serializar la cache de pistas", e);
+            return;
+        }
+        preferences.edit()
+            .putString(KEY_LAYOUTS, json.toString())
+            .putString(KEY_PREFERRED_LANGUAGE, preferredLanguage)
+            .apply();
+    }
+}
@@ -0,0 +1,300 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioCapabilities;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Decoders del dispositivo, para elegir motor antes de abrir el stream en vez de descubrir en ExoPlayer
+// que no puede con el audio y relanzar en VLC. La enumeracion de MediaCodecList es lenta (decenas de ms
+// a cientos en TVs baratas) y no cambia hasta que se actualiza el sistema: se hace una vez en un hilo
+// propio y se guarda en SharedPreferences con la huella de la build.
+// El passthrough por HDMI (AudioCapabilities) depende del receptor conectado y se consulta cada vez.
+// Mientras no hay sondeo, isReady() es false y el plugin mantiene el reparto anterior.
+public final class DecoderCapabilities {
+    private static final String TAG = "DecoderCapabilities";
+    private static final String PREFS_NAME = "decoder_capabilities";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_MIME_TYPES = "mime_types";
+
+    public static final String AUDIO_AC3 = "audio/ac3";
+    public static final String AUDIO_E_AC3 = "audio/eac3";
+    public static final String AUDIO_DTS = "audio/vnd.dts";
+    public static final String AUDIO_TRUEHD = "audio/true-hd";
+
+    // Contenedores sin extractor en ExoPlayer
+    private static final String[] UNSUPPORTED_CONTAINERS = { "wmv", "asf", "rm", "rmvb" };
+
+    private static DecoderCapabilities instance;
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor();
+    private HashSet<String> mimeTypes;
+
+    // Indicios del contenido: contenedor (extension de la URL o del catalogo) y codecs si el catalogo los da.
+    public static final class StreamHints {
+        final String container;
+        final String videoMime;
+        final String audioMime;
+
+        private StreamHints(String container, String videoMime, String audioMime) {
+            this.container = container;
+            this.videoMime = videoMime;
+            this.audioMime = audioMime;
+        }
+
+        public static StreamHints from(String url, String container, String videoCodec, String audioCodec) {
+            String resolvedContainer = container != null && !container.isEmpty()
+                ? container.toLowerCase(Locale.ROOT)
+                : containerFromUrl(url);
+            return new StreamHints(resolvedContainer, videoMimeFor(videoCodec), audioMimeFor(audioCodec));
+        }
+    }
+
+    public static synchronized DecoderCapabilities getInstance(Context context) {
+        if (instance == null) {
+            instance = new DecoderCapabilities(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DecoderCapabilities(Context context) {
+        this.context = context;
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        probeExecutor.execute(this::loadOrProbe);
+    }
+
+    public synchronized boolean isReady() {
+        return mimeTypes != null;
+    }
+
+    public synchronized boolean hasDecoder(String mimeType) {
+        return mimeTypes != null && mimeType != null && mimeTypes.contains(mimeType);
+    }
+
+    // Audio que ExoPlayer puede reproducir: decoder propio o passthrough al receptor HDMI.
+    public boolean canPlayAudio(String mimeType) {
+        if (hasDecoder(mimeType)) {
+            return true;
+        }
+        int encoding = passthroughEncodingFor(mimeType);
+        return encoding != C.ENCODING_INVALID && supportsPassthrough(encoding);
+    }
+
+    // AC3 y E-AC3 son habituales en VOD; sin ellos ExoPlayer se quedaria sin audio.
+    public boolean supportsDolbyAudio() {
+        return canPlayAudio(AUDIO_AC3) && canPlayAudio(AUDIO_E_AC3);
+    }
+
+    // Motivo por el que ExoPlayer no podria reproducir el contenido, o null si puede (o no se sabe).
+    public String exoBlocker(StreamHints hints) {
+        if (hints == null) {
+            return null;
+        }
+        if (hints.container != null) {
+            for (String container : UNSUPPORTED_CONTAINERS) {
+                if (container.equals(hints.container)) {
+                    return "contenedor " + container;
+                }
+            }
+        }
+        if (!isReady()) {
+            return null;
+        }
+        if (hints.videoMime != null && !hasDecoder(hints.videoMime)) {
+            return "video " + hints.videoMime;
+        }
+        if (hints.audioMime != null && !canPlayAudio(hints.audioMime)) {
+            return "audio " + hints.audioMime;
+        }
+        return null;
+    }
+
+    public synchronized List<String> mimeTypes() {
+        ArrayList<String> result = mimeTypes != null ? new ArrayList<>(mimeTypes) : new ArrayList<String>();
+        Collections.sort(result);
+        return result;
+    }
+
+    public boolean supportsPassthrough(int encoding) {
+        try {
+            return AudioCapabilities.getCapabilities(context).supportsEncoding(encoding);
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo consultar el passthrough de audio", e);
+            return false;
+        }
+    }
+
+    private void loadOrProbe() {
+        String fingerprint = Build.FINGERPRINT + "|" + Build.VERSION.SDK_INT;
+        if (fingerprint.equals(preferences.getString(KEY_FINGERPRINT, null))) {
+            HashSet<String> cached = readMimeTypes(preferences.getString(KEY_MIME_TYPES, null));
+            if (cached != null) {
+                synchronized (this) {
+                    mimeTypes = cached;
+                }
+                return;
+            }
+        }
+
+        long startedAt = System.nanoTime();
+        HashSet<String> probed = probe();
+        Log.d(TAG, "Sondeo de decoders: " + probed.size() + " tipos en " + ((System.nanoTime() - startedAt) / 1000000L) + "ms");
+        synchronized (this) {
+            mimeTypes = probed;
+        }
+        preferences.edit()
+            .putString(KEY_FINGERPRINT, fingerprint)
+            .putString(KEY_MIME_TYPES, new JSONArray(probed).toString())
+            .apply();
+    }
+
+    private static HashSet<String> probe() {
+        HashSet<String> result = new HashSet<>();
+        try {
+            for (MediaCodecInfo info : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+                if (info.isEncoder()) {
+                    continue;
+                }
+                for (String type : info.getSupportedTypes()) {
+                    result.add(type.toLowerCase(Locale.ROOT));
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo enumerar MediaCodecList", e);
+        }
+        return result;
+    }
+
+    private static HashSet<String> readMimeTypes(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        try {
+            JSONArray array = new JSONArray(raw);
+            HashSet<String> result = new HashSet<>();
+            for (int i = 0; i < array.length(); i++) {
+                result.add(array.getString(i));
+            }
+            return result;
+        } catch (JSONException e) {
+            Log.w(TAG, "Cache de decoders corrupta, se vuelve a sondear", e);
+            return null;
+        }
+    }
+
+    private static int passthroughEncodingFor(String mimeType) {
+        if (AUDIO_AC3.equals(mimeType)) {
+            return C.ENCODING_AC3;
+        }
+        if (AUDIO_E_AC3.equals(mimeType)) {
+            return C.ENCODING_E_AC3;
+        }
+        if (AUDIO_DTS.equals(mimeType)) {
+            return C.ENCODING_DTS;
+        }
+        if (AUDIO_TRUEHD.equals(mimeType)) {
+            return C.ENCODING_DOLBY_TRUEHD;
+        }
+        return C.ENCODING_INVALID;
+    }
+
+    static String containerFromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        String path = Uri.parse(url).getLastPathSegment();
+        int dot = path != null ? path.lastIndexOf('.') : -1;
+        if (dot < 0 || dot == path.length() - 1) {
+            return null;
+        }
+        return path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // Nombres de codec tal como llegan del catalogo (h264, hevc, x265...) a tipo MIME de MediaCodec.
+    static String videoMimeFor(String codec) {
+        String name = normalize(codec);
+        if (name == null) {
+            return null;
+        }
+        if (name.equals("h264") || name.equals("avc") || name.equals("avc1") || name.equals("x264")) {
+            return "video/avc";
+        }
+        if (name.equals("h265") || name.equals("hevc") || name.equals("hvc1") || name.equals("hev1") || name.equals("x265")) {
+            return "video/hevc";
+        }
+        if (name.equals("vp9")) {
+            return "video/x-vnd.on2.vp9";
+        }
+        if (name.equals("av1") || name.equals("av01")) {
+            return "video/av01";
+        }
+        if (name.equals("mpeg2") || name.equals("mpeg2video")) {
+            return "video/mpeg2";
+        }
+        if (name.equals("mpeg4") || name.equals("xvid") || name.equals("divx")) {
+            return "video/mp4v-es";
+        }
+        return null;
+    }
+
+    static String audioMimeFor(String codec) {
+        String name = normalize(codec);
+        if (name == null) {
+            return null;
+        }
+        if (name.equals("aac") || name.equals("mp4a")) {
+            return "audio/mp4a-latm";
+        }
+        if (name.equals("ac3") || name.equals("ac-3")) {
+            return AUDIO_AC3;
+        }
+        if (name.equals("eac3") || name.equals("e-ac3") || name.equals("ec3") || name.equals("ec-3")) {
+            return AUDIO_E_AC3;
+        }
+        if (name.equals("dts") || name.equals("dca")) {
+            return AUDIO_DTS;
+        }
+        if (name.equals("truehd")) {
+            return AUDIO_TRUEHD;
+        }
+        if (name.equals("mp3")) {
+            return "audio/mpeg";
+        }
+        if (name.equals("opus")) {
+            return "audio/opus";
+        }
+        return null;
+    }
+
+    private static String normalize(String codec) {
+        if (codec == null) {
+            return null;
+        }
+        String name = codec.trim().toLowerCase(Locale.ROOT);
+        int dot = name.indexOf('.');
+        // "avc1.640028" -> "avc1"
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.isEmpty() ? null : name;
+    }
+}
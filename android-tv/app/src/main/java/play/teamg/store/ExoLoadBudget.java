@@ -0,0 +1,102 @@
+package play.teamg.store;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+
+// Buffer de ExoPlayer segun la memoria del dispositivo. Con el LoadControl por defecto un stick de 1 GB
+// acaba matado por OOM y un dispositivo bueno desaprovecha margen, asi que se elige un nivel por RAM
+// (memoryClass e isLowRamDevice) y un presupuesto por modo:
+// - live: buffer corto para arrancar y zapear rapido; sin back buffer (no hay rebobinado).
+// - vod: buffer largo y back buffer para rebobinar unos segundos sin volver a descargar.
+// Los players del pool de zapping solo necesitan el arranque: un cuarto de bytes y sin crecer.
+// Cada ExoPlayer necesita su propio LoadControl (el allocator no se comparte).
+public final class ExoLoadBudget {
+    private static final String TAG = "ExoLoadBudget";
+    // Limites de memoryClass (MB de heap por app) entre niveles
+    private static final int LOW_MEMORY_CLASS_MB = 128;
+    private static final int MID_MEMORY_CLASS_MB = 256;
+    private static final int MB = 1024 * 1024;
+
+    private static final ExoLoadBudget LOW_LIVE = new ExoLoadBudget("low_live", 4000, 12000, 1500, 3000, 0, 12 * MB);
+    private static final ExoLoadBudget LOW_VOD = new ExoLoadBudget("low_vod", 15000, 30000, 2500, 4000, 5000, 20 * MB);
+    private static final ExoLoadBudget MID_LIVE = new ExoLoadBudget("mid_live", 8000, 25000, 1500, 3000, 0, 24 * MB);
+    private static final ExoLoadBudget MID_VOD = new ExoLoadBudget("mid_vod", 30000, 60000, 2500, 5000, 15000, 48 * MB);
+    private static final ExoLoadBudget HIGH_LIVE = new ExoLoadBudget("high_live", 10000, 40000, 1500, 3000, 0, 40 * MB);
+    private static final ExoLoadBudget HIGH_VOD = new ExoLoadBudget("high_vod", 50000, 120000, 2500, 5000, 30000, 96 * MB);
+
+    private static String tier;
+
+    final String name;
+    final int minBufferMs;
+    final int maxBufferMs;
+    final int bufferForPlaybackMs;
+    final int bufferForPlaybackAfterRebufferMs;
+    final int backBufferMs;
+    final int targetBufferBytes;
+
+    private ExoLoadBudget(String name, int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                          int bufferForPlaybackAfterRebufferMs, int backBufferMs, int targetBufferBytes) {
+        this.name = name;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.bufferForPlaybackMs = bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        this.backBufferMs = backBufferMs;
+        this.targetBufferBytes = targetBufferBytes;
+    }
+
+    public static ExoLoadBudget resolve(Context context, boolean isLiveTV) {
+        String deviceTier = resolveTier(context);
+        if ("low".equals(deviceTier)) {
+            return isLiveTV ? LOW_LIVE : LOW_VOD;
+        }
+        if ("mid".equals(deviceTier)) {
+            return isLiveTV ? MID_LIVE : MID_VOD;
+        }
+        return isLiveTV ? HIGH_LIVE : HIGH_VOD;
+    }
+
+    // Variante para los players precargados del pool de zapping
+    public ExoLoadBudget forZapCandidate() {
+        return new ExoLoadBudget(
+            name + "_zap",
+            minBufferMs,
+            minBufferMs,
+            bufferForPlaybackMs,
+            bufferForPlaybackAfterRebufferMs,
+            0,
+            targetBufferBytes / 4
+        );
+    }
+
+    public LoadControl buildLoadControl() {
+        return new DefaultLoadControl.Builder()
+            .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+            .setTargetBufferBytes(targetBufferBytes)
+            // El limite de bytes manda: es lo que evita el OOM en los sticks
+            .setPrioritizeTimeOverSizeThresholds(false)
+            .setBackBuffer(backBufferMs, true)
+            .build();
+    }
+
+    static synchronized String resolveTier(Context context) {
+        if (tier == null) {
+            ActivityManager activityManager = (ActivityManager) context.getApplicationContext().getSystemService(Context.ACTIVITY_SERVICE);
+            int memoryClass = activityManager != null ? activityManager.getMemoryClass() : LOW_MEMORY_CLASS_MB;
+            boolean lowRam = activityManager == null || activityManager.isLowRamDevice();
+            if (lowRam || memoryClass <= LOW_MEMORY_CLASS_MB) {
+                tier = "low";
+            } else if (memoryClass <= MID_MEMORY_CLASS_MB) {
+                tier = "mid";
+            } else {
+                tier = "high";
+            }
+            Log.d(TAG, "Nivel de buffer: " + tier + " (memoryClass=" + memoryClass + "MB, lowRam=" + lowRam + ")");
+        }
+        return tier;
+    }
+}
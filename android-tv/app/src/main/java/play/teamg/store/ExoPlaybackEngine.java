@@ -0,0 +1,169 @@
+package play.teamg.store;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.PlaybackParameters;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.MediaSource;
+
+// PlaybackEngine sobre un ExoPlayer ya creado (nuevo, precalentado o del pool de zapping).
+// La actividad sigue usando el ExoPlayer directamente para pistas y zapping; aqui solo va el transporte.
+// Si el tipo de stream aun no se conoce (URL sin extension), open() espera al sondeo de StreamTypeProbe.
+final class ExoPlaybackEngine implements PlaybackEngine {
+    interface SourceFactory {
+        MediaSource create(String sourceUrl);
+    }
+
+    private final ExoPlayer player;
+    private final SourceFactory sourceFactory;
+    private final StreamTypeProbe streamTypes;
+    private final Listener listener;
+    // Aperturas pedidas; la respuesta de un sondeo viejo no pisa una apertura posterior
+    private int openGeneration = 0;
+
+    private final Player.Listener playerListener = new Player.Listener() {
+        @Override
+        public void onPlayerError(PlaybackException error) {
+            // El tipo cacheado para el patron puede ser el culpable (p.ej. un HLS abierto como progresivo)
+            if (isParsingError(error)) {
+                MediaItem item = player.getCurrentMediaItem();
+                if (item != null && item.localConfiguration != null) {
+                    streamTypes.invalidate(item.localConfiguration.uri.toString());
+                }
+            }
+            String diagnostic = error.getMessage() + " " + error.getCause();
+            listener.onEngineError(
+                ExoPlaybackEngine.this,
+                ExoPlayerActivity.classifyPlaybackError(error),
+                error.getErrorCodeName(),
+                diagnostic
+            );
+        }
+
+        @Override
+        public void onPlayWhenReadyChanged(boolean playWhenReady, int reason) {
+            listener.onEnginePlayWhenReadyChanged(ExoPlaybackEngine.this, playWhenReady);
+        }
+
+        @Override
+        public void onPlaybackStateChanged(int playbackState) {
+            listener.onEngineStateChanged(ExoPlaybackEngine.this, playbackState);
+        }
+
+        @Override
+        public void onRenderedFirstFrame() {
+            listener.onEngineFirstFrame(ExoPlaybackEngine.this);
+        }
+
+        @Override
+        public void onIsPlayingChanged(boolean isPlaying) {
+            listener.onEngineIsPlayingChanged(ExoPlaybackEngine.this, isPlaying);
+        }
+    };
+
+    ExoPlaybackEngine(ExoPlayer player, SourceFactory sourceFactory, StreamTypeProbe streamTypes, Listener listener) {
+        this.player = player;
+        this.sourceFactory = sourceFactory;
+        this.streamTypes = streamTypes;
+        this.listener = listener;
+        player.addListener(playerListener);
+    }
+
+    private static boolean isParsingError(PlaybackException error) {
+        return error.errorCode >= PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED
+            && error.errorCode <= PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED;
+    }
+
+    ExoPlayer getPlayer() {
+        return player;
+    }
+
+    // Deja de recibir eventos sin liberar el player (se libera aparte, p.ej. tras un cambio de zapping).
+    void detach() {
+        openGeneration++;
+        player.removeListener(playerListener);
+    }
+
+    @Override
+    public String getName() {
+        return "exoplayer";
+    }
+
+    @Override
+    public String getPlayerType() {
+        return TYPE_EXOPLAYER;
+    }
+
+    @Override
+    public void open(final String sourceUrl, final long startPositionMs) {
+        final int generation = ++openGeneration;
+        // Con el tipo en cache la llamada es inmediata
+        streamTypes.resolve(sourceUrl, streamType -> {
+            if (generation != openGeneration) {
+                return;
+            }
+            MediaSource mediaSource = sourceFactory.create(sourceUrl);
+            if (startPositionMs > 0L) {
+                player.setMediaSource(mediaSource, startPositionMs);
+            } else {
+                player.setMediaSource(mediaSource, true);
+            }
+            player.prepare();
+            player.play();
+        });
+    }
+
+    @Override
+    public void play() {
+        player.play();
+    }
+
+    @Override
+    public void pause() {
+        player.pause();
+    }
+
+    @Override
+    public void seekTo(long positionMs) {
+        player.seekTo(positionMs);
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return player.isPlaying();
+    }
+
+    @Override
+    public boolean getPlayWhenReady() {
+        return player.getPlayWhenReady();
+    }
+
+    @Override
+    public int getPlaybackState() {
+        return player.getPlaybackState();
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        return player.getCurrentPosition();
+    }
+
+    @Override
+    public long getDuration() {
+        long duration = player.getDuration();
+        return duration < 0L ? C.TIME_UNSET : duration;
+    }
+
+    @Override
+    public void setSpeed(float speed) {
+        player.setPlaybackParameters(new PlaybackParameters(speed));
+    }
+
+    @Override
+    public void release() {
+        detach();
+        player.release();
+    }
+}
@@ -1,11 +1,9 @@
 package play.teamg.store;
 
 import android.app.PictureInPictureParams;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.res.ColorStateList;
 import android.content.res.Configuration;
 import android.graphics.Color;
@@ -40,8 +38,8 @@ import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.PlaybackException;
-import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.ProgressiveMediaSource;
 import com.google.android.exoplayer2.source.TrackGroup;
@@ -56,9 +54,10 @@ import com.google.android.exoplayer2.ui.AspectRatioFrameLayout;
 import com.google.android.exoplayer2.ui.PlayerView;
 import com.google.android.exoplayer2.upstream.DataSource;
 import com.google.android.exoplayer2.upstream.DefaultDataSource;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
 import com.google.android.exoplayer2.util.Util;
 
+import org.videolan.libvlc.util.VLCVideoLayout;
+
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -68,11 +67,8 @@ import java.text.SimpleDateFormat;
 public class ExoPlayerActivity extends AppCompatActivity {
 
     private static final String TAG = "ExoPlayerActivity";
-    private static final String ACTION_VIDEO_PLAYER_CONTROL = "VIDEO_PLAYER_CONTROL";
-    private static final String ACTION_UPDATE_LIVE_CHANNELS = "UPDATE_LIVE_CHANNELS";
     private static final long CONTROL_AUTO_HIDE_MS = 3200L;
     private static final long UI_UPDATE_INTERVAL_MS = 500L;
-    private static final long PROGRESS_UPDATE_INTERVAL_MS = 15000L;
     private static final long QUICK_SEEK_MS = 10000L;
     private static final float[] PLAYBACK_SPEEDS = new float[]{0.5f, 0.75f, 1.0f, 1.25f, 1.5f, 1.75f, 2.0f};
     private static final String[] ASPECT_RATIO_LABELS = new String[]{"Ajustar", "Zoom", "Rellenar", "Ancho"};
@@ -115,8 +111,12 @@ public class ExoPlayerActivity extends AppCompatActivity {
     private Button channelsButton;
 
     private ExoPlayer player;
+    // Motor activo para el transporte (ExoPlayer o VLC); player y trackSelector solo existen con ExoPlayer
+    private PlaybackEngine engine;
+    private VLCVideoLayout vlcVideoLayout;
     private DefaultTrackSelector trackSelector;
     private DataSource.Factory dataSourceFactory;
+    private ExoLoadBudget loadBudget;
     private AlertDialog activeDialog;
 
     private String baseTitle;
@@ -132,10 +132,29 @@ public class ExoPlayerActivity extends AppCompatActivity {
     private boolean isSeekBarArmed = false;
     private boolean controlsVisible = true;
     private boolean isScreenLocked = false;
-    private boolean isSwitchingPlayerEngine = false;
     private boolean engineFallbackAttempted = false;
+    private boolean isWaitingForPrewarm = false;
+    // Invalida la espera de un player precalentado si la actividad suelta el player antes
+    private long prewarmRequest = 0L;
     private long pendingSeekPositionMs = -1L;
-    private long lastProgressSyncAtMs = 0L;
+    private ProgressReporter progressReporter;
+    private long metricsSessionId = 0L;
+    // Mirror que se esta reproduciendo para currentVideoUrl
+    private String activeSourceUrl;
+
+    // Zapping: players de canales vecinos ya preparados en pausa y sin volumen
+    private ZapPool<ZapExo> zapPool;
+    private int requestedZapPoolSize = -1;
+
+    private static final class ZapExo {
+        final ExoPlayer player;
+        final DefaultTrackSelector trackSelector;
+
+        ZapExo(ExoPlayer player, DefaultTrackSelector trackSelector) {
+            this.player = player;
+            this.trackSelector = trackSelector;
+        }
+    }
     private int currentAspectRatioIndex = 0;
     private int currentSpeedIndex = 2;
     private int currentChannelSelection = 0;
@@ -144,15 +163,16 @@ public class ExoPlayerActivity extends AppCompatActivity {
     private View selectionPanelSourceView;
     private final ArrayList<View> selectionPanelOptionViews = new ArrayList<>();
 
-    private ArrayList<String> chapterTitles = new ArrayList<>();
-    private ArrayList<String> chapterUrls = new ArrayList<>();
-    private ArrayList<Integer> chapterSeasonNumbers = new ArrayList<>();
-    private ArrayList<Integer> chapterNumbers = new ArrayList<>();
-    private ArrayList<Integer> chapterSeasonIndices = new ArrayList<>();
-    private ArrayList<Integer> chapterIndices = new ArrayList<>();
-    private ArrayList<String> channelNames = new ArrayList<>();
-    private ArrayList<String> channelLogos = new ArrayList<>();
-    private ArrayList<String> channelUrls = new ArrayList<>();
+    private PlaybackCatalogStore.Snapshot catalogSnapshot = PlaybackCatalogStore.empty();
+    private List<String> chapterTitles = new ArrayList<>();
+    private List<String> chapterUrls = new ArrayList<>();
+    private List<Integer> chapterSeasonNumbers = new ArrayList<>();
+    private List<Integer> chapterNumbers = new ArrayList<>();
+    private List<Integer> chapterSeasonIndices = new ArrayList<>();
+    private List<Integer> chapterIndices = new ArrayList<>();
+    private List<String> channelNames = new ArrayList<>();
+    private List<String> channelLogos = new ArrayList<>();
+    private List<String> channelUrls = new ArrayList<>();
 
     private final Handler uiHandler = new Handler(Looper.getMainLooper());
     private final Handler controlsHandler = new Handler(Looper.getMainLooper());
@@ -163,7 +183,10 @@ public class ExoPlayerActivity extends AppCompatActivity {
             updateProgressUi();
             refreshControlHint();
             maybeEmitPeriodicProgress();
-            if (player != null) {
+            if (engine != null && engine.isPlaying()) {
+                recovery.onProgress();
+            }
+            if (engine != null) {
                 uiHandler.postDelayed(this, UI_UPDATE_INTERVAL_MS);
             }
         }
@@ -196,64 +219,58 @@ public class ExoPlayerActivity extends AppCompatActivity {
         }
     };
 
-    private final BroadcastReceiver controlReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            String action = intent.getStringExtra("action");
-            if (player == null || action == null) {
-                return;
-            }
+    private final PlayerEventBus.Listener<PlayerEventBus.Control> controlListener = event -> {
+        String action = event.action;
+        if (engine == null || action == null) {
+            return;
+        }
 
-            switch (action) {
-                case "pause":
-                    player.pause();
-                    showControls();
-                    emitProgress(false, true);
-                    break;
-                case "play":
-                    player.play();
-                    showControls();
-                    break;
-                case "stop":
-                    releasePlayer("stop");
-                    finish();
-                    break;
-                case "seek":
-                    long position = Math.max(0L, intent.getLongExtra("position", 0L) * 1000L);
-                    player.seekTo(position);
-                    pendingSeekPositionMs = -1L;
-                    isSeekBarArmed = false;
-                    updateProgressUi();
-                    refreshControlHint();
-                    showControls();
-                    emitProgress(false, true);
-                    break;
-                case "getCurrentTime":
+        switch (action) {
+            case "pause":
+                engine.pause();
+                showControls();
+                emitProgress(false, true);
+                break;
+            case "play":
+                engine.play();
+                showControls();
+                break;
+            case "stop":
+                releasePlayer("stop");
+                finish();
+                break;
+            case "seek":
+                long position = Math.max(0L, event.position * 1000L);
+                engine.seekTo(position);
+                pendingSeekPositionMs = -1L;
+                isSeekBarArmed = false;
+                updateProgressUi();
+                refreshControlHint();
+                showControls();
+                emitProgress(false, true);
+                break;
+            case "getCurrentTime":
+                if (event.requestId > 0) {
+                    PlayerEventBus.post(new PlayerEventBus.PositionReply(
+                        event.requestId,
+                        Math.max(0L, engine.getCurrentPosition()),
+                        engine.getPlaybackState() == PlaybackEngine.STATE_ENDED,
+                        seasonIndex,
+                        chapterIndex,
+                        -1,
+                        engine.getName()
+                    ));
+                } else {
                     emitProgress(false, true);
-                    break;
-                default:
-                    break;
-            }
+                }
+                break;
+            default:
+                break;
         }
     };
 
-    private final BroadcastReceiver liveChannelsReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            ArrayList<String> names = intent.getStringArrayListExtra("channel_names");
-            ArrayList<String> logos = intent.getStringArrayListExtra("channel_logos");
-            ArrayList<String> urls = intent.getStringArrayListExtra("channel_urls");
-
-            channelNames = names != null ? names : new ArrayList<>();
-            channelLogos = logos != null ? logos : new ArrayList<>();
-            channelUrls = urls != null ? urls : new ArrayList<>();
-            currentChannelSelection = resolveCurrentChannelSelection();
-
-            updateControlAvailability();
-            updateHeaderAndMeta();
-            Log.d(TAG, "Updated live channels in ExoPlayer: " + channelUrls.size());
-        }
-    };
+    private PlayerEventBus.Subscription<PlayerEventBus.Control> controlSubscription;
+    private PlayerEventBus.Subscription<PlayerEventBus.ChannelsUpdated> liveChannelsSubscription;
 
     private interface DialogSelectionHandler {
         void onSelected(int index);
@@ -282,6 +299,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        progressReporter = new ProgressReporter("exoplayer", ResumeJournal.getInstance(this));
 
         getWindow().setFlags(
             WindowManager.LayoutParams.FLAG_FULLSCREEN,
@@ -294,6 +312,8 @@ public class ExoPlayerActivity extends AppCompatActivity {
 
         bindViews();
         readIntentExtras();
+        metricsSessionId = PlaybackMetrics.attach(getIntent(), currentVideoUrl, "exoplayer");
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_ACTIVITY_CREATED);
 
         if (TextUtils.isEmpty(currentVideoUrl)) {
             Toast.makeText(this, "URL de video no valida", Toast.LENGTH_SHORT).show();
@@ -303,17 +323,18 @@ public class ExoPlayerActivity extends AppCompatActivity {
 
         configureOverlay();
 
-        IntentFilter controlFilter = new IntentFilter(ACTION_VIDEO_PLAYER_CONTROL);
-        ContextCompat.registerReceiver(this, controlReceiver, controlFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
-
-        IntentFilter liveFilter = new IntentFilter(ACTION_UPDATE_LIVE_CHANNELS);
-        ContextCompat.registerReceiver(this, liveChannelsReceiver, liveFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
+        controlSubscription = PlayerEventBus.subscribe(PlayerEventBus.Control.class, controlListener);
+        liveChannelsSubscription = PlayerEventBus.subscribe(
+            PlayerEventBus.ChannelsUpdated.class,
+            event -> applyLiveChannelSnapshot(PlaybackCatalogStore.get(event.snapshotId))
+        );
 
         initializePlayer();
     }
 
     private void bindViews() {
         playerView = findViewById(R.id.player_view);
+        vlcVideoLayout = findViewById(R.id.vlc_video_layout);
         topScrim = findViewById(R.id.top_scrim);
         bottomScrim = findViewById(R.id.bottom_scrim);
         topPanel = findViewById(R.id.top_panel);
@@ -357,6 +378,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
         contentType = intent.getStringExtra("content_type");
         requestedPlayerType = intent.getStringExtra("player_type");
         engineFallbackAttempted = intent.getBooleanExtra("engine_fallback_attempted", false);
+        requestedZapPoolSize = intent.getIntExtra("zap_pool_size", -1);
         if (contentType == null) {
             contentType = "series";
         }
@@ -364,41 +386,57 @@ public class ExoPlayerActivity extends AppCompatActivity {
             requestedPlayerType = "android-exoplayer";
         }
 
-        ArrayList<String> extraChapterTitles = intent.getStringArrayListExtra("chapter_titles");
-        ArrayList<String> extraChapterUrls = intent.getStringArrayListExtra("chapter_urls");
-        ArrayList<Integer> extraChapterSeasonNumbers = intent.getIntegerArrayListExtra("chapter_season_numbers");
-        ArrayList<Integer> extraChapterNumbers = intent.getIntegerArrayListExtra("chapter_numbers");
-        ArrayList<Integer> extraChapterSeasonIndices = intent.getIntegerArrayListExtra("chapter_season_indices");
-        ArrayList<Integer> extraChapterIndices = intent.getIntegerArrayListExtra("chapter_indices");
-        ArrayList<String> extraChannelNames = intent.getStringArrayListExtra("channel_names");
-        ArrayList<String> extraChannelLogos = intent.getStringArrayListExtra("channel_logos");
-        ArrayList<String> extraChannelUrls = intent.getStringArrayListExtra("channel_urls");
-
-        chapterTitles = extraChapterTitles != null ? extraChapterTitles : new ArrayList<>();
-        chapterUrls = extraChapterUrls != null ? extraChapterUrls : new ArrayList<>();
-        chapterSeasonNumbers = extraChapterSeasonNumbers != null ? extraChapterSeasonNumbers : new ArrayList<>();
-        chapterNumbers = extraChapterNumbers != null ? extraChapterNumbers : new ArrayList<>();
-        chapterSeasonIndices = extraChapterSeasonIndices != null ? extraChapterSeasonIndices : new ArrayList<>();
-        chapterIndices = extraChapterIndices != null ? extraChapterIndices : new ArrayList<>();
-        channelNames = extraChannelNames != null ? extraChannelNames : new ArrayList<>();
-        channelLogos = extraChannelLogos != null ? extraChannelLogos : new ArrayList<>();
-        channelUrls = extraChannelUrls != null ? extraChannelUrls : new ArrayList<>();
+        // Tras la muerte del proceso el catalogo llega despues (lectura en disco en segundo plano)
+        applyCatalogSnapshot(PlaybackCatalogStore.resolve(this, intent, this::onCatalogRestored));
 
         currentChannelSelection = resolveCurrentChannelSelection();
         if (TextUtils.isEmpty(baseTitle)) {
-            if (isLiveTV && !channelNames.isEmpty()) {
-                baseTitle = safeGet(channelNames, currentChannelSelection, "Canal en vivo");
-            } else {
-                int chapterListIndex = resolveCurrentChapterListIndex();
-                if (chapterListIndex >= 0) {
-                    baseTitle = safeGet(chapterTitles, chapterListIndex, "Video");
-                } else {
-                    baseTitle = "TeamG Play";
-                }
-            }
+            baseTitle = titleFromCatalog();
         }
     }
 
+    private void applyCatalogSnapshot(PlaybackCatalogStore.Snapshot resolved) {
+        PlaybackCatalogStore.swap(catalogSnapshot, resolved);
+        catalogSnapshot = resolved;
+        chapterTitles = catalogSnapshot.chapterTitles;
+        chapterUrls = catalogSnapshot.chapterUrls;
+        chapterSeasonNumbers = catalogSnapshot.chapterSeasonNumbers;
+        chapterNumbers = catalogSnapshot.chapterNumbers;
+        chapterSeasonIndices = catalogSnapshot.chapterSeasonIndices;
+        chapterIndices = catalogSnapshot.chapterIndices;
+        channelNames = catalogSnapshot.channelNames;
+        channelLogos = catalogSnapshot.channelLogos;
+        channelUrls = catalogSnapshot.channelUrls;
+    }
+
+    // Episodios/canales restaurados del disco: la reproduccion ya empezo con la URL del Intent
+    private void onCatalogRestored(PlaybackCatalogStore.Snapshot snapshot) {
+        long requestedId = getIntent().getLongExtra(PlaybackCatalogStore.EXTRA_SNAPSHOT_ID, 0L);
+        if (isFinishing() || isDestroyed() || snapshot.lineageId != requestedId) {
+            return;
+        }
+        boolean titleFromCatalog = TextUtils.isEmpty(getIntent().getStringExtra("video_title"));
+        applyCatalogSnapshot(snapshot);
+        currentChannelSelection = resolveCurrentChannelSelection();
+        if (titleFromCatalog) {
+            baseTitle = titleFromCatalog();
+        }
+        updateControlAvailability();
+        updateHeaderAndMeta();
+        // Como en el primer frame: vecinos solo cuando el canal actual ya se ve
+        if (player != null && player.getPlaybackState() == Player.STATE_READY) {
+            refillZapPool();
+        }
+    }
+
+    private String titleFromCatalog() {
+        if (isLiveTV && !channelNames.isEmpty()) {
+            return safeGet(channelNames, currentChannelSelection, "Canal en vivo");
+        }
+        int chapterListIndex = resolveCurrentChapterListIndex();
+        return chapterListIndex >= 0 ? safeGet(chapterTitles, chapterListIndex, "Video") : "TeamG Play";
+    }
+
     private void configureOverlay() {
         playerView.setUseController(false);
         playerView.setKeepContentOnPlayerReset(true);
@@ -509,98 +547,345 @@ public class ExoPlayerActivity extends AppCompatActivity {
         });
     }
 
+    // Misma politica de reintentos que VLC; los fallos de decoder pasan antes a VLC si se puede
+    private final PlaybackRecovery recovery = new PlaybackRecovery(TAG, new PlaybackRecovery.Callback() {
+        @Override
+        public void onRetry(int failure, int attempt) {
+            retryPlayback(failure);
+        }
+
+        @Override
+        public void onGiveUp(int failure, String reason) {
+            if (failure != PlaybackRecovery.FAILURE_DECODER && failoverToNextSource()) {
+                return;
+            }
+            Toast.makeText(
+                ExoPlayerActivity.this,
+                "Error de reproduccion: " + reason,
+                Toast.LENGTH_LONG
+            ).show();
+            showControls();
+        }
+    });
+
+    // Eventos del motor activo. Con ExoPlayer, tambien los de los players que llegan del pool de zapping.
+    private final PlaybackEngine.Listener engineListener = new PlaybackEngine.Listener() {
+        @Override
+        public void onEngineError(PlaybackEngine source, int failure, String reason, String diagnostic) {
+            if (source != engine) {
+                return;
+            }
+            Log.e(TAG, "Player error (" + source.getName() + "): " + reason + " " + diagnostic);
+            PlaybackMetrics.finish(metricsSessionId, "error");
+            if (shouldAutoSwitchToAlternatePlayer(failure, diagnostic)) {
+                Toast.makeText(
+                    ExoPlayerActivity.this,
+                    "ExoPlayer no pudo con este stream. Probando VLC...",
+                    Toast.LENGTH_LONG
+                ).show();
+                switchPlayerEngine(PlaybackEngine.TYPE_VLC, true, "decoder_fallback");
+                return;
+            }
+            recovery.reportFailure(failure, reason);
+        }
+
+        @Override
+        public void onEnginePlayWhenReadyChanged(PlaybackEngine source, boolean playWhenReady) {
+            if (source == engine) {
+                updateRecoveryWatch();
+            }
+        }
+
+        @Override
+        public void onEngineStateChanged(PlaybackEngine source, int playbackState) {
+            if (source != engine) {
+                return;
+            }
+
+            if (playbackState == PlaybackEngine.STATE_BUFFERING || playbackState == PlaybackEngine.STATE_READY) {
+                PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_FIRST_BUFFERING);
+            }
+            updateRecoveryWatch();
+
+            if (playbackState == PlaybackEngine.STATE_READY) {
+                mediaDurationMs = resolveDurationMs();
+                // La posicion inicial ya se paso al abrir la fuente
+                pendingStartTimeMs = 0L;
+                updateProgressUi();
+                refreshControlHint();
+                updatePlayPauseButton();
+                updateHeaderAndMeta();
+                scheduleUiUpdates();
+                scheduleHideControls();
+                emitProgress(false, true);
+            } else if (playbackState == PlaybackEngine.STATE_ENDED) {
+                updatePlayPauseButton();
+                emitProgress(true, true);
+                showControls();
+            } else if (playbackState == PlaybackEngine.STATE_BUFFERING) {
+                updatePlayPauseButton();
+            }
+        }
+
+        @Override
+        public void onEngineFirstFrame(PlaybackEngine source) {
+            if (source != engine) {
+                return;
+            }
+            PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_FIRST_FRAME);
+            PlaybackMetrics.finish(metricsSessionId, "first_frame");
+            recovery.onPlaybackConfirmed();
+            StreamMirrors.recordWin(currentVideoUrl, activeSourceUrl);
+            // Pre-abrir vecinos cuando el canal actual ya se ve, para no competir por ancho de banda
+            refillZapPool();
+        }
+
+        @Override
+        public void onEngineIsPlayingChanged(PlaybackEngine source, boolean isPlaying) {
+            if (source != engine) {
+                return;
+            }
+            updatePlayPauseButton();
+            if (isPlaying) {
+                scheduleUiUpdates();
+                scheduleHideControls();
+            } else {
+                controlsHandler.removeCallbacks(hideControlsRunnable);
+                emitProgress(false, true);
+            }
+        }
+    };
+
     private void initializePlayer() {
-        if (player != null) {
+        if (engine != null || isWaitingForPrewarm) {
             return;
         }
 
-        dataSourceFactory = new DefaultDataSource.Factory(
-            this,
-            new DefaultHttpDataSource.Factory()
-                .setUserAgent(Util.getUserAgent(this, "TeamGPlay"))
-                .setConnectTimeoutMs(30000)
-                .setReadTimeoutMs(30000)
-        );
+        dataSourceFactory = createDataSourceFactory(this, isLiveTV);
+        loadBudget = ExoLoadBudget.resolve(this, isLiveTV);
 
+        if (PlaybackEngine.TYPE_VLC.equalsIgnoreCase(requestedPlayerType)) {
+            // La actividad ya habia pasado a VLC (p.ej. vuelve de segundo plano)
+            createEngine(PlaybackEngine.TYPE_VLC);
+            metricsSessionId = PlaybackMetrics.ensure(metricsSessionId, currentVideoUrl, engine.getName(), "activity");
+            PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+            loadMedia(currentVideoUrl, pendingStartTimeMs);
+            return;
+        }
+
+        // Si el plugin ya empezo a abrir este stream mientras arrancaba la actividad, se reutiliza
+        // (esperando a que termine de prepararlo si aun esta en ello).
+        isWaitingForPrewarm = true;
+        final long request = ++prewarmRequest;
+        PlaybackPrewarmer.takeExo(currentVideoUrl, prepared -> {
+            // Una espera abandonada por releasePlayer, o la actividad ya se esta cerrando
+            boolean abandoned = request != prewarmRequest;
+            if (!abandoned) {
+                isWaitingForPrewarm = false;
+            }
+            if (abandoned || isFinishing() || engine != null) {
+                if (prepared != null) {
+                    prepared.player.release();
+                }
+                return;
+            }
+            startExoEngine(prepared);
+        });
+    }
+
+    private void startExoEngine(PlaybackPrewarmer.PreparedExo prepared) {
+        if (prepared != null) {
+            trackSelector = prepared.trackSelector;
+            player = prepared.player;
+            pendingStartTimeMs = 0L;
+            Log.d(TAG, "Usando ExoPlayer precalentado (" + prepared.ageMs() + "ms)");
+            attachExoEngine();
+        } else {
+            createEngine(PlaybackEngine.TYPE_EXOPLAYER);
+        }
+        metricsSessionId = PlaybackMetrics.ensure(metricsSessionId, currentVideoUrl, "exoplayer", "activity");
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+        PlaybackMetrics.putAttribute(metricsSessionId, "prewarmed", prepared != null);
+        PlaybackMetrics.putAttribute(metricsSessionId, "loadBudget", loadBudget.name);
+
+        if (prepared != null) {
+            beginSource(currentVideoUrl);
+            adoptPreparedPlayer();
+            return;
+        }
+        loadMedia(currentVideoUrl, pendingStartTimeMs);
+    }
+
+    // Crea el motor sobre su superficie. VLC usa el VLCVideoLayout del layout y oculta la vista de ExoPlayer.
+    private void createEngine(String playerType) {
+        if (PlaybackEngine.TYPE_VLC.equalsIgnoreCase(playerType)) {
+            player = null;
+            trackSelector = null;
+            playerView.setPlayer(null);
+            playerView.setVisibility(View.GONE);
+            vlcVideoLayout.setVisibility(View.VISIBLE);
+            engine = new VlcPlaybackEngine(this, vlcVideoLayout, isLiveTV, engineListener);
+            engine.setSpeed(PLAYBACK_SPEEDS[currentSpeedIndex]);
+            return;
+        }
         trackSelector = new DefaultTrackSelector(this);
         player = new ExoPlayer.Builder(this)
             .setTrackSelector(trackSelector)
+            .setLoadControl(loadBudget.buildLoadControl())
             .build();
+        attachExoEngine();
+    }
 
+    private void attachExoEngine() {
+        vlcVideoLayout.setVisibility(View.GONE);
+        playerView.setVisibility(View.VISIBLE);
         playerView.setPlayer(player);
-        player.setPlaybackParameters(new PlaybackParameters(PLAYBACK_SPEEDS[currentSpeedIndex]));
+        engine = new ExoPlaybackEngine(player, this::createMediaSource, StreamTypeProbe.getInstance(this), engineListener);
+        engine.setSpeed(PLAYBACK_SPEEDS[currentSpeedIndex]);
+    }
 
-        player.addListener(new Player.Listener() {
-            @Override
-            public void onPlayerError(PlaybackException error) {
-                Log.e(TAG, "Player error: " + error.getMessage(), error);
-                if (shouldAutoSwitchToAlternatePlayer(error)) {
-                    Toast.makeText(
-                        ExoPlayerActivity.this,
-                        "ExoPlayer no pudo con este stream. Probando VLC...",
-                        Toast.LENGTH_LONG
-                    ).show();
-                    switchPlayerEngine("android-vlc", true, "decoder_fallback");
-                    return;
-                }
-                Toast.makeText(
-                    ExoPlayerActivity.this,
-                    "Error de reproduccion: " + error.getMessage(),
-                    Toast.LENGTH_LONG
-                ).show();
-                showControls();
+    // Sustituye el motor sin tocar la UI ni el catalogo. No abre nada: eso lo hace loadMedia.
+    private void replaceEngine(String playerType, boolean flushProgress) {
+        if (engine != null) {
+            if (flushProgress) {
+                emitProgress(false, true);
+            }
+            recovery.cancel();
+            if (zapPool != null) {
+                zapPool.clear();
+                zapPool = null;
             }
+            try {
+                engine.release();
+            } catch (Exception e) {
+                Log.w(TAG, "Error releasing engine", e);
+            }
+            engine = null;
+            player = null;
+            trackSelector = null;
+        }
+        requestedPlayerType = playerType;
+        createEngine(playerType);
+        updatePlayPauseButton();
+    }
 
-            @Override
-            public void onPlaybackStateChanged(int playbackState) {
-                if (player == null) {
-                    return;
-                }
+    // Eleccion de motor por contenido: un capitulo o canal que ExoPlayer no puede abrir pasa a VLC aqui mismo
+    private void ensureEngineForItem(String targetUrl) {
+        if (!(engine instanceof ExoPlaybackEngine)) {
+            return;
+        }
+        String exoBlocker = DecoderCapabilities.getInstance(this)
+            .exoBlocker(DecoderCapabilities.StreamHints.from(targetUrl, null, null, null));
+        if (exoBlocker == null) {
+            return;
+        }
+        Log.d(TAG, "Pasando a VLC para este contenido: " + exoBlocker);
+        replaceEngine(PlaybackEngine.TYPE_VLC, false);
+    }
 
-                if (playbackState == Player.STATE_READY) {
-                    mediaDurationMs = resolveDurationMs();
-                    if (pendingStartTimeMs > 0L) {
-                        player.seekTo(pendingStartTimeMs);
-                        pendingStartTimeMs = 0L;
-                    }
-                    updateProgressUi();
-                    refreshControlHint();
-                    updatePlayPauseButton();
-                    updateHeaderAndMeta();
-                    scheduleUiUpdates();
-                    scheduleHideControls();
-                    emitProgress(false, true);
-                } else if (playbackState == Player.STATE_ENDED) {
-                    updatePlayPauseButton();
-                    emitProgress(true, true);
-                    showControls();
-                } else if (playbackState == Player.STATE_BUFFERING) {
-                    updatePlayPauseButton();
+    // Mismo estado de UI que loadMedia, pero sin volver a preparar: el player ya esta bufferizando.
+    private void adoptPreparedPlayer() {
+        mediaDurationMs = 0L;
+        pendingSeekPositionMs = -1L;
+        isSeekBarArmed = false;
+        currentChannelSelection = resolveCurrentChannelSelection();
+        updateHeaderAndMeta();
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_MEDIA_SET);
+        if (player.getPlaybackState() != Player.STATE_IDLE) {
+            PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_FIRST_BUFFERING);
+        }
+        player.play();
+        updatePlayPauseButton();
+        if (player.getPlaybackState() == Player.STATE_READY) {
+            mediaDurationMs = resolveDurationMs();
+            updateProgressUi();
+            refreshControlHint();
+            scheduleUiUpdates();
+            scheduleHideControls();
+        }
+    }
+
+    private void refillZapPool() {
+        if (!isLiveTV || isFinishing() || player == null || channelUrls == null || channelUrls.isEmpty()) {
+            return;
+        }
+        if (zapPool == null) {
+            // ExoPlayer vive en el hilo principal; la carga real va en su hilo interno
+            zapPool = new ZapPool<>(TAG, ZapPool.resolveBudget(this, requestedZapPoolSize), new ZapPool.Opener<ZapExo>() {
+                @Override
+                public ZapExo open(String url) {
+                    DefaultTrackSelector zapTrackSelector = new DefaultTrackSelector(ExoPlayerActivity.this);
+                    ExoPlayer zapPlayer = new ExoPlayer.Builder(ExoPlayerActivity.this)
+                        .setTrackSelector(zapTrackSelector)
+                        .setLoadControl(loadBudget.forZapCandidate().buildLoadControl())
+                        .build();
+                    zapPlayer.setVolume(0f);
+                    String sourceUrl = StreamMirrors.sourceFor(url);
+                    zapPlayer.setMediaSource(createMediaSource(sourceUrl));
+                    zapPlayer.setPlayWhenReady(false);
+                    zapPlayer.prepare();
+                    return new ZapExo(zapPlayer, zapTrackSelector);
                 }
-            }
 
-            @Override
-            public void onIsPlayingChanged(boolean isPlaying) {
-                updatePlayPauseButton();
-                if (isPlaying) {
-                    scheduleUiUpdates();
-                    scheduleHideControls();
-                } else {
-                    controlsHandler.removeCallbacks(hideControlsRunnable);
-                    emitProgress(false, true);
+                @Override
+                public void release(ZapExo zap) {
+                    zap.player.release();
                 }
-            }
+            }, uiHandler::post);
+        }
+        zapPool.noteWatched(currentVideoUrl);
+        zapPool.refill(channelUrls, resolveCurrentChannelSelection());
+    }
 
-        });
+    private void swapToZapPlayer(String url, ZapExo zap) {
+        final ExoPlayer previousPlayer = player;
+        if (engine instanceof ExoPlaybackEngine) {
+            ((ExoPlaybackEngine) engine).detach();
+        }
 
-        loadMedia(currentVideoUrl, pendingStartTimeMs);
+        metricsSessionId = PlaybackMetrics.ensure(metricsSessionId, url, "exoplayer", "switch");
+        beginSource(url);
+        currentVideoUrl = url;
+        pendingStartTimeMs = 0L;
+        trackSelector = zap.trackSelector;
+        player = zap.player;
+        player.setVolume(1f);
+        attachExoEngine();
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+
+        if (isSelectionPanelVisible) {
+            closeSelectionPanel(false);
+        }
+        controlHintView.setText("DPAD Navegar | OK Seleccionar | BACK Salir");
+        adoptPreparedPlayer();
+        updateRecoveryWatch();
+
+        // release() espera al hilo interno de ExoPlayer: despues de mostrar el canal nuevo
+        if (previousPlayer != null) {
+            uiHandler.post(previousPlayer::release);
+        }
+    }
+
+    // HTTP por el cliente compartido (MediaHttpClient): las conexiones siguen vivas entre capitulos y canales.
+    // VOD pasa por la cache en disco (VodMediaCache); el directo va siempre directo a la red.
+    static DataSource.Factory createDataSourceFactory(Context context, boolean isLive) {
+        OkHttpDataSource.Factory httpFactory = new OkHttpDataSource.Factory(MediaHttpClient.get(context))
+            .setUserAgent(Util.getUserAgent(context, "TeamGPlay"));
+        if (isLive) {
+            return new DefaultDataSource.Factory(context, httpFactory);
+        }
+        return VodMediaCache.getInstance(context).wrap(httpFactory);
     }
 
     private void loadMedia(String targetUrl, long startPositionMs) {
-        if (player == null || TextUtils.isEmpty(targetUrl)) {
+        if (engine == null || TextUtils.isEmpty(targetUrl)) {
             return;
         }
+        ensureEngineForItem(targetUrl);
 
+        // Cambio de canal/episodio: nueva sesion de metricas si la URL cambia
+        metricsSessionId = PlaybackMetrics.ensure(metricsSessionId, targetUrl, engine.getName(), "switch");
+        beginSource(targetUrl);
         currentVideoUrl = targetUrl;
         pendingStartTimeMs = Math.max(0L, startPositionMs);
         mediaDurationMs = 0L;
@@ -613,23 +898,106 @@ public class ExoPlayerActivity extends AppCompatActivity {
         currentChannelSelection = resolveCurrentChannelSelection();
         updateHeaderAndMeta();
 
-        MediaItem mediaItem = MediaItem.fromUri(Uri.parse(targetUrl));
-        MediaSource mediaSource = buildMediaSource(targetUrl, mediaItem);
-        player.setMediaSource(mediaSource, true);
+        engine.open(activeSourceUrl, pendingStartTimeMs);
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_MEDIA_SET);
+        updatePlayPauseButton();
+        updateRecoveryWatch();
+    }
+
+    // Mirror de url con el que se abre el stream; la recuperacion y el circuit breaker van por fuente
+    private void beginSource(String url) {
+        activeSourceUrl = StreamMirrors.sourceFor(url);
+        recovery.reset(activeSourceUrl);
+        StreamMirrors.recordAttempt(url, activeSourceUrl);
+        PlaybackMetrics.putAttribute(metricsSessionId, "source", activeSourceUrl);
+    }
+
+    // Recuperacion agotada en este mirror: el mismo player pasa al siguiente en la misma posicion.
+    // Aqui no se abre una segunda fuente en paralelo al arrancar (eso solo lo hace VLCPlayerActivity).
+    private boolean failoverToNextSource() {
+        if (engine == null) {
+            return false;
+        }
+        String nextSource = StreamMirrors.failover(currentVideoUrl, activeSourceUrl);
+        if (nextSource == null) {
+            return false;
+        }
+        activeSourceUrl = nextSource;
+        recovery.reset(nextSource);
+        StreamMirrors.recordAttempt(currentVideoUrl, nextSource);
+        PlaybackMetrics.putAttribute(metricsSessionId, "source", nextSource);
+        PlaybackMetrics.putAttribute(metricsSessionId, "failover", true);
+        Toast.makeText(this, "Probando fuente alternativa...", Toast.LENGTH_SHORT).show();
+
+        engine.open(nextSource, isLiveTV ? 0L : Math.max(0L, engine.getCurrentPosition()));
+        updateRecoveryWatch();
+        return true;
+    }
+
+    // Solo se vigilan cortes mientras el player intenta reproducir (no en pausa, fin o error)
+    private void updateRecoveryWatch() {
+        if (engine == null) {
+            recovery.setWatching(false);
+            return;
+        }
+        int state = engine.getPlaybackState();
+        recovery.setWatching(engine.getPlayWhenReady()
+            && (state == PlaybackEngine.STATE_BUFFERING || state == PlaybackEngine.STATE_READY));
+        recovery.onBuffering(state == PlaybackEngine.STATE_BUFFERING);
+    }
+
+    // Reintento programado por PlaybackRecovery: el mismo player vuelve a preparar la fuente
+    private void retryPlayback(int failure) {
+        if (engine == null) {
+            return;
+        }
+        Toast.makeText(this, "Reconectando transmision...", Toast.LENGTH_SHORT).show();
+        if (player == null) {
+            // VLC: se reabre la fuente (en directo, en el borde en vivo)
+            engine.open(activeSourceUrl, isLiveTV ? 0L : Math.max(0L, engine.getCurrentPosition()));
+            return;
+        }
+        if (isLiveTV) {
+            // En directo (y con BEHIND_LIVE_WINDOW) se vuelve al borde en vivo
+            player.seekToDefaultPosition();
+        } else if (failure == PlaybackRecovery.FAILURE_STALL) {
+            // Fuerza a descartar el buffer atascado y volver a pedir desde la posicion actual
+            player.seekTo(player.getCurrentPosition());
+        }
         player.prepare();
         player.play();
-        updatePlayPauseButton();
+    }
+
+    // Entrada/red frente a decoder/formato: reintentar solo tiene sentido en el primer caso
+    static int classifyPlaybackError(PlaybackException error) {
+        int code = error.errorCode;
+        if ((code >= PlaybackException.ERROR_CODE_DECODER_INIT_FAILED
+                && code <= PlaybackException.ERROR_CODE_DECODING_FORMAT_UNSUPPORTED)
+            || code == PlaybackException.ERROR_CODE_AUDIO_TRACK_INIT_FAILED
+            || code == PlaybackException.ERROR_CODE_PARSING_CONTAINER_UNSUPPORTED
+            || code == PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED) {
+            return PlaybackRecovery.FAILURE_DECODER;
+        }
+        return PlaybackRecovery.FAILURE_NETWORK;
     }
 
     private MediaSource buildMediaSource(String targetUrl, MediaItem mediaItem) {
-        String lowerUrl = targetUrl.toLowerCase(Locale.ROOT);
-        if (lowerUrl.contains(".m3u8")) {
-            return new HlsMediaSource.Factory(dataSourceFactory).createMediaSource(mediaItem);
+        return buildMediaSource(dataSourceFactory, StreamTypeProbe.getInstance(this).peek(targetUrl), mediaItem);
+    }
+
+    private MediaSource createMediaSource(String sourceUrl) {
+        return buildMediaSource(sourceUrl, MediaItem.fromUri(Uri.parse(sourceUrl)));
+    }
+
+    // streamType de StreamTypeProbe; sin sondeo (TYPE_UNKNOWN) se abre como progresivo, igual que antes.
+    static MediaSource buildMediaSource(DataSource.Factory factory, int streamType, MediaItem mediaItem) {
+        if (streamType == StreamTypeProbe.TYPE_HLS) {
+            return new HlsMediaSource.Factory(factory).createMediaSource(mediaItem);
         }
-        if (lowerUrl.contains(".mpd")) {
-            return new DashMediaSource.Factory(dataSourceFactory).createMediaSource(mediaItem);
+        if (streamType == StreamTypeProbe.TYPE_DASH) {
+            return new DashMediaSource.Factory(factory).createMediaSource(mediaItem);
         }
-        return new ProgressiveMediaSource.Factory(dataSourceFactory).createMediaSource(mediaItem);
+        return new ProgressiveMediaSource.Factory(factory).createMediaSource(mediaItem);
     }
 
     private void scheduleUiUpdates() {
@@ -642,33 +1010,24 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void maybeEmitPeriodicProgress() {
-        if (player == null || !player.isPlaying()) {
+        if (engine == null || !engine.isPlaying()) {
             return;
         }
-        long now = System.currentTimeMillis();
-        if (now - lastProgressSyncAtMs >= PROGRESS_UPDATE_INTERVAL_MS) {
-            emitProgress(false, false);
-        }
+        emitProgress(false, false);
     }
 
     private void emitProgress(boolean completed, boolean forceSync) {
-        if (player == null) {
+        if (engine == null) {
             return;
         }
 
-        Intent intent = new Intent("VIDEO_PROGRESS_UPDATE");
-        intent.setPackage(getPackageName());
-        intent.putExtra("currentTime", Math.max(0L, player.getCurrentPosition() / 1000L));
-        intent.putExtra("completed", completed);
-        intent.putExtra("forceSync", forceSync);
-        if (seasonIndex >= 0) {
-            intent.putExtra("seasonIndex", seasonIndex);
-        }
-        if (chapterIndex >= 0) {
-            intent.putExtra("chapterIndex", chapterIndex);
+        long positionMs = Math.max(0L, engine.getCurrentPosition());
+        String resumeUrl = isLiveTV ? null : currentVideoUrl;
+        if (forceSync) {
+            progressReporter.flush(resumeUrl, positionMs, completed, seasonIndex, chapterIndex, -1);
+        } else {
+            progressReporter.onPosition(resumeUrl, positionMs, seasonIndex, chapterIndex, -1);
         }
-        sendBroadcast(intent);
-        lastProgressSyncAtMs = System.currentTimeMillis();
     }
 
     private void notifyPlayerClosed(String reason) {
@@ -677,29 +1036,36 @@ public class ExoPlayerActivity extends AppCompatActivity {
         }
 
         playerClosedNotified = true;
-        Intent intent = new Intent("VIDEO_PLAYER_CLOSED");
-        intent.setPackage(getPackageName());
-        intent.putExtra("reason", reason);
-        sendBroadcast(intent);
+        PlayerEventBus.post(new PlayerEventBus.Closed(reason));
     }
 
     private void releasePlayer(String reason) {
+        prewarmRequest++;
+        isWaitingForPrewarm = false;
         controlsHandler.removeCallbacks(hideControlsRunnable);
         controlsHandler.removeCallbacks(hideLockMessageRunnable);
         controlsHandler.removeCallbacks(clockUpdateRunnable);
         stopUiUpdates();
+        recovery.cancel();
+        PlaybackMetrics.finish(metricsSessionId, "closed");
 
         if (activeDialog != null && activeDialog.isShowing()) {
             activeDialog.dismiss();
         }
 
-        if (player != null) {
+        if (zapPool != null) {
+            zapPool.clear();
+            zapPool = null;
+        }
+
+        if (engine != null) {
             emitProgress(false, true);
             try {
-                player.release();
+                engine.release();
             } catch (Exception e) {
                 Log.w(TAG, "Error releasing player", e);
             }
+            engine = null;
             player = null;
         }
 
@@ -745,14 +1111,14 @@ public class ExoPlayerActivity extends AppCompatActivity {
                 showControls();
                 return true;
             case KeyEvent.KEYCODE_MEDIA_PLAY:
-                if (player != null) {
-                    player.play();
+                if (engine != null) {
+                    engine.play();
                 }
                 showControls();
                 return true;
             case KeyEvent.KEYCODE_MEDIA_PAUSE:
-                if (player != null) {
-                    player.pause();
+                if (engine != null) {
+                    engine.pause();
                 }
                 showControls();
                 return true;
@@ -804,7 +1170,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void updateProgressUi() {
-        if (player == null) {
+        if (engine == null) {
             return;
         }
 
@@ -816,7 +1182,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
             return;
         }
 
-        long currentPositionMs = Math.max(0L, player.getCurrentPosition());
+        long currentPositionMs = Math.max(0L, engine.getCurrentPosition());
         long resolvedDurationMs = resolveDurationMs();
 
         if (resolvedDurationMs > 0L) {
@@ -840,10 +1206,10 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private long resolveDurationMs() {
-        if (player == null) {
+        if (engine == null) {
             return mediaDurationMs;
         }
-        long duration = player.getDuration();
+        long duration = engine.getDuration();
         if (duration == C.TIME_UNSET || duration < 0L) {
             return mediaDurationMs;
         }
@@ -996,7 +1362,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
         if (playPauseButton == null) {
             return;
         }
-        boolean isPlaying = player != null && player.isPlaying();
+        boolean isPlaying = engine != null && engine.isPlaying();
         playPauseButton.setText("");
         playPauseButton.setContentDescription(isPlaying ? "Pausar" : "Reproducir");
         playPauseButton.setCompoundDrawablesWithIntrinsicBounds(
@@ -1120,25 +1486,25 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void togglePlayPause() {
-        if (player == null) {
+        if (engine == null) {
             return;
         }
 
-        if (player.isPlaying()) {
-            player.pause();
+        if (engine.isPlaying()) {
+            engine.pause();
         } else {
-            player.play();
+            engine.play();
         }
 
         updatePlayPauseButton();
     }
 
     private void seekByMs(long deltaMs) {
-        if (player == null || isLiveTV) {
+        if (engine == null || isLiveTV) {
             return;
         }
-        long targetPosition = clampSeekPosition(Math.max(0L, player.getCurrentPosition()) + deltaMs);
-        player.seekTo(targetPosition);
+        long targetPosition = clampSeekPosition(Math.max(0L, engine.getCurrentPosition()) + deltaMs);
+        engine.seekTo(targetPosition);
         pendingSeekPositionMs = -1L;
         isSeekBarArmed = false;
         updateProgressUi();
@@ -1147,12 +1513,12 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void armSeekBar() {
-        if (isLiveTV || seekBar == null || player == null) {
+        if (isLiveTV || seekBar == null || engine == null) {
             return;
         }
         controlsHandler.removeCallbacks(hideControlsRunnable);
         isSeekBarArmed = true;
-        pendingSeekPositionMs = Math.max(0L, player.getCurrentPosition());
+        pendingSeekPositionMs = Math.max(0L, engine.getCurrentPosition());
         updateProgressUi();
         refreshControlHint();
     }
@@ -1171,14 +1537,14 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void confirmSeekBarSelection() {
-        if (player == null || pendingSeekPositionMs < 0L) {
+        if (engine == null || pendingSeekPositionMs < 0L) {
             disarmSeekBar(true);
             scheduleHideControls();
             return;
         }
 
         long targetPositionMs = clampSeekPosition(pendingSeekPositionMs);
-        player.seekTo(targetPositionMs);
+        engine.seekTo(targetPositionMs);
         pendingSeekPositionMs = -1L;
         isSeekBarArmed = false;
         updateProgressUi();
@@ -1193,7 +1559,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
         }
         long basePositionMs = pendingSeekPositionMs >= 0L
             ? pendingSeekPositionMs
-            : (player != null ? Math.max(0L, player.getCurrentPosition()) : 0L);
+            : (engine != null ? Math.max(0L, engine.getCurrentPosition()) : 0L);
         pendingSeekPositionMs = clampSeekPosition(basePositionMs + deltaMs);
         updateProgressUi();
         refreshControlHint();
@@ -1242,7 +1608,14 @@ public class ExoPlayerActivity extends AppCompatActivity {
 
         currentChannelSelection = index;
         baseTitle = safeGet(channelNames, index, baseTitle);
-        loadMedia(selectedUrl, 0L);
+        // Canal ya preparado: solo cambia el player de la vista
+        ZapExo zap = zapPool != null ? zapPool.take(selectedUrl) : null;
+        if (zap != null) {
+            swapToZapPlayer(selectedUrl, zap);
+        } else {
+            loadMedia(selectedUrl, 0L);
+        }
+        PlaybackMetrics.putAttribute(metricsSessionId, "zapHit", zap != null);
 
         if (showToast) {
             Toast.makeText(this, "Sintonizando: " + safeGet(channelNames, index, "Canal"), Toast.LENGTH_SHORT).show();
@@ -1277,7 +1650,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
             return;
         }
 
-        if (player != null) {
+        if (engine != null) {
             emitProgress(false, true);
         }
 
@@ -1324,6 +1697,39 @@ public class ExoPlayerActivity extends AppCompatActivity {
         return -1;
     }
 
+    // Con un delta sobre el snapshot actual solo se toca la UI que cambia: seleccion y cabecera si cambia
+    // el orden o el canal actual, y disponibilidad de controles solo si la lista pasa a/de vacia.
+    private void applyLiveChannelSnapshot(PlaybackCatalogStore.Snapshot snapshot) {
+        if (snapshot == null) {
+            Log.w(TAG, "Live channel snapshot no disponible");
+            return;
+        }
+
+        PlaybackCatalogStore.Snapshot previous = catalogSnapshot != null ? catalogSnapshot : PlaybackCatalogStore.empty();
+        boolean incremental = previous.isChannelBaseOf(snapshot);
+        boolean hadChannels = previous.hasChannels();
+        String currentKey = previous.channelKeyForUrl(currentChannelSelection, currentVideoUrl);
+
+        PlaybackCatalogStore.swap(catalogSnapshot, snapshot);
+        catalogSnapshot = snapshot;
+        channelNames = snapshot.channelNames;
+        channelLogos = snapshot.channelLogos;
+        channelUrls = snapshot.channelUrls;
+
+        if (!incremental || snapshot.channelDelta.changesOrder()) {
+            int byKey = snapshot.indexOfChannelKey(currentKey);
+            currentChannelSelection = byKey >= 0 ? byKey : resolveCurrentChannelSelection();
+        }
+
+        if (!incremental || hadChannels != snapshot.hasChannels()) {
+            updateControlAvailability();
+            updateHeaderAndMeta();
+        } else if (snapshot.channelDelta.changesOrder() || snapshot.channelDelta.touches(currentKey)) {
+            updateHeaderAndMeta();
+        }
+        Log.d(TAG, "Updated live channels in ExoPlayer: " + channelUrls.size() + (incremental ? " (delta)" : ""));
+    }
+
     private int resolveCurrentChannelSelection() {
         if (channelUrls == null || channelUrls.isEmpty()) {
             return 0;
@@ -1386,8 +1792,8 @@ public class ExoPlayerActivity extends AppCompatActivity {
             final String label = formatSpeedLabel(PLAYBACK_SPEEDS[i]);
             addSelectionOptionButton(label, currentSpeedIndex == i, () -> {
                 currentSpeedIndex = optionIndex;
-                if (player != null) {
-                    player.setPlaybackParameters(new PlaybackParameters(PLAYBACK_SPEEDS[optionIndex]));
+                if (engine != null) {
+                    engine.setSpeed(PLAYBACK_SPEEDS[optionIndex]);
                 }
                 updateHeaderAndMeta();
                 closeSelectionPanel(true);
@@ -1443,10 +1849,16 @@ public class ExoPlayerActivity extends AppCompatActivity {
         int count = Math.min(channelNames.size(), channelUrls.size());
         for (int i = 0; i < count; i++) {
             final int optionIndex = i;
+            final String optionUrl = channelUrls.get(i);
             addSelectionOptionButton(safeGet(channelNames, i, "Canal " + (i + 1)), currentIndex == i, () -> {
                 playSelectedChannel(optionIndex, false);
                 closeSelectionPanel(false);
                 controlsContainer.post(this::focusPrimaryControlsIfNeeded);
+            }, () -> {
+                // Canal resaltado: si estaba pre-abierto y caduco, se reabre solo ese
+                if (zapPool != null) {
+                    zapPool.touch(optionUrl);
+                }
             });
         }
         finalizeSelectionPanel();
@@ -1489,6 +1901,10 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void addSelectionOptionButton(String label, boolean selected, Runnable action) {
+        addSelectionOptionButton(label, selected, action, null);
+    }
+
+    private void addSelectionOptionButton(String label, boolean selected, Runnable action, Runnable onFocused) {
         Button optionButton = new Button(this);
         optionButton.setId(View.generateViewId());
         optionButton.setAllCaps(false);
@@ -1507,11 +1923,16 @@ public class ExoPlayerActivity extends AppCompatActivity {
             action.run();
             showControls();
         });
-        optionButton.setOnFocusChangeListener((view, hasFocus) -> view.animate()
-            .scaleX(hasFocus ? 1.03f : 1f)
-            .scaleY(hasFocus ? 1.03f : 1f)
-            .setDuration(120L)
-            .start());
+        optionButton.setOnFocusChangeListener((view, hasFocus) -> {
+            view.animate()
+                .scaleX(hasFocus ? 1.03f : 1f)
+                .scaleY(hasFocus ? 1.03f : 1f)
+                .setDuration(120L)
+                .start();
+            if (hasFocus && onFocused != null) {
+                onFocused.run();
+            }
+        });
 
         LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
             ViewGroup.LayoutParams.MATCH_PARENT,
@@ -1794,8 +2215,8 @@ public class ExoPlayerActivity extends AppCompatActivity {
 
         showSingleChoiceDialog("Velocidad", options, currentSpeedIndex, which -> {
             currentSpeedIndex = which;
-            if (player != null) {
-                player.setPlaybackParameters(new PlaybackParameters(PLAYBACK_SPEEDS[which]));
+            if (engine != null) {
+                engine.setSpeed(PLAYBACK_SPEEDS[which]);
             }
             updateHeaderAndMeta();
             Toast.makeText(this, "Velocidad: " + options.get(which), Toast.LENGTH_SHORT).show();
@@ -1875,17 +2296,15 @@ public class ExoPlayerActivity extends AppCompatActivity {
         return "android-vlc".equalsIgnoreCase(playerType) ? "VLC" : "ExoPlayer";
     }
 
-    private boolean shouldAutoSwitchToAlternatePlayer(PlaybackException error) {
-        if (error == null || engineFallbackAttempted) {
+    private boolean shouldAutoSwitchToAlternatePlayer(int failure, String diagnostic) {
+        if (engineFallbackAttempted || !(engine instanceof ExoPlaybackEngine)) {
             return false;
         }
-        if ("android-vlc".equalsIgnoreCase(requestedPlayerType)) {
-            return false;
+        if (failure == PlaybackRecovery.FAILURE_DECODER) {
+            return true;
         }
 
-        String diagnosticText = (
-            String.valueOf(error.getMessage()) + " " + String.valueOf(error.getCause())
-        ).toLowerCase(Locale.ROOT);
+        String diagnosticText = String.valueOf(diagnostic).toLowerCase(Locale.ROOT);
 
         return diagnosticText.contains("decoder")
             || diagnosticText.contains("codec")
@@ -1894,51 +2313,25 @@ public class ExoPlayerActivity extends AppCompatActivity {
             || diagnosticText.contains("format");
     }
 
+    // Cambio de motor en la misma actividad: se conservan posicion, UI y catalogo y solo se reabre la
+    // fuente. Cada motor abre su propia sesion de metricas para poder comparar arranques entre ambos.
     private void switchPlayerEngine(String targetPlayerType, boolean markFallbackAttempted, String reason) {
-        if (TextUtils.isEmpty(targetPlayerType) || targetPlayerType.equalsIgnoreCase(requestedPlayerType)) {
+        if (engine == null || TextUtils.isEmpty(targetPlayerType) || targetPlayerType.equalsIgnoreCase(requestedPlayerType)) {
             return;
         }
 
-        long startSeconds = 0L;
-        if (!isLiveTV && player != null) {
-            startSeconds = Math.max(0L, player.getCurrentPosition() / 1000L);
+        long startPositionMs = isLiveTV ? 0L : Math.max(0L, engine.getCurrentPosition());
+        Log.d(TAG, "Switching player engine to " + targetPlayerType + " reason=" + reason);
+        if (markFallbackAttempted) {
+            engineFallbackAttempted = true;
         }
+        replaceEngine(targetPlayerType, true);
 
-        Intent switchIntent = buildPlayerIntent(targetPlayerType, startSeconds, markFallbackAttempted);
-        isSwitchingPlayerEngine = true;
-        Log.d(TAG, "Switching player engine to " + targetPlayerType + " reason=" + reason);
-        releasePlayer(null);
-        startActivity(switchIntent);
-        finish();
-    }
-
-    private Intent buildPlayerIntent(String targetPlayerType, long startTimeSeconds, boolean markFallbackAttempted) {
-        Class<?> targetActivity = "android-vlc".equalsIgnoreCase(targetPlayerType)
-            ? VLCPlayerActivity.class
-            : ExoPlayerActivity.class;
-
-        Intent intent = new Intent(this, targetActivity);
-        intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-        intent.putExtra("video_url", currentVideoUrl);
-        intent.putExtra("video_title", baseTitle);
-        intent.putExtra("video_meta_line", videoMetaLine);
-        intent.putExtra("start_time", startTimeSeconds);
-        intent.putExtra("player_type", targetPlayerType);
-        intent.putExtra("season_index", seasonIndex);
-        intent.putExtra("chapter_index", chapterIndex);
-        intent.putExtra("is_live_tv", isLiveTV);
-        intent.putExtra("content_type", contentType);
-        intent.putExtra("engine_fallback_attempted", markFallbackAttempted);
-        intent.putStringArrayListExtra("chapter_titles", chapterTitles);
-        intent.putStringArrayListExtra("chapter_urls", chapterUrls);
-        intent.putIntegerArrayListExtra("chapter_season_numbers", chapterSeasonNumbers);
-        intent.putIntegerArrayListExtra("chapter_numbers", chapterNumbers);
-        intent.putIntegerArrayListExtra("chapter_season_indices", chapterSeasonIndices);
-        intent.putIntegerArrayListExtra("chapter_indices", chapterIndices);
-        intent.putStringArrayListExtra("channel_names", channelNames);
-        intent.putStringArrayListExtra("channel_logos", channelLogos);
-        intent.putStringArrayListExtra("channel_urls", channelUrls);
-        return intent;
+        PlaybackMetrics.finish(metricsSessionId, reason);
+        metricsSessionId = PlaybackMetrics.begin(currentVideoUrl, engine.getName(), reason);
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+        loadMedia(currentVideoUrl, startPositionMs);
+        showControls();
     }
 
     private void showChaptersDialog() {
@@ -2097,8 +2490,8 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private boolean canAutoHideControls() {
-        return player != null
-            && player.isPlaying()
+        return engine != null
+            && engine.isPlaying()
             && !isSelectionPanelVisible
             && !isScreenLocked
             && (activeDialog == null || !activeDialog.isShowing());
@@ -2392,7 +2785,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        if (Util.SDK_INT <= 23 || player == null) {
+        if (Util.SDK_INT <= 23 || engine == null) {
             initializePlayer();
         }
         enterFullscreenMode();
@@ -2402,14 +2795,14 @@ public class ExoPlayerActivity extends AppCompatActivity {
     protected void onPause() {
         super.onPause();
         if (Util.SDK_INT <= 23 && !isInPictureInPictureMode()) {
-            releasePlayer(isSwitchingPlayerEngine ? null : "pause");
+            releasePlayer("pause");
         }
     }
 
     @Override
     public void onUserLeaveHint() {
         super.onUserLeaveHint();
-        if (player == null || Util.SDK_INT < 26) {
+        if (engine == null || Util.SDK_INT < 26) {
             return;
         }
 
@@ -2434,24 +2827,19 @@ public class ExoPlayerActivity extends AppCompatActivity {
     protected void onStop() {
         super.onStop();
         if (!isInPictureInPictureMode()) {
-            releasePlayer(isSwitchingPlayerEngine ? null : "stop");
+            releasePlayer("stop");
         }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        try {
-            unregisterReceiver(controlReceiver);
-        } catch (Exception e) {
-            Log.w(TAG, "Error unregistering control receiver", e);
-        }
-        try {
-            unregisterReceiver(liveChannelsReceiver);
-        } catch (Exception e) {
-            Log.w(TAG, "Error unregistering live channels receiver", e);
-        }
-        releasePlayer(isSwitchingPlayerEngine ? null : "destroy");
+        PlayerEventBus.unsubscribe(controlSubscription);
+        controlSubscription = null;
+        PlayerEventBus.unsubscribe(liveChannelsSubscription);
+        liveChannelsSubscription = null;
+        releasePlayer("destroy");
+        PlaybackCatalogStore.release(catalogSnapshot);
     }
 
     @Override
@@ -2468,7 +2856,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
             toggleScreenLock();
             return;
         }
-        releasePlayer(isSwitchingPlayerEngine ? null : "back");
+        releasePlayer("back");
         super.onBackPressed();
     }
 }
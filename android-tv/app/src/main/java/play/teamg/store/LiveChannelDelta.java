@@ -0,0 +1,349 @@
+package play.teamg.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+// Diferencias entre dos listas de canales en vivo. Los canales se identifican por id y, si no
+// tienen, por URL; un canal repetido recibe un sufijo "#n" a partir de la segunda aparicion. Se aplica en orden: REMOVE, RENAME y luego ADD/MOVE por indice destino ascendente.
+public final class LiveChannelDelta {
+
+    public enum Type {
+        ADD,
+        REMOVE,
+        MOVE,
+        RENAME
+    }
+
+    public static final class Operation {
+        final Type type;
+        final String key;
+        final int index;
+        final String id;
+        final String name;
+        final String logo;
+        final String url;
+
+        Operation(Type type, String key, int index, String id, String name, String logo, String url) {
+            this.type = type;
+            this.key = key;
+            this.index = index;
+            this.id = id;
+            this.name = name;
+            this.logo = logo;
+            this.url = url;
+        }
+    }
+
+    final long baseSnapshotId;
+    final List<Operation> operations;
+
+    private LiveChannelDelta(long baseSnapshotId, List<Operation> operations) {
+        this.baseSnapshotId = baseSnapshotId;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    // Normaliza operaciones recibidas desde JS al orden en que applyTo las espera.
+    static LiveChannelDelta of(long baseSnapshotId, List<Operation> operations) {
+        ArrayList<Operation> removes = new ArrayList<>();
+        ArrayList<Operation> renames = new ArrayList<>();
+        ArrayList<Operation> placements = new ArrayList<>();
+        if (operations != null) {
+            for (Operation operation : operations) {
+                if (operation.type == Type.REMOVE) {
+                    removes.add(operation);
+                } else if (operation.type == Type.RENAME) {
+                    renames.add(operation);
+                } else {
+                    placements.add(operation);
+                }
+            }
+        }
+        Collections.sort(placements, new Comparator<Operation>() {
+            @Override
+            public int compare(Operation first, Operation second) {
+                return Integer.compare(first.index, second.index);
+            }
+        });
+
+        ArrayList<Operation> ordered = new ArrayList<>(removes.size() + renames.size() + placements.size());
+        ordered.addAll(removes);
+        ordered.addAll(renames);
+        ordered.addAll(placements);
+        return new LiveChannelDelta(baseSnapshotId, ordered);
+    }
+
+    public static String channelKey(String id, String url) {
+        if (id != null && !id.isEmpty()) {
+            return "id:" + id;
+        }
+        return "url:" + (url != null ? url : "");
+    }
+
+    // Clave de cada entrada de una lista completa. Las repetidas (mismo id, o misma URL sin id) reciben
+    // el primer "#n" libre para que compute y applyTo no mezclen dos canales con la misma clave.
+    static String[] channelKeys(List<String> ids, List<String> urls) {
+        int count = urls != null ? urls.size() : 0;
+        String[] keys = new String[count];
+        HashSet<String> used = new HashSet<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            String key = channelKey(valueAt(ids, i), urls.get(i));
+            if (!used.add(key)) {
+                int occurrence = 1;
+                while (!used.add(key + "#" + occurrence)) {
+                    occurrence++;
+                }
+                key = key + "#" + occurrence;
+            }
+            keys[i] = key;
+        }
+        return keys;
+    }
+
+    boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    int count(Type type) {
+        int total = 0;
+        for (Operation operation : operations) {
+            if (operation.type == type) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    boolean changesOrder() {
+        for (Operation operation : operations) {
+            if (operation.type != Type.RENAME) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean touches(String key) {
+        if (key == null) {
+            return false;
+        }
+        for (Operation operation : operations) {
+            if (key.equals(operation.key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static LiveChannelDelta compute(
+        long baseSnapshotId,
+        List<String> baseIds,
+        List<String> baseNames,
+        List<String> baseLogos,
+        List<String> baseUrls,
+        List<String> targetIds,
+        List<String> targetNames,
+        List<String> targetLogos,
+        List<String> targetUrls
+    ) {
+        int baseCount = baseUrls != null ? baseUrls.size() : 0;
+        int targetCount = targetUrls != null ? targetUrls.size() : 0;
+
+        String[] baseKeys = channelKeys(baseIds, baseUrls);
+        HashMap<String, Integer> basePositions = new HashMap<>(Math.max(16, baseCount * 2));
+        for (int i = 0; i < baseCount; i++) {
+            basePositions.put(baseKeys[i], i);
+        }
+
+        ArrayList<Operation> removes = new ArrayList<>();
+        ArrayList<Operation> renames = new ArrayList<>();
+        ArrayList<Operation> placements = new ArrayList<>();
+
+        HashSet<String> targetKeys = new HashSet<>(Math.max(16, targetCount * 2));
+        String[] keysByTarget = channelKeys(targetIds, targetUrls);
+        int[] basePositionByTarget = new int[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            String key = keysByTarget[i];
+            targetKeys.add(key);
+            Integer basePosition = basePositions.get(key);
+            basePositionByTarget[i] = basePosition != null ? basePosition : -1;
+        }
+
+        for (int i = 0; i < baseCount; i++) {
+            String key = baseKeys[i];
+            if (!targetKeys.contains(key)) {
+                removes.add(new Operation(Type.REMOVE, key, i, null, null, null, null));
+            }
+        }
+
+        boolean[] keepsPosition = longestIncreasingRun(basePositionByTarget);
+        for (int i = 0; i < targetCount; i++) {
+            String key = keysByTarget[i];
+            String id = valueAt(targetIds, i);
+            String name = valueAt(targetNames, i);
+            String logo = valueAt(targetLogos, i);
+            String url = targetUrls.get(i);
+            int basePosition = basePositionByTarget[i];
+
+            if (basePosition < 0) {
+                placements.add(new Operation(Type.ADD, key, i, id, name, logo, url));
+                continue;
+            }
+
+            if (!equalsValue(name, valueAt(baseNames, basePosition))
+                || !equalsValue(logo, valueAt(baseLogos, basePosition))
+                || !equalsValue(url, baseUrls.get(basePosition))) {
+                renames.add(new Operation(Type.RENAME, key, i, id, name, logo, url));
+            }
+            if (!keepsPosition[i]) {
+                placements.add(new Operation(Type.MOVE, key, i, id, name, logo, url));
+            }
+        }
+
+        ArrayList<Operation> operations = new ArrayList<>(removes.size() + renames.size() + placements.size());
+        operations.addAll(removes);
+        operations.addAll(renames);
+        operations.addAll(placements);
+        return new LiveChannelDelta(baseSnapshotId, operations);
+    }
+
+    // Aplica las operaciones sobre listas mutables. Las listas de ids/logos se completan si vienen cortas.
+    public void applyTo(ArrayList<String> ids, ArrayList<String> names, ArrayList<String> logos, ArrayList<String> urls) {
+        padTo(ids, urls.size(), "");
+        padTo(names, urls.size(), "Canal");
+        padTo(logos, urls.size(), "");
+
+        HashSet<String> detachedKeys = new HashSet<>();
+        for (Operation operation : operations) {
+            if (operation.type == Type.REMOVE || operation.type == Type.MOVE) {
+                detachedKeys.add(operation.key);
+            }
+        }
+
+        HashMap<String, Operation> renamesByKey = new HashMap<>();
+        for (Operation operation : operations) {
+            if (operation.type == Type.RENAME) {
+                renamesByKey.put(operation.key, operation);
+            }
+        }
+
+        HashMap<String, String[]> detachedValues = new HashMap<>();
+        if (!detachedKeys.isEmpty() || !renamesByKey.isEmpty()) {
+            String[] keys = channelKeys(ids, urls);
+            int writeIndex = 0;
+            for (int readIndex = 0; readIndex < urls.size(); readIndex++) {
+                String key = keys[readIndex];
+                Operation rename = renamesByKey.get(key);
+                String name = rename != null && rename.name != null ? rename.name : names.get(readIndex);
+                String logo = rename != null && rename.logo != null ? rename.logo : logos.get(readIndex);
+                String url = rename != null && rename.url != null ? rename.url : urls.get(readIndex);
+                if (detachedKeys.contains(key)) {
+                    detachedValues.put(key, new String[] { ids.get(readIndex), name, logo, url });
+                    continue;
+                }
+                ids.set(writeIndex, ids.get(readIndex));
+                names.set(writeIndex, name);
+                logos.set(writeIndex, logo);
+                urls.set(writeIndex, url);
+                writeIndex++;
+            }
+            truncate(ids, writeIndex);
+            truncate(names, writeIndex);
+            truncate(logos, writeIndex);
+            truncate(urls, writeIndex);
+        }
+
+        for (Operation operation : operations) {
+            if (operation.type != Type.ADD && operation.type != Type.MOVE) {
+                continue;
+            }
+            // Un MOVE enviado desde JS puede traer solo la clave: se reutilizan los datos del canal original.
+            String[] previous = operation.type == Type.MOVE ? detachedValues.get(operation.key) : null;
+            if (operation.type == Type.MOVE && previous == null && operation.url == null) {
+                continue;
+            }
+            int insertAt = Math.max(0, Math.min(operation.index, urls.size()));
+            ids.add(insertAt, pick(operation.id, previous, 0, ""));
+            names.add(insertAt, pick(operation.name, previous, 1, "Canal"));
+            logos.add(insertAt, pick(operation.logo, previous, 2, ""));
+            urls.add(insertAt, pick(operation.url, previous, 3, ""));
+        }
+    }
+
+    private static String pick(String value, String[] previous, int slot, String fallback) {
+        if (value != null) {
+            return value;
+        }
+        if (previous != null && previous[slot] != null) {
+            return previous[slot];
+        }
+        return fallback;
+    }
+
+    // Marca los elementos que forman la subsecuencia creciente mas larga de posiciones base; esos
+    // canales conservan su orden relativo y no necesitan MOVE.
+    private static boolean[] longestIncreasingRun(int[] basePositions) {
+        int count = basePositions.length;
+        boolean[] keeps = new boolean[count];
+        int[] tailIndices = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+
+        for (int i = 0; i < count; i++) {
+            int value = basePositions[i];
+            if (value < 0) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (basePositions[tailIndices[mid]] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tailIndices[low - 1] : -1;
+            tailIndices[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        int cursor = length > 0 ? tailIndices[length - 1] : -1;
+        while (cursor >= 0) {
+            keeps[cursor] = true;
+            cursor = previous[cursor];
+        }
+        return keeps;
+    }
+
+    private static String valueAt(List<String> values, int index) {
+        if (values == null || index < 0 || index >= values.size()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    private static boolean equalsValue(String first, String second) {
+        String left = first != null ? first : "";
+        String right = second != null ? second : "";
+        return left.equals(right);
+    }
+
+    private static void padTo(ArrayList<String> values, int size, String fallback) {
+        while (values.size() < size) {
+            values.add(fallback);
+        }
+    }
+
+    private static void truncate(ArrayList<String> values, int size) {
+        while (values.size() > size) {
+            values.remove(values.size() - 1);
+        }
+    }
+}
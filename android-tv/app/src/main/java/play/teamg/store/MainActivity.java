@@ -15,10 +15,29 @@ public class MainActivity extends BridgeActivity {
     registerPlugin(PermissionManager.class);
     super.onCreate(savedInstanceState);
 
+    // Cargar LibVLC en segundo plano para que el primer play no espere a las librerias nativas
+    VLCInstance.warmUp(this);
+
     // Configurar WebChromeClient para manejar solicitudes de permiso
     setupWebChromeClient();
   }
 
+  @Override
+  public void onResume() {
+    super.onResume();
+    // Si se libero por falta de memoria estando en segundo plano, volver a precalentarlo
+    VLCInstance.warmUp(this);
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    super.onTrimMemory(level);
+    if (VLCInstance.releaseIfIdle(level)) {
+      // Un player precalentado tambien retiene decodificadores y buffers
+      PlaybackPrewarmer.discard();
+    }
+  }
+
   private void setupWebChromeClient() {
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
       bridge.getWebView().setWebChromeClient(new WebChromeClient() {
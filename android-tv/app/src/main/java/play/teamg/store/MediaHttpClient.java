@@ -0,0 +1,201 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+// Cliente HTTP unico del proceso para cargar medios (ExoPlayer y StreamTypeProbe). Antes cada
+// initializePlayer creaba su DefaultHttpDataSource.Factory y cada cambio de capitulo o canal volvia a
+// abrir TCP + TLS con el mismo servidor.
+// - Pool de conexiones con keep-alive de KEEP_ALIVE_MINUTES, compartido entre actividades y cambios.
+// - HTTP/2 por ALPN cuando el servidor lo ofrece (varios segmentos por una sola conexion).
+// - Timeouts por host (setHostTimeouts, persistidos) para proveedores lentos sin alargar los demas.
+// - Cuenta conexiones nuevas frente a reutilizadas para las metricas.
+// VLC hace su propia HTTP dentro de LibVLC y no pasa por aqui.
+public final class MediaHttpClient {
+    private static final String TAG = "MediaHttpClient";
+    private static final String PREFS_NAME = "media_http_hosts";
+    private static final String KEY_HOSTS = "hosts";
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 30000;
+    private static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+    // Segmentos HLS, sondeo y precarga del siguiente capitulo contra el mismo servidor
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+
+    private static OkHttpClient client;
+    private static ConnectionPool connectionPool;
+    private static SharedPreferences preferences;
+    // host -> { connectTimeoutMs, readTimeoutMs }
+    private static final HashMap<String, int[]> hostTimeouts = new HashMap<>();
+
+    private static long calls = 0L;
+    private static long connectionsAcquired = 0L;
+    private static long newConnections = 0L;
+    private static long http2Acquired = 0L;
+    // Conexiones ya vistas: la primera adquisicion de cada una es la nueva. connectStart no sirve, se
+    // dispara por cada ruta intentada (IPv6 y luego IPv4, reintentos) aunque acabe en una sola conexion.
+    private static final WeakHashMap<Connection, Boolean> seenConnections = new WeakHashMap<>();
+
+    private MediaHttpClient() {}
+
+    public static final class Stats {
+        final long calls;
+        final long connectionsAcquired;
+        final long newConnections;
+        final long http2Acquired;
+        final int pooledConnections;
+        final int idleConnections;
+
+        Stats(long calls, long connectionsAcquired, long newConnections, long http2Acquired, int pooledConnections, int idleConnections) {
+            this.calls = calls;
+            this.connectionsAcquired = connectionsAcquired;
+            this.newConnections = newConnections;
+            this.http2Acquired = http2Acquired;
+            this.pooledConnections = pooledConnections;
+            this.idleConnections = idleConnections;
+        }
+
+        // Fraccion de peticiones que reutilizaron una conexion abierta
+        double reuseRatio() {
+            if (connectionsAcquired <= 0L) {
+                return 0.0;
+            }
+            return Math.max(0.0, 1.0 - (double) newConnections / connectionsAcquired);
+        }
+    }
+
+    public static synchronized OkHttpClient get(Context context) {
+        if (client == null) {
+            preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            loadHostTimeouts();
+            connectionPool = new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES);
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+            client = new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .connectTimeout(DEFAULT_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(DEFAULT_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(MediaHttpClient::applyHostTimeouts)
+                .eventListener(statsListener)
+                .build();
+        }
+        return client;
+    }
+
+    // Timeouts propios para un host; valores <= 0 vuelven a los de por defecto.
+    public static void setHostTimeouts(Context context, String host, int connectTimeoutMs, int readTimeoutMs) {
+        get(context);
+        String key = host.toLowerCase(Locale.ROOT);
+        JSONObject json = new JSONObject();
+        synchronized (MediaHttpClient.class) {
+            if (connectTimeoutMs <= 0 && readTimeoutMs <= 0) {
+                hostTimeouts.remove(key);
+            } else {
+                hostTimeouts.put(key, new int[] {
+                    connectTimeoutMs > 0 ? connectTimeoutMs : DEFAULT_CONNECT_TIMEOUT_MS,
+                    readTimeoutMs > 0 ? readTimeoutMs : DEFAULT_READ_TIMEOUT_MS
+                });
+            }
+            try {
+                for (Map.Entry<String, int[]> entry : hostTimeouts.entrySet()) {
+                    JSONObject value = new JSONObject();
+                    value.put("connect", entry.getValue()[0]);
+                    value.put("read", entry.getValue()[1]);
+                    json.put(entry.getKey(), value);
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "No se pudieron serializar los timeouts por host", e);
+                return;
+            }
+        }
+        preferences.edit().putString(KEY_HOSTS, json.toString()).apply();
+        Log.d(TAG, "Timeouts de " + key + ": connect=" + connectTimeoutMs + "ms, read=" + readTimeoutMs + "ms");
+    }
+
+    public static synchronized Stats stats() {
+        int pooled = connectionPool != null ? connectionPool.connectionCount() : 0;
+        int idle = connectionPool != null ? connectionPool.idleConnectionCount() : 0;
+        return new Stats(calls, connectionsAcquired, newConnections, http2Acquired, pooled, idle);
+    }
+
+    private static Response applyHostTimeouts(Interceptor.Chain chain) throws IOException {
+        int[] timeouts;
+        synchronized (MediaHttpClient.class) {
+            timeouts = hostTimeouts.get(chain.request().url().host().toLowerCase(Locale.ROOT));
+        }
+        if (timeouts == null) {
+            return chain.proceed(chain.request());
+        }
+        return chain
+            .withConnectTimeout(timeouts[0], TimeUnit.MILLISECONDS)
+            .withReadTimeout(timeouts[1], TimeUnit.MILLISECONDS)
+            .proceed(chain.request());
+    }
+
+    private static void loadHostTimeouts() {
+        String raw = preferences.getString(KEY_HOSTS, null);
+        if (raw == null) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject(raw);
+            Iterator<String> hosts = json.keys();
+            while (hosts.hasNext()) {
+                String host = hosts.next();
+                JSONObject value = json.getJSONObject(host);
+                hostTimeouts.put(host, new int[] { value.getInt("connect"), value.getInt("read") });
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Timeouts por host corruptos, se descartan", e);
+            hostTimeouts.clear();
+        }
+    }
+
+    private static final EventListener statsListener = new EventListener() {
+        @Override
+        public void callStart(Call call) {
+            synchronized (MediaHttpClient.class) {
+                calls++;
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            synchronized (MediaHttpClient.class) {
+                connectionsAcquired++;
+                if (seenConnections.put(connection, Boolean.TRUE) == null) {
+                    newConnections++;
+                }
+                if (connection.protocol() == Protocol.HTTP_2) {
+                    http2Acquired++;
+                }
+            }
+        }
+    };
+}
@@ -0,0 +1,208 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+// Aprende por host cuanto cache de red necesita VLC. Se guarda un factor sobre la cache del perfil
+// (VlcMediaProfile), asi sirve igual para live y VOD del mismo proveedor:
+// - cortes (watchdog de STALL_TIMEOUT_MS, reconexiones) lo suben mucho;
+// - rebuffers cortos (Buffering < 100 ya reproduciendo) lo suben un poco;
+// - reproducir STABLE_PLAYBACK_MS sin rebuffer lo baja para que el zapping vuelva a ser rapido.
+// El factor esta acotado y decae hacia 1 con el tiempo (vida media DECAY_HALF_LIFE_MS): un proveedor
+// que tuvo una mala noche no queda penalizado para siempre. Se persiste en SharedPreferences.
+public final class NetworkCachingController {
+    private static final String TAG = "NetworkCaching";
+    private static final String PREFS_NAME = "vlc_network_caching";
+    private static final String KEY_HOSTS = "hosts";
+    private static final int MAX_HOSTS = 64;
+
+    private static final double MIN_FACTOR = 0.5;
+    private static final double MAX_FACTOR = 4.0;
+    private static final double STALL_FACTOR = 1.5;
+    private static final double REBUFFER_FACTOR = 1.15;
+    private static final double STABLE_FACTOR = 0.9;
+    private static final long REBUFFER_COOLDOWN_MS = 10000L;
+    public static final long STABLE_PLAYBACK_MS = 5 * 60 * 1000L;
+    private static final long DECAY_HALF_LIFE_MS = 3L * 24 * 60 * 60 * 1000L;
+    private static final int MIN_CACHING_MS = 300;
+    private static final int MAX_CACHING_MS = 12000;
+
+    private static NetworkCachingController instance;
+
+    private final SharedPreferences preferences;
+    private final HashMap<String, HostState> hosts = new HashMap<>();
+
+    private static final class HostState {
+        double factor;
+        long updatedAtMs;
+        long lastRebufferAtMs;
+
+        HostState(double factor, long updatedAtMs) {
+            this.factor = factor;
+            this.updatedAtMs = updatedAtMs;
+        }
+    }
+
+    public static synchronized NetworkCachingController getInstance(Context context) {
+        if (instance == null) {
+            instance = new NetworkCachingController(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NetworkCachingController(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        load();
+    }
+
+    // Factor actual (con decaimiento aplicado) para la URL; 1.0 si el host no tiene historial.
+    public synchronized double factorFor(String url) {
+        HostState state = hosts.get(hostKey(url));
+        return state != null ? decayed(state, System.currentTimeMillis()) : 1.0;
+    }
+
+    public static int scale(int baseCachingMs, double factor) {
+        if (baseCachingMs <= 0) {
+            return baseCachingMs;
+        }
+        long scaled = Math.round(baseCachingMs * factor);
+        return (int) Math.max(MIN_CACHING_MS, Math.min(MAX_CACHING_MS, scaled));
+    }
+
+    public void recordStall(String url) {
+        adjust(url, STALL_FACTOR, "stall");
+    }
+
+    public void recordRebuffer(String url) {
+        synchronized (this) {
+            HostState state = hosts.get(hostKey(url));
+            long now = System.currentTimeMillis();
+            if (state != null && now - state.lastRebufferAtMs < REBUFFER_COOLDOWN_MS) {
+                return;
+            }
+        }
+        adjust(url, REBUFFER_FACTOR, "rebuffer");
+    }
+
+    public void recordStablePlayback(String url) {
+        adjust(url, STABLE_FACTOR, "stable");
+    }
+
+    private void adjust(String url, double multiplier, String reason) {
+        String key = hostKey(url);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            HostState state = hosts.get(key);
+            double current = state != null ? decayed(state, now) : 1.0;
+            double next = Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, current * multiplier));
+            if (state == null) {
+                state = new HostState(next, now);
+                hosts.put(key, state);
+            } else {
+                state.factor = next;
+                state.updatedAtMs = now;
+            }
+            if (reason.equals("rebuffer")) {
+                state.lastRebufferAtMs = now;
+            }
+            Log.d(TAG, key + ": " + reason + ", factor " + String.format(Locale.ROOT, "%.2f -> %.2f", current, next));
+            trim();
+            save();
+        }
+    }
+
+    // Decaimiento exponencial hacia 1 en escala logaritmica (x2 y x0.5 decaen igual).
+    private static double decayed(HostState state, long now) {
+        long ageMs = Math.max(0L, now - state.updatedAtMs);
+        double remaining = Math.pow(0.5, (double) ageMs / DECAY_HALF_LIFE_MS);
+        return Math.exp(Math.log(state.factor) * remaining);
+    }
+
+    private static String hostKey(String url) {
+        if (url == null) {
+            return null;
+        }
+        Uri uri = Uri.parse(url);
+        String host = uri.getHost();
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        return uri.getPort() > 0 ? host + ":" + uri.getPort() : host;
+    }
+
+    private void trim() {
+        if (hosts.size() <= MAX_HOSTS) {
+            return;
+        }
+        ArrayList<String> keys = new ArrayList<>(hosts.keySet());
+        Collections.sort(keys, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                return Long.compare(hosts.get(first).updatedAtMs, hosts.get(second).updatedAtMs);
+            }
+        });
+        for (int i = 0; i < keys.size() - MAX_HOSTS; i++) {
+            hosts.remove(keys.get(i));
+        }
+    }
+
+    private void load() {
+        String raw = preferences.getString(KEY_HOSTS, null);
+        if (raw == null) {
+            return;
+        }
+        try {
+            JSONObject json = new JSONObject(raw);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject entry = json.optJSONObject(key);
+                if (entry == null) {
+                    continue;
+                }
+                double factor = entry.optDouble("f", 1.0);
+                if (Double.isNaN(factor)) {
+                    continue;
+                }
+                factor = Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+                hosts.put(key, new HostState(factor, entry.optLong("t", System.currentTimeMillis())));
+            }
+            trim();
+        } catch (JSONException e) {
+            Log.w(TAG, "Cache aprendida corrupta, se descarta", e);
+            hosts.clear();
+        }
+    }
+
+    private void save() {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, HostState> entry : hosts.entrySet()) {
+                JSONObject value = new JSONObject();
+                value.put("f", entry.getValue().factor);
+                value.put("t", entry.getValue().updatedAtMs);
+                json.put(entry.getKey(), value);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "No se pudo serializar la cache aprendida", e);
+            return;
+        }
+        preferences.edit().putString(KEY_HOSTS, json.toString()).apply();
+    }
+}
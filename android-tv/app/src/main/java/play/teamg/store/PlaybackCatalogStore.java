@@ -0,0 +1,509 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Catalogo de capitulos/canales compartido en el proceso. Los Intents solo llevan el id del snapshot
+// para no acercarse al limite de 1 MB del Binder con listas de 8-15k canales.
+// - Un snapshot que usa una actividad queda fijado (acquire/release) y no se descarta; de los demas se
+//   guardan los MAX_RETAINED_UNPINNED mas recientes.
+// - Las actualizaciones de canales heredan el linaje del snapshot de playVideo: una actividad recreada
+//   recibe el ultimo snapshot de su linaje aunque el original ya no este.
+// - El ultimo snapshot se escribe en cacheDir para sobrevivir a la muerte del proceso.
+public final class PlaybackCatalogStore {
+    private static final String TAG = "PlaybackCatalogStore";
+    public static final String EXTRA_SNAPSHOT_ID = "catalog_snapshot_id";
+    private static final int MAX_RETAINED_UNPINNED = 4;
+    private static final String PERSIST_FILE_NAME = "catalog_snapshot.json";
+
+    // Orden de publicacion
+    private static final LinkedHashMap<Long, Snapshot> snapshots = new LinkedHashMap<>();
+    // id -> actividades que lo usan
+    private static final HashMap<Long, Integer> pins = new HashMap<>();
+    // Ids basados en el reloj para no repetir los de un proceso anterior (el Intent restaurado los conserva)
+    private static long nextSnapshotId = System.currentTimeMillis();
+    private static Snapshot latestSnapshot = null;
+    private static File persistFile;
+    private static long persistedSnapshotId = 0L;
+    private static final ExecutorService persistExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private PlaybackCatalogStore() {}
+
+    public interface Restored {
+        void onRestored(Snapshot snapshot);
+    }
+
+    public static final class Snapshot {
+        final long id;
+        // id del snapshot de playVideo del que deriva (el mismo id si es ese)
+        final long lineageId;
+        final List<String> chapterTitles;
+        final List<String> chapterUrls;
+        final List<Integer> chapterSeasonNumbers;
+        final List<Integer> chapterNumbers;
+        final List<Integer> chapterSeasonIndices;
+        final List<Integer> chapterIndices;
+        final List<String> channelIds;
+        final List<String> channelNames;
+        final List<String> channelLogos;
+        final List<String> channelUrls;
+        // Diferencias de canales respecto al snapshot anterior (null si no aplica).
+        final LiveChannelDelta channelDelta;
+
+        private Snapshot(
+            long id,
+            long lineageId,
+            List<String> chapterTitles,
+            List<String> chapterUrls,
+            List<Integer> chapterSeasonNumbers,
+            List<Integer> chapterNumbers,
+            List<Integer> chapterSeasonIndices,
+            List<Integer> chapterIndices,
+            List<String> channelIds,
+            List<String> channelNames,
+            List<String> channelLogos,
+            List<String> channelUrls,
+            LiveChannelDelta channelDelta
+        ) {
+            this.id = id;
+            this.lineageId = lineageId;
+            this.chapterTitles = chapterTitles;
+            this.chapterUrls = chapterUrls;
+            this.chapterSeasonNumbers = chapterSeasonNumbers;
+            this.chapterNumbers = chapterNumbers;
+            this.chapterSeasonIndices = chapterSeasonIndices;
+            this.chapterIndices = chapterIndices;
+            this.channelIds = channelIds;
+            this.channelNames = channelNames;
+            this.channelLogos = channelLogos;
+            this.channelUrls = channelUrls;
+            this.channelDelta = channelDelta;
+        }
+
+        boolean hasChapters() {
+            return !chapterUrls.isEmpty();
+        }
+
+        boolean hasChannels() {
+            return !channelUrls.isEmpty();
+        }
+
+        // Misma clave que usa LiveChannelDelta, incluido el sufijo de los canales repetidos.
+        String channelKeyAt(int index) {
+            if (index < 0 || index >= channelUrls.size()) {
+                return LiveChannelDelta.channelKey(null, null);
+            }
+            return LiveChannelDelta.channelKeys(channelIds, channelUrls)[index];
+        }
+
+        // Clave del canal que reproduce url; se prueba primero el indice conocido para evitar recorrer la lista.
+        String channelKeyForUrl(int hintIndex, String url) {
+            if (url == null) {
+                return null;
+            }
+            if (hintIndex >= 0 && hintIndex < channelUrls.size() && url.equals(channelUrls.get(hintIndex))) {
+                return channelKeyAt(hintIndex);
+            }
+            int index = channelUrls.indexOf(url);
+            return index >= 0 ? channelKeyAt(index) : null;
+        }
+
+        int indexOfChannelKey(String key) {
+            if (key == null) {
+                return -1;
+            }
+            String[] keys = LiveChannelDelta.channelKeys(channelIds, channelUrls);
+            for (int i = 0; i < keys.length; i++) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // true si snapshot se obtuvo aplicando su delta sobre este snapshot.
+        boolean isChannelBaseOf(Snapshot snapshot) {
+            return snapshot != null && snapshot.channelDelta != null && snapshot.channelDelta.baseSnapshotId == id;
+        }
+    }
+
+    // Las listas pasan a ser propiedad del store: el llamador no debe volver a modificarlas.
+    public static synchronized Snapshot publish(
+        List<String> chapterTitles,
+        List<String> chapterUrls,
+        List<Integer> chapterSeasonNumbers,
+        List<Integer> chapterNumbers,
+        List<Integer> chapterSeasonIndices,
+        List<Integer> chapterIndices,
+        List<String> channelIds,
+        List<String> channelNames,
+        List<String> channelLogos,
+        List<String> channelUrls
+    ) {
+        long id = nextSnapshotId++;
+        Snapshot snapshot = new Snapshot(
+            id,
+            id,
+            freeze(chapterTitles),
+            freeze(chapterUrls),
+            freeze(chapterSeasonNumbers),
+            freeze(chapterNumbers),
+            freeze(chapterSeasonIndices),
+            freeze(chapterIndices),
+            freeze(channelIds),
+            freeze(channelNames),
+            freeze(channelLogos),
+            freeze(channelUrls),
+            null
+        );
+        retain(snapshot);
+        Log.d(TAG, "Snapshot " + snapshot.id + " publicado: " + snapshot.chapterUrls.size() + " capitulos, " + snapshot.channelUrls.size() + " canales");
+        return snapshot;
+    }
+
+    public static synchronized Snapshot publishChannels(
+        Snapshot base,
+        List<String> channelIds,
+        List<String> channelNames,
+        List<String> channelLogos,
+        List<String> channelUrls,
+        LiveChannelDelta channelDelta
+    ) {
+        Snapshot source = base != null ? base : empty();
+        long id = nextSnapshotId++;
+        Snapshot snapshot = new Snapshot(
+            id,
+            base != null ? base.lineageId : id,
+            source.chapterTitles,
+            source.chapterUrls,
+            source.chapterSeasonNumbers,
+            source.chapterNumbers,
+            source.chapterSeasonIndices,
+            source.chapterIndices,
+            freeze(channelIds),
+            freeze(channelNames),
+            freeze(channelLogos),
+            freeze(channelUrls),
+            channelDelta
+        );
+        retain(snapshot);
+        return snapshot;
+    }
+
+    public static synchronized Snapshot get(long snapshotId) {
+        return snapshots.get(snapshotId);
+    }
+
+    public static synchronized Snapshot latest() {
+        return latestSnapshot;
+    }
+
+    public static Snapshot empty() {
+        List<String> noStrings = Collections.emptyList();
+        List<Integer> noInts = Collections.emptyList();
+        return new Snapshot(0L, 0L, noStrings, noStrings, noInts, noInts, noInts, noInts, noStrings, noStrings, noStrings, noStrings, null);
+    }
+
+    public static void attach(Intent intent, Snapshot snapshot) {
+        if (intent != null && snapshot != null && snapshot.id > 0L) {
+            intent.putExtra(EXTRA_SNAPSHOT_ID, snapshot.id);
+        }
+    }
+
+    // Directorio para la copia en disco; se llama desde el plugin y desde resolve().
+    public static synchronized void init(Context context) {
+        if (persistFile == null) {
+            persistFile = new File(context.getApplicationContext().getCacheDir(), PERSIST_FILE_NAME);
+        }
+    }
+
+    // Resuelve el catalogo de un Intent: el snapshot mas reciente de su linaje en memoria, o empty(). Tras la
+    // muerte del proceso la copia en disco (10-50k entradas) se lee en persistExecutor, no en onCreate: el
+    // llamador arranca con la URL del Intent y onRestored llega en el hilo principal si la copia es de su
+    // linaje. El llamador debe fijar el snapshot con acquire()/swap().
+    public static Snapshot resolve(Context context, Intent intent, final Restored onRestored) {
+        init(context);
+        if (intent == null) {
+            return empty();
+        }
+        final long snapshotId = intent.getLongExtra(EXTRA_SNAPSHOT_ID, 0L);
+        if (snapshotId <= 0L) {
+            return empty();
+        }
+
+        Snapshot snapshot = newestInLineage(snapshotId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Detras de cualquier escritura pendiente del mismo fichero
+        persistExecutor.execute(() -> {
+            final Snapshot restored = restorePersisted(snapshotId);
+            if (restored != null && onRestored != null) {
+                mainHandler.post(() -> onRestored.onRestored(restored));
+            }
+        });
+        return empty();
+    }
+
+    private static Snapshot restorePersisted(long snapshotId) {
+        Snapshot restored = readPersisted();
+        if (restored == null || restored.lineageId != snapshotId) {
+            Log.w(TAG, "Snapshot " + snapshotId + " no disponible");
+            return null;
+        }
+        synchronized (PlaybackCatalogStore.class) {
+            Snapshot current = newestInLineage(snapshotId);
+            if (current != null) {
+                return current;
+            }
+            snapshots.put(restored.id, restored);
+            if (latestSnapshot == null) {
+                latestSnapshot = restored;
+            }
+            persistedSnapshotId = restored.id;
+        }
+        Log.d(TAG, "Snapshot " + restored.id + " restaurado del disco: " + restored.chapterUrls.size() + " capitulos, " + restored.channelUrls.size() + " canales");
+        return restored;
+    }
+
+    public static synchronized void acquire(Snapshot snapshot) {
+        if (snapshot == null || snapshot.id <= 0L) {
+            return;
+        }
+        Integer count = pins.get(snapshot.id);
+        pins.put(snapshot.id, count != null ? count + 1 : 1);
+    }
+
+    public static synchronized void release(Snapshot snapshot) {
+        if (snapshot == null || snapshot.id <= 0L) {
+            return;
+        }
+        Integer count = pins.get(snapshot.id);
+        if (count == null) {
+            return;
+        }
+        if (count <= 1) {
+            pins.remove(snapshot.id);
+            evictUnpinned();
+        } else {
+            pins.put(snapshot.id, count - 1);
+        }
+    }
+
+    // La actividad pasa de previous a next (p.ej. una actualizacion de canales)
+    public static synchronized void swap(Snapshot previous, Snapshot next) {
+        if (previous == next) {
+            return;
+        }
+        acquire(next);
+        release(previous);
+    }
+
+    private static synchronized Snapshot newestInLineage(long lineageId) {
+        Snapshot newest = null;
+        for (Snapshot snapshot : snapshots.values()) {
+            if (snapshot.lineageId == lineageId) {
+                newest = snapshot;
+            }
+        }
+        return newest;
+    }
+
+    private static void retain(Snapshot snapshot) {
+        snapshots.put(snapshot.id, snapshot);
+        latestSnapshot = snapshot;
+        evictUnpinned();
+        schedulePersist();
+    }
+
+    // Nunca se descartan el ultimo ni los fijados
+    private static void evictUnpinned() {
+        int unpinned = 0;
+        for (Snapshot snapshot : snapshots.values()) {
+            if (snapshot != latestSnapshot && !pins.containsKey(snapshot.id)) {
+                unpinned++;
+            }
+        }
+        Iterator<Snapshot> iterator = snapshots.values().iterator();
+        while (unpinned > MAX_RETAINED_UNPINNED && iterator.hasNext()) {
+            Snapshot snapshot = iterator.next();
+            if (snapshot != latestSnapshot && !pins.containsKey(snapshot.id)) {
+                iterator.remove();
+                unpinned--;
+            }
+        }
+    }
+
+    // Se escribe el ultimo snapshot en el momento de ejecutar; varias publicaciones seguidas dan una escritura
+    private static void schedulePersist() {
+        if (persistFile == null) {
+            return;
+        }
+        persistExecutor.execute(() -> {
+            Snapshot snapshot;
+            File target;
+            synchronized (PlaybackCatalogStore.class) {
+                snapshot = latestSnapshot;
+                target = persistFile;
+                if (snapshot == null || snapshot.id == persistedSnapshotId) {
+                    return;
+                }
+                persistedSnapshotId = snapshot.id;
+            }
+            writePersisted(target, snapshot);
+        });
+    }
+
+    private static void writePersisted(File target, Snapshot snapshot) {
+        File temp = new File(target.getPath() + ".tmp");
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(temp), Charset.forName("UTF-8")))) {
+            writer.beginObject();
+            writer.name("id").value(snapshot.id);
+            writer.name("lineageId").value(snapshot.lineageId);
+            writeStrings(writer, "chapterTitles", snapshot.chapterTitles);
+            writeStrings(writer, "chapterUrls", snapshot.chapterUrls);
+            writeInts(writer, "chapterSeasonNumbers", snapshot.chapterSeasonNumbers);
+            writeInts(writer, "chapterNumbers", snapshot.chapterNumbers);
+            writeInts(writer, "chapterSeasonIndices", snapshot.chapterSeasonIndices);
+            writeInts(writer, "chapterIndices", snapshot.chapterIndices);
+            writeStrings(writer, "channelIds", snapshot.channelIds);
+            writeStrings(writer, "channelNames", snapshot.channelNames);
+            writeStrings(writer, "channelLogos", snapshot.channelLogos);
+            writeStrings(writer, "channelUrls", snapshot.channelUrls);
+            writer.endObject();
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar el catalogo", e);
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "No se pudo reemplazar " + target.getName());
+        }
+    }
+
+    private static Snapshot readPersisted() {
+        File source;
+        synchronized (PlaybackCatalogStore.class) {
+            source = persistFile;
+        }
+        if (source == null || !source.exists()) {
+            return null;
+        }
+        long id = 0L;
+        long lineageId = 0L;
+        HashMap<String, List<String>> strings = new HashMap<>();
+        HashMap<String, List<Integer>> ints = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(source), Charset.forName("UTF-8")))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("id".equals(name)) {
+                    id = reader.nextLong();
+                } else if ("lineageId".equals(name)) {
+                    lineageId = reader.nextLong();
+                } else if (name.startsWith("chapterSeason") || "chapterNumbers".equals(name) || "chapterIndices".equals(name)) {
+                    ints.put(name, readInts(reader));
+                } else {
+                    strings.put(name, readStrings(reader));
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Copia del catalogo ilegible", e);
+            return null;
+        }
+        if (id <= 0L) {
+            return null;
+        }
+        return new Snapshot(
+            id,
+            lineageId,
+            freeze(strings.get("chapterTitles")),
+            freeze(strings.get("chapterUrls")),
+            freeze(ints.get("chapterSeasonNumbers")),
+            freeze(ints.get("chapterNumbers")),
+            freeze(ints.get("chapterSeasonIndices")),
+            freeze(ints.get("chapterIndices")),
+            freeze(strings.get("channelIds")),
+            freeze(strings.get("channelNames")),
+            freeze(strings.get("channelLogos")),
+            freeze(strings.get("channelUrls")),
+            null
+        );
+    }
+
+    private static void writeStrings(JsonWriter writer, String name, List<String> values) throws IOException {
+        writer.name(name).beginArray();
+        for (String value : values) {
+            writer.value(value);
+        }
+        writer.endArray();
+    }
+
+    private static void writeInts(JsonWriter writer, String name, List<Integer> values) throws IOException {
+        writer.name(name).beginArray();
+        for (Integer value : values) {
+            writer.value(value);
+        }
+        writer.endArray();
+    }
+
+    private static List<String> readStrings(JsonReader reader) throws IOException {
+        ArrayList<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                values.add(null);
+            } else {
+                values.add(reader.nextString());
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static List<Integer> readInts(JsonReader reader) throws IOException {
+        ArrayList<Integer> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                values.add(null);
+            } else {
+                values.add(reader.nextInt());
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static <T> List<T> freeze(List<T> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(values);
+    }
+}
@@ -0,0 +1,60 @@
+package play.teamg.store;
+
+// Motor de reproduccion hospedado por ExoPlayerActivity sobre su propia superficie. La actividad usa el
+// motor activo para el transporte (abrir, play/pausa, seek, posicion, velocidad) y puede pasar de
+// ExoPlayer a VLC, o volver, sin recrear la actividad: posicion, UI y catalogo se conservan.
+// Lo que solo existe en un motor (pistas, pool de zapping, precalentado de ExoPlayer) sigue en la actividad.
+// Los estados usan los mismos valores que Player.STATE_* de ExoPlayer. Todo desde el hilo principal.
+public interface PlaybackEngine {
+    int STATE_IDLE = 1;
+    int STATE_BUFFERING = 2;
+    int STATE_READY = 3;
+    int STATE_ENDED = 4;
+
+    String TYPE_EXOPLAYER = "android-exoplayer";
+    String TYPE_VLC = "android-vlc";
+
+    // Eventos del motor, siempre en el hilo principal.
+    interface Listener {
+        void onEngineStateChanged(PlaybackEngine engine, int state);
+
+        void onEnginePlayWhenReadyChanged(PlaybackEngine engine, boolean playWhenReady);
+
+        void onEngineIsPlayingChanged(PlaybackEngine engine, boolean isPlaying);
+
+        void onEngineFirstFrame(PlaybackEngine engine);
+
+        // failure es PlaybackRecovery.FAILURE_*; diagnostic es texto libre para logs y heuristicas.
+        void onEngineError(PlaybackEngine engine, int failure, String reason, String diagnostic);
+    }
+
+    // "exoplayer" o "vlc", como en PlaybackMetrics y ProgressReporter.
+    String getName();
+
+    // TYPE_EXOPLAYER o TYPE_VLC, como el player_type de los Intent.
+    String getPlayerType();
+
+    // Abre la fuente y empieza a reproducir; startPositionMs <= 0 abre en la posicion por defecto.
+    void open(String sourceUrl, long startPositionMs);
+
+    void play();
+
+    void pause();
+
+    void seekTo(long positionMs);
+
+    boolean isPlaying();
+
+    boolean getPlayWhenReady();
+
+    int getPlaybackState();
+
+    long getCurrentPosition();
+
+    // Duracion en ms, o C.TIME_UNSET si aun no se conoce (o es directo).
+    long getDuration();
+
+    void setSpeed(float speed);
+
+    void release();
+}
@@ -0,0 +1,214 @@
+package play.teamg.store;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// Tiempos de arranque por sesion de reproduccion: desde la llamada al plugin hasta el primer frame.
+// El plugin abre la sesion y pasa su id en el Intent; la actividad marca cada fase una sola vez y
+// cierra la sesion en el primer frame (o al cerrarse antes). Las sesiones cerradas se publican en
+// PlayerEventBus y se guardan las ultimas MAX_RECENT_SESSIONS para p50/p95.
+public final class PlaybackMetrics {
+    private static final String TAG = "PlaybackMetrics";
+    public static final String EXTRA_SESSION_ID = "metrics_session_id";
+    private static final int MAX_RECENT_SESSIONS = 100;
+    private static final int MAX_ACTIVE_SESSIONS = 8;
+
+    public static final int PHASE_PLUGIN_CALL = 0;
+    public static final int PHASE_ACTIVITY_CREATED = 1;
+    public static final int PHASE_PLAYER_CREATED = 2;
+    public static final int PHASE_MEDIA_SET = 3;
+    public static final int PHASE_FIRST_BUFFERING = 4;
+    public static final int PHASE_FIRST_FRAME = 5;
+    static final String[] PHASE_NAMES = {
+        "pluginCall", "activityCreated", "playerCreated", "mediaSet", "firstBuffering", "firstFrame"
+    };
+
+    private static final LinkedHashMap<Long, Session> activeSessions = new LinkedHashMap<>();
+    private static final ArrayDeque<Session> recentSessions = new ArrayDeque<>();
+    private static long nextSessionId = 1L;
+
+    private PlaybackMetrics() {}
+
+    public static final class Session {
+        final long id;
+        final String url;
+        final String trigger;
+        final long startedAtMs;
+        final long startedAtWallMs;
+        final long[] phaseAtMs = new long[PHASE_NAMES.length];
+        final LinkedHashMap<String, String> attributes = new LinkedHashMap<>();
+        String engine;
+        String outcome;
+
+        Session(long id, String url, String engine, String trigger) {
+            this.id = id;
+            this.url = url;
+            this.engine = engine;
+            this.trigger = trigger;
+            this.startedAtMs = SystemClock.elapsedRealtime();
+            this.startedAtWallMs = System.currentTimeMillis();
+            Arrays.fill(phaseAtMs, -1L);
+        }
+
+        private Session(Session source) {
+            this.id = source.id;
+            this.url = source.url;
+            this.trigger = source.trigger;
+            this.startedAtMs = source.startedAtMs;
+            this.startedAtWallMs = source.startedAtWallMs;
+            System.arraycopy(source.phaseAtMs, 0, phaseAtMs, 0, phaseAtMs.length);
+            this.attributes.putAll(source.attributes);
+            this.engine = source.engine;
+            this.outcome = source.outcome;
+        }
+
+        // Milisegundos desde el inicio de la sesion, o -1 si la fase no llego a ocurrir.
+        long phaseOffsetMs(int phase) {
+            long at = phaseAtMs[phase];
+            return at < 0 ? -1L : at - startedAtMs;
+        }
+
+        long timeToFirstFrameMs() {
+            return phaseOffsetMs(PHASE_FIRST_FRAME);
+        }
+    }
+
+    public static synchronized long begin(String url, String engine, String trigger) {
+        Session session = new Session(nextSessionId++, url, engine, trigger);
+        if (activeSessions.size() >= MAX_ACTIVE_SESSIONS) {
+            // Sesiones que nunca se cerraron (la actividad no llego a arrancar)
+            Long oldestId = activeSessions.keySet().iterator().next();
+            Session abandoned = activeSessions.remove(oldestId);
+            abandoned.outcome = "abandoned";
+            addRecent(abandoned);
+        }
+        activeSessions.put(session.id, session);
+        if ("plugin".equals(trigger)) {
+            session.phaseAtMs[PHASE_PLUGIN_CALL] = session.startedAtMs;
+        }
+        return session.id;
+    }
+
+    // Sesion abierta por el plugin para este Intent, o una nueva si la actividad arranco por otra via.
+    public static synchronized long attach(Intent intent, String url, String engine) {
+        long sessionId = intent != null ? intent.getLongExtra(EXTRA_SESSION_ID, 0L) : 0L;
+        Session session = activeSessions.get(sessionId);
+        if (session == null || (url != null && !url.equals(session.url))) {
+            return begin(url, engine, "activity");
+        }
+        session.engine = engine;
+        return sessionId;
+    }
+
+    public static synchronized boolean isActive(long sessionId) {
+        return activeSessions.containsKey(sessionId);
+    }
+
+    // La misma sesion si sigue abierta para esta URL; si no, cierra la anterior y abre otra.
+    public static long ensure(long sessionId, String url, String engine, String trigger) {
+        synchronized (PlaybackMetrics.class) {
+            Session session = activeSessions.get(sessionId);
+            if (session != null && url != null && url.equals(session.url)) {
+                return sessionId;
+            }
+        }
+        finish(sessionId, "replaced");
+        return begin(url, engine, trigger);
+    }
+
+    public static synchronized void mark(long sessionId, int phase) {
+        Session session = activeSessions.get(sessionId);
+        if (session != null && session.phaseAtMs[phase] < 0) {
+            session.phaseAtMs[phase] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    public static synchronized void putAttribute(long sessionId, String key, Object value) {
+        Session session = activeSessions.get(sessionId);
+        if (session != null && key != null) {
+            session.attributes.put(key, String.valueOf(value));
+        }
+    }
+
+    // outcome: "first_frame", "closed", "error"... Solo cuenta el primer cierre.
+    public static void finish(long sessionId, String outcome) {
+        Session snapshot;
+        synchronized (PlaybackMetrics.class) {
+            Session session = activeSessions.remove(sessionId);
+            if (session == null) {
+                return;
+            }
+            session.outcome = outcome;
+            addRecent(session);
+            snapshot = new Session(session);
+        }
+        Log.d(TAG, "Sesion " + snapshot.id + " (" + snapshot.engine + ", " + snapshot.outcome + "): primer frame en "
+            + snapshot.timeToFirstFrameMs() + "ms, buffering en " + snapshot.phaseOffsetMs(PHASE_FIRST_BUFFERING) + "ms");
+        PlayerEventBus.post(new PlayerEventBus.MetricsReady(snapshot));
+    }
+
+    // Copias de las sesiones cerradas, de la mas reciente a la mas antigua.
+    public static synchronized List<Session> recent(int limit) {
+        ArrayList<Session> result = new ArrayList<>();
+        Iterator<Session> iterator = recentSessions.descendingIterator();
+        while (iterator.hasNext() && (limit <= 0 || result.size() < limit)) {
+            result.add(new Session(iterator.next()));
+        }
+        return result;
+    }
+
+    // Percentil (nearest-rank) del tiempo hasta cada fase sobre las sesiones recientes, por motor.
+    // engine == null: todos los motores. Devuelve -1 si no hay muestras.
+    public static synchronized long percentile(String engine, int phase, int percent) {
+        return percentile(engine, null, null, phase, percent);
+    }
+
+    // Igual, solo sobre las sesiones con attributeKey == attributeValue (p.ej. libVlcWarm = true/false).
+    public static synchronized long percentile(String engine, String attributeKey, String attributeValue, int phase, int percent) {
+        ArrayList<Long> samples = new ArrayList<>();
+        for (Session session : recentSessions) {
+            if (engine != null && !engine.equals(session.engine)) {
+                continue;
+            }
+            if (attributeKey != null && !attributeValue.equals(session.attributes.get(attributeKey))) {
+                continue;
+            }
+            long offset = session.phaseOffsetMs(phase);
+            if (offset >= 0) {
+                samples.add(offset);
+            }
+        }
+        if (samples.isEmpty()) {
+            return -1L;
+        }
+        Collections.sort(samples);
+        int rank = (int) Math.ceil(percent / 100.0 * samples.size());
+        return samples.get(Math.max(0, Math.min(samples.size() - 1, rank - 1)));
+    }
+
+    public static synchronized HashMap<String, Integer> countByEngine() {
+        HashMap<String, Integer> counts = new HashMap<>();
+        for (Session session : recentSessions) {
+            Integer count = counts.get(session.engine);
+            counts.put(session.engine, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    private static void addRecent(Session session) {
+        if (recentSessions.size() >= MAX_RECENT_SESSIONS) {
+            recentSessions.pollFirst();
+        }
+        recentSessions.addLast(session);
+    }
+}
@@ -0,0 +1,393 @@
+package play.teamg.store;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+// Parser de capitulos/canales de playVideo/updateLiveChannels. Si el frontend envia la lista ya
+// serializada (channelsJson/chaptersJson) se recorre una sola vez con JsonReader sin crear JSONObjects;
+// si llega como array se lee con una unica pasada por elemento.
+// Las URLs alternativas ("mirrors") se registran en StreamMirrors; el catalogo solo lleva la principal.
+public final class PlaybackPayloadParser {
+    private static final String TAG = "PlaybackPayloadParser";
+    // Orden de preferencia de la URL de un canal.
+    private static final String[] CHANNEL_URL_KEYS = { "url", "streamUrl", "stream_url", "playbackUrl", "videoUrl" };
+    private static final String MIRRORS_KEY = "mirrors";
+
+    private PlaybackPayloadParser() {}
+
+    public static final class ChannelLineup {
+        final ArrayList<String> ids;
+        final ArrayList<String> names;
+        final ArrayList<String> logos;
+        final ArrayList<String> urls;
+        int skipped = 0;
+
+        ChannelLineup(int capacity) {
+            ids = new ArrayList<>(capacity);
+            names = new ArrayList<>(capacity);
+            logos = new ArrayList<>(capacity);
+            urls = new ArrayList<>(capacity);
+        }
+
+        int size() {
+            return urls.size();
+        }
+
+        private void add(String id, String name, String logo, String url) {
+            ids.add(id != null ? id : "");
+            names.add(name != null ? name : "Canal");
+            logos.add(logo != null ? logo : "");
+            urls.add(url);
+        }
+    }
+
+    public static final class ChapterList {
+        final ArrayList<String> titles;
+        final ArrayList<String> urls;
+        final ArrayList<Integer> seasonNumbers;
+        final ArrayList<Integer> numbers;
+        final ArrayList<Integer> seasonIndices;
+        final ArrayList<Integer> indices;
+        private int currentSeason = -1;
+        private int chapterCount = 0;
+
+        ChapterList(int capacity) {
+            titles = new ArrayList<>(capacity);
+            urls = new ArrayList<>(capacity);
+            seasonNumbers = new ArrayList<>(capacity);
+            numbers = new ArrayList<>(capacity);
+            seasonIndices = new ArrayList<>(capacity);
+            indices = new ArrayList<>(capacity);
+        }
+
+        int size() {
+            return urls.size();
+        }
+
+        // Numeracion por temporada igual que el parser anterior: el contador se reinicia al cambiar de temporada.
+        private void add(String title, String url, int seasonNumber, int seasonIndex, int chapterIndex) {
+            if (seasonNumber != currentSeason) {
+                currentSeason = seasonNumber;
+                chapterCount = 1;
+            } else {
+                chapterCount++;
+            }
+
+            titles.add(title);
+            urls.add(url);
+            seasonNumbers.add(seasonNumber);
+            numbers.add(chapterCount);
+            seasonIndices.add(Math.max(0, seasonIndex != Integer.MIN_VALUE ? seasonIndex : seasonNumber - 1));
+            indices.add(Math.max(0, chapterIndex != Integer.MIN_VALUE ? chapterIndex : chapterCount - 1));
+        }
+    }
+
+    public static ChannelLineup parseChannels(String json) {
+        ChannelLineup lineup = new ChannelLineup(estimateEntries(json));
+        if (json == null || json.isEmpty()) {
+            return lineup;
+        }
+
+        JsonReader reader = new JsonReader(new StringReader(json));
+        String[] urlCandidates = new String[CHANNEL_URL_KEYS.length];
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    lineup.skipped++;
+                    continue;
+                }
+
+                String id = null;
+                String name = null;
+                String title = null;
+                String logo = null;
+                ArrayList<String> mirrors = null;
+                for (int i = 0; i < urlCandidates.length; i++) urlCandidates[i] = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    switch (field) {
+                        case "id":
+                            id = readString(reader);
+                            break;
+                        case "name":
+                            name = readString(reader);
+                            break;
+                        case "title":
+                            title = readString(reader);
+                            break;
+                        case "logo":
+                            logo = readString(reader);
+                            break;
+                        case MIRRORS_KEY:
+                            mirrors = readStringList(reader);
+                            break;
+                        default:
+                            int urlSlot = urlKeySlot(field);
+                            if (urlSlot >= 0) {
+                                urlCandidates[urlSlot] = readString(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                            break;
+                    }
+                }
+                reader.endObject();
+
+                String url = primaryUrl(firstNonEmpty(urlCandidates), mirrors);
+                if (url == null) {
+                    lineup.skipped++;
+                    continue;
+                }
+                StreamMirrors.register(url, mirrors);
+                lineup.add(id, name != null ? name : title, logo, url);
+            }
+            reader.endArray();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            Log.e(TAG, "Error parsing channels payload after " + lineup.size() + " entries", e);
+        } finally {
+            closeQuietly(reader);
+        }
+        return lineup;
+    }
+
+    public static ChannelLineup readChannels(JSArray channelsArray) {
+        int length = channelsArray != null ? channelsArray.length() : 0;
+        ChannelLineup lineup = new ChannelLineup(length);
+        for (int i = 0; i < length; i++) {
+            JSONObject channel = channelsArray.optJSONObject(i);
+            if (channel == null) {
+                lineup.skipped++;
+                continue;
+            }
+
+            String url = null;
+            for (String key : CHANNEL_URL_KEYS) {
+                String candidate = channel.optString(key, "");
+                if (!candidate.isEmpty()) {
+                    url = candidate;
+                    break;
+                }
+            }
+            ArrayList<String> mirrors = optStringList(channel, MIRRORS_KEY);
+            url = primaryUrl(url, mirrors);
+            if (url == null) {
+                lineup.skipped++;
+                continue;
+            }
+            StreamMirrors.register(url, mirrors);
+            lineup.add(channel.optString("id", ""), channel.optString("name", channel.optString("title", "Canal")), channel.optString("logo", ""), url);
+        }
+        return lineup;
+    }
+
+    public static ChapterList parseChapters(String json) {
+        ChapterList chapters = new ChapterList(estimateEntries(json));
+        if (json == null || json.isEmpty()) {
+            return chapters;
+        }
+
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                String title = null;
+                String url = null;
+                ArrayList<String> mirrors = null;
+                int seasonNumber = 1;
+                int seasonIndex = Integer.MIN_VALUE;
+                int chapterIndex = Integer.MIN_VALUE;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    switch (field) {
+                        case "title":
+                            title = readString(reader);
+                            break;
+                        case "url":
+                            url = readString(reader);
+                            break;
+                        case MIRRORS_KEY:
+                            mirrors = readStringList(reader);
+                            break;
+                        case "seasonNumber":
+                            seasonNumber = readInt(reader, 1);
+                            break;
+                        case "seasonIndex":
+                            seasonIndex = readInt(reader, Integer.MIN_VALUE);
+                            break;
+                        case "chapterIndex":
+                            chapterIndex = readInt(reader, Integer.MIN_VALUE);
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+
+                url = primaryUrl(url, mirrors);
+                if (title == null || url == null) {
+                    Log.w(TAG, "Skipping chapter without title/url at index " + chapters.size());
+                    continue;
+                }
+                StreamMirrors.register(url, mirrors);
+                chapters.add(title, url, seasonNumber, seasonIndex, chapterIndex);
+            }
+            reader.endArray();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            Log.e(TAG, "Error parsing chapters payload after " + chapters.size() + " entries", e);
+        } finally {
+            closeQuietly(reader);
+        }
+        return chapters;
+    }
+
+    public static ChapterList readChapters(JSArray chaptersArray) {
+        int length = chaptersArray != null ? chaptersArray.length() : 0;
+        ChapterList chapters = new ChapterList(length);
+        for (int i = 0; i < length; i++) {
+            JSONObject chapter = chaptersArray.optJSONObject(i);
+            ArrayList<String> mirrors = chapter != null ? optStringList(chapter, MIRRORS_KEY) : null;
+            if (chapter == null || !chapter.has("title") || (!chapter.has("url") && (mirrors == null || mirrors.isEmpty()))) {
+                Log.w(TAG, "Skipping chapter without title/url at index " + i);
+                continue;
+            }
+            String url = primaryUrl(chapter.optString("url"), mirrors);
+            StreamMirrors.register(url, mirrors);
+            int seasonNumber = chapter.optInt("seasonNumber", 1);
+            chapters.add(
+                chapter.optString("title"),
+                url,
+                seasonNumber,
+                chapter.optInt("seasonIndex", Integer.MIN_VALUE),
+                chapter.optInt("chapterIndex", Integer.MIN_VALUE)
+            );
+        }
+        return chapters;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static ArrayList<String> readStringList(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        ArrayList<String> values = new ArrayList<>(3);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = readString(reader);
+            if (value != null && !value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+
+    public static ArrayList<String> optStringList(JSONObject object, String key) {
+        JSONArray array = object != null ? object.optJSONArray(key) : null;
+        if (array == null) {
+            return null;
+        }
+        ArrayList<String> values = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            String value = array.optString(i, "");
+            if (!value.isEmpty() && !array.isNull(i)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    // Sin URL principal, el primer mirror hace de principal.
+    private static String primaryUrl(String url, ArrayList<String> mirrors) {
+        if ((url == null || url.isEmpty()) && mirrors != null && !mirrors.isEmpty()) {
+            return mirrors.get(0);
+        }
+        return url;
+    }
+
+    private static int readInt(JsonReader reader, int fallback) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            return (int) reader.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            try {
+                return (int) Double.parseDouble(reader.nextString().trim());
+            } catch (NumberFormatException ignored) {
+                return fallback;
+            }
+        }
+        reader.skipValue();
+        return fallback;
+    }
+
+    private static int urlKeySlot(String field) {
+        for (int i = 0; i < CHANNEL_URL_KEYS.length; i++) {
+            if (CHANNEL_URL_KEYS[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String firstNonEmpty(String[] values) {
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // Capacidad inicial aproximada sin recorrer el texto: una entrada de canal/capitulo ocupa ~150 caracteres.
+    private static int estimateEntries(String json) {
+        if (json == null) {
+            return 0;
+        }
+        return Math.min(json.length() / 128 + 16, 65536);
+    }
+
+    private static void closeQuietly(JsonReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
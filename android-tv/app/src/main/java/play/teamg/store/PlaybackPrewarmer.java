@@ -0,0 +1,373 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+
+import org.videolan.libvlc.LibVLC;
+import org.videolan.libvlc.Media;
+import org.videolan.libvlc.MediaPlayer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Abre el stream antes de que la actividad del reproductor termine de arrancar y le entrega el player
+// ya bufferizando. Solo se guarda un player preparado; si nadie lo recoge en MAX_AGE_MS se libera.
+// Si la actividad lo pide mientras la preparacion de esa misma URL sigue en curso, espera a que termine
+// (como mucho HANDOVER_TIMEOUT_MS) en vez de descartarla y abrir el stream otra vez.
+// - VLC: MediaPlayer con :start-paused creado en un hilo propio; la actividad hace attachViews + play().
+// - ExoPlayer: debe vivir en el hilo principal, pero prepare() ya abre el stream en el hilo interno.
+public final class PlaybackPrewarmer {
+    private static final String TAG = "PlaybackPrewarmer";
+    private static final long MAX_AGE_MS = 15000L;
+    private static final long HANDOVER_TIMEOUT_MS = 4000L;
+
+    private static final ExecutorService vlcExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Generacion de la ultima preparacion pedida; una preparacion obsoleta se libera al terminar.
+    private static long generation = 0L;
+    private static PreparedVlc preparedVlc;
+    private static PreparedExo preparedExo;
+    // Preparacion en curso (generation actual) y quien la espera
+    private static String inFlightUrl;
+    private static boolean inFlightExo;
+    private static Handover<MediaPlayer> vlcWaiter;
+    private static Handover<PreparedExo> exoWaiter;
+
+    private PlaybackPrewarmer() {}
+
+    // Siempre en el hilo principal; null si no habia nada utilizable para esa URL.
+    interface Handover<T> {
+        void onHandover(T prepared);
+    }
+
+    private static final class PreparedVlc {
+        final long generation;
+        final String url;
+        final MediaPlayer mediaPlayer;
+        final long preparedAtMs;
+
+        PreparedVlc(long generation, String url, MediaPlayer mediaPlayer) {
+            this.generation = generation;
+            this.url = url;
+            this.mediaPlayer = mediaPlayer;
+            this.preparedAtMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    public static final class PreparedExo {
+        final long generation;
+        final String url;
+        final ExoPlayer player;
+        final DefaultTrackSelector trackSelector;
+        final long preparedAtMs;
+
+        PreparedExo(long generation, String url, ExoPlayer player, DefaultTrackSelector trackSelector) {
+            this.generation = generation;
+            this.url = url;
+            this.player = player;
+            this.trackSelector = trackSelector;
+            this.preparedAtMs = SystemClock.elapsedRealtime();
+        }
+
+        long ageMs() {
+            return SystemClock.elapsedRealtime() - preparedAtMs;
+        }
+    }
+
+    public static void prepareVlc(Context context, final String url, final long startTimeSec, final boolean isLiveTV) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        discard();
+        final long requestGeneration = beginPrepare(url, false);
+        vlcExecutor.execute(() -> {
+            if (!isCurrent(requestGeneration)) {
+                return;
+            }
+            MediaPlayer mediaPlayer = null;
+            try {
+                LibVLC libVlc = VLCInstance.getInstance(appContext);
+                mediaPlayer = new MediaPlayer(libVlc);
+                // Mismo perfil que resolvera la actividad para que el stream abierto sea equivalente
+                String sourceUrl = StreamMirrors.sourceFor(url);
+                Media media = VlcMediaProfile.resolve(appContext, isLiveTV).buildMedia(
+                    libVlc,
+                    sourceUrl,
+                    NetworkCachingController.getInstance(appContext).factorFor(sourceUrl),
+                    StreamTypeProbe.getInstance(appContext).peek(sourceUrl)
+                );
+                media.addOption(":start-paused");
+                if (startTimeSec > 0) {
+                    media.addOption(":start-time=" + startTimeSec);
+                }
+                mediaPlayer.setMedia(media);
+                media.release();
+                mediaPlayer.play();
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo precalentar VLC", e);
+                releaseQuietly(mediaPlayer);
+                failPrepare(requestGeneration);
+                return;
+            }
+
+            PreparedVlc prepared = new PreparedVlc(requestGeneration, url, mediaPlayer);
+            Handover<MediaPlayer> waiter;
+            synchronized (PlaybackPrewarmer.class) {
+                if (generation != requestGeneration) {
+                    waiter = null;
+                    prepared = null;
+                } else {
+                    inFlightUrl = null;
+                    waiter = vlcWaiter;
+                    vlcWaiter = null;
+                    if (waiter != null) {
+                        generation++;
+                    } else {
+                        preparedVlc = prepared;
+                    }
+                }
+            }
+            if (prepared == null) {
+                releaseQuietly(mediaPlayer);
+                return;
+            }
+            if (waiter != null) {
+                Log.d(TAG, "VLC precalentado entregado al terminar: " + url);
+                final MediaPlayer handedOver = mediaPlayer;
+                mainHandler.post(() -> waiter.onHandover(handedOver));
+                return;
+            }
+            Log.d(TAG, "VLC precalentado para " + url);
+            scheduleExpiry(requestGeneration);
+        });
+    }
+
+    public static void prepareExo(Context context, final String url, final long startTimeSec, final boolean isLiveTV) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        discard();
+        final long requestGeneration = beginPrepare(url, true);
+        mainHandler.post(() -> {
+            if (!isCurrent(requestGeneration)) {
+                return;
+            }
+            // URL sin extension: se espera al sondeo de tipo (compartido con la actividad)
+            final String sourceUrl = StreamMirrors.sourceFor(url);
+            StreamTypeProbe.getInstance(appContext).resolve(
+                sourceUrl,
+                streamType -> openExo(appContext, requestGeneration, url, sourceUrl, streamType, startTimeSec, isLiveTV)
+            );
+        });
+    }
+
+    private static void openExo(Context appContext, long requestGeneration, String url, String sourceUrl, int streamType,
+                                long startTimeSec, boolean isLiveTV) {
+        if (!isCurrent(requestGeneration)) {
+            return;
+        }
+        ExoPlayer player = null;
+        try {
+            DefaultTrackSelector trackSelector = new DefaultTrackSelector(appContext);
+            player = new ExoPlayer.Builder(appContext)
+                .setTrackSelector(trackSelector)
+                .setLoadControl(ExoLoadBudget.resolve(appContext, isLiveTV).buildLoadControl())
+                .build();
+            player.setMediaSource(
+                ExoPlayerActivity.buildMediaSource(
+                    ExoPlayerActivity.createDataSourceFactory(appContext, isLiveTV),
+                    streamType,
+                    MediaItem.fromUri(Uri.parse(sourceUrl))
+                ),
+                Math.max(0L, startTimeSec) * 1000L
+            );
+            player.setPlayWhenReady(false);
+            player.prepare();
+
+            PreparedExo prepared = new PreparedExo(requestGeneration, url, player, trackSelector);
+            Handover<PreparedExo> waiter;
+            synchronized (PlaybackPrewarmer.class) {
+                if (generation != requestGeneration) {
+                    player.release();
+                    return;
+                }
+                inFlightUrl = null;
+                waiter = exoWaiter;
+                exoWaiter = null;
+                if (waiter != null) {
+                    generation++;
+                } else {
+                    preparedExo = prepared;
+                }
+            }
+            if (waiter != null) {
+                // Ya estamos en el hilo principal
+                Log.d(TAG, "ExoPlayer precalentado entregado al terminar: " + url);
+                waiter.onHandover(prepared);
+                return;
+            }
+            Log.d(TAG, "ExoPlayer precalentado para " + url);
+            scheduleExpiry(requestGeneration);
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo precalentar ExoPlayer", e);
+            if (player != null) {
+                player.release();
+            }
+            failPrepare(requestGeneration);
+        }
+    }
+
+    // Desde el hilo principal. Una preparacion en curso de la misma URL se espera; la de otra URL se cancela.
+    static void takeVlc(String url, final Handover<MediaPlayer> handover) {
+        PreparedVlc prepared;
+        synchronized (PlaybackPrewarmer.class) {
+            prepared = preparedVlc;
+            preparedVlc = null;
+            if (prepared == null && !inFlightExo && url != null && url.equals(inFlightUrl)) {
+                vlcWaiter = handover;
+                scheduleHandoverTimeout(generation);
+                return;
+            }
+            generation++;
+            inFlightUrl = null;
+        }
+        if (prepared != null
+            && (!prepared.url.equals(url) || SystemClock.elapsedRealtime() - prepared.preparedAtMs > MAX_AGE_MS)) {
+            releaseVlc(prepared.mediaPlayer);
+            prepared = null;
+        }
+        handover.onHandover(prepared != null ? prepared.mediaPlayer : null);
+    }
+
+    // Solo desde el hilo principal (ExoPlayer esta ligado a ese Looper).
+    static void takeExo(String url, final Handover<PreparedExo> handover) {
+        PreparedExo prepared;
+        synchronized (PlaybackPrewarmer.class) {
+            prepared = preparedExo;
+            preparedExo = null;
+            if (prepared == null && inFlightExo && url != null && url.equals(inFlightUrl)) {
+                exoWaiter = handover;
+                scheduleHandoverTimeout(generation);
+                return;
+            }
+            generation++;
+            inFlightUrl = null;
+        }
+        if (prepared != null && (!prepared.url.equals(url) || prepared.ageMs() > MAX_AGE_MS)) {
+            prepared.player.release();
+            prepared = null;
+        }
+        handover.onHandover(prepared);
+    }
+
+    // Un player entregado que la actividad ya no puede usar (se cerro mientras esperaba)
+    static void releaseVlc(final MediaPlayer mediaPlayer) {
+        vlcExecutor.execute(() -> releaseQuietly(mediaPlayer));
+    }
+
+    public static void discard() {
+        final PreparedVlc vlc;
+        final PreparedExo exo;
+        final Handover<MediaPlayer> pendingVlcWaiter;
+        final Handover<PreparedExo> pendingExoWaiter;
+        synchronized (PlaybackPrewarmer.class) {
+            generation++;
+            vlc = preparedVlc;
+            exo = preparedExo;
+            preparedVlc = null;
+            preparedExo = null;
+            inFlightUrl = null;
+            pendingVlcWaiter = vlcWaiter;
+            pendingExoWaiter = exoWaiter;
+            vlcWaiter = null;
+            exoWaiter = null;
+        }
+        if (vlc != null) {
+            releaseVlc(vlc.mediaPlayer);
+        }
+        if (exo != null) {
+            mainHandler.post(exo.player::release);
+        }
+        if (pendingVlcWaiter != null) {
+            mainHandler.post(() -> pendingVlcWaiter.onHandover(null));
+        }
+        if (pendingExoWaiter != null) {
+            mainHandler.post(() -> pendingExoWaiter.onHandover(null));
+        }
+    }
+
+    private static synchronized long beginPrepare(String url, boolean exo) {
+        inFlightUrl = url;
+        inFlightExo = exo;
+        return ++generation;
+    }
+
+    private static synchronized boolean isCurrent(long requestGeneration) {
+        return generation == requestGeneration;
+    }
+
+    // La preparacion fallo: quien la esperaba arranca sin player precalentado
+    private static void failPrepare(long requestGeneration) {
+        final Handover<MediaPlayer> pendingVlcWaiter;
+        final Handover<PreparedExo> pendingExoWaiter;
+        synchronized (PlaybackPrewarmer.class) {
+            if (generation != requestGeneration) {
+                return;
+            }
+            generation++;
+            inFlightUrl = null;
+            pendingVlcWaiter = vlcWaiter;
+            pendingExoWaiter = exoWaiter;
+            vlcWaiter = null;
+            exoWaiter = null;
+        }
+        if (pendingVlcWaiter != null) {
+            mainHandler.post(() -> pendingVlcWaiter.onHandover(null));
+        }
+        if (pendingExoWaiter != null) {
+            mainHandler.post(() -> pendingExoWaiter.onHandover(null));
+        }
+    }
+
+    // Si la preparacion tarda mas que abrir de cero, se cancela y la actividad abre el stream ella misma
+    private static void scheduleHandoverTimeout(final long requestGeneration) {
+        mainHandler.postDelayed(() -> {
+            if (isCurrent(requestGeneration)) {
+                Log.d(TAG, "Preparacion en curso demasiado lenta, se cancela");
+                discard();
+            }
+        }, HANDOVER_TIMEOUT_MS);
+    }
+
+    private static void scheduleExpiry(final long requestGeneration) {
+        mainHandler.postDelayed(() -> {
+            if (isCurrent(requestGeneration)) {
+                Log.d(TAG, "Player precalentado sin usar, liberando");
+                discard();
+            }
+        }, MAX_AGE_MS);
+    }
+
+    private static void releaseQuietly(MediaPlayer mediaPlayer) {
+        if (mediaPlayer == null) {
+            return;
+        }
+        try {
+            mediaPlayer.stop();
+            mediaPlayer.release();
+        } catch (Exception e) {
+            Log.w(TAG, "Error liberando MediaPlayer precalentado", e);
+        }
+    }
+}
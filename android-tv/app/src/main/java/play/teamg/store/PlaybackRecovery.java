@@ -0,0 +1,334 @@
+package play.teamg.store;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+// Recuperacion de reproduccion comun a VLC y ExoPlayer.
+// - Cortes por eventos: un buffering que dura BUFFERING_STALL_TIMEOUT_MS o SILENT_STALL_TIMEOUT_MS sin
+//   avance de posicion se tratan como corte, sin sondear con un watchdog periodico.
+// - Reintentos con backoff exponencial y jitter (varios TVs contra el mismo servidor caido no reintentan
+//   a la vez). Un fallo de decoder no se arregla reintentando: solo se reintenta una vez.
+// - Circuit breaker por URL: cuenta sesiones de recuperacion agotadas, no cada reintento (si no, se
+//   abria antes de llegar a MAX_ATTEMPTS). Tras BREAKER_FAILURE_THRESHOLD sesiones fallidas seguidas la
+//   URL queda abierta un tiempo y no se reintenta (tampoco al volver a abrirla desde otra actividad).
+// El motor decide que es un reintento (Callback.onRetry) y que hacer al rendirse (Callback.onGiveUp).
+// Todos los metodos se llaman desde el hilo principal.
+public final class PlaybackRecovery {
+    public static final int FAILURE_NETWORK = 0;
+    public static final int FAILURE_DECODER = 1;
+    public static final int FAILURE_STALL = 2;
+    private static final String[] FAILURE_NAMES = { "network", "decoder", "stall" };
+
+    private static final int MAX_ATTEMPTS = 6;
+    private static final int MAX_DECODER_ATTEMPTS = 1;
+    private static final long BASE_DELAY_MS = 1000L;
+    private static final long MAX_DELAY_MS = 16000L;
+    // Reproduccion sana durante este tiempo tras un reintento: se vuelve a empezar la cuenta
+    private static final long HEALTHY_PLAYBACK_MS = 30000L;
+    // Por encima del mayor bufferForPlaybackAfterRebufferMs de ExoLoadBudget (5 s) con margen: un
+    // buffering mas largo ya no es un rebuffer normal. VLC lo amplia con su network-caching efectivo.
+    private static final long BUFFERING_STALL_TIMEOUT_MS = 8000L;
+    private static final long BUFFERING_STALL_MARGIN_MS = 2000L;
+    private static final long SILENT_STALL_TIMEOUT_MS = 20000L;
+
+    // Sesiones (apertura + sus reintentos) que acaban rindiendose
+    private static final int BREAKER_FAILURE_THRESHOLD = 2;
+    private static final long BREAKER_OPEN_MS = 30000L;
+    private static final long BREAKER_MAX_OPEN_MS = 5 * 60 * 1000L;
+    private static final int MAX_BREAKER_URLS = 64;
+
+    public interface Callback {
+        // Reintento en el mismo motor. attempt empieza en 1.
+        void onRetry(int failure, int attempt);
+
+        // Sin mas reintentos: limite alcanzado, decoder que sigue fallando o circuito abierto.
+        void onGiveUp(int failure, String reason);
+    }
+
+    private static final class BreakerState {
+        int consecutiveFailures;
+        long openUntilMs;
+        long openDurationMs = BREAKER_OPEN_MS;
+    }
+
+    private static final HashMap<String, BreakerState> breakers = new HashMap<>();
+
+    private final String tag;
+    private final Callback callback;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private String url;
+    private int attempts = 0;
+    private int decoderAttempts = 0;
+    private boolean retryPending = false;
+    private long healthySinceMs = 0L;
+
+    private boolean watching = false;
+    private boolean buffering = false;
+    private long bufferingSinceMs = 0L;
+    private long lastProgressMs = 0L;
+    private long bufferingStallTimeoutMs = BUFFERING_STALL_TIMEOUT_MS;
+    private boolean stallCheckPosted = false;
+
+    // Un solo runnable para la deteccion de cortes: si se dispara antes de tiempo se reprograma al plazo
+    private final Runnable stallCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            stallCheckPosted = false;
+            if (!watching || retryPending) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            long deadline = stallDeadline();
+            if (now < deadline) {
+                postStallCheck(deadline - now);
+                return;
+            }
+            long stalledFor = now - (buffering ? bufferingSinceMs : lastProgressMs);
+            reportFailure(FAILURE_STALL, (buffering ? "buffering " : "sin avance ") + stalledFor + "ms");
+        }
+    };
+
+    public PlaybackRecovery(String tag, Callback callback) {
+        this.tag = tag;
+        this.callback = callback;
+    }
+
+    // Nueva reproduccion (apertura, cambio de canal o de episodio): contadores a cero.
+    public void reset(String url) {
+        cancel();
+        this.url = url;
+        attempts = 0;
+        decoderAttempts = 0;
+        healthySinceMs = 0L;
+    }
+
+    // Cache de red del motor (p.ej. network-caching de VLC escalado por host): el buffering puede durar
+    // eso sin que sea un corte.
+    public void setExpectedBufferingMs(long bufferingMs) {
+        bufferingStallTimeoutMs = Math.max(BUFFERING_STALL_TIMEOUT_MS, bufferingMs + BUFFERING_STALL_MARGIN_MS);
+    }
+
+    // El motor empieza (true) o deja (false) de intentar reproducir: en pausa no hay cortes.
+    public void setWatching(boolean watching) {
+        if (this.watching == watching) {
+            return;
+        }
+        this.watching = watching;
+        if (watching) {
+            lastProgressMs = SystemClock.elapsedRealtime();
+            bufferingSinceMs = lastProgressMs;
+            postStallCheck(stallDeadline() - lastProgressMs);
+        } else {
+            buffering = false;
+            handler.removeCallbacks(stallCheckRunnable);
+            stallCheckPosted = false;
+        }
+    }
+
+    public void onBuffering(boolean isBuffering) {
+        if (isBuffering == buffering) {
+            return;
+        }
+        buffering = isBuffering;
+        long now = SystemClock.elapsedRealtime();
+        if (isBuffering) {
+            bufferingSinceMs = now;
+            healthySinceMs = 0L;
+        } else {
+            lastProgressMs = now;
+        }
+        if (watching) {
+            postStallCheck(Math.max(0L, stallDeadline() - now));
+        }
+    }
+
+    // La posicion avanza. Solo actualiza marcas de tiempo: no toca el Handler en cada TimeChanged.
+    public void onProgress() {
+        long now = SystemClock.elapsedRealtime();
+        lastProgressMs = now;
+        buffering = false;
+        if (attempts == 0 && decoderAttempts == 0) {
+            return;
+        }
+        if (healthySinceMs == 0L) {
+            healthySinceMs = now;
+        } else if (now - healthySinceMs >= HEALTHY_PLAYBACK_MS) {
+            Log.d(tag, "Reproduccion estable tras " + attempts + " reintentos");
+            attempts = 0;
+            decoderAttempts = 0;
+            healthySinceMs = 0L;
+            recordSuccess(url);
+        }
+    }
+
+    // Primer frame: la URL abre y decodifica, el circuito se cierra. Los reintentos de la sesion
+    // solo vuelven a cero tras HEALTHY_PLAYBACK_MS (un stream que se corta cada 10 s sigue contando).
+    public void onPlaybackConfirmed() {
+        recordSuccess(url);
+    }
+
+    // Programa un reintento o se rinde. Devuelve false si no habra reintento.
+    public boolean reportFailure(int failure, String reason) {
+        if (retryPending) {
+            return true;
+        }
+        handler.removeCallbacks(stallCheckRunnable);
+        stallCheckPosted = false;
+        String failureName = FAILURE_NAMES[failure];
+        healthySinceMs = 0L;
+
+        long openForMs = openRemainingMs(url);
+        if (openForMs > 0L) {
+            giveUp(failure, "circuito abierto " + openForMs + "ms (" + failureName + ": " + reason + ")");
+            return false;
+        }
+        if (failure == FAILURE_DECODER && decoderAttempts >= MAX_DECODER_ATTEMPTS) {
+            recordFailure(url);
+            giveUp(failure, "decoder: " + reason);
+            return false;
+        }
+        if (attempts >= MAX_ATTEMPTS) {
+            recordFailure(url);
+            giveUp(failure, "limite de reintentos (" + failureName + ": " + reason + ")");
+            return false;
+        }
+
+        attempts++;
+        if (failure == FAILURE_DECODER) {
+            decoderAttempts++;
+        }
+        final int attempt = attempts;
+        final int retryFailure = failure;
+        long delayMs = backoffDelayMs(attempt);
+        Log.w(tag, "Reintento " + attempt + "/" + MAX_ATTEMPTS + " por " + failureName + ": " + reason + " (en " + delayMs + "ms)");
+        retryPending = true;
+        handler.postDelayed(() -> {
+            retryPending = false;
+            callback.onRetry(retryFailure, attempt);
+        }, delayMs);
+        return true;
+    }
+
+    public boolean isRetryPending() {
+        return retryPending;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    // Cancela el reintento pendiente y la deteccion de cortes (cambio de contenido, cierre).
+    public void cancel() {
+        handler.removeCallbacksAndMessages(null);
+        retryPending = false;
+        stallCheckPosted = false;
+        watching = false;
+        buffering = false;
+    }
+
+    public static synchronized boolean isCircuitOpen(String url) {
+        return openRemainingMs(url) > 0L;
+    }
+
+    private static long openRemainingMs(String url) {
+        return openRemainingMs(url, SystemClock.elapsedRealtime());
+    }
+
+    static synchronized long openRemainingMs(String url, long now) {
+        BreakerState state = url != null ? breakers.get(url) : null;
+        return state != null && state.openUntilMs > now ? state.openUntilMs - now : 0L;
+    }
+
+    private void giveUp(int failure, String reason) {
+        Log.e(tag, "Recuperacion abandonada: " + reason);
+        callback.onGiveUp(failure, reason);
+    }
+
+    private long backoffDelayMs(int attempt) {
+        return backoffDelayMs(attempt, random.nextDouble());
+    }
+
+    // Exponencial con "equal jitter": entre la mitad y el total del escalon (jitter en [0, 1)).
+    static long backoffDelayMs(int attempt, double jitter) {
+        long step = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 16));
+        long half = step / 2L;
+        return half + (long) (jitter * half);
+    }
+
+    private long stallDeadline() {
+        return buffering
+            ? bufferingSinceMs + bufferingStallTimeoutMs
+            : lastProgressMs + SILENT_STALL_TIMEOUT_MS;
+    }
+
+    private void postStallCheck(long delayMs) {
+        if (stallCheckPosted) {
+            // Un plazo anterior mas lejano se acorta; uno mas cercano se revisa al dispararse
+            if (!buffering) {
+                return;
+            }
+            handler.removeCallbacks(stallCheckRunnable);
+        }
+        stallCheckPosted = true;
+        handler.postDelayed(stallCheckRunnable, delayMs);
+    }
+
+    private static long recordFailure(String url) {
+        return recordFailure(url, SystemClock.elapsedRealtime());
+    }
+
+    // Una sesion de recuperacion agotada. Devuelve cuanto tiempo queda abierto el circuito (0 si sigue cerrado).
+    static synchronized long recordFailure(String url, long now) {
+        if (url == null) {
+            return 0L;
+        }
+        BreakerState state = breakers.get(url);
+        if (state == null) {
+            trimBreakers(now);
+            state = new BreakerState();
+            breakers.put(url, state);
+        }
+        if (state.openUntilMs > now) {
+            return state.openUntilMs - now;
+        }
+        state.consecutiveFailures++;
+        if (state.consecutiveFailures < BREAKER_FAILURE_THRESHOLD) {
+            return 0L;
+        }
+        // Abierto; tras el plazo se permite un intento (semiabierto) y si falla se abre el doble
+        state.openUntilMs = now + state.openDurationMs;
+        long openForMs = state.openDurationMs;
+        state.openDurationMs = Math.min(BREAKER_MAX_OPEN_MS, state.openDurationMs * 2L);
+        state.consecutiveFailures = BREAKER_FAILURE_THRESHOLD - 1;
+        return openForMs;
+    }
+
+    static synchronized void recordSuccess(String url) {
+        if (url != null) {
+            breakers.remove(url);
+        }
+    }
+
+    private static void trimBreakers(long now) {
+        if (breakers.size() < MAX_BREAKER_URLS) {
+            return;
+        }
+        Iterator<Map.Entry<String, BreakerState>> iterator = breakers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().openUntilMs <= now) {
+                iterator.remove();
+            }
+        }
+        if (breakers.size() >= MAX_BREAKER_URLS) {
+            breakers.clear();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package play.teamg.store;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Bus de eventos en proceso entre el plugin y los reproductores. Sustituye a los sendBroadcast de
+// progreso/control/cierre: el emisor y el receptor viven en el mismo proceso, asi que no hace falta
+// pasar por ActivityManager ni crear un Intent por mensaje.
+// Cada suscriptor tiene una cola acotada que se drena en su Handler (por defecto el hilo principal,
+// igual que los BroadcastReceiver); si se llena se descarta el evento mas antiguo, salvo los Progress
+// forzados (pausa/stop/seek/fin), que nunca se descartan. Un Progress queda marcado como entregado
+// cuando su listener termina; ProgressReporter conserva los forzados hasta entonces.
+public final class PlayerEventBus {
+    private static final String TAG = "PlayerEventBus";
+    private static final int PROGRESS_QUEUE_CAPACITY = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final CopyOnWriteArrayList<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private static Handler mainHandler;
+
+    private PlayerEventBus() {}
+
+    public interface Listener<E> {
+        void onEvent(E event);
+    }
+
+    public static final class Progress {
+        final long currentTimeSec;
+        final boolean completed;
+        final boolean forceSync;
+        final int seasonIndex;
+        final int chapterIndex;
+        final int chapterGlobalIndex;
+        private volatile boolean delivered = false;
+
+        public Progress(long currentTimeSec, boolean completed, boolean forceSync, int seasonIndex, int chapterIndex, int chapterGlobalIndex) {
+            this.currentTimeSec = currentTimeSec;
+            this.completed = completed;
+            this.forceSync = forceSync;
+            this.seasonIndex = seasonIndex;
+            this.chapterIndex = chapterIndex;
+            this.chapterGlobalIndex = chapterGlobalIndex;
+        }
+
+        boolean isDelivered() {
+            return delivered;
+        }
+    }
+
+    public static final class Control {
+        final String action;
+        final long position;
+        // Id de correlacion para acciones que esperan respuesta (0 = sin respuesta).
+        final long requestId;
+
+        public Control(String action, long position) {
+            this(action, position, 0L);
+        }
+
+        public Control(String action, long position, long requestId) {
+            this.action = action;
+            this.position = position;
+            this.requestId = requestId;
+        }
+    }
+
+    // Respuesta del reproductor activo a un Control "getCurrentTime" con requestId.
+    public static final class PositionReply {
+        final long requestId;
+        final long positionMs;
+        final boolean completed;
+        final int seasonIndex;
+        final int chapterIndex;
+        final int chapterGlobalIndex;
+        final String player;
+
+        public PositionReply(long requestId, long positionMs, boolean completed, int seasonIndex, int chapterIndex, int chapterGlobalIndex, String player) {
+            this.requestId = requestId;
+            this.positionMs = positionMs;
+            this.completed = completed;
+            this.seasonIndex = seasonIndex;
+            this.chapterIndex = chapterIndex;
+            this.chapterGlobalIndex = chapterGlobalIndex;
+            this.player = player;
+        }
+    }
+
+    public static final class Closed {
+        final String reason;
+
+        public Closed(String reason) {
+            this.reason = reason != null ? reason : "unknown";
+        }
+    }
+
+    public static final class Finish {
+        final boolean force;
+
+        public Finish(boolean force) {
+            this.force = force;
+        }
+    }
+
+    public static final class ChannelsUpdated {
+        final long snapshotId;
+        final long baseSnapshotId;
+
+        public ChannelsUpdated(long snapshotId, long baseSnapshotId) {
+            this.snapshotId = snapshotId;
+            this.baseSnapshotId = baseSnapshotId;
+        }
+    }
+
+    // Sesion de arranque cerrada (primer frame o cierre antes de llegar a el).
+    public static final class MetricsReady {
+        final PlaybackMetrics.Session session;
+
+        public MetricsReady(PlaybackMetrics.Session session) {
+            this.session = session;
+        }
+    }
+
+    public static final class Subscription<E> implements Runnable {
+        private final Class<E> type;
+        private final Listener<E> listener;
+        private final Handler handler;
+        private final int capacity;
+        private final ArrayDeque<E> queue;
+        private boolean drainScheduled = false;
+        private volatile boolean active = true;
+        private int dropped = 0;
+
+        private Subscription(Class<E> type, Listener<E> listener, Handler handler, int capacity) {
+            this.type = type;
+            this.listener = listener;
+            this.handler = handler;
+            this.capacity = capacity;
+            this.queue = new ArrayDeque<>(capacity);
+        }
+
+        private void offer(Object event) {
+            E typedEvent = type.cast(event);
+            synchronized (queue) {
+                if (!active) {
+                    return;
+                }
+                if (queue.size() >= capacity && dropOldestDiscardable()) {
+                    dropped++;
+                    if (dropped == 1 || dropped % 50 == 0) {
+                        Log.w(TAG, "Cola llena para " + type.getSimpleName() + ", eventos descartados: " + dropped);
+                    }
+                }
+                queue.addLast(typedEvent);
+                if (!drainScheduled) {
+                    drainScheduled = true;
+                    handler.post(this);
+                }
+            }
+        }
+
+        // Si solo quedan Progress forzados la cola crece por encima de capacity
+        private boolean dropOldestDiscardable() {
+            Iterator<E> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                E queued = iterator.next();
+                if (!(queued instanceof Progress) || !((Progress) queued).forceSync) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                E event;
+                synchronized (queue) {
+                    event = queue.pollFirst();
+                    if (event == null) {
+                        drainScheduled = false;
+                        return;
+                    }
+                }
+                if (!active) {
+                    continue;
+                }
+                try {
+                    listener.onEvent(event);
+                    if (event instanceof Progress) {
+                        ((Progress) event).delivered = true;
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error delivering " + type.getSimpleName(), e);
+                }
+            }
+        }
+
+        // Los Progress forzados que queden sin entregar siguen en ProgressReporter y se reenvian
+        private void cancel() {
+            active = false;
+            synchronized (queue) {
+                queue.clear();
+            }
+        }
+    }
+
+    public static <E> Subscription<E> subscribe(Class<E> type, Listener<E> listener) {
+        return subscribe(type, listener, getMainHandler());
+    }
+
+    public static <E> Subscription<E> subscribe(Class<E> type, Listener<E> listener, Handler handler) {
+        int capacity = type == Progress.class ? PROGRESS_QUEUE_CAPACITY : DEFAULT_QUEUE_CAPACITY;
+        Subscription<E> subscription = new Subscription<>(type, listener, handler, capacity);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public static void unsubscribe(Subscription<?> subscription) {
+        if (subscription == null) {
+            return;
+        }
+        subscription.cancel();
+        subscriptions.remove(subscription);
+    }
+
+    // Devuelve false si nadie estaba escuchando (mismo comportamiento que un broadcast sin receptor).
+    public static boolean post(Object event) {
+        if (event == null) {
+            return false;
+        }
+        boolean delivered = false;
+        for (Subscription<?> subscription : subscriptions) {
+            if (subscription.type.isInstance(event)) {
+                subscription.offer(event);
+                delivered = true;
+            }
+        }
+        return delivered;
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainHandler;
+    }
+}
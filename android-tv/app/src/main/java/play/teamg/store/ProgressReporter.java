@@ -0,0 +1,181 @@
+package play.teamg.store;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Reporte de progreso comun a VLC y ExoPlayer.
+// - onPosition(): progreso periodico, como mucho uno cada REPORT_INTERVAL_MS.
+// - flush(): pausa/stop/seek/cambio de episodio/fin; siempre se envia salvo que sea identico al anterior.
+// Si el plugin no esta escuchando (MainActivity detenida detras del reproductor) los eventos se guardan
+// y se reenvian en orden cuando vuelve a registrarse. Los flush siguen en pendingEvents hasta que el
+// listener los recibe: si la suscripcion se cancela con el evento aun en cola, se reenvia con el resto.
+// Con url != null la posicion tambien se anota en ResumeJournal (cada JOURNAL_INTERVAL_MS y en cada flush).
+public final class ProgressReporter {
+    private static final String TAG = "ProgressReporter";
+    public static final long REPORT_INTERVAL_MS = 10000L;
+    private static final long DUPLICATE_WINDOW_MS = 1000L;
+    private static final long JOURNAL_INTERVAL_MS = 2000L;
+    private static final int MAX_PENDING_EVENTS = 16;
+
+    private static final ArrayDeque<Pending> pendingEvents = new ArrayDeque<>();
+
+    private final String engine;
+    private final ResumeJournal journal;
+    private PlayerEventBus.Progress lastSent = null;
+    private long lastSentAtMs = 0L;
+    private long lastJournaledAtMs = 0L;
+
+    private static final class Pending {
+        final PlayerEventBus.Progress progress;
+        // Ya publicado en el bus; solo los forzados se quedan aqui hasta la entrega
+        boolean posted;
+
+        Pending(PlayerEventBus.Progress progress, boolean posted) {
+            this.progress = progress;
+            this.posted = posted;
+        }
+    }
+
+    public ProgressReporter(String engine, ResumeJournal journal) {
+        this.engine = engine;
+        this.journal = journal;
+    }
+
+    public void onPosition(String url, long positionMs, int seasonIndex, int chapterIndex, int chapterGlobalIndex) {
+        long now = SystemClock.elapsedRealtime();
+        if (journal != null && url != null && positionMs > 0 && now - lastJournaledAtMs >= JOURNAL_INTERVAL_MS) {
+            journal.record(url, chapterGlobalIndex, seasonIndex, chapterIndex, positionMs, false);
+            lastJournaledAtMs = now;
+        }
+        if (lastSent != null && now - lastSentAtMs < REPORT_INTERVAL_MS) {
+            return;
+        }
+        deliver(new PlayerEventBus.Progress(toSeconds(positionMs), false, false, seasonIndex, chapterIndex, chapterGlobalIndex), now);
+    }
+
+    public void flush(String url, long positionMs, boolean completed, int seasonIndex, int chapterIndex, int chapterGlobalIndex) {
+        long now = SystemClock.elapsedRealtime();
+        // Un Paused/Stopped antes de arrancar (posicion 0) no debe pisar el punto de reanudacion.
+        if (journal != null && url != null && (positionMs > 0 || completed)) {
+            journal.record(url, chapterGlobalIndex, seasonIndex, chapterIndex, positionMs, completed);
+            lastJournaledAtMs = now;
+        }
+        PlayerEventBus.Progress progress = new PlayerEventBus.Progress(toSeconds(positionMs), completed, true, seasonIndex, chapterIndex, chapterGlobalIndex);
+        if (lastSent != null && lastSent.forceSync && now - lastSentAtMs < DUPLICATE_WINDOW_MS && sameState(lastSent, progress)) {
+            return;
+        }
+        deliver(progress, now);
+    }
+
+    // Reenvia lo acumulado mientras el plugin no escuchaba. Llamar despues de registrar el listener.
+    public static int replayPending() {
+        synchronized (pendingEvents) {
+            pruneDelivered();
+            int count = 0;
+            boolean listening = true;
+            Iterator<Pending> iterator = pendingEvents.iterator();
+            while (iterator.hasNext()) {
+                Pending pending = iterator.next();
+                listening = listening && PlayerEventBus.post(pending.progress);
+                pending.posted = listening;
+                if (!listening) {
+                    continue;
+                }
+                count++;
+                if (!pending.progress.forceSync) {
+                    iterator.remove();
+                }
+            }
+            if (count > 0) {
+                Log.d(TAG, "Progreso pendiente reenviado: " + count + " eventos");
+            }
+            return count;
+        }
+    }
+
+    private void deliver(PlayerEventBus.Progress progress, long now) {
+        lastSent = progress;
+        lastSentAtMs = now;
+        // Mismo lock que replayPending para que un evento nuevo no adelante a los pendientes.
+        synchronized (pendingEvents) {
+            pruneDelivered();
+            if (!hasUnposted() && PlayerEventBus.post(progress)) {
+                if (progress.forceSync) {
+                    pendingEvents.addLast(new Pending(progress, true));
+                }
+                return;
+            }
+            buffer(progress);
+        }
+    }
+
+    private static void pruneDelivered() {
+        Iterator<Pending> iterator = pendingEvents.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().progress.isDelivered()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean hasUnposted() {
+        for (Pending pending : pendingEvents) {
+            if (!pending.posted) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Un evento por episodio: el ultimo sustituye al anterior del mismo episodio, conservando
+    // forceSync; los eventos "completed" y los ya publicados nunca se sustituyen. Al llenarse se
+    // descarta el progreso periodico mas antiguo; los forzados no se descartan.
+    private void buffer(PlayerEventBus.Progress progress) {
+        Pending last = pendingEvents.peekLast();
+        if (last != null && !last.posted && !last.progress.completed && sameEpisode(last.progress, progress)) {
+            pendingEvents.pollLast();
+            progress = new PlayerEventBus.Progress(
+                progress.currentTimeSec,
+                progress.completed,
+                progress.forceSync || last.progress.forceSync,
+                progress.seasonIndex,
+                progress.chapterIndex,
+                progress.chapterGlobalIndex
+            );
+        }
+        if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+            dropOldestPeriodic();
+        }
+        pendingEvents.addLast(new Pending(progress, false));
+        Log.d(TAG, "Plugin sin listener, progreso " + engine + " en espera (" + pendingEvents.size() + ")");
+    }
+
+    private static void dropOldestPeriodic() {
+        Iterator<Pending> iterator = pendingEvents.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().progress.forceSync) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static boolean sameEpisode(PlayerEventBus.Progress first, PlayerEventBus.Progress second) {
+        return first.seasonIndex == second.seasonIndex
+            && first.chapterIndex == second.chapterIndex
+            && first.chapterGlobalIndex == second.chapterGlobalIndex;
+    }
+
+    private static boolean sameState(PlayerEventBus.Progress first, PlayerEventBus.Progress second) {
+        return sameEpisode(first, second)
+            && first.currentTimeSec == second.currentTimeSec
+            && first.completed == second.completed;
+    }
+
+    private static long toSeconds(long positionMs) {
+        return Math.max(0L, positionMs) / 1000L;
+    }
+}
@@ -0,0 +1,296 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+// Diario de posiciones de reanudacion en un fichero mapeado en memoria. Solo se anaden registros; cada
+// registro escribe su cabecera (MAGIC) al final, asi que un registro a medias tras un kill se ignora al
+// cargar. Cuando el fichero se llena, o hay muchos registros obsoletos, se compacta dejando el ultimo
+// registro de cada URL. Todo el I/O va en un hilo propio: el reproductor solo encola.
+public final class ResumeJournal {
+    private static final String TAG = "ResumeJournal";
+    private static final String FILE_NAME = "resume_journal.bin";
+    private static final int MAGIC = 0x524A4E31; // "RJN1"
+    private static final int HEADER_BYTES = 12;
+    private static final int CAPACITY_BYTES = 512 * 1024;
+    private static final int MAX_URL_BYTES = 4096;
+    private static final int MAX_ENTRIES = 2000;
+    // Compactar tambien si los registros superan este multiplo de entradas vivas.
+    private static final int COMPACTION_RATIO = 8;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static ResumeJournal instance;
+
+    private final File file;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int writeOffset = 0;
+    private int recordCount = 0;
+
+    public interface LookupCallback {
+        void onResult(List<Entry> entries);
+    }
+
+    public static final class Entry {
+        final String url;
+        final int chapterGlobalIndex;
+        final int seasonIndex;
+        final int chapterIndex;
+        final long positionMs;
+        final boolean completed;
+        final long updatedAtMs;
+
+        Entry(String url, int chapterGlobalIndex, int seasonIndex, int chapterIndex, long positionMs, boolean completed, long updatedAtMs) {
+            this.url = url;
+            this.chapterGlobalIndex = chapterGlobalIndex;
+            this.seasonIndex = seasonIndex;
+            this.chapterIndex = chapterIndex;
+            this.positionMs = positionMs;
+            this.completed = completed;
+            this.updatedAtMs = updatedAtMs;
+        }
+    }
+
+    public static synchronized ResumeJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new ResumeJournal(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    ResumeJournal(File file) {
+        this.file = file;
+        ioExecutor.execute(this::load);
+    }
+
+    public void record(String url, int chapterGlobalIndex, int seasonIndex, int chapterIndex, long positionMs, boolean completed) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        final Entry entry = new Entry(url, chapterGlobalIndex, seasonIndex, chapterIndex, Math.max(0L, positionMs), completed, System.currentTimeMillis());
+        ioExecutor.execute(() -> append(entry));
+    }
+
+    // urls == null o vacio: todas las entradas, de la mas reciente a la mas antigua.
+    public void lookup(final List<String> urls, final LookupCallback callback) {
+        ioExecutor.execute(() -> {
+            ArrayList<Entry> result = new ArrayList<>();
+            synchronized (entries) {
+                if (urls == null || urls.isEmpty()) {
+                    result.addAll(entries.values());
+                    sortByRecency(result);
+                } else {
+                    for (String url : urls) {
+                        Entry entry = entries.get(url);
+                        if (entry != null) {
+                            result.add(entry);
+                        }
+                    }
+                }
+            }
+            callback.onResult(result);
+        });
+    }
+
+    private void load() {
+        try {
+            buffer = map(file);
+            int offset = 0;
+            while (offset + HEADER_BYTES <= CAPACITY_BYTES) {
+                Entry entry = readRecord(offset);
+                if (entry == null) {
+                    break;
+                }
+                synchronized (entries) {
+                    entries.put(entry.url, entry);
+                }
+                offset += HEADER_BYTES + buffer.getInt(offset + 4);
+                recordCount++;
+            }
+            writeOffset = offset;
+            Log.d(TAG, "Diario cargado: " + entries.size() + " posiciones, " + recordCount + " registros, " + writeOffset + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo abrir el diario de reanudacion", e);
+            buffer = null;
+        }
+    }
+
+    private void append(Entry entry) {
+        synchronized (entries) {
+            entries.put(entry.url, entry);
+        }
+        if (buffer == null) {
+            return;
+        }
+
+        byte[] payload = encode(entry);
+        if (payload == null) {
+            return;
+        }
+        if (writeOffset + HEADER_BYTES + payload.length + HEADER_BYTES > CAPACITY_BYTES
+            || recordCount > Math.max(64, entries.size() * COMPACTION_RATIO)) {
+            compact();
+            if (buffer == null || writeOffset + HEADER_BYTES + payload.length + HEADER_BYTES > CAPACITY_BYTES) {
+                Log.w(TAG, "Diario lleno tras compactar, registro descartado");
+                return;
+            }
+        }
+        writeRecord(buffer, writeOffset, payload);
+        writeOffset += HEADER_BYTES + payload.length;
+        recordCount++;
+    }
+
+    private void compact() {
+        ArrayList<Entry> live;
+        synchronized (entries) {
+            live = new ArrayList<>(entries.values());
+        }
+        sortByRecency(live);
+        if (live.size() > MAX_ENTRIES) {
+            synchronized (entries) {
+                for (int i = MAX_ENTRIES; i < live.size(); i++) {
+                    entries.remove(live.get(i).url);
+                }
+            }
+            live = new ArrayList<>(live.subList(0, MAX_ENTRIES));
+        }
+
+        File tempFile = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try {
+            if (tempFile.exists() && !tempFile.delete()) {
+                Log.w(TAG, "No se pudo borrar " + tempFile);
+            }
+            MappedByteBuffer compacted = map(tempFile);
+            int offset = 0;
+            int count = 0;
+            // Mas antiguas primero para que, si algo se pierde, sean las menos relevantes.
+            for (int i = live.size() - 1; i >= 0; i--) {
+                byte[] payload = encode(live.get(i));
+                if (payload == null || offset + HEADER_BYTES + payload.length + HEADER_BYTES > CAPACITY_BYTES) {
+                    continue;
+                }
+                writeRecord(compacted, offset, payload);
+                offset += HEADER_BYTES + payload.length;
+                count++;
+            }
+            compacted.force();
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+            buffer = compacted;
+            writeOffset = offset;
+            recordCount = count;
+            Log.d(TAG, "Diario compactado: " + count + " registros, " + offset + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Error compactando el diario de reanudacion", e);
+        }
+    }
+
+    private Entry readRecord(int offset) {
+        if (buffer.getInt(offset) != MAGIC) {
+            return null;
+        }
+        int length = buffer.getInt(offset + 4);
+        if (length <= 0 || offset + HEADER_BYTES + length > CAPACITY_BYTES) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = buffer.get(offset + HEADER_BYTES + i);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+            Log.w(TAG, "Registro corrupto en offset " + offset + ", se ignora el resto del diario");
+            return null;
+        }
+        return decode(payload);
+    }
+
+    // Payload primero, cabecera despues y MAGIC al final: es lo que marca el registro como valido.
+    private static void writeRecord(MappedByteBuffer target, int offset, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        for (int i = 0; i < payload.length; i++) {
+            target.put(offset + HEADER_BYTES + i, payload[i]);
+        }
+        target.putInt(offset + HEADER_BYTES + payload.length, 0);
+        target.putInt(offset + 4, payload.length);
+        target.putInt(offset + 8, (int) crc.getValue());
+        target.putInt(offset, MAGIC);
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] url = entry.url.getBytes(UTF8);
+        if (url.length > MAX_URL_BYTES) {
+            Log.w(TAG, "URL demasiado larga para el diario: " + url.length + " bytes");
+            return null;
+        }
+        ByteBuffer out = ByteBuffer.allocate(2 + url.length + 4 * 3 + 8 * 2 + 1);
+        out.putShort((short) url.length);
+        out.put(url);
+        out.putInt(entry.chapterGlobalIndex);
+        out.putInt(entry.seasonIndex);
+        out.putInt(entry.chapterIndex);
+        out.putLong(entry.positionMs);
+        out.putLong(entry.updatedAtMs);
+        out.put((byte) (entry.completed ? 1 : 0));
+        return out.array();
+    }
+
+    private static Entry decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        int urlLength = in.getShort() & 0xFFFF;
+        if (urlLength > payload.length - 2) {
+            return null;
+        }
+        byte[] url = new byte[urlLength];
+        in.get(url);
+        int chapterGlobalIndex = in.getInt();
+        int seasonIndex = in.getInt();
+        int chapterIndex = in.getInt();
+        long positionMs = in.getLong();
+        long updatedAtMs = in.getLong();
+        boolean completed = in.get() == 1;
+        return new Entry(new String(url, UTF8), chapterGlobalIndex, seasonIndex, chapterIndex, positionMs, completed, updatedAtMs);
+    }
+
+    private static MappedByteBuffer map(File target) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(target, "rw");
+        try {
+            if (raf.length() < CAPACITY_BYTES) {
+                raf.setLength(CAPACITY_BYTES);
+            }
+            // El mapeo sigue siendo valido despues de cerrar el fichero.
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY_BYTES);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void sortByRecency(List<Entry> list) {
+        Collections.sort(list, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry first, Entry second) {
+                return Long.compare(second.updatedAtMs, first.updatedAtMs);
+            }
+        });
+    }
+}
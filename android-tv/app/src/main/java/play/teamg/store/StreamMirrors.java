@@ -0,0 +1,175 @@
+package play.teamg.store;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fuentes alternativas (mirrors) de canales y capitulos. El catalogo y las actividades siguen usando la
+// URL principal como identidad (progreso, metricas, zapping); solo al abrir el stream se traduce a la
+// fuente elegida con sourceFor(). La fuente que entrega datos se queda como preferida para esa URL.
+// Por fuente se cuentan intentos y victorias (entregar datos primero en un arranque con cobertura o
+// ser la que reproduce) para ver que mirror funciona mejor.
+public final class StreamMirrors {
+    private static final String TAG = "StreamMirrors";
+    private static final int MAX_ENTRIES = 20000;
+    private static final int MAX_STATS = 256;
+
+    // URL principal -> alternativas en orden (sin la principal)
+    private static final LinkedHashMap<String, List<String>> mirrors = new LinkedHashMap<String, List<String>>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final HashMap<String, String> selected = new HashMap<>();
+    private static final LinkedHashMap<String, SourceStats> stats = new LinkedHashMap<String, SourceStats>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SourceStats> eldest) {
+            return size() > MAX_STATS;
+        }
+    };
+
+    private StreamMirrors() {}
+
+    public static final class SourceStats {
+        final String url;
+        int attempts;
+        int wins;
+
+        SourceStats(String url) {
+            this.url = url;
+        }
+
+        private SourceStats(SourceStats source) {
+            this.url = source.url;
+            this.attempts = source.attempts;
+            this.wins = source.wins;
+        }
+
+        double winRate() {
+            return attempts > 0 ? (double) wins / attempts : 0.0;
+        }
+    }
+
+    // alternates puede incluir la principal o repetidos; se guardan solo las distintas de la principal.
+    public static synchronized void register(String primaryUrl, List<String> alternates) {
+        if (primaryUrl == null || primaryUrl.isEmpty()) {
+            return;
+        }
+        if (alternates == null || alternates.isEmpty()) {
+            mirrors.remove(primaryUrl);
+            return;
+        }
+        ArrayList<String> unique = new ArrayList<>(alternates.size());
+        for (String alternate : alternates) {
+            if (alternate != null && !alternate.isEmpty() && !alternate.equals(primaryUrl) && !unique.contains(alternate)) {
+                unique.add(alternate);
+            }
+        }
+        if (unique.isEmpty()) {
+            mirrors.remove(primaryUrl);
+        } else {
+            mirrors.put(primaryUrl, unique);
+        }
+    }
+
+    public static synchronized boolean hasAlternatives(String url) {
+        return url != null && mirrors.containsKey(url);
+    }
+
+    // Fuente con la que abrir url: la ultima que entrego datos, o la primera con el circuito cerrado.
+    public static synchronized String sourceFor(String url) {
+        List<String> candidates = candidates(url);
+        if (candidates.size() <= 1) {
+            return url;
+        }
+        String preferred = selected.get(url);
+        if (preferred != null && candidates.contains(preferred) && !PlaybackRecovery.isCircuitOpen(preferred)) {
+            return preferred;
+        }
+        for (String candidate : candidates) {
+            if (!PlaybackRecovery.isCircuitOpen(candidate)) {
+                return candidate;
+            }
+        }
+        return url;
+    }
+
+    // Siguiente fuente tras currentSource (en orden circular) con el circuito cerrado, o null.
+    public static synchronized String nextSource(String url, String currentSource) {
+        List<String> candidates = candidates(url);
+        int count = candidates.size();
+        if (count <= 1) {
+            return null;
+        }
+        int start = Math.max(0, candidates.indexOf(currentSource));
+        for (int offset = 1; offset < count; offset++) {
+            String candidate = candidates.get((start + offset) % count);
+            if (!candidate.equals(currentSource) && !PlaybackRecovery.isCircuitOpen(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // La recuperacion se agoto en failedSource: se pasa a la siguiente y queda como preferida.
+    public static synchronized String failover(String url, String failedSource) {
+        String next = nextSource(url, failedSource);
+        if (next != null) {
+            selected.put(url, next);
+            Log.w(TAG, "Failover de " + failedSource + " a " + next);
+        }
+        return next;
+    }
+
+    public static synchronized void recordAttempt(String url, String source) {
+        if (hasAlternatives(url) && source != null) {
+            statsFor(source).attempts++;
+        }
+    }
+
+    public static synchronized void recordWin(String url, String source) {
+        if (!hasAlternatives(url) || source == null) {
+            return;
+        }
+        SourceStats sourceStats = statsFor(source);
+        sourceStats.wins++;
+        selected.put(url, source);
+        Log.d(TAG, "Fuente " + source + " gana (" + sourceStats.wins + "/" + sourceStats.attempts + ")");
+    }
+
+    // Copias de las estadisticas de las fuentes usadas recientemente.
+    public static synchronized List<SourceStats> stats() {
+        ArrayList<SourceStats> result = new ArrayList<>(stats.size());
+        for (SourceStats sourceStats : stats.values()) {
+            result.add(new SourceStats(sourceStats));
+        }
+        return result;
+    }
+
+    private static List<String> candidates(String url) {
+        ArrayList<String> candidates = new ArrayList<>();
+        if (url == null) {
+            return candidates;
+        }
+        candidates.add(url);
+        List<String> alternates = mirrors.get(url);
+        if (alternates != null) {
+            candidates.addAll(alternates);
+        }
+        return candidates;
+    }
+
+    private static SourceStats statsFor(String source) {
+        SourceStats sourceStats = stats.get(source);
+        if (sourceStats == null) {
+            sourceStats = new SourceStats(source);
+            stats.put(source, sourceStats);
+        }
+        return sourceStats;
+    }
+}
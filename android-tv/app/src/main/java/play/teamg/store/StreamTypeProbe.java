@@ -0,0 +1,429 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.exoplayer2.util.Util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Tipo de stream (HLS, DASH, MPEG-TS o progresivo) para URLs sin extension, p.ej. /live/user/pass/123.
+// Antes se decidia buscando ".m3u8"/".mpd" en la URL y esas caian en ProgressiveMediaSource.
+// - Con extension conocida se decide sin red, como antes.
+// - Si no, una peticion corta por MediaHttpClient sigue las redirecciones (tambien http <-> https), mira
+//   Content-Type y los primeros bytes (#EXTM3U, <MPD, sync 0x47 de TS) y corta la conexion.
+// - El resultado se guarda por patron de URL (host + primer segmento + profundidad + extension), asi
+//   que el resto de canales del mismo proveedor ya no pasan por el sondeo. Caduca a los TTL_MS.
+// ExoPlayerActivity elige la MediaSource con esto y VlcMediaProfile lo usa para fijar el demuxer.
+public final class StreamTypeProbe {
+    private static final String TAG = "StreamTypeProbe";
+    private static final String PREFS_NAME = "stream_type_probe";
+    private static final String KEY_ENTRIES = "entries";
+    private static final long TTL_MS = 7L * 24L * 60L * 60L * 1000L;
+    private static final int MAX_ENTRIES = 200;
+    private static final int TIMEOUT_MS = 4000;
+    private static final int SNIFF_BYTES = 2048;
+    private static final int TS_PACKET_SIZE = 188;
+    // Cuerpos de longitud conocida hasta este tamano (listas HLS, manifiestos DASH) se leen enteros para
+    // que la conexion vuelva al pool
+    private static final long DRAIN_LIMIT_BYTES = 64L * 1024L;
+
+    public static final int TYPE_UNKNOWN = 0;
+    public static final int TYPE_HLS = 1;
+    public static final int TYPE_DASH = 2;
+    public static final int TYPE_TS = 3;
+    public static final int TYPE_PROGRESSIVE = 4;
+
+    private static StreamTypeProbe instance;
+
+    public interface Callback {
+        void onResult(int streamType);
+    }
+
+    private static final class Entry {
+        final int type;
+        final long probedAtMs;
+
+        Entry(int type, long probedAtMs) {
+            this.type = type;
+            this.probedAtMs = probedAtMs;
+        }
+    }
+
+    private final SharedPreferences preferences;
+    private final String userAgent;
+    private final OkHttpClient httpClient;
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    // Sondeos en curso por patron: las peticiones repetidas esperan al mismo resultado
+    private final HashMap<String, List<Callback>> inFlight = new HashMap<>();
+
+    public static synchronized StreamTypeProbe getInstance(Context context) {
+        if (instance == null) {
+            instance = new StreamTypeProbe(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private StreamTypeProbe(Context context) {
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        userAgent = Util.getUserAgent(context, "TeamGPlay");
+        // Mismo pool que ExoPlayer, con timeouts cortos: el sondeo no debe retrasar mucho el arranque
+        httpClient = MediaHttpClient.get(context).newBuilder()
+            .connectTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .readTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .build();
+        probeExecutor.execute(this::load);
+    }
+
+    // Tipo ya conocido sin tocar la red (extension o cache), o TYPE_UNKNOWN.
+    public int peek(String url) {
+        int fromExtension = typeFromExtension(url);
+        if (fromExtension != TYPE_UNKNOWN) {
+            return fromExtension;
+        }
+        String key = patternKey(url);
+        if (key == null) {
+            return TYPE_UNKNOWN;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || System.currentTimeMillis() - entry.probedAtMs > TTL_MS) {
+                return TYPE_UNKNOWN;
+            }
+            return entry.type;
+        }
+    }
+
+    // Si el tipo ya se conoce, callback se llama en el acto; si no, en el hilo principal tras el sondeo.
+    public void resolve(String url, Callback callback) {
+        int known = peek(url);
+        String key = patternKey(url);
+        if (known != TYPE_UNKNOWN || key == null) {
+            callback.onResult(known);
+            return;
+        }
+        startProbe(url, key, callback);
+    }
+
+    // Sondeo anticipado (p.ej. mientras arranca la actividad del reproductor).
+    public void prefetch(String url) {
+        String key = patternKey(url);
+        if (key != null && peek(url) == TYPE_UNKNOWN) {
+            startProbe(url, key, null);
+        }
+    }
+
+    // El reproductor no pudo leer el stream con el tipo cacheado: se olvida el patron y se vuelve a sondear.
+    public void invalidate(String url) {
+        String key = patternKey(url);
+        if (key == null) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.remove(key) == null) {
+                return;
+            }
+        }
+        Log.d(TAG, "Tipo cacheado descartado: " + key);
+        persist();
+    }
+
+    static String typeName(int streamType) {
+        switch (streamType) {
+            case TYPE_HLS:
+                return "hls";
+            case TYPE_DASH:
+                return "dash";
+            case TYPE_TS:
+                return "ts";
+            case TYPE_PROGRESSIVE:
+                return "progressive";
+            default:
+                return "unknown";
+        }
+    }
+
+    private void startProbe(final String url, final String key, Callback callback) {
+        synchronized (this) {
+            List<Callback> waiting = inFlight.get(key);
+            if (waiting != null) {
+                if (callback != null) {
+                    waiting.add(callback);
+                }
+                return;
+            }
+            waiting = new ArrayList<>();
+            if (callback != null) {
+                waiting.add(callback);
+            }
+            inFlight.put(key, waiting);
+        }
+        probeExecutor.execute(() -> {
+            // load() va antes en este mismo hilo: puede que el patron ya estuviera guardado
+            int type = peek(url);
+            if (type == TYPE_UNKNOWN) {
+                long startedAt = System.nanoTime();
+                type = probe(url);
+                Log.d(TAG, "Sondeo " + key + ": " + typeName(type) + " en " + ((System.nanoTime() - startedAt) / 1000000L) + "ms");
+                if (type != TYPE_UNKNOWN) {
+                    store(key, type);
+                }
+            }
+            final List<Callback> callbacks;
+            synchronized (this) {
+                callbacks = inFlight.remove(key);
+            }
+            if (callbacks == null || callbacks.isEmpty()) {
+                return;
+            }
+            final int result = type;
+            mainHandler.post(() -> {
+                for (Callback waiting : callbacks) {
+                    waiting.onResult(result);
+                }
+            });
+        });
+    }
+
+    // Un fallo de red o una respuesta 2xx que no se reconoce devuelven TYPE_UNKNOWN (no se guarda):
+    // el reproductor decide por su cuenta y vera el error real.
+    // El cliente compartido sigue las redirecciones (tambien http <-> https). Cerrar una respuesta sin leerla
+    // entera descarta su conexion: solo un cuerpo pequeno de longitud conocida se drena y deja la conexion
+    // en el pool para ExoPlayer; un directo (TS sin fin) o un VOD grande cuestan una conexion aparte.
+    private int probe(String url) {
+        Request request;
+        try {
+            request = new Request.Builder().url(url).header("User-Agent", userAgent).build();
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "URL no sondeable: " + url);
+            return TYPE_UNKNOWN;
+        }
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                Log.w(TAG, "Sondeo sin respuesta valida (HTTP " + response.code() + ")");
+                return TYPE_UNKNOWN;
+            }
+            ResponseBody body = response.body();
+            int fromBytes = TYPE_UNKNOWN;
+            if (body != null) {
+                InputStream input = body.byteStream();
+                fromBytes = sniff(readPrefix(input));
+                long length = body.contentLength();
+                if (length >= 0L && length <= DRAIN_LIMIT_BYTES) {
+                    drain(input);
+                }
+            }
+            if (fromBytes != TYPE_UNKNOWN) {
+                return fromBytes;
+            }
+            int fromHeader = typeFromContentType(response.header("Content-Type"));
+            if (fromHeader != TYPE_UNKNOWN) {
+                return fromHeader;
+            }
+            return typeFromExtension(response.request().url().toString());
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No se pudo sondear el stream", e);
+            return TYPE_UNKNOWN;
+        }
+    }
+
+    private static byte[] readPrefix(InputStream input) throws IOException {
+        byte[] buffer = new byte[SNIFF_BYTES];
+        int total = 0;
+        while (total < buffer.length) {
+            int read = input.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        byte[] prefix = new byte[total];
+        System.arraycopy(buffer, 0, prefix, 0, total);
+        return prefix;
+    }
+
+    private static void drain(InputStream input) throws IOException {
+        byte[] buffer = new byte[SNIFF_BYTES];
+        while (input.read(buffer) >= 0) {
+            // descartar
+        }
+    }
+
+    static int sniff(byte[] prefix) {
+        if (prefix.length == 0) {
+            return TYPE_UNKNOWN;
+        }
+        // Dos bytes de sincronia a un paquete de distancia: un cuerpo corto que empieza por 'G' no es TS
+        if (prefix.length > TS_PACKET_SIZE && prefix[0] == 0x47 && prefix[TS_PACKET_SIZE] == 0x47) {
+            return TYPE_TS;
+        }
+        String text = new String(prefix, Charset.forName("UTF-8")).trim();
+        // BOM de UTF-8
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        if (text.startsWith("#EXTM3U")) {
+            return TYPE_HLS;
+        }
+        if (text.startsWith("<") && text.contains("<MPD")) {
+            return TYPE_DASH;
+        }
+        return TYPE_UNKNOWN;
+    }
+
+    static int typeFromContentType(String contentType) {
+        if (contentType == null) {
+            return TYPE_UNKNOWN;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.contains("mpegurl")) {
+            return TYPE_HLS;
+        }
+        if (type.contains("dash+xml")) {
+            return TYPE_DASH;
+        }
+        if (type.contains("mp2t")) {
+            return TYPE_TS;
+        }
+        if (type.startsWith("video/") || type.startsWith("audio/")) {
+            return TYPE_PROGRESSIVE;
+        }
+        return TYPE_UNKNOWN;
+    }
+
+    static int typeFromExtension(String url) {
+        if (url == null) {
+            return TYPE_UNKNOWN;
+        }
+        String lowerUrl = url.toLowerCase(Locale.ROOT);
+        if (lowerUrl.contains(".m3u8")) {
+            return TYPE_HLS;
+        }
+        if (lowerUrl.contains(".mpd")) {
+            return TYPE_DASH;
+        }
+        String container = DecoderCapabilities.containerFromUrl(url);
+        if ("ts".equals(container)) {
+            return TYPE_TS;
+        }
+        if ("mp4".equals(container) || "mkv".equals(container) || "avi".equals(container)
+            || "mov".equals(container) || "webm".equals(container)) {
+            return TYPE_PROGRESSIVE;
+        }
+        return TYPE_UNKNOWN;
+    }
+
+    // "http://host:8080/live/user/pass/123" -> "host:8080|live|4|": mismo patron para todos los canales.
+    static String patternKey(String url) {
+        if (url == null) {
+            return null;
+        }
+        Uri uri = Uri.parse(url);
+        String host = uri.getHost();
+        if (host == null) {
+            return null;
+        }
+        List<String> segments = uri.getPathSegments();
+        String first = segments.isEmpty() ? "" : segments.get(0);
+        String container = DecoderCapabilities.containerFromUrl(url);
+        return host.toLowerCase(Locale.ROOT) + ":" + uri.getPort()
+            + "|" + first
+            + "|" + segments.size()
+            + "|" + (container != null ? container : "");
+    }
+
+    private void load() {
+        HashMap<String, Entry> loadedEntries = new HashMap<>();
+        String raw = preferences.getString(KEY_ENTRIES, null);
+        if (raw != null) {
+            try {
+                JSONObject json = new JSONObject(raw);
+                Iterator<String> keys = json.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    JSONObject item = json.getJSONObject(key);
+                    loadedEntries.put(key, new Entry(item.getInt("type"), item.getLong("at")));
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "Cache de tipos corrupta, se descarta", e);
+                loadedEntries.clear();
+            }
+        }
+        synchronized (this) {
+            entries.putAll(loadedEntries);
+        }
+    }
+
+    private void store(String key, int type) {
+        synchronized (this) {
+            entries.put(key, new Entry(type, System.currentTimeMillis()));
+            trimEntries();
+        }
+        persist();
+    }
+
+    private void persist() {
+        JSONObject json = new JSONObject();
+        synchronized (this) {
+            try {
+                for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                    JSONObject value = new JSONObject();
+                    value.put("type", item.getValue().type);
+                    value.put("at", item.getValue().probedAtMs);
+                    json.put(item.getKey(), value);
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "No se pudo serializar la cache de tipos", e);
+                return;
+            }
+        }
+        preferences.edit().putString(KEY_ENTRIES, json.toString()).apply();
+    }
+
+    // Fuera lo caducado y, si aun sobra, lo mas antiguo
+    private void trimEntries() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue().probedAtMs > TTL_MS) {
+                iterator.remove();
+            }
+        }
+        while (entries.size() > MAX_ENTRIES) {
+            String oldestKey = null;
+            long oldestAt = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                if (item.getValue().probedAtMs < oldestAt) {
+                    oldestAt = item.getValue().probedAtMs;
+                    oldestKey = item.getKey();
+                }
+            }
+            entries.remove(oldestKey);
+        }
+    }
+}
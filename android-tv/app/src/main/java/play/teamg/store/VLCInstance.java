@@ -1,29 +1,166 @@
 package play.teamg.store;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import org.videolan.libvlc.LibVLC;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 
+// LibVLC compartido. Crearlo carga las librerias nativas y la cache de plugins (cientos de ms en TVs
+// lentas), asi que MainActivity lo precalienta con warmUp() en un hilo propio y el reproductor espera
+// con whenReady() sin bloquear la UI. Si la app queda en segundo plano sin reproductores abiertos y el
+// sistema pide memoria, releaseIfIdle() lo libera; el siguiente warmUp() lo vuelve a crear.
 public class VLCInstance {
+    private static final String TAG = "VLCInstance";
+    // Bajo presion moderada solo se libera si lleva este tiempo sin usarse.
+    private static final long IDLE_RELEASE_MS = 30000L;
+
+    private static final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor();
     private static LibVLC libVLC;
+    private static FutureTask<LibVLC> warmUpTask;
+    private static Handler mainHandler;
+    private static int activeUsers = 0;
+    private static long lastUsedAtMs = 0L;
+    private static long warmUpStartedAtMs = 0L;
+    private static long lastWarmUpDurationMs = -1L;
+
+    public interface ReadyCallback {
+        // libVLC es null si la creacion fallo.
+        void onReady(LibVLC libVLC);
+    }
+
+    public static synchronized Future<LibVLC> warmUp(Context context) {
+        if (warmUpTask != null) {
+            return warmUpTask;
+        }
+        final Context appContext = context.getApplicationContext();
+        final FutureTask<LibVLC> task = new FutureTask<>(() -> create(appContext));
+        warmUpTask = task;
+        warmUpStartedAtMs = SystemClock.elapsedRealtime();
+        warmUpExecutor.execute(task);
+        return task;
+    }
+
+    // El callback se ejecuta en el hilo principal.
+    public static void whenReady(Context context, final ReadyCallback callback) {
+        final Future<LibVLC> task = warmUp(context);
+        if (task.isDone()) {
+            callback.onReady(await(task));
+            return;
+        }
+        // El executor es de un solo hilo: esto corre justo despues de la creacion.
+        warmUpExecutor.execute(() -> {
+            final LibVLC result = await(task);
+            getMainHandler().post(() -> callback.onReady(result));
+        });
+    }
 
-    public static synchronized LibVLC getInstance(Context context) {
-        if (libVLC == null) {
-            ArrayList<String> options = new ArrayList<>();
-            options.add("--no-sub-autodetect-file");
-            options.add("--swscale-mode=0");
-            options.add("--network-caching=1500");
-            options.add("--avcodec-threads=0");
-            libVLC = new LibVLC(context, options);
+    public static LibVLC getInstance(Context context) {
+        LibVLC result = await(warmUp(context));
+        if (result == null) {
+            throw new IllegalStateException("LibVLC could not be created");
         }
-        return libVLC;
+        return result;
+    }
+
+    public static synchronized boolean isReady() {
+        return libVLC != null;
+    }
+
+    public static synchronized long getLastWarmUpDurationMs() {
+        return lastWarmUpDurationMs;
+    }
+
+    // Reproductores que tienen LibVLC abierto; mientras haya alguno no se libera.
+    public static synchronized void acquire() {
+        activeUsers++;
+        lastUsedAtMs = SystemClock.elapsedRealtime();
+    }
+
+    public static synchronized void releaseUse() {
+        activeUsers = Math.max(0, activeUsers - 1);
+        lastUsedAtMs = SystemClock.elapsedRealtime();
+    }
+
+    // Llamar desde onTrimMemory. TRIM_MEMORY_UI_HIDDEN se ignora: es justo lo que recibe MainActivity
+    // al abrir el reproductor.
+    public static synchronized boolean releaseIfIdle(int trimLevel) {
+        if (libVLC == null || activeUsers > 0) {
+            return false;
+        }
+        boolean backgrounded = trimLevel >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        boolean critical = trimLevel == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+            || trimLevel >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+        boolean pressured = trimLevel == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || backgrounded;
+        long idleMs = SystemClock.elapsedRealtime() - lastUsedAtMs;
+        if (!critical && !(pressured && idleMs >= IDLE_RELEASE_MS)) {
+            return false;
+        }
+        Log.d(TAG, "Liberando LibVLC inactivo (trimLevel=" + trimLevel + ", idle=" + idleMs + "ms)");
+        release();
+        return true;
     }
 
     public static synchronized void release() {
         if (libVLC != null) {
-            libVLC.release();
+            final LibVLC released = libVLC;
             libVLC = null;
+            // En el hilo del warm-up para no solaparse con una creacion en curso.
+            warmUpExecutor.execute(released::release);
+        }
+        warmUpTask = null;
+    }
+
+    private static LibVLC create(Context appContext) {
+        long startedAtMs = SystemClock.elapsedRealtime();
+        ArrayList<String> options = new ArrayList<>();
+        options.add("--no-sub-autodetect-file");
+        options.add("--swscale-mode=0");
+        options.add("--network-caching=1500");
+        options.add("--avcodec-threads=0");
+        LibVLC created;
+        try {
+            created = new LibVLC(appContext, options);
+        } catch (RuntimeException e) {
+            synchronized (VLCInstance.class) {
+                warmUpTask = null;
+            }
+            throw e;
+        }
+        synchronized (VLCInstance.class) {
+            libVLC = created;
+            lastWarmUpDurationMs = SystemClock.elapsedRealtime() - startedAtMs;
+            Log.d(TAG, "LibVLC listo en " + lastWarmUpDurationMs + "ms (pedido hace "
+                + (SystemClock.elapsedRealtime() - warmUpStartedAtMs) + "ms)");
+        }
+        return created;
+    }
+
+    private static LibVLC await(Future<LibVLC> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error creando LibVLC", e.getCause());
+            return null;
+        }
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
         }
+        return mainHandler;
     }
 }
@@ -1,11 +1,11 @@
 package play.teamg.store;
 
-import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.media.AudioManager;
 import android.app.PictureInPictureParams;
 import android.content.res.Configuration;
@@ -34,10 +34,8 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 
 import org.videolan.libvlc.LibVLC;
 import org.videolan.libvlc.Media;
@@ -47,7 +45,10 @@ import org.videolan.libvlc.util.VLCVideoLayout;
 
 import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VLCPlayerActivity extends AppCompatActivity implements GestureDetector.OnGestureListener {
 
@@ -79,6 +80,37 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     private long lastPosition = 0L;
     private boolean isScreenLocked = false;
     private boolean isSeekPending = false;
+
+    // Arranque: espera a LibVLC sin bloquear la UI y mide hasta el primer frame
+    private boolean isWaitingForLibVlc = false;
+    private boolean isStartingPlayer = false;
+    // Invalida la espera de un player (precalentado o creandose) si la actividad suelta el player antes
+    private long playerStartRequest = 0L;
+    private long playbackRequestedAtMs = 0L;
+    private long libVlcWaitMs = 0L;
+    private boolean libVlcWasWarm = false;
+    private boolean firstFrameReported = false;
+    private long metricsSessionId = 0L;
+
+    // Perfil de opciones de Media (live/vod/weak_device), resuelto una vez por reproduccion
+    private VlcMediaProfile vlcProfile = VlcMediaProfile.VOD;
+    // Cache de red aprendida por host: rebuffers y cortes la suben, reproduccion estable la baja
+    private NetworkCachingController cachingController;
+    private AudioTrackCache audioTrackCache;
+    private boolean isRebuffering = false;
+    private long stablePlaybackSinceMs = 0L;
+
+    // Zapping: players de canales vecinos ya abiertos (tamano configurable con zap_pool_size)
+    private ZapPool<MediaPlayer> zapPool;
+    private int requestedZapPoolSize = -1;
+    private final ExecutorService zapExecutor = Executors.newSingleThreadExecutor();
+
+    // stop/setMedia/play/release van al hilo de comandos; el hilo principal nunca espera a libvlc
+    private static final String COMMAND_MEDIA = "media";
+    private static final String COMMAND_PLAYBACK = "playback";
+    private static final String COMMAND_SEEK = "seek";
+    private static final String COMMAND_RATE = "rate";
+    private final VlcCommandQueue playerCommands = new VlcCommandQueue("vlc-commands");
     private boolean isSeekBarArmed = false;
     private long pendingSeekPositionMs = -1L;
     private long mediaDurationMs = 0L;
@@ -104,64 +136,87 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     private final String[] aspectRatioModes = {"Ajustar", "Rellenar", "16:9", "4:3"};
     private int currentAspectRatioIndex = 0;
 
-    private ArrayList<String> chapterTitles;
-    private ArrayList<String> chapterUrls;
-    private ArrayList<Integer> chapterSeasonNumbers;
-    private ArrayList<Integer> chapterNumbers;
-    private ArrayList<Integer> chapterSeasonIndices;
-    private ArrayList<Integer> chapterIndices;
+    private PlaybackCatalogStore.Snapshot catalogSnapshot;
+    private List<String> chapterTitles;
+    private List<String> chapterUrls;
+    private List<Integer> chapterSeasonNumbers;
+    private List<Integer> chapterNumbers;
+    private List<Integer> chapterSeasonIndices;
+    private List<Integer> chapterIndices;
 
     // ← NUEVO: Variables para canales en vivo (TV en Vivo)
-    private ArrayList<String> channelNames;
-    private ArrayList<String> channelLogos;
-    private ArrayList<String> channelUrls;
+    private List<String> channelNames;
+    private List<String> channelLogos;
+    private List<String> channelUrls;
     private boolean isLiveTV = false;
 
-    private static final int MAX_AUTO_RECOVERY_ATTEMPTS = 6;
-    private static final long RECOVERY_BASE_DELAY_MS = 2500L;
-    private static final long STALL_TIMEOUT_MS = 20000L;
-    private static final long STALL_CHECK_INTERVAL_MS = 5000L;
-
     private boolean isActivityClosing = false;
-    private boolean isRecoveringPlayback = false;
     private boolean forceAudioRecoveryPending = false;
     private boolean hasSentPlayerClosedEvent = false;
     private String closeReason = "unknown";
-    private int recoveryAttempts = 0;
-    private long lastTimeChangedSystemMs = 0L;
     private long lastPlaybackPositionMs = 0L;
+    // Estado del player segun sus eventos: isPlaying()/getVoutCount() son llamadas nativas
+    private boolean playerPlaying = false;
+    private int playerVoutCount = 0;
     private static final long QUICK_SEEK_MS = 10000L;
     private static final long SEEK_BAR_STEP_MS = 5000L;
     private final Handler recoveryHandler = new Handler(Looper.getMainLooper());
-    private final Runnable stallWatchdogRunnable = new Runnable() {
+
+    // Mirror que se esta reproduciendo para currentVideoUrl (la URL principal sigue siendo la identidad)
+    private String activeSourceUrl;
+    // Arranque con cobertura: si la fuente no entrega datos en HEDGE_DELAY_*_MS se abre otra en paralelo
+    private static final long HEDGE_DELAY_LIVE_MS = 2500L;
+    private static final long HEDGE_DELAY_VOD_MS = 4000L;
+    private boolean sourceDelivered = false;
+    private MediaPlayer hedgePlayer;
+    private String hedgeSourceUrl;
+    private Object hedgeToken;
+    private final Runnable hedgeRunnable = this::startHedge;
+
+    // Pre-apertura del siguiente capitulo: al 90% o NEXT_EPISODE_LEAD_MS antes del final (lo que llegue despues,
+    // para no tener una conexion parada minutos en capitulos largos)
+    private static final float NEXT_EPISODE_PROGRESS = 0.9f;
+    private static final long NEXT_EPISODE_LEAD_MS = 120000L;
+    private MediaPlayer nextEpisodePlayer;
+    private String nextEpisodeUrl;
+    private Object nextEpisodeToken;
+    // Cortes por eventos (Buffering/TimeChanged/EncounteredError), backoff con jitter y circuit breaker por URL
+    private final PlaybackRecovery recovery = new PlaybackRecovery(TAG, new PlaybackRecovery.Callback() {
         @Override
-        public void run() {
-            try {
-                if (mediaPlayer != null && mediaPlayer.isPlaying() && !isRecoveringPlayback && !isActivityClosing) {
-                    long now = System.currentTimeMillis();
-                    long stalledFor = now - lastTimeChangedSystemMs;
-                    if (stalledFor >= STALL_TIMEOUT_MS) {
-                        Log.w(TAG, "Playback stall detected (" + stalledFor + "ms without time updates)");
-                        attemptPlaybackRecovery("stalled stream");
-                    }
-                }
-            } catch (Exception watchdogError) {
-                Log.e(TAG, "Error in playback stall watchdog", watchdogError);
-            } finally {
-                if (!isActivityClosing) {
-                    recoveryHandler.postDelayed(this, STALL_CHECK_INTERVAL_MS);
-                }
+        public void onRetry(int failure, int attempt) {
+            retryPlayback(failure);
+        }
+
+        @Override
+        public void onGiveUp(int failure, String reason) {
+            if (isActivityClosing) {
+                return;
             }
+            if (failure != PlaybackRecovery.FAILURE_DECODER && failoverToNextSource()) {
+                return;
+            }
+            Toast.makeText(
+                    VLCPlayerActivity.this,
+                    failure == PlaybackRecovery.FAILURE_DECODER
+                            ? "Este dispositivo no puede decodificar el stream"
+                            : "No se pudo recuperar la transmisión",
+                    Toast.LENGTH_LONG
+            ).show();
+            showControls();
         }
-    };
+    });
 
-    private BroadcastReceiver controlReceiver;
-    private BroadcastReceiver finishReceiver;
-    private BroadcastReceiver liveChannelsReceiver;
+    private PlayerEventBus.Subscription<PlayerEventBus.Control> controlSubscription;
+    private PlayerEventBus.Subscription<PlayerEventBus.Finish> finishSubscription;
+    private PlayerEventBus.Subscription<PlayerEventBus.ChannelsUpdated> liveChannelsSubscription;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        progressReporter = new ProgressReporter("vlc", ResumeJournal.getInstance(this));
+        VLCInstance.acquire();
+        cachingController = NetworkCachingController.getInstance(this);
+        audioTrackCache = AudioTrackCache.getInstance(this);
 
         // Verificar si se debe cerrar inmediatamente
         if (getIntent().getBooleanExtra("FORCE_CLOSE", false)) {
@@ -196,6 +251,9 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         unlockProgressBar = findViewById(R.id.unlock_progress_bar);
 
         currentVideoUrl = getIntent().getStringExtra("video_url");
+        metricsSessionId = PlaybackMetrics.attach(getIntent(), currentVideoUrl, "vlc");
+        beginSource();
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_ACTIVITY_CREATED);
         String videoTitleText = getIntent().getStringExtra("video_title");
         lastPosition = getIntent().getLongExtra("start_time", 0L);
         if (lastPosition > 0) {
@@ -222,18 +280,11 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             }
         }
 
-        chapterTitles = getIntent().getStringArrayListExtra("chapter_titles");
-        chapterUrls = getIntent().getStringArrayListExtra("chapter_urls");
-        chapterSeasonNumbers = getIntent().getIntegerArrayListExtra("chapter_season_numbers");
-        chapterNumbers = getIntent().getIntegerArrayListExtra("chapter_numbers");
-        chapterSeasonIndices = getIntent().getIntegerArrayListExtra("chapter_season_indices");
-        chapterIndices = getIntent().getIntegerArrayListExtra("chapter_indices");
-
-        // ← NUEVO: Leer datos de canales en vivo
-        channelNames = getIntent().getStringArrayListExtra("channel_names");
-        channelLogos = getIntent().getStringArrayListExtra("channel_logos");
-        channelUrls = getIntent().getStringArrayListExtra("channel_urls");
+        // ← NUEVO: Leer capitulos y canales en vivo desde el catalogo compartido
+        resolveCatalog(getIntent());
         isLiveTV = getIntent().getBooleanExtra("is_live_tv", false);
+        vlcProfile = VlcMediaProfile.resolve(this, isLiveTV);
+        requestedZapPoolSize = getIntent().getIntExtra("zap_pool_size", -1);
 
         if (isLiveTV) {
             Log.d(TAG, "=== TV EN VIVO INICIALIZADO ===");
@@ -241,6 +292,46 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         }
     }
 
+    // Tras la muerte del proceso el catalogo se lee del disco en segundo plano: se reproduce ya la URL del
+    // Intent y los episodios/canales se enganchan al llegar
+    private void resolveCatalog(Intent intent) {
+        applyCatalogSnapshot(PlaybackCatalogStore.resolve(this, intent, this::onCatalogRestored));
+    }
+
+    private void onCatalogRestored(PlaybackCatalogStore.Snapshot snapshot) {
+        long requestedId = getIntent().getLongExtra(PlaybackCatalogStore.EXTRA_SNAPSHOT_ID, 0L);
+        if (isActivityClosing || isFinishing() || snapshot.lineageId != requestedId) {
+            return;
+        }
+        applyCatalogSnapshot(snapshot);
+        setupControls();
+        updateVideoTitleWithChapterInfo();
+        if (isLiveTV) {
+            int selection = channelUrls != null ? channelUrls.indexOf(currentVideoUrl) : -1;
+            if (selection >= 0) {
+                currentChannelSelection = selection;
+            }
+            // Como en el primer frame: vecinos solo cuando el canal actual ya se ve
+            if (firstFrameReported) {
+                refillZapPool();
+            }
+        }
+    }
+
+    private void applyCatalogSnapshot(PlaybackCatalogStore.Snapshot snapshot) {
+        PlaybackCatalogStore.swap(catalogSnapshot, snapshot);
+        catalogSnapshot = snapshot;
+        chapterTitles = snapshot.hasChapters() ? snapshot.chapterTitles : null;
+        chapterUrls = snapshot.hasChapters() ? snapshot.chapterUrls : null;
+        chapterSeasonNumbers = snapshot.hasChapters() ? snapshot.chapterSeasonNumbers : null;
+        chapterNumbers = snapshot.hasChapters() ? snapshot.chapterNumbers : null;
+        chapterSeasonIndices = snapshot.hasChapters() ? snapshot.chapterSeasonIndices : null;
+        chapterIndices = snapshot.hasChapters() ? snapshot.chapterIndices : null;
+        channelNames = snapshot.hasChannels() ? snapshot.channelNames : null;
+        channelLogos = snapshot.hasChannels() ? snapshot.channelLogos : null;
+        channelUrls = snapshot.hasChannels() ? snapshot.channelUrls : null;
+    }
+
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
@@ -254,16 +345,9 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         }
 
         // Actualizar metadata cuando la actividad es reutilizada con REORDER_TO_FRONT
-        chapterTitles = intent.getStringArrayListExtra("chapter_titles");
-        chapterUrls = intent.getStringArrayListExtra("chapter_urls");
-        chapterSeasonNumbers = intent.getIntegerArrayListExtra("chapter_season_numbers");
-        chapterNumbers = intent.getIntegerArrayListExtra("chapter_numbers");
-        chapterSeasonIndices = intent.getIntegerArrayListExtra("chapter_season_indices");
-        chapterIndices = intent.getIntegerArrayListExtra("chapter_indices");
-        channelNames = intent.getStringArrayListExtra("channel_names");
-        channelLogos = intent.getStringArrayListExtra("channel_logos");
-        channelUrls = intent.getStringArrayListExtra("channel_urls");
+        resolveCatalog(intent);
         isLiveTV = intent.getBooleanExtra("is_live_tv", false);
+        vlcProfile = VlcMediaProfile.resolve(this, isLiveTV);
 
         String nextVideoUrl = intent.getStringExtra("video_url");
         String nextVideoTitle = intent.getStringExtra("video_title");
@@ -275,6 +359,10 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             lastPosition = intent.getLongExtra("start_time", 0L);
             isSeekPending = lastPosition > 0;
             releasePlayer();
+            metricsSessionId = PlaybackMetrics.attach(intent, currentVideoUrl, "vlc");
+            beginSource();
+            PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_ACTIVITY_CREATED);
+            PlaybackMetrics.putAttribute(metricsSessionId, "reusedActivity", true);
             initializePlayer();
         } else {
             setupControls();
@@ -288,15 +376,15 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         hasSentPlayerClosedEvent = false;
         closeReason = "active";
         initializePlayer();
-        registerControlReceiver();
-        registerFinishReceiver();
-        registerLiveChannelsReceiver();
+        registerControlListener();
+        registerFinishListener();
+        registerLiveChannelsListener();
     }
 
     @Override
     public void onUserLeaveHint() {
         super.onUserLeaveHint();
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+        if (isPlayerPlaying()) {
             enterPictureInPictureMode();
         }
     }
@@ -397,16 +485,12 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                 showControls();
                 return true;
             case KeyEvent.KEYCODE_MEDIA_PLAY:
-                if (mediaPlayer != null) {
-                    mediaPlayer.play();
-                }
+                playAsync();
                 disarmSeekBar(false);
                 showControls();
                 return true;
             case KeyEvent.KEYCODE_MEDIA_PAUSE:
-                if (mediaPlayer != null) {
-                    mediaPlayer.pause();
-                }
+                pauseAsync();
                 disarmSeekBar(false);
                 showControls();
                 return true;
@@ -467,9 +551,9 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     @Override
     protected void onStop() {
         super.onStop();
-        unregisterControlReceiver();
-        unregisterFinishReceiver();
-        unregisterLiveChannelsReceiver();
+        unregisterControlListener();
+        unregisterFinishListener();
+        unregisterLiveChannelsListener();
         // Limpiar long press handler
         if (longPressRunnable != null) {
             longPressHandler.removeCallbacks(longPressRunnable);
@@ -485,19 +569,24 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     protected void onDestroy() {
         super.onDestroy();
         isActivityClosing = true;
+        VLCInstance.releaseUse();
         recoveryHandler.removeCallbacksAndMessages(null);
+        recovery.cancel();
         // Limpiar long press handler
         if (longPressRunnable != null) {
             longPressHandler.removeCallbacks(longPressRunnable);
             longPressRunnable = null;
         }
-        if (isInPictureInPictureMode() && mediaPlayer != null && mediaPlayer.isPlaying()) {
+        if (isInPictureInPictureMode() && isPlayerPlaying()) {
             Log.d(TAG, "Stopping playback when activity is destroyed in PiP mode");
-            mediaPlayer.stop();
-            notifyProgressUpdate(mediaPlayer.getTime());
+            notifyProgressUpdate(cachedPositionMs(), false, true);
         }
         notifyPlayerClosed(closeReason);
+        PlaybackCatalogStore.release(catalogSnapshot);
         releasePlayer();
+        // Las liberaciones pendientes (pool de zapping y player actual) aun se ejecutan
+        zapExecutor.shutdown();
+        playerCommands.quit();
     }
 
     private void initializePlayer() {
@@ -506,11 +595,385 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             return;
         }
         isActivityClosing = false;
-        lastTimeChangedSystemMs = System.currentTimeMillis();
-        recoveryHandler.removeCallbacks(stallWatchdogRunnable);
+        recovery.setWatching(false);
+
+        if (isWaitingForLibVlc || isStartingPlayer) {
+            return;
+        }
+        playbackRequestedAtMs = SystemClock.elapsedRealtime();
+        libVlcWasWarm = VLCInstance.isReady();
+        libVlcWaitMs = 0L;
+        firstFrameReported = false;
+        if (!PlaybackMetrics.isActive(metricsSessionId)) {
+            metricsSessionId = PlaybackMetrics.begin(currentVideoUrl, "vlc", "activity");
+        }
+        PlaybackMetrics.putAttribute(metricsSessionId, "libVlcWarm", libVlcWasWarm);
+        PlaybackMetrics.putAttribute(metricsSessionId, "vlcProfile", vlcProfile.name);
+        if (!libVlcWasWarm) {
+            Log.d(TAG, "Esperando a que LibVLC termine de cargar");
+        }
+        // En caliente el callback llega en el acto; en frio, cuando LibVLC termina de cargar. Nunca se
+        // bloquea el hilo principal con getInstance().
+        isWaitingForLibVlc = true;
+        VLCInstance.whenReady(getApplicationContext(), readyLibVlc -> {
+            isWaitingForLibVlc = false;
+            if (!libVlcWasWarm) {
+                libVlcWaitMs = SystemClock.elapsedRealtime() - playbackRequestedAtMs;
+            }
+            if (readyLibVlc == null) {
+                Log.e(TAG, "LibVLC no disponible");
+                return;
+            }
+            if (canStartPlayer()) {
+                startMediaPlayer(readyLibVlc);
+            }
+        });
+    }
+
+    private void startMediaPlayer(LibVLC readyLibVlc) {
+        libVlc = readyLibVlc;
+        // El plugin puede haber abierto ya este stream (en pausa) mientras se lanzaba la actividad;
+        // si aun lo esta abriendo se espera a que lo entregue.
+        isStartingPlayer = true;
+        final long request = ++playerStartRequest;
+        PlaybackPrewarmer.takeVlc(currentVideoUrl, preparedPlayer -> {
+            // Una espera abandonada por releasePlayer, o la actividad ya se esta cerrando
+            boolean abandoned = request != playerStartRequest;
+            if (!abandoned) {
+                isStartingPlayer = false;
+            }
+            if (abandoned || !canStartPlayer()) {
+                if (preparedPlayer != null) {
+                    PlaybackPrewarmer.releaseVlc(preparedPlayer);
+                }
+                return;
+            }
+            if (preparedPlayer != null) {
+                attachMediaPlayer(preparedPlayer, true);
+            } else {
+                createMediaPlayerAsync(request);
+            }
+        });
+    }
+
+    private boolean canStartPlayer() {
+        return !isActivityClosing && !isFinishing() && mediaPlayer == null && currentVideoUrl != null;
+    }
+
+    // new MediaPlayer() entra en libvlc y puede esperar a su lock: se crea en el hilo de comandos
+    private void createMediaPlayerAsync(final long request) {
+        isStartingPlayer = true;
+        final LibVLC commandLibVlc = libVlc;
+        playerCommands.execute(() -> {
+            final MediaPlayer created = new MediaPlayer(commandLibVlc);
+            playerCommands.postResult(() -> {
+                boolean abandoned = request != playerStartRequest;
+                if (!abandoned) {
+                    isStartingPlayer = false;
+                }
+                if (abandoned || !canStartPlayer()) {
+                    playerCommands.execute(created::release);
+                    return;
+                }
+                attachMediaPlayer(created, false);
+            });
+        });
+    }
+
+    private void attachMediaPlayer(MediaPlayer player, boolean prewarmed) {
+        mediaPlayer = player;
+        resetPlayerState();
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+        PlaybackMetrics.putAttribute(metricsSessionId, "prewarmed", prewarmed);
+        attachPlayerToSurface();
+
+        setupPlayerEvents();
+        setupControls();
+        updateVideoTitleWithChapterInfo();
+
+        if (prewarmed) {
+            // La posicion inicial ya se paso como :start-time al preparar
+            isSeekPending = false;
+            Log.d(TAG, "Usando MediaPlayer VLC precalentado");
+            PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_MEDIA_SET);
+            playerCommands.submit(COMMAND_MEDIA, player::play);
+            armHedge();
+        } else {
+            loadMediaAsync(activeSourceUrl, false);
+        }
+
+        recovery.setWatching(true);
+    }
+
+    // setMedia + play en el hilo de comandos. Si llega otro cambio antes de que empiece, este se descarta.
+    // url es la fuente real (activeSourceUrl), no la URL principal.
+    private void loadMediaAsync(final String url, final boolean stopFirst) {
+        final MediaPlayer player = mediaPlayer;
+        if (player == null) {
+            return;
+        }
+        final LibVLC commandLibVlc = libVlc;
+        final int audioIndex = cachedAudioIndex();
+        final VlcMediaProfile profile = vlcProfile;
+        final double cachingFactor = resolveCachingFactor(url);
+        final int streamType = StreamTypeProbe.getInstance(this).peek(url);
+        final long sessionId = metricsSessionId;
+        playerCommands.submit(COMMAND_MEDIA, () -> {
+            if (stopFirst) {
+                player.stop();
+            }
+            Media media = profile.buildMedia(commandLibVlc, url, cachingFactor, streamType);
+            if (audioIndex >= 0) {
+                media.addOption(":audio-track=" + audioIndex);
+            }
+            player.setMedia(media);
+            media.release();
+            PlaybackMetrics.mark(sessionId, PlaybackMetrics.PHASE_MEDIA_SET);
+            player.play();
+        });
+        armHedge();
+    }
+
+    // Nueva reproduccion de currentVideoUrl: se elige mirror y la recuperacion empieza de cero para el
+    private void beginSource() {
+        cancelHedge();
+        activeSourceUrl = StreamMirrors.sourceFor(currentVideoUrl);
+        recovery.reset(activeSourceUrl);
+        StreamMirrors.recordAttempt(currentVideoUrl, activeSourceUrl);
+        PlaybackMetrics.putAttribute(metricsSessionId, "source", activeSourceUrl);
+    }
+
+    // Recuperacion agotada en este mirror: se pasa al siguiente sin intervencion del usuario
+    private boolean failoverToNextSource() {
+        String nextSource = StreamMirrors.failover(currentVideoUrl, activeSourceUrl);
+        if (nextSource == null) {
+            return false;
+        }
+        cancelHedge();
+        activeSourceUrl = nextSource;
+        recovery.reset(nextSource);
+        StreamMirrors.recordAttempt(currentVideoUrl, nextSource);
+        Toast.makeText(this, "Probando fuente alternativa...", Toast.LENGTH_SHORT).show();
+        try {
+            releasePlayer();
+            initializePlayer();
+            PlaybackMetrics.putAttribute(metricsSessionId, "source", nextSource);
+            PlaybackMetrics.putAttribute(metricsSessionId, "failover", true);
+        } catch (Exception failoverError) {
+            Log.e(TAG, "Error switching to alternate source", failoverError);
+        }
+        return true;
+    }
+
+    private void armHedge() {
+        cancelHedge();
+        sourceDelivered = false;
+        if (StreamMirrors.hasAlternatives(currentVideoUrl)) {
+            recoveryHandler.postDelayed(hedgeRunnable, isLiveTV ? HEDGE_DELAY_LIVE_MS : HEDGE_DELAY_VOD_MS);
+        }
+    }
 
-        libVlc = VLCInstance.getInstance(getApplicationContext());
-        mediaPlayer = new MediaPlayer(libVlc);
+    // La fuente actual aun no entrega datos: se abre otro mirror en pausa y gana el primero en bufferizar
+    private void startHedge() {
+        if (isActivityClosing || sourceDelivered || hedgeToken != null || recovery.isRetryPending()) {
+            return;
+        }
+        final String logicalUrl = currentVideoUrl;
+        final String candidateUrl = StreamMirrors.nextSource(logicalUrl, activeSourceUrl);
+        if (candidateUrl == null) {
+            return;
+        }
+        final Object token = new Object();
+        hedgeToken = token;
+        hedgeSourceUrl = candidateUrl;
+        StreamMirrors.recordAttempt(logicalUrl, candidateUrl);
+        PlaybackMetrics.putAttribute(metricsSessionId, "hedged", true);
+        Log.d(TAG, "Sin datos tras el retardo de cobertura, abriendo tambien " + candidateUrl);
+
+        openPausedPlayerAsync(candidateUrl, (candidate, event) -> {
+            if (event.type == MediaPlayer.Event.Buffering && event.getBuffering() >= 100f) {
+                onHedgeDelivered(candidate, token);
+            }
+        }, opened -> {
+            if (token == hedgeToken) {
+                hedgePlayer = opened;
+            } else if (opened != mediaPlayer) {
+                // Cobertura cancelada mientras se abria (la fuente principal entrego antes)
+                releaseAsync(opened);
+            }
+        });
+    }
+
+    private interface PausedPlayerEvents {
+        void onEvent(MediaPlayer player, MediaPlayer.Event event);
+    }
+
+    private interface PausedPlayerOpened {
+        void onOpened(MediaPlayer player);
+    }
+
+    // Abre sourceUrl en pausa y sin vista en zapExecutor (conexion, redirecciones y parseo hechos).
+    // events llega en el hilo principal desde que se abre; opened tambien, cuando play() ya se llamo.
+    private void openPausedPlayerAsync(final String sourceUrl, final PausedPlayerEvents events, final PausedPlayerOpened opened) {
+        final VlcMediaProfile profile = vlcProfile;
+        final double cachingFactor = cachingController.factorFor(sourceUrl);
+        final int streamType = StreamTypeProbe.getInstance(this).peek(sourceUrl);
+        final int audioIndex = cachedAudioIndex();
+        zapExecutor.execute(() -> {
+            MediaPlayer player = null;
+            try {
+                LibVLC pausedLibVlc = VLCInstance.getInstance(getApplicationContext());
+                player = new MediaPlayer(pausedLibVlc);
+                Media media = profile.buildMedia(pausedLibVlc, sourceUrl, cachingFactor, streamType);
+                if (audioIndex >= 0) {
+                    media.addOption(":audio-track=" + audioIndex);
+                }
+                media.addOption(":start-paused");
+                player.setMedia(media);
+                media.release();
+                final MediaPlayer listened = player;
+                player.setEventListener(event -> events.onEvent(listened, event));
+                player.play();
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo pre-abrir " + sourceUrl, e);
+                if (player != null) {
+                    player.release();
+                }
+                return;
+            }
+            final MediaPlayer openedPlayer = player;
+            recoveryHandler.post(() -> opened.onOpened(openedPlayer));
+        });
+    }
+
+    // Siguiente capitulo abierto en pausa cerca del final: el autoplay solo cambia de superficie
+    private void maybePreopenNextEpisode(long positionMs) {
+        if (isLiveTV || isActivityClosing || isEpisodeSwitchInProgress || mediaDurationMs <= 0L) {
+            return;
+        }
+        long thresholdMs = Math.max((long) (mediaDurationMs * NEXT_EPISODE_PROGRESS), mediaDurationMs - NEXT_EPISODE_LEAD_MS);
+        if (positionMs < thresholdMs) {
+            // Seek hacia atras: lo pre-abierto ya no se va a usar pronto
+            if (nextEpisodeUrl != null) {
+                Log.d(TAG, "Seek antes del umbral, se libera el siguiente capitulo pre-abierto");
+                releaseNextEpisode();
+            }
+            return;
+        }
+        if (nextEpisodeUrl != null) {
+            return;
+        }
+        int currentIndex = getCurrentChapterGlobalIndex();
+        if (chapterUrls == null || currentIndex < 0 || currentIndex >= chapterUrls.size() - 1) {
+            return;
+        }
+
+        final String url = chapterUrls.get(currentIndex + 1);
+        final Object token = new Object();
+        nextEpisodeUrl = url;
+        nextEpisodeToken = token;
+        Log.d(TAG, "Pre-abriendo siguiente capitulo: " + url);
+        openPausedPlayerAsync(StreamMirrors.sourceFor(url), (player, event) -> {
+            if (event.type == MediaPlayer.Event.EncounteredError && token == nextEpisodeToken) {
+                // El autoplay abrira normal (con su recuperacion) en vez de usar un player roto
+                Log.w(TAG, "Fallo al pre-abrir el siguiente capitulo");
+                releaseNextEpisode();
+            }
+        }, player -> {
+            if (token == nextEpisodeToken) {
+                nextEpisodePlayer = player;
+            } else {
+                releaseAsync(player);
+            }
+        });
+    }
+
+    // Player del siguiente capitulo si ya esta abierto para url; sale del estado de pre-apertura.
+    private MediaPlayer takeNextEpisode(String url) {
+        MediaPlayer player = nextEpisodePlayer;
+        if (player == null || url == null || !url.equals(nextEpisodeUrl)) {
+            releaseNextEpisode();
+            return null;
+        }
+        nextEpisodePlayer = null;
+        nextEpisodeUrl = null;
+        nextEpisodeToken = null;
+        return player;
+    }
+
+    private void releaseNextEpisode() {
+        nextEpisodeUrl = null;
+        nextEpisodeToken = null;
+        if (nextEpisodePlayer != null) {
+            releaseAsync(nextEpisodePlayer);
+            nextEpisodePlayer = null;
+        }
+    }
+
+    private void onHedgeDelivered(MediaPlayer candidate, Object token) {
+        if (token != hedgeToken || sourceDelivered || isActivityClosing) {
+            return;
+        }
+        Log.d(TAG, "El mirror de cobertura entrego antes: " + hedgeSourceUrl);
+        recoveryHandler.removeCallbacks(hedgeRunnable);
+        hedgeToken = null;
+        hedgePlayer = null;
+        sourceDelivered = true;
+        activeSourceUrl = hedgeSourceUrl;
+        recovery.reset(activeSourceUrl);
+        StreamMirrors.recordWin(currentVideoUrl, activeSourceUrl);
+        PlaybackMetrics.putAttribute(metricsSessionId, "source", activeSourceUrl);
+        PlaybackMetrics.putAttribute(metricsSessionId, "hedgeWinner", "alternate");
+        swapToZapPlayer(candidate);
+    }
+
+    // La fuente actual entrego datos: gana y la cobertura (si la hay) se descarta
+    private void onSourceDelivered() {
+        if (sourceDelivered) {
+            return;
+        }
+        sourceDelivered = true;
+        if (hedgeToken != null) {
+            PlaybackMetrics.putAttribute(metricsSessionId, "hedgeWinner", "primary");
+        }
+        cancelHedge();
+        StreamMirrors.recordWin(currentVideoUrl, activeSourceUrl);
+    }
+
+    private void cancelHedge() {
+        recoveryHandler.removeCallbacks(hedgeRunnable);
+        hedgeToken = null;
+        if (hedgePlayer != null) {
+            releaseAsync(hedgePlayer);
+            hedgePlayer = null;
+        }
+    }
+
+    private void playAsync() {
+        final MediaPlayer player = mediaPlayer;
+        if (player != null) {
+            playerCommands.submit(COMMAND_PLAYBACK, player::play);
+        }
+    }
+
+    private void pauseAsync() {
+        final MediaPlayer player = mediaPlayer;
+        if (player != null) {
+            playerCommands.submit(COMMAND_PLAYBACK, player::pause);
+        }
+    }
+
+    // El player deja de recibir eventos y de tener vista aqui; stop/release van despues de sus comandos
+    private void releaseAsync(final MediaPlayer player) {
+        player.setEventListener(null);
+        player.detachViews();
+        playerCommands.execute(() -> {
+            player.stop();
+            player.release();
+        });
+    }
+
+    private void attachPlayerToSurface() {
         mediaPlayer.setAudioDigitalOutputEnabled(false);
         mediaPlayer.setVolume(100);
         mediaPlayer.attachViews(videoLayout, null, false, false);
@@ -518,27 +981,78 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         mediaPlayer.setScale(MediaPlayer.ScaleType.SURFACE_FIT_SCREEN.ordinal());
 
         currentAspectRatioIndex = 0;
+    }
 
-        setupPlayerEvents();
-        setupControls();
-        updateVideoTitleWithChapterInfo();
+    // Canales vecinos pre-abiertos (en pausa, sin vista) para que el zapping solo cambie de superficie
+    private void refillZapPool() {
+        if (!isLiveTV || isActivityClosing || channelUrls == null || channelUrls.isEmpty()) {
+            return;
+        }
+        if (zapPool == null) {
+            final VlcMediaProfile profile = vlcProfile;
+            zapPool = new ZapPool<>(TAG, ZapPool.resolveBudget(this, requestedZapPoolSize), new ZapPool.Opener<MediaPlayer>() {
+                @Override
+                public MediaPlayer open(String url) {
+                    LibVLC zapLibVlc = VLCInstance.getInstance(getApplicationContext());
+                    MediaPlayer zapPlayer = new MediaPlayer(zapLibVlc);
+                    String sourceUrl = StreamMirrors.sourceFor(url);
+                    Media media = profile.buildMedia(
+                        zapLibVlc,
+                        sourceUrl,
+                        cachingController.factorFor(sourceUrl),
+                        StreamTypeProbe.getInstance(getApplicationContext()).peek(sourceUrl)
+                    );
+                    media.addOption(":start-paused");
+                    zapPlayer.setMedia(media);
+                    media.release();
+                    zapPlayer.play();
+                    return zapPlayer;
+                }
 
-        Media media = new Media(libVlc, Uri.parse(currentVideoUrl));
-        media.setHWDecoderEnabled(true, false);
-        media.addOption(":network-caching=1500");
-        media.addOption(":http-user-agent=VLC/3.0.0 (Linux; Android 9)");
+                @Override
+                public void release(MediaPlayer player) {
+                    player.stop();
+                    player.release();
+                }
+            }, zapExecutor);
+        }
+        zapPool.noteWatched(currentVideoUrl);
+        zapPool.refill(channelUrls, currentChannelSelection);
+    }
 
-        mediaPlayer.setMedia(media);
-        media.release();
+    private void swapToZapPlayer(MediaPlayer nextPlayer) {
+        final MediaPlayer previousPlayer = mediaPlayer;
+        // Un setMedia pendiente para el player anterior ya no sirve
+        playerCommands.cancel(COMMAND_MEDIA);
+        if (previousPlayer != null) {
+            releaseAsync(previousPlayer);
+        }
 
-        mediaPlayer.play();
-        recoveryHandler.postDelayed(stallWatchdogRunnable, STALL_CHECK_INTERVAL_MS);
+        mediaPlayer = nextPlayer;
+        resetPlayerState();
+        isRebuffering = false;
+        stablePlaybackSinceMs = 0L;
+        attachPlayerToSurface();
+        setupPlayerEvents();
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_PLAYER_CREATED);
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_MEDIA_SET);
+        playerCommands.submit(COMMAND_MEDIA, nextPlayer::play);
+        recovery.setWatching(true);
     }
 
     private void releasePlayer() {
-        recoveryHandler.removeCallbacks(stallWatchdogRunnable);
+        playerStartRequest++;
+        isStartingPlayer = false;
+        recovery.setWatching(false);
+        cancelHedge();
+        releaseNextEpisode();
+        PlaybackMetrics.finish(metricsSessionId, "closed");
+        if (zapPool != null) {
+            zapPool.clear();
+            zapPool = null;
+        }
         if (mediaPlayer != null) {
-            long currentPositionMs = Math.max(0L, mediaPlayer.getTime());
+            long currentPositionMs = cachedPositionMs();
             lastPlaybackPositionMs = currentPositionMs;
             lastPosition = currentPositionMs / 1000L;
             // Guardar progreso final antes de cerrar
@@ -546,38 +1060,44 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                 Log.d(TAG, "Saving final progress before closing: " + (currentPositionMs / 1000) + "s");
                 notifyProgressUpdate(currentPositionMs, false, true);
             }
-            mediaPlayer.stop();
-            mediaPlayer.detachViews();
-            mediaPlayer.release();
+            playerCommands.cancel(COMMAND_MEDIA);
+            playerCommands.cancel(COMMAND_PLAYBACK);
+            playerCommands.cancel(COMMAND_SEEK);
+            playerCommands.cancel(COMMAND_RATE);
+            releaseAsync(mediaPlayer);
             mediaPlayer = null;
+            resetPlayerState();
         }
         controlsHandler.removeCallbacksAndMessages(null);
     }
 
-    // Variables para throttling de progreso
-    private long lastProgressSent = 0;
-    private final long PROGRESS_THROTTLE_MS = 10000; // 10 segundos
+    // Progreso hacia el plugin (throttling y envio diferido compartidos con ExoPlayer)
+    private ProgressReporter progressReporter;
 
     private void setupPlayerEvents() {
         mediaPlayer.setEventListener(event -> {
             switch (event.type) {
                 case MediaPlayer.Event.EncounteredError:
                     Log.e(TAG, "An error was encountered during playback");
-                    attemptPlaybackRecovery("vlc error event");
+                    PlaybackMetrics.finish(metricsSessionId, "error");
+                    playerPlaying = false;
+                    // Sin esperar al watchdog: el reintento sale ya con el backoff del primer intento
+                    reportPlaybackError();
                     break;
                 case MediaPlayer.Event.Buffering:
-                    // Solo refrescar el watchdog cuando el buffer está prácticamente lleno.
-                    if (event.getBuffering() >= 95f) {
-                        lastTimeChangedSystemMs = System.currentTimeMillis();
+                    PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_FIRST_BUFFERING);
+                    trackRebuffering(event.getBuffering());
+                    recovery.onBuffering(event.getBuffering() < 100f);
+                    if (event.getBuffering() >= 100f) {
+                        onSourceDelivered();
                     }
                     break;
                 case MediaPlayer.Event.Playing:
+                    playerPlaying = true;
                     playPauseButton.setImageResource(android.R.drawable.ic_media_pause);
-                    recoveryAttempts = 0;
-                    isRecoveringPlayback = false;
-                    lastTimeChangedSystemMs = System.currentTimeMillis();
+                    recovery.setWatching(true);
                     if (isSeekPending) {
-                        mediaPlayer.setTime(lastPosition * 1000);
+                        seekAsync(lastPosition * 1000);
                         isSeekPending = false;
                     }
                     if (forceAudioRecoveryPending) {
@@ -587,26 +1107,39 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                     hideControls();
                     break;
                 case MediaPlayer.Event.Paused:
+                    playerPlaying = false;
                     playPauseButton.setImageResource(android.R.drawable.ic_media_play);
+                    recovery.setWatching(false);
                     // Enviar progreso cuando se pausa (siempre)
-                    notifyProgressUpdate(mediaPlayer.getTime(), false, true);
+                    notifyProgressUpdate(cachedPositionMs(), false, true);
                     break;
                 case MediaPlayer.Event.Stopped:
+                    playerPlaying = false;
                     playPauseButton.setImageResource(android.R.drawable.ic_media_play);
-                    notifyProgressUpdate(mediaPlayer.getTime(), false, true);
+                    notifyProgressUpdate(cachedPositionMs(), false, true);
                     break;
                 case MediaPlayer.Event.TimeChanged:
-                    lastTimeChangedSystemMs = System.currentTimeMillis();
+                    recovery.onProgress();
                     lastPlaybackPositionMs = event.getTimeChanged();
+                    // Con el player reutilizado (cambio de canal/episodio) no llega un Vout nuevo
+                    if (!firstFrameReported && playerVoutCount > 0) {
+                        firstFrameReported = true;
+                        reportFirstFrame();
+                    }
                     if (!isSeekBarArmed) {
                         currentTime.setText(formatTime(event.getTimeChanged()));
                         seekBar.setProgress((int) event.getTimeChanged());
                     }
-                    // Enviar progreso con throttling (cada 10 segundos)
-                    long now = System.currentTimeMillis();
-                    if (now - lastProgressSent > PROGRESS_THROTTLE_MS) {
-                        notifyProgressUpdate(event.getTimeChanged());
-                        lastProgressSent = now;
+                    // Progreso periodico (ProgressReporter aplica el throttling)
+                    notifyProgressUpdate(event.getTimeChanged());
+                    trackStablePlayback();
+                    maybePreopenNextEpisode(event.getTimeChanged());
+                    break;
+                case MediaPlayer.Event.Vout:
+                    playerVoutCount = event.getVoutCount();
+                    if (event.getVoutCount() > 0 && !firstFrameReported) {
+                        firstFrameReported = true;
+                        reportFirstFrame();
                     }
                     break;
                 case MediaPlayer.Event.LengthChanged:
@@ -616,67 +1149,152 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                     break;
                 case MediaPlayer.Event.EndReached:
                     Log.d(TAG, "Video ended, checking for next episode");
+                    playerPlaying = false;
+                    recovery.setWatching(false);
                     // Enviar progreso final cuando termina el video
-                    notifyProgressUpdate(mediaPlayer.getTime(), true, true);
+                    notifyProgressUpdate(cachedPositionMs(), true, true);
                     playNextEpisode();
                     break;
             }
         });
     }
 
-    // Método para notificar progreso al plugin JavaScript
-    private void attemptPlaybackRecovery(String reason) {
-        if (isActivityClosing || currentVideoUrl == null) {
+    // Tiempo hasta el primer frame, separando la espera por LibVLC para comparar arranque en frio y en caliente
+    private void reportFirstFrame() {
+        long firstFrameMs = SystemClock.elapsedRealtime() - playbackRequestedAtMs;
+        Log.d(TAG, "Primer frame en " + firstFrameMs + "ms"
+            + " (LibVLC " + (libVlcWasWarm ? "precalentado" : "en frio, espera " + libVlcWaitMs + "ms")
+            + ", creacion LibVLC " + VLCInstance.getLastWarmUpDurationMs() + "ms)");
+        PlaybackMetrics.putAttribute(metricsSessionId, "libVlcWaitMs", libVlcWaitMs);
+        PlaybackMetrics.putAttribute(metricsSessionId, "libVlcCreateMs", VLCInstance.getLastWarmUpDurationMs());
+        PlaybackMetrics.mark(metricsSessionId, PlaybackMetrics.PHASE_FIRST_FRAME);
+        PlaybackMetrics.finish(metricsSessionId, "first_frame");
+        recovery.onPlaybackConfirmed();
+        onSourceDelivered();
+        // Pre-abrir vecinos solo cuando el canal actual ya se ve, para no competir por ancho de banda
+        refillZapPool();
+    }
+
+    private double resolveCachingFactor(String url) {
+        double cachingFactor = cachingController.factorFor(url);
+        int networkCachingMs = NetworkCachingController.scale(vlcProfile.networkCachingMs, cachingFactor);
+        PlaybackMetrics.putAttribute(metricsSessionId, "networkCachingMs", networkCachingMs);
+        recovery.setExpectedBufferingMs(networkCachingMs);
+        isRebuffering = false;
+        stablePlaybackSinceMs = 0L;
+        return cachingFactor;
+    }
+
+    // La cache se aprende y se consulta por el host de la fuente que se reproduce (puede ser un espejo)
+    private String cachingSourceUrl() {
+        return activeSourceUrl != null ? activeSourceUrl : currentVideoUrl;
+    }
+
+    // Buffering por debajo de 100 despues del primer frame = rebuffer (una vez por episodio de buffering)
+    private void trackRebuffering(float bufferingPercent) {
+        if (bufferingPercent >= 100f) {
+            isRebuffering = false;
             return;
         }
-        if (isRecoveringPlayback) {
+        // stablePlaybackSinceMs == 0: aun no ha avanzado el tiempo, es el buffering inicial
+        if (!firstFrameReported || isRebuffering || stablePlaybackSinceMs == 0L) {
             return;
         }
-        if (recoveryAttempts >= MAX_AUTO_RECOVERY_ATTEMPTS) {
-            Log.e(TAG, "Max playback recovery attempts reached. Last reason: " + reason);
+        isRebuffering = true;
+        stablePlaybackSinceMs = 0L;
+        cachingController.recordRebuffer(cachingSourceUrl());
+    }
+
+    private void trackStablePlayback() {
+        long now = SystemClock.elapsedRealtime();
+        if (stablePlaybackSinceMs == 0L || isRebuffering) {
+            stablePlaybackSinceMs = now;
             return;
         }
+        if (now - stablePlaybackSinceMs >= NetworkCachingController.STABLE_PLAYBACK_MS) {
+            cachingController.recordStablePlayback(cachingSourceUrl());
+            stablePlaybackSinceMs = now;
+        }
+    }
 
-        isRecoveringPlayback = true;
-        forceAudioRecoveryPending = true;
-        recoveryAttempts++;
+    // Cambio de canal/episodio sobre el mismo MediaPlayer: nueva sesion de metricas sin fases de actividad
+    private void beginSwitchMetrics(String trigger) {
+        PlaybackMetrics.finish(metricsSessionId, "replaced");
+        metricsSessionId = PlaybackMetrics.begin(currentVideoUrl, "vlc", trigger);
+        beginSource();
+        PlaybackMetrics.putAttribute(metricsSessionId, "vlcProfile", vlcProfile.name);
+        playbackRequestedAtMs = SystemClock.elapsedRealtime();
+        libVlcWasWarm = true;
+        libVlcWaitMs = 0L;
+        firstFrameReported = false;
+    }
 
-        long currentPositionMs = 0L;
-        if (mediaPlayer != null) {
-            currentPositionMs = Math.max(0L, mediaPlayer.getTime());
+    // getStats() es nativo: se lee en el hilo de comandos y el fallo se notifica de vuelta en el principal
+    private void reportPlaybackError() {
+        final MediaPlayer player = mediaPlayer;
+        if (player == null) {
+            recovery.reportFailure(PlaybackRecovery.FAILURE_NETWORK, "vlc error event");
+            return;
         }
-        if (currentPositionMs <= 0 && lastPlaybackPositionMs > 0) {
-            currentPositionMs = lastPlaybackPositionMs;
+        playerCommands.execute(() -> {
+            final int failure = classifyPlaybackError(player);
+            playerCommands.postResult(() -> {
+                if (mediaPlayer == player && !isActivityClosing) {
+                    recovery.reportFailure(failure, "vlc error event");
+                }
+            });
+        });
+    }
+
+    // Sin bytes leidos es la red; con datos pero nada decodificado, el decoder (reintentar sirve de poco)
+    private static int classifyPlaybackError(MediaPlayer player) {
+        IMedia media = player.getMedia();
+        if (media == null) {
+            return PlaybackRecovery.FAILURE_NETWORK;
         }
+        try {
+            IMedia.Stats stats = media.getStats();
+            if (stats != null && stats.demuxReadBytes > 0 && stats.decodedVideo == 0 && stats.decodedAudio == 0) {
+                return PlaybackRecovery.FAILURE_DECODER;
+            }
+        } finally {
+            media.release();
+        }
+        return PlaybackRecovery.FAILURE_NETWORK;
+    }
+
+    // Reintento programado por PlaybackRecovery: se reabre el stream en la posicion actual
+    private void retryPlayback(int failure) {
+        if (isActivityClosing || currentVideoUrl == null) {
+            return;
+        }
+
+        forceAudioRecoveryPending = true;
+        if (failure != PlaybackRecovery.FAILURE_DECODER) {
+            // La reconexion se abre ya con la cache aumentada para este host
+            cachingController.recordStall(cachingSourceUrl());
+        }
+        stablePlaybackSinceMs = 0L;
+
+        long currentPositionMs = cachedPositionMs();
         if (currentPositionMs > 0) {
             lastPosition = currentPositionMs / 1000L;
             isSeekPending = true;
-            notifyProgressUpdate(currentPositionMs);
+            notifyProgressUpdate(currentPositionMs, false, true);
         }
 
-        final long delayMs = RECOVERY_BASE_DELAY_MS * Math.min(recoveryAttempts, 3);
-        Log.w(TAG, "Recovery attempt " + recoveryAttempts + "/" + MAX_AUTO_RECOVERY_ATTEMPTS + " due to: " + reason + " (delay " + delayMs + "ms)");
-
-        runOnUiThread(() -> Toast.makeText(
+        Toast.makeText(
                 VLCPlayerActivity.this,
                 "Reconectando transmisión...",
                 Toast.LENGTH_SHORT
-        ).show());
+        ).show();
 
-        recoveryHandler.postDelayed(() -> {
-            if (isActivityClosing) {
-                isRecoveringPlayback = false;
-                return;
-            }
-            try {
-                releasePlayer();
-                initializePlayer();
-            } catch (Exception recoveryError) {
-                Log.e(TAG, "Error during playback recovery", recoveryError);
-            } finally {
-                isRecoveringPlayback = false;
-            }
-        }, delayMs);
+        try {
+            releasePlayer();
+            initializePlayer();
+        } catch (Exception recoveryError) {
+            Log.e(TAG, "Error during playback recovery", recoveryError);
+        }
     }
 
     private void restoreAudioOutputAfterRecovery() {
@@ -770,7 +1388,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             || normalizedCodec.contains("pcm");
     }
 
-    private int scoreAudioTrackForCompatibility(IMedia.AudioTrack track) {
+    private int scoreAudioTrackForCompatibility(IMedia.AudioTrack track, String preferredLanguage) {
         if (track == null) {
             return Integer.MIN_VALUE;
         }
@@ -797,6 +1415,10 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             if (normalizedLanguage.startsWith("es") || normalizedLanguage.contains("spa")) {
                 score += 10;
             }
+            // Idioma elegido a mano antes: pesa mas que los canales pero no mas que la compatibilidad del codec
+            if (preferredLanguage != null && normalizedLanguage.equals(preferredLanguage)) {
+                score += 70;
+            }
         }
 
         return score;
@@ -841,6 +1463,39 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         return null;
     }
 
+    // Series (VOD con capitulos o suelto); en directo cada canal tiene sus pistas y no se cachea
+    private String audioTrackCacheKey() {
+        if (isLiveTV || currentVideoUrl == null) {
+            return null;
+        }
+        String firstChapterUrl = chapterUrls != null && !chapterUrls.isEmpty() ? chapterUrls.get(0) : null;
+        return AudioTrackCache.keyFor(currentVideoUrl, firstChapterUrl);
+    }
+
+    // Pista de audio conocida para la serie actual, para pasarla como opcion antes de play()
+    private int cachedAudioIndex() {
+        return audioTrackCache != null ? audioTrackCache.audioIndexFor(audioTrackCacheKey()) : -1;
+    }
+
+    // Pistas de audio de la media en orden (el mismo que usa :audio-track) y su firma en layout
+    private ArrayList<IMedia.AudioTrack> collectAudioTracks(IMedia media, StringBuilder layout) {
+        ArrayList<IMedia.AudioTrack> audioTracks = new ArrayList<>();
+        int totalTracks = media.getTrackCount();
+        for (int index = 0; index < totalTracks; index++) {
+            IMedia.Track rawTrack = media.getTrack(index);
+            if (!(rawTrack instanceof IMedia.AudioTrack) || rawTrack.id == -1) {
+                continue;
+            }
+            IMedia.AudioTrack audioTrack = (IMedia.AudioTrack) rawTrack;
+            audioTracks.add(audioTrack);
+            if (layout.length() > 0) {
+                layout.append(';');
+            }
+            layout.append(AudioTrackCache.describeTrack(getAudioCodecValue(audioTrack), audioTrack.channels, audioTrack.language));
+        }
+        return audioTracks;
+    }
+
     private void ensureCompatibleAudioTrackSelection(String reason) {
         if (mediaPlayer == null || !mediaPlayer.hasMedia()) {
             return;
@@ -851,27 +1506,38 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             return;
         }
 
-        int totalTracks = media.getTrackCount();
-        if (totalTracks <= 0) {
+        StringBuilder layoutBuilder = new StringBuilder();
+        ArrayList<IMedia.AudioTrack> audioTracks;
+        try {
+            audioTracks = collectAudioTracks(media, layoutBuilder);
+        } finally {
+            media.release();
+        }
+        if (audioTracks.isEmpty()) {
             return;
         }
 
         int currentAudioTrackId = mediaPlayer.getAudioTrack();
+        String cacheKey = audioTrackCacheKey();
+        String layout = layoutBuilder.toString();
+
+        // Misma disposicion que los capitulos anteriores: la pista ya se eligio antes de play()
+        if (cacheKey != null && audioTrackCache.matches(cacheKey, layout)) {
+            int cachedIndex = audioTrackCache.audioIndexFor(cacheKey);
+            if (cachedIndex >= 0 && cachedIndex < audioTracks.size() && audioTracks.get(cachedIndex).id != currentAudioTrackId) {
+                // Player abierto sin la opcion (p.ej. precalentado por el plugin)
+                boolean switched = mediaPlayer.setAudioTrack(audioTracks.get(cachedIndex).id);
+                Log.d(TAG, "Cached audio track applied [" + reason + "] index=" + cachedIndex + ", switched=" + switched);
+            }
+            return;
+        }
+
         IMedia.AudioTrack currentAudioTrackInfo = null;
         IMedia.AudioTrack preferredAudioTrack = null;
         boolean foundAlternativeToEac3 = false;
+        String preferredLanguage = audioTrackCache.getPreferredLanguage();
 
-        for (int index = 0; index < totalTracks; index++) {
-            IMedia.Track rawTrack = media.getTrack(index);
-            if (!(rawTrack instanceof IMedia.AudioTrack)) {
-                continue;
-            }
-
-            IMedia.AudioTrack audioTrack = (IMedia.AudioTrack) rawTrack;
-            if (audioTrack.id == -1) {
-                continue;
-            }
-
+        for (IMedia.AudioTrack audioTrack : audioTracks) {
             String codecValue = getAudioCodecValue(audioTrack);
             Log.d(
                 TAG,
@@ -891,7 +1557,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             }
 
             if (preferredAudioTrack == null
-                || scoreAudioTrackForCompatibility(audioTrack) > scoreAudioTrackForCompatibility(preferredAudioTrack)) {
+                || scoreAudioTrackForCompatibility(audioTrack, preferredLanguage) > scoreAudioTrackForCompatibility(preferredAudioTrack, preferredLanguage)) {
                 preferredAudioTrack = audioTrack;
             }
         }
@@ -908,6 +1574,9 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                 && preferredAudioTrack.id != currentAudioTrackId;
         }
 
+        IMedia.AudioTrack chosenTrack = shouldSwitchTrack || currentAudioTrackInfo == null ? preferredAudioTrack : currentAudioTrackInfo;
+        audioTrackCache.remember(cacheKey, layout, audioTracks.indexOf(chosenTrack), false);
+
         if (!shouldSwitchTrack) {
             return;
         }
@@ -922,6 +1591,32 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         );
     }
 
+    // Eleccion manual desde el dialogo de pistas: se recuerda para la serie y su idioma pasa a preferido
+    private void rememberManualAudioTrack(int trackId) {
+        if (mediaPlayer == null || !mediaPlayer.hasMedia()) {
+            return;
+        }
+        IMedia media = mediaPlayer.getMedia();
+        if (media == null) {
+            return;
+        }
+        StringBuilder layoutBuilder = new StringBuilder();
+        ArrayList<IMedia.AudioTrack> audioTracks;
+        try {
+            audioTracks = collectAudioTracks(media, layoutBuilder);
+        } finally {
+            media.release();
+        }
+        for (int index = 0; index < audioTracks.size(); index++) {
+            IMedia.AudioTrack audioTrack = audioTracks.get(index);
+            if (audioTrack.id == trackId) {
+                audioTrackCache.remember(audioTrackCacheKey(), layoutBuilder.toString(), index, true);
+                audioTrackCache.setPreferredLanguage(audioTrack.language);
+                return;
+            }
+        }
+    }
+
     private int getCurrentChapterGlobalIndex() {
         if (currentVideoUrl == null || chapterUrls == null || chapterUrls.isEmpty()) {
             return -1;
@@ -929,34 +1624,30 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         return chapterUrls.indexOf(currentVideoUrl);
     }
 
-    private void appendCurrentChapterProgress(Intent progressIntent) {
-        int currentIndex = getCurrentChapterGlobalIndex();
+    private int getCurrentChapterSeasonIndex(int currentIndex) {
         if (currentIndex < 0) {
-            return;
+            return -1;
         }
-
-        int seasonIndex = -1;
-        int chapterIndex = -1;
-
         if (chapterSeasonIndices != null && currentIndex < chapterSeasonIndices.size()) {
-            seasonIndex = chapterSeasonIndices.get(currentIndex);
-        } else if (chapterSeasonNumbers != null && currentIndex < chapterSeasonNumbers.size()) {
-            seasonIndex = Math.max(0, chapterSeasonNumbers.get(currentIndex) - 1);
+            return chapterSeasonIndices.get(currentIndex);
         }
-
-        if (chapterIndices != null && currentIndex < chapterIndices.size()) {
-            chapterIndex = chapterIndices.get(currentIndex);
-        } else if (chapterNumbers != null && currentIndex < chapterNumbers.size()) {
-            chapterIndex = Math.max(0, chapterNumbers.get(currentIndex) - 1);
+        if (chapterSeasonNumbers != null && currentIndex < chapterSeasonNumbers.size()) {
+            return Math.max(0, chapterSeasonNumbers.get(currentIndex) - 1);
         }
+        return -1;
+    }
 
-        if (seasonIndex >= 0) {
-            progressIntent.putExtra("seasonIndex", seasonIndex);
+    private int getCurrentChapterIndex(int currentIndex) {
+        if (currentIndex < 0) {
+            return -1;
+        }
+        if (chapterIndices != null && currentIndex < chapterIndices.size()) {
+            return chapterIndices.get(currentIndex);
         }
-        if (chapterIndex >= 0) {
-            progressIntent.putExtra("chapterIndex", chapterIndex);
+        if (chapterNumbers != null && currentIndex < chapterNumbers.size()) {
+            return Math.max(0, chapterNumbers.get(currentIndex) - 1);
         }
-        progressIntent.putExtra("chapterGlobalIndex", currentIndex);
+        return -1;
     }
 
     private void notifyPlayerClosed(String reason) {
@@ -965,10 +1656,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         }
         hasSentPlayerClosedEvent = true;
         try {
-            Intent closedIntent = new Intent("VIDEO_PLAYER_CLOSED");
-            closedIntent.putExtra("reason", reason != null ? reason : "unknown");
-            closedIntent.setPackage(getPackageName());
-            sendBroadcast(closedIntent);
+            PlayerEventBus.post(new PlayerEventBus.Closed(reason));
             Log.d(TAG, "Player closed event sent. Reason: " + reason);
         } catch (Exception e) {
             Log.e(TAG, "Error sending player closed event", e);
@@ -988,16 +1676,18 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             // Convertir de milisegundos a segundos para consistencia con el frontend
             long currentTimeSec = currentTimeMs / 1000;
 
-            // Crear intent para enviar progreso al plugin
-            Intent progressIntent = new Intent("VIDEO_PROGRESS_UPDATE");
-            progressIntent.putExtra("currentTime", currentTimeSec);
-            progressIntent.putExtra("completed", completed);
-            progressIntent.putExtra("forceSync", forceSync);
-            appendCurrentChapterProgress(progressIntent);
-            progressIntent.setPackage(getPackageName());
-            sendBroadcast(progressIntent);
-
-            Log.d(TAG, "Progress update sent: " + currentTimeSec + "s, completed: " + completed + ", forceSync=" + forceSync + ", chapterGlobalIndex=" + getCurrentChapterGlobalIndex());
+            // Enviar progreso al plugin
+            int chapterGlobalIndex = getCurrentChapterGlobalIndex();
+            int seasonIndex = getCurrentChapterSeasonIndex(chapterGlobalIndex);
+            int chapterIndex = getCurrentChapterIndex(chapterGlobalIndex);
+            // Los canales en vivo no tienen posicion de reanudacion
+            String resumeUrl = isLiveTV ? null : currentVideoUrl;
+            if (forceSync) {
+                progressReporter.flush(resumeUrl, currentTimeMs, completed, seasonIndex, chapterIndex, chapterGlobalIndex);
+                Log.d(TAG, "Progress update sent: " + currentTimeSec + "s, completed: " + completed + ", chapterGlobalIndex=" + chapterGlobalIndex);
+            } else {
+                progressReporter.onPosition(resumeUrl, currentTimeMs, seasonIndex, chapterIndex, chapterGlobalIndex);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Error sending progress update", e);
         }
@@ -1091,50 +1781,40 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             // Persist current position (best-effort) before switching.
             if (mediaPlayer != null) {
                 try {
-                    long currentPositionMs = Math.max(0L, mediaPlayer.getTime());
+                    long currentPositionMs = cachedPositionMs();
                     if (currentPositionMs > 0) {
                         notifyProgressUpdate(currentPositionMs, false, true);
                     }
                 } catch (Exception progressErr) {
                     Log.w(TAG, "Failed to send progress before episode switch", progressErr);
                 }
-
-                try {
-                    mediaPlayer.stop();
-                } catch (Exception stopErr) {
-                    Log.w(TAG, "Failed to stop current media before episode switch", stopErr);
-                }
             }
 
             currentVideoUrl = targetUrl;
+            beginSwitchMetrics("episode_switch");
             lastPosition = 0L;
             isSeekPending = false;
             lastPlaybackPositionMs = 0L;
-
-            if (libVlc == null) {
-                libVlc = VLCInstance.getInstance(getApplicationContext());
-            }
+            mediaDurationMs = 0L;
+            MediaPlayer preopenedPlayer = takeNextEpisode(targetUrl);
+            PlaybackMetrics.putAttribute(metricsSessionId, "nextEpisodePreopened", preopenedPlayer != null);
 
             // Reuse the existing MediaPlayer to avoid heavy release/recreate cycles (reduces UI stalls/ANR).
-            if (mediaPlayer == null) {
+            if (preopenedPlayer != null) {
+                forceAudioRecoveryPending = false;
+                swapToZapPlayer(preopenedPlayer);
+                updateVideoTitleWithChapterInfo();
+            } else if (mediaPlayer == null) {
+                // Sin player aun (LibVLC cargando en frio): initializePlayer lo espera con whenReady
                 initializePlayer();
             } else {
-                recoveryHandler.removeCallbacks(stallWatchdogRunnable);
-                lastTimeChangedSystemMs = System.currentTimeMillis();
-                isRecoveringPlayback = false;
                 forceAudioRecoveryPending = false;
 
-                Media media = new Media(libVlc, Uri.parse(currentVideoUrl));
-                media.setHWDecoderEnabled(true, false);
-                media.addOption(":network-caching=1500");
-                media.addOption(":http-user-agent=VLC/3.0.0 (Linux; Android 9)");
-
-                mediaPlayer.setMedia(media);
-                media.release();
+                // stop + setMedia + play en el hilo de comandos
+                loadMediaAsync(activeSourceUrl, true);
 
                 updateVideoTitleWithChapterInfo();
-                mediaPlayer.play();
-                recoveryHandler.postDelayed(stallWatchdogRunnable, STALL_CHECK_INTERVAL_MS);
+                recovery.setWatching(true);
             }
 
             if (toastTitle != null && !toastTitle.isEmpty()) {
@@ -1165,8 +1845,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
 
     private void setupControls() {
         playPauseButton.setOnClickListener(v -> {
-            if (mediaPlayer.isPlaying()) mediaPlayer.pause();
-            else mediaPlayer.play();
+            togglePlayPause();
             hideControls();
         });
 
@@ -1349,7 +2028,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             if (isSeekBarArmed) {
                 return;
             }
-            if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+            if (isPlayerPlaying()) {
                 controlsContainer.setVisibility(View.GONE);
                 topControlsContainer.setVisibility(View.GONE);
             }
@@ -1420,17 +2099,44 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
 
     private void togglePlayPause() {
         if (mediaPlayer == null) return;
-        if (mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
+        // Se invierte ya el estado cacheado: dos pulsaciones seguidas alternan aunque el evento aun no haya llegado
+        if (playerPlaying) {
+            playerPlaying = false;
+            pauseAsync();
         } else {
-            mediaPlayer.play();
+            playerPlaying = true;
+            playAsync();
         }
     }
 
+    private boolean isPlayerPlaying() {
+        return mediaPlayer != null && playerPlaying;
+    }
+
+    private void resetPlayerState() {
+        playerPlaying = false;
+        playerVoutCount = 0;
+    }
+
     private void seekByMs(long deltaMs) {
         if (mediaPlayer == null) return;
-        long targetTime = Math.max(0L, mediaPlayer.getTime() + deltaMs);
-        mediaPlayer.setTime(targetTime);
+        seekAsync(cachedPositionMs() + deltaMs);
+    }
+
+    // Posicion del ultimo TimeChanged (o del ultimo seek pedido), sin llamar a getTime() en el hilo principal
+    private long cachedPositionMs() {
+        return Math.max(0L, lastPlaybackPositionMs);
+    }
+
+    // setTime en el hilo de comandos; varios seeks seguidos (teclas +-15s) acaban en solo el ultimo
+    private void seekAsync(long targetMs) {
+        final MediaPlayer player = mediaPlayer;
+        if (player == null) {
+            return;
+        }
+        final long safeTargetMs = Math.max(0L, targetMs);
+        lastPlaybackPositionMs = safeTargetMs;
+        playerCommands.submit(COMMAND_SEEK, () -> player.setTime(safeTargetMs));
     }
 
     private void armSeekBar() {
@@ -1440,7 +2146,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
 
         controlsHandler.removeCallbacksAndMessages(null);
         isSeekBarArmed = true;
-        pendingSeekPositionMs = Math.max(0L, mediaPlayer.getTime());
+        pendingSeekPositionMs = cachedPositionMs();
         applySeekBarPreviewState();
     }
 
@@ -1450,7 +2156,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         pendingSeekPositionMs = -1L;
 
         if ((wasArmed || restoreCurrentTime) && mediaPlayer != null) {
-            long currentPositionMs = Math.max(0L, mediaPlayer.getTime());
+            long currentPositionMs = cachedPositionMs();
             currentTime.setText(formatTime(currentPositionMs));
             seekBar.setProgress((int) currentPositionMs);
         }
@@ -1466,9 +2172,8 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         }
 
         long targetTime = clampSeekPosition(pendingSeekPositionMs);
-        mediaPlayer.setTime(targetTime);
+        seekAsync(targetTime);
         notifyProgressUpdate(targetTime, false, true);
-        lastPlaybackPositionMs = targetTime;
         currentTime.setText(formatTime(targetTime));
         seekBar.setProgress((int) targetTime);
         isSeekBarArmed = false;
@@ -1484,7 +2189,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
 
         long baseTime = pendingSeekPositionMs >= 0
                 ? pendingSeekPositionMs
-                : (mediaPlayer != null ? Math.max(0L, mediaPlayer.getTime()) : 0L);
+                : (mediaPlayer != null ? cachedPositionMs() : 0L);
         long targetTime = clampSeekPosition(baseTime + deltaMs);
 
         pendingSeekPositionMs = targetTime;
@@ -1625,8 +2330,11 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         builder.setTitle("Velocidad de Reproducción");
         builder.setSingleChoiceItems(speedLabels, currentSpeedIndex, (dialog, which) -> {
             currentSpeedIndex = which;
-            float speed = playbackSpeeds[which];
-            mediaPlayer.setRate(speed);
+            final float speed = playbackSpeeds[which];
+            final MediaPlayer player = mediaPlayer;
+            if (player != null) {
+                playerCommands.submit(COMMAND_RATE, () -> player.setRate(speed));
+            }
 
             String speedText = speedLabels[which];
             Toast.makeText(VLCPlayerActivity.this, "Velocidad: " + speedText, Toast.LENGTH_SHORT).show();
@@ -1772,6 +2480,10 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                 public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                     if (position >= 0 && position < visibleChannelIndices.size()) {
                         currentChannelSelection = visibleChannelIndices.get(position);
+                        // Canal resaltado: si estaba pre-abierto y caduco, se reabre solo ese
+                        if (zapPool != null && currentChannelSelection < channelUrls.size()) {
+                            zapPool.touch(channelUrls.get(currentChannelSelection));
+                        }
                     }
                 }
 
@@ -1934,41 +2646,26 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             // Actualizar título del video
             videoTitle.setText(newChannelName);
             currentVideoUrl = newChannelUrl;
-
-            // Detener reproducción actual
-            if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                mediaPlayer.stop();
-                Log.d(TAG, "switchChannel: Reproducción anterior detenida");
+            beginSwitchMetrics("channel_switch");
+
+            // Canal ya pre-abierto: solo hay que pasarle la superficie
+            MediaPlayer zapPlayer = zapPool != null ? zapPool.take(newChannelUrl) : null;
+            PlaybackMetrics.putAttribute(metricsSessionId, "zapHit", zapPlayer != null);
+            if (zapPlayer != null) {
+                swapToZapPlayer(zapPlayer);
+            } else if (mediaPlayer == null) {
+                // LibVLC aun cargando (arranque en frio): initializePlayer espera con whenReady y abre
+                // este canal, sin bloquear el hilo principal con getInstance()
+                initializePlayer();
+            } else {
+                // Detener, abrir y reproducir el nuevo canal en el hilo de comandos; con varios cambios
+                // seguidos solo se abre el ultimo
+                loadMediaAsync(activeSourceUrl, true);
             }
+            Log.d(TAG, "switchChannel: Nuevo canal iniciado");
 
-            // Esperar un poco para asegurar que se detuvo
-            new android.os.Handler(android.os.Looper.getMainLooper()).postDelayed(() -> {
-                try {
-                    if (libVlc == null) {
-                        libVlc = VLCInstance.getInstance(getApplicationContext());
-                    }
-
-                    // Crear nueva media
-                    Media media = new Media(libVlc, android.net.Uri.parse(newChannelUrl));
-                    media.setHWDecoderEnabled(true, false);
-                    media.addOption(":network-caching=1500");
-                    media.addOption(":http-user-agent=VLC/3.0.0 (Linux; Android 9)");
-
-                    mediaPlayer.setMedia(media);
-                    media.release();
-
-                    // Reproducir nuevo canal
-                    mediaPlayer.play();
-                    Log.d(TAG, "switchChannel: Nuevo canal iniciado");
-
-                    // Mostrar toast con el canal seleccionado
-                    Toast.makeText(VLCPlayerActivity.this, "Sintonizando: " + newChannelName, Toast.LENGTH_SHORT).show();
-
-                } catch (Exception e) {
-                    Log.e(TAG, "Error al cambiar el canal: " + e.getMessage(), e);
-                    Toast.makeText(VLCPlayerActivity.this, "Error al cambiar de canal", Toast.LENGTH_SHORT).show();
-                }
-            }, 300);
+            // Mostrar toast con el canal seleccionado
+            Toast.makeText(this, "Sintonizando: " + newChannelName, Toast.LENGTH_SHORT).show();
 
         } catch (Exception e) {
             Log.e(TAG, "Error en switchChannel: " + e.getMessage(), e);
@@ -2011,7 +2708,10 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
                 }
                 trackNames.add(trackName);
                 final int trackId = track.id;
-                trackActions.add(() -> mediaPlayer.setAudioTrack(trackId));
+                trackActions.add(() -> {
+                    mediaPlayer.setAudioTrack(trackId);
+                    rememberManualAudioTrack(trackId);
+                });
             }
         }
 
@@ -2139,19 +2839,17 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             if (currentTime - lastDoubleTapTime < DOUBLE_TAP_TIMEOUT &&
                 Math.abs(currentX - lastTapX) < DOUBLE_TAP_SLOP &&
                 Math.abs(currentY - lastTapY) < DOUBLE_TAP_SLOP &&
-                mediaPlayer != null && mediaPlayer.isPlaying()) {
+                isPlayerPlaying()) {
 
                 // Es doble tap - avanzar/retroceder
                 if (currentX < getWindow().getDecorView().getWidth() / 2) {
                     // Lado izquierdo: retroceder 15 segundos
-                    long newTime = Math.max(0, mediaPlayer.getTime() - 15000);
-                    mediaPlayer.setTime(newTime);
+                    seekAsync(cachedPositionMs() - 15000);
                     Toast.makeText(this, "⏪ -15s", Toast.LENGTH_SHORT).show();
                     Log.d(TAG, "Double tap left: rewind 15s");
                 } else {
                     // Lado derecho: avanzar 15 segundos
-                    long newTime = mediaPlayer.getTime() + 15000;
-                    mediaPlayer.setTime(newTime);
+                    seekAsync(cachedPositionMs() + 15000);
                     Toast.makeText(this, "⏩ +15s", Toast.LENGTH_SHORT).show();
                     Log.d(TAG, "Double tap right: forward 15s");
                 }
@@ -2255,142 +2953,143 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         indicatorHandler.postDelayed(hideVolumeBarRunnable, 1500);
     }
 
-    private void registerControlReceiver() {
-        controlReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("VIDEO_PLAYER_CONTROL".equals(intent.getAction())) {
-                    String action = intent.getStringExtra("action");
-                    Log.d(TAG, "Received control action: " + action);
-                    if (mediaPlayer != null) {
-                        switch (action) {
-                            case "play":
-                                mediaPlayer.play();
-                                break;
-                            case "pause":
-                                mediaPlayer.pause();
-                                break;
-                            case "stop":
-                                Log.d(TAG, "Stop command received - finishing activity");
-                                isActivityClosing = true;
-                                recoveryHandler.removeCallbacksAndMessages(null);
-                                closeReason = "stop_command";
-                                mediaPlayer.stop();
-                                finish(); // Cerrar la actividad cuando se recibe stop
-                                break;
-                            case "seek":
-                                long position = intent.getLongExtra("position", -1);
-                                if (position >= 0) {
-                                    mediaPlayer.setTime(position);
-                                }
-                                break;
+    private void registerControlListener() {
+        if (controlSubscription != null) return;
+
+        controlSubscription = PlayerEventBus.subscribe(PlayerEventBus.Control.class, event -> {
+            String action = event.action;
+            Log.d(TAG, "Received control action: " + action);
+            if (mediaPlayer != null && action != null) {
+                switch (action) {
+                    case "play":
+                        playAsync();
+                        break;
+                    case "pause":
+                        pauseAsync();
+                        break;
+                    case "stop":
+                        Log.d(TAG, "Stop command received - finishing activity");
+                        isActivityClosing = true;
+                        recoveryHandler.removeCallbacksAndMessages(null);
+                        recovery.cancel();
+                        closeReason = "stop_command";
+                        pauseAsync();
+                        finish(); // Cerrar la actividad cuando se recibe stop
+                        break;
+                    case "seek":
+                        if (event.position >= 0) {
+                            seekAsync(event.position);
                         }
-                    }
+                        break;
+                    case "getCurrentTime":
+                        if (event.requestId > 0) {
+                            int chapterGlobalIndex = getCurrentChapterGlobalIndex();
+                            PlayerEventBus.post(new PlayerEventBus.PositionReply(
+                                event.requestId,
+                                cachedPositionMs(),
+                                false,
+                                getCurrentChapterSeasonIndex(chapterGlobalIndex),
+                                getCurrentChapterIndex(chapterGlobalIndex),
+                                chapterGlobalIndex,
+                                "vlc"
+                            ));
+                        }
+                        break;
                 }
             }
-        };
-        IntentFilter filter = new IntentFilter("VIDEO_PLAYER_CONTROL");
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(controlReceiver, filter, RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(controlReceiver, filter);
-        }
+        });
     }
 
-    private void registerFinishReceiver() {
-        finishReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                String action = intent.getAction();
-                if ("FINISH_VLC_ACTIVITY".equals(action) || "FORCE_FINISH_VLC_ACTIVITY".equals(action)) {
-                    Log.d(TAG, "Received finish broadcast: " + action + " - closing activity");
-                    isActivityClosing = true;
-                    recoveryHandler.removeCallbacksAndMessages(null);
-                    closeReason = "FORCE_FINISH_VLC_ACTIVITY".equals(action) ? "force_finish_broadcast" : "finish_broadcast";
-                    // Guardar progreso antes de cerrar
-                    if (mediaPlayer != null) {
-                        notifyProgressUpdate(mediaPlayer.getTime(), false, true);
-                    }
-                    // Cerrar la actividad
-                    finish();
-                }
+    private void registerFinishListener() {
+        if (finishSubscription != null) return;
+
+        finishSubscription = PlayerEventBus.subscribe(PlayerEventBus.Finish.class, event -> {
+            Log.d(TAG, "Received finish event (force=" + event.force + ") - closing activity");
+            isActivityClosing = true;
+            recoveryHandler.removeCallbacksAndMessages(null);
+            recovery.cancel();
+            closeReason = event.force ? "force_finish_broadcast" : "finish_broadcast";
+            // Guardar progreso antes de cerrar
+            if (mediaPlayer != null) {
+                notifyProgressUpdate(cachedPositionMs(), false, true);
             }
-        };
-        IntentFilter filter = new IntentFilter();
-        filter.addAction("FINISH_VLC_ACTIVITY");
-        filter.addAction("FORCE_FINISH_VLC_ACTIVITY");
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(finishReceiver, filter, RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(finishReceiver, filter);
-        }
-        Log.d(TAG, "Finish receiver registered");
+            // Cerrar la actividad
+            finish();
+        });
+        Log.d(TAG, "Finish listener registered");
     }
 
-    private void registerLiveChannelsReceiver() {
-        if (liveChannelsReceiver != null) return;
+    private void registerLiveChannelsListener() {
+        if (liveChannelsSubscription != null) return;
 
-        liveChannelsReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                if (!"UPDATE_LIVE_CHANNELS".equals(intent.getAction())) return;
+        liveChannelsSubscription = PlayerEventBus.subscribe(
+            PlayerEventBus.ChannelsUpdated.class,
+            event -> applyLiveChannelSnapshot(PlaybackCatalogStore.get(event.snapshotId))
+        );
+    }
 
-                ArrayList<String> nextNames = intent.getStringArrayListExtra("channel_names");
-                ArrayList<String> nextLogos = intent.getStringArrayListExtra("channel_logos");
-                ArrayList<String> nextUrls = intent.getStringArrayListExtra("channel_urls");
+    // Adopta la nueva lista de canales sin reconstruir los controles. Si el snapshot es un delta sobre
+    // el actual solo se recalcula la seleccion cuando cambia el orden.
+    private void applyLiveChannelSnapshot(PlaybackCatalogStore.Snapshot snapshot) {
+        if (snapshot == null || !snapshot.hasChannels()) {
+            Log.w(TAG, "Ignoring live channel update without valid channels");
+            return;
+        }
 
-                if (nextNames == null || nextUrls == null || nextNames.isEmpty() || nextUrls.isEmpty()) {
-                    Log.w(TAG, "Ignoring live channel update without valid channels");
-                    return;
-                }
+        PlaybackCatalogStore.Snapshot previous = catalogSnapshot != null ? catalogSnapshot : PlaybackCatalogStore.empty();
+        boolean incremental = previous.isChannelBaseOf(snapshot);
+        boolean hadChannels = channelUrls != null && !channelUrls.isEmpty();
+        String currentKey = previous.channelKeyForUrl(currentChannelSelection, currentVideoUrl);
 
-                channelNames = nextNames;
-                channelLogos = nextLogos != null ? nextLogos : new ArrayList<>();
-                channelUrls = nextUrls;
-                isLiveTV = true;
-                currentChannelSelection = channelUrls.indexOf(currentVideoUrl);
-                if (currentChannelSelection < 0) currentChannelSelection = 0;
-                setupControls();
-                Log.d(TAG, "Live channels updated: " + channelNames.size());
-            }
-        };
+        PlaybackCatalogStore.swap(catalogSnapshot, snapshot);
+        catalogSnapshot = snapshot;
+        channelNames = snapshot.channelNames;
+        channelLogos = snapshot.channelLogos;
+        channelUrls = snapshot.channelUrls;
+        isLiveTV = true;
 
-        IntentFilter filter = new IntentFilter("UPDATE_LIVE_CHANNELS");
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(liveChannelsReceiver, filter, RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(liveChannelsReceiver, filter);
+        if (!incremental || snapshot.channelDelta.changesOrder()) {
+            int nextSelection = snapshot.indexOfChannelKey(currentKey);
+            if (nextSelection < 0) nextSelection = channelUrls.indexOf(currentVideoUrl);
+            currentChannelSelection = nextSelection >= 0 ? nextSelection : Math.min(Math.max(0, currentChannelSelection), channelUrls.size() - 1);
         }
-    }
 
-    private void unregisterControlReceiver() {
-        if (controlReceiver != null) {
-            unregisterReceiver(controlReceiver);
-            controlReceiver = null;
+        if (incremental
+            && snapshot.channelDelta.touches(currentKey)
+            && currentChannelSelection < channelNames.size()
+            && videoTitle != null) {
+            videoTitle.setText(channelNames.get(currentChannelSelection));
+        }
+
+        if (!hadChannels && channelsButton != null) {
+            channelsButton.setVisibility(View.VISIBLE);
+            channelsButton.setOnClickListener(v -> {
+                showLiveChannelsDialog();
+                hideControls();
+            });
         }
+
+        Log.d(TAG, "Live channels updated: " + channelUrls.size() + (incremental ? " (delta)" : " (completo)"));
     }
 
-    private void unregisterFinishReceiver() {
-        if (finishReceiver != null) {
-            try {
-                unregisterReceiver(finishReceiver);
-                finishReceiver = null;
-                Log.d(TAG, "Finish receiver unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering finish receiver", e);
-            }
+    private void unregisterControlListener() {
+        PlayerEventBus.unsubscribe(controlSubscription);
+        controlSubscription = null;
+    }
+
+    private void unregisterFinishListener() {
+        if (finishSubscription != null) {
+            PlayerEventBus.unsubscribe(finishSubscription);
+            finishSubscription = null;
+            Log.d(TAG, "Finish listener unregistered");
         }
     }
 
-    private void unregisterLiveChannelsReceiver() {
-        if (liveChannelsReceiver != null) {
-            try {
-                unregisterReceiver(liveChannelsReceiver);
-                liveChannelsReceiver = null;
-                Log.d(TAG, "Live channels receiver unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering live channels receiver", e);
-            }
+    private void unregisterLiveChannelsListener() {
+        if (liveChannelsSubscription != null) {
+            PlayerEventBus.unsubscribe(liveChannelsSubscription);
+            liveChannelsSubscription = null;
+            Log.d(TAG, "Live channels listener unregistered");
         }
     }
 
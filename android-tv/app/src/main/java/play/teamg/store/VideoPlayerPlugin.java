@@ -1,14 +1,13 @@
 package play.teamg.store;
 
 import android.app.UiModeManager;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.net.Uri;
-import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.getcapacitor.JSArray;
@@ -18,20 +17,43 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @CapacitorPlugin(name = "VideoPlayerPlugin")
 public class VideoPlayerPlugin extends Plugin {
     private static final String TAG = "VideoPlayerPlugin";
-    private BroadcastReceiver progressReceiver;
-    private BroadcastReceiver playerClosedReceiver;
+    private static final long POSITION_REQUEST_TIMEOUT_MS = 750L;
+    private PlayerEventBus.Subscription<PlayerEventBus.Progress> progressSubscription;
+    private PlayerEventBus.Subscription<PlayerEventBus.Closed> playerClosedSubscription;
     private long lastKnownCurrentTime = 0L;
     private boolean lastKnownCompleted = false;
     private int lastKnownSeasonIndex = -1;
     private int lastKnownChapterIndex = -1;
+    // Solo se lee y escribe desde payloadExecutor (playVideo y las actualizaciones de canales)
+    private volatile PlaybackCatalogStore.Snapshot catalogSnapshot;
+    // Un solo hilo: playVideo/updateLiveChannels se procesan en el orden en que llegan.
+    private final ExecutorService payloadExecutor = Executors.newSingleThreadExecutor();
+    private final HashMap<Long, PendingPositionCall> pendingPositionCalls = new HashMap<>();
+    private final Handler positionTimeoutHandler = new Handler(Looper.getMainLooper());
+    private long nextPositionRequestId = 1L;
+    private PlayerEventBus.Subscription<PlayerEventBus.PositionReply> positionReplySubscription;
+    private PlayerEventBus.Subscription<PlayerEventBus.MetricsReady> metricsSubscription;
+
+    private static final class PendingPositionCall {
+        final PluginCall call;
+        final long startedAtNanos;
+
+        PendingPositionCall(PluginCall call, long startedAtNanos) {
+            this.call = call;
+            this.startedAtNanos = startedAtNanos;
+        }
+    }
 
     @PluginMethod
     public void playVideo(PluginCall call) {
@@ -44,18 +66,25 @@ public class VideoPlayerPlugin extends Plugin {
         int seasonIndex = call.getInt("seasonIndex", -1);
         int chapterIndex = call.getInt("chapterIndex", -1);
         JSArray channelsArray = call.getArray("channels");
+        String chaptersJson = call.getString("chaptersJson");
+        String channelsJson = call.getString("channelsJson");
         Boolean isLiveTV = call.getBoolean("isLiveTV", false);
         String contentType = call.getString("contentType", "series");
+        // Canales vecinos pre-abiertos para zapping; opcional (sin valor o 0 = desactivado)
+        int zapPoolSize = call.getInt("zapPoolSize", -1);
 
         if (url == null) {
             call.reject("URL is required");
             return;
         }
+        // Fuentes alternativas del mismo contenido, en orden de preferencia
+        StreamMirrors.register(url, PlaybackPayloadParser.optStringList(call.getData(), "mirrors"));
 
-        String resolvedPlayerType = resolvePlayerType(requestedPlayerType, isLiveTV, contentType);
+        String resolvedPlayerType = resolvePlayerType(requestedPlayerType, isLiveTV, contentType, streamHints(call, url));
         boolean shouldUseExoplayer = shouldUseExoplayer(resolvedPlayerType);
         Class<?> targetActivity = shouldUseExoplayer ? ExoPlayerActivity.class : VLCPlayerActivity.class;
         String resolvedPlayerName = shouldUseExoplayer ? "ExoPlayer" : "VLC";
+        long metricsSessionId = PlaybackMetrics.begin(url, shouldUseExoplayer ? "exoplayer" : "vlc", "plugin");
 
         Log.d(TAG, "Playing video: " + url);
         Log.d(
@@ -66,203 +95,317 @@ public class VideoPlayerPlugin extends Plugin {
                 + ", resolvedPlayer=" + resolvedPlayerName
         );
 
-        Intent intent = null;
-        try {
-            intent = new Intent(getContext(), targetActivity);
-            intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
-            intent.putExtra("video_url", url);
-            intent.putExtra("video_title", title);
-            intent.putExtra("video_meta_line", metaLine);
-            intent.putExtra("start_time", startTime);
-            intent.putExtra("player_type", resolvedPlayerType);
-            intent.putExtra("season_index", seasonIndex);
-            intent.putExtra("chapter_index", chapterIndex);
-            intent.putExtra("is_live_tv", isLiveTV);
-            intent.putExtra("content_type", contentType);
-
-            if (chaptersArray != null) {
-                ArrayList<String> chapterTitles = new ArrayList<>();
-                ArrayList<String> chapterUrls = new ArrayList<>();
-                ArrayList<Integer> chapterSeasonNumbers = new ArrayList<>();
-                ArrayList<Integer> chapterNumbers = new ArrayList<>();
-                ArrayList<Integer> chapterSeasonIndices = new ArrayList<>();
-                ArrayList<Integer> chapterIndices = new ArrayList<>();
+        // Una sola conexion a la vez con el proveedor (muchas cuentas IPTV solo admiten una): el precalentado
+        // de ExoPlayer ya sondea antes de abrir y VLC detecta el formato por su cuenta, asi que el sondeo
+        // anticipado solo va cuando no hay precalentado y el motor es ExoPlayer (que lo espera antes de abrir).
+        // En directo el precalentado es opcional (prewarm: true): si el lanzamiento falla o se cancela es una
+        // conexion perdida, y en cuentas de una sola conexion la de la actividad podria ser rechazada.
+        boolean prewarm = call.getBoolean("prewarm", !Boolean.TRUE.equals(isLiveTV));
+        if (prewarm) {
+            // Empezar a abrir el stream ya; la actividad recoge el player cuando termina de arrancar.
+            prewarmPlayer(shouldUseExoplayer, url, startTime, isLiveTV);
+        } else if (shouldUseExoplayer) {
+            StreamTypeProbe.getInstance(getContext()).prefetch(StreamMirrors.sourceFor(url));
+        }
 
-                try {
-                    int currentSeason = -1;
-                    int chapterCount = 0;
-
-                    for (int i = 0; i < chaptersArray.length(); i++) {
-                        JSONObject chapter = chaptersArray.getJSONObject(i);
-                        int seasonNumber = chapter.optInt("seasonNumber", 1);
-
-                        if (seasonNumber != currentSeason) {
-                            currentSeason = seasonNumber;
-                            chapterCount = 1;
-                        } else {
-                            chapterCount++;
-                        }
-
-                        chapterTitles.add(chapter.getString("title"));
-                        chapterUrls.add(chapter.getString("url"));
-                        chapterSeasonNumbers.add(seasonNumber);
-                        chapterNumbers.add(chapterCount);
-                        chapterSeasonIndices.add(Math.max(0, chapter.optInt("seasonIndex", seasonNumber - 1)));
-                        chapterIndices.add(Math.max(0, chapter.optInt("chapterIndex", chapterCount - 1)));
-                    }
-                    intent.putStringArrayListExtra("chapter_titles", chapterTitles);
-                    intent.putStringArrayListExtra("chapter_urls", chapterUrls);
-                    intent.putIntegerArrayListExtra("chapter_season_numbers", chapterSeasonNumbers);
-                    intent.putIntegerArrayListExtra("chapter_numbers", chapterNumbers);
-                    intent.putIntegerArrayListExtra("chapter_season_indices", chapterSeasonIndices);
-                    intent.putIntegerArrayListExtra("chapter_indices", chapterIndices);
-
-                    Log.d(TAG, "Capitulos procesados - Temporadas: " + chapterSeasonNumbers + ", Numeros: " + chapterNumbers + ", Indices temporada/capitulo: " + chapterSeasonIndices + "/" + chapterIndices);
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error processing chapters", e);
-                }
+        // El parseo de listas grandes no debe bloquear el hilo del bridge de Capacitor.
+        payloadExecutor.execute(() -> {
+            // Una lista mal formada no es un fallo del motor: se sigue con esa lista vacia
+            PlaybackPayloadParser.ChapterList chapters;
+            try {
+                chapters = chaptersJson != null
+                    ? PlaybackPayloadParser.parseChapters(chaptersJson)
+                    : PlaybackPayloadParser.readChapters(chaptersArray);
+            } catch (Exception e) {
+                Log.w(TAG, "Capitulos no validos, se abre sin lista de episodios", e);
+                chapters = new PlaybackPayloadParser.ChapterList(0);
+            }
+            PlaybackPayloadParser.ChannelLineup channels;
+            try {
+                channels = channelsJson != null
+                    ? PlaybackPayloadParser.parseChannels(channelsJson)
+                    : PlaybackPayloadParser.readChannels(channelsArray);
+            } catch (Exception e) {
+                Log.w(TAG, "Canales no validos, se abre sin lista de canales", e);
+                channels = new PlaybackPayloadParser.ChannelLineup(0);
             }
+            Log.d(TAG, "Capitulos procesados: " + chapters.size() + ", canales procesados: " + channels.size()
+                + (channels.skipped > 0 ? " (" + channels.skipped + " sin URL)" : ""));
+
+            catalogSnapshot = PlaybackCatalogStore.publish(
+                chapters.titles,
+                chapters.urls,
+                chapters.seasonNumbers,
+                chapters.numbers,
+                chapters.seasonIndices,
+                chapters.indices,
+                channels.ids,
+                channels.names,
+                channels.logos,
+                channels.urls
+            );
+            final PlaybackCatalogStore.Snapshot snapshot = catalogSnapshot;
+
+            // El motor alternativo solo entra si no se pudo arrancar la actividad elegida
+            try {
+                Intent intent = buildPlayerIntent(targetActivity, resolvedPlayerType, url, title, metaLine, startTime,
+                    seasonIndex, chapterIndex, isLiveTV, contentType, metricsSessionId, zapPoolSize);
+                PlaybackCatalogStore.attach(intent, snapshot);
+                getActivity().startActivity(intent);
 
-            if (channelsArray != null && channelsArray.length() > 0) {
-                ArrayList<String> channelNames = new ArrayList<>();
-                ArrayList<String> channelLogos = new ArrayList<>();
-                ArrayList<String> channelUrls = new ArrayList<>();
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("message", resolvedPlayerName + " started");
+                call.resolve(result);
 
-                try {
-                    for (int i = 0; i < channelsArray.length(); i++) {
-                        JSONObject channel = channelsArray.getJSONObject(i);
-                        String channelUrl = channel.optString("url", "");
-                        if (channelUrl.isEmpty()) channelUrl = channel.optString("streamUrl", "");
-                        if (channelUrl.isEmpty()) channelUrl = channel.optString("stream_url", "");
-                        if (channelUrl.isEmpty()) channelUrl = channel.optString("playbackUrl", "");
-                        if (channelUrl.isEmpty()) channelUrl = channel.optString("videoUrl", "");
-                        if (channelUrl.isEmpty()) {
-                            Log.w(TAG, "Skipping live channel without URL at index " + i);
-                            continue;
-                        }
-
-                        String channelName = channel.optString("name", channel.optString("title", "Canal"));
-                        channelNames.add(channelName);
-                        channelLogos.add(channel.optString("logo", ""));
-                        channelUrls.add(channelUrl);
-                    }
-                    intent.putStringArrayListExtra("channel_names", channelNames);
-                    intent.putStringArrayListExtra("channel_logos", channelLogos);
-                    intent.putStringArrayListExtra("channel_urls", channelUrls);
+            } catch (Exception e) {
+                Log.e(TAG, "Error starting " + resolvedPlayerName, e);
+                // El player precalentado era del otro motor.
+                PlaybackPrewarmer.discard();
 
-                    Log.d(TAG, "Canales procesados - Total: " + channelNames.size() + " canales");
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error processing live channels", e);
+                try {
+                    String fallbackPlayerType = shouldUseExoplayer ? "android-vlc" : "android-exoplayer";
+                    Class<?> fallbackActivity = shouldUseExoplayer ? VLCPlayerActivity.class : ExoPlayerActivity.class;
+                    String fallbackPlayerName = shouldUseExoplayer ? "VLC" : "ExoPlayer";
+                    Intent fallbackIntent = buildPlayerIntent(fallbackActivity, fallbackPlayerType, url, title, metaLine,
+                        startTime, seasonIndex, chapterIndex, isLiveTV, contentType, metricsSessionId, zapPoolSize);
+                    PlaybackCatalogStore.attach(fallbackIntent, snapshot);
+
+                    getActivity().startActivity(fallbackIntent);
+
+                    JSObject result = new JSObject();
+                    result.put("success", true);
+                    result.put("message", fallbackPlayerName + " started (fallback)");
+                    call.resolve(result);
+
+                } catch (Exception fallbackError) {
+                    Log.e(TAG, "Error starting fallback player", fallbackError);
+                    call.reject("Error starting video player: " + fallbackError.getMessage());
                 }
             }
+        });
+    }
 
-            getActivity().startActivity(intent);
+    private Intent buildPlayerIntent(
+        Class<?> activityClass,
+        String playerType,
+        String url,
+        String title,
+        String metaLine,
+        Long startTime,
+        int seasonIndex,
+        int chapterIndex,
+        Boolean isLiveTV,
+        String contentType,
+        long metricsSessionId,
+        int zapPoolSize
+    ) {
+        Intent intent = new Intent(getContext(), activityClass);
+        intent.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        intent.putExtra("video_url", url);
+        intent.putExtra("video_title", title);
+        intent.putExtra("video_meta_line", metaLine);
+        intent.putExtra("start_time", startTime);
+        intent.putExtra("player_type", playerType);
+        intent.putExtra("season_index", seasonIndex);
+        intent.putExtra("chapter_index", chapterIndex);
+        intent.putExtra("is_live_tv", isLiveTV);
+        intent.putExtra("content_type", contentType);
+        intent.putExtra(PlaybackMetrics.EXTRA_SESSION_ID, metricsSessionId);
+        intent.putExtra("zap_pool_size", zapPoolSize);
+        return intent;
+    }
 
-            JSObject result = new JSObject();
-            result.put("success", true);
-            result.put("message", resolvedPlayerName + " started");
-            call.resolve(result);
+    // Precalienta el reproductor sin lanzar la actividad (p.ej. al enfocar un contenido en la UI).
+    @PluginMethod
+    public void preparePlayback(PluginCall call) {
+        String url = call.getString("url");
+        if (url == null) {
+            call.reject("URL is required");
+            return;
+        }
+        Boolean isLiveTV = call.getBoolean("isLiveTV", false);
+        String contentType = call.getString("contentType", "series");
+        String resolvedPlayerType = resolvePlayerType(
+            call.getString("playerType", ""),
+            isLiveTV,
+            contentType,
+            streamHints(call, url)
+        );
+        boolean shouldUseExoplayer = shouldUseExoplayer(resolvedPlayerType);
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error starting " + resolvedPlayerName, e);
+        // Sin sondeo aparte: el precalentado de ExoPlayer sondea antes de abrir (una conexion cada vez)
+        prewarmPlayer(shouldUseExoplayer, url, call.getLong("startTime", 0L), isLiveTV);
 
-            try {
-                String fallbackPlayerType = shouldUseExoplayer ? "android-vlc" : "android-exoplayer";
-                Class<?> fallbackActivity = shouldUseExoplayer ? VLCPlayerActivity.class : ExoPlayerActivity.class;
-                String fallbackPlayerName = shouldUseExoplayer ? "VLC" : "ExoPlayer";
-                Intent fallbackIntent = new Intent(getContext(), fallbackActivity);
-                fallbackIntent.putExtra("video_url", url);
-                fallbackIntent.putExtra("video_title", title);
-                fallbackIntent.putExtra("video_meta_line", metaLine);
-                fallbackIntent.putExtra("start_time", startTime);
-                fallbackIntent.putExtra("player_type", fallbackPlayerType);
-                fallbackIntent.putExtra("season_index", seasonIndex);
-                fallbackIntent.putExtra("chapter_index", chapterIndex);
-                fallbackIntent.putExtra("is_live_tv", isLiveTV);
-                fallbackIntent.putExtra("content_type", contentType);
-
-                if (chaptersArray != null) {
-                    fallbackIntent.putStringArrayListExtra("chapter_titles", intent.getStringArrayListExtra("chapter_titles"));
-                    fallbackIntent.putStringArrayListExtra("chapter_urls", intent.getStringArrayListExtra("chapter_urls"));
-                    fallbackIntent.putIntegerArrayListExtra("chapter_season_numbers", intent.getIntegerArrayListExtra("chapter_season_numbers"));
-                    fallbackIntent.putIntegerArrayListExtra("chapter_numbers", intent.getIntegerArrayListExtra("chapter_numbers"));
-                    fallbackIntent.putIntegerArrayListExtra("chapter_season_indices", intent.getIntegerArrayListExtra("chapter_season_indices"));
-                    fallbackIntent.putIntegerArrayListExtra("chapter_indices", intent.getIntegerArrayListExtra("chapter_indices"));
-                }
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("player", shouldUseExoplayer ? "ExoPlayer" : "VLC");
+        call.resolve(result);
+    }
 
-                if (channelsArray != null) {
-                    fallbackIntent.putStringArrayListExtra("channel_names", intent.getStringArrayListExtra("channel_names"));
-                    fallbackIntent.putStringArrayListExtra("channel_logos", intent.getStringArrayListExtra("channel_logos"));
-                    fallbackIntent.putStringArrayListExtra("channel_urls", intent.getStringArrayListExtra("channel_urls"));
-                }
+    private void prewarmPlayer(boolean useExoplayer, String url, Long startTime, Boolean isLiveTV) {
+        long startTimeSec = startTime != null ? Math.max(0L, startTime) : 0L;
+        if (useExoplayer) {
+            PlaybackPrewarmer.prepareExo(getContext(), url, startTimeSec, Boolean.TRUE.equals(isLiveTV));
+        } else {
+            PlaybackPrewarmer.prepareVlc(getContext(), url, startTimeSec, Boolean.TRUE.equals(isLiveTV));
+        }
+    }
 
-                getActivity().startActivity(fallbackIntent);
+    @PluginMethod
+    public void updateLiveChannels(PluginCall call) {
+        JSArray channelsArray = call.getArray("channels");
+        String channelsJson = call.getString("channelsJson");
 
-                JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("message", fallbackPlayerName + " started (fallback)");
-                call.resolve(result);
+        payloadExecutor.execute(() -> {
+            try {
+                PlaybackPayloadParser.ChannelLineup channels = channelsJson != null
+                    ? PlaybackPayloadParser.parseChannels(channelsJson)
+                    : PlaybackPayloadParser.readChannels(channelsArray);
+
+                PlaybackCatalogStore.Snapshot base = currentCatalogSnapshot();
+                LiveChannelDelta delta = LiveChannelDelta.compute(
+                    base.id,
+                    base.channelIds,
+                    base.channelNames,
+                    base.channelLogos,
+                    base.channelUrls,
+                    channels.ids,
+                    channels.names,
+                    channels.logos,
+                    channels.urls
+                );
+
+                // Sin cambios: no se molesta al reproductor.
+                if (!delta.isEmpty()) {
+                    publishLiveChannels(base, channels.ids, channels.names, channels.logos, channels.urls, delta);
+                }
 
-            } catch (Exception fallbackError) {
-                Log.e(TAG, "Error starting fallback player", fallbackError);
-                call.reject("Error starting video player: " + fallbackError.getMessage());
+                call.resolve(buildLiveChannelsResult(delta, channels.size()));
+            } catch (Exception e) {
+                Log.e(TAG, "Error updating live channels", e);
+                call.reject("Error updating live channels: " + e.getMessage());
             }
-        }
+        });
     }
 
+    // Aplica operaciones add/remove/move/rename sobre la lista actual sin reenviar la grilla completa.
     @PluginMethod
-    public void updateLiveChannels(PluginCall call) {
-        JSArray channelsArray = call.getArray("channels");
-        ArrayList<String> channelNames = new ArrayList<>();
-        ArrayList<String> channelLogos = new ArrayList<>();
-        ArrayList<String> channelUrls = new ArrayList<>();
+    public void applyLiveChannelDelta(PluginCall call) {
+        JSArray operationsArray = call.getArray("operations");
+        if (operationsArray == null) {
+            call.reject("operations is required");
+            return;
+        }
 
-        try {
-            if (channelsArray != null) {
-                for (int i = 0; i < channelsArray.length(); i++) {
-                    JSONObject channel = channelsArray.getJSONObject(i);
-                    String channelUrl = channel.optString("url", "");
-                    if (channelUrl.isEmpty()) channelUrl = channel.optString("streamUrl", "");
-                    if (channelUrl.isEmpty()) channelUrl = channel.optString("stream_url", "");
-                    if (channelUrl.isEmpty()) channelUrl = channel.optString("playbackUrl", "");
-                    if (channelUrl.isEmpty()) channelUrl = channel.optString("videoUrl", "");
-                    if (channelUrl.isEmpty()) {
+        payloadExecutor.execute(() -> {
+            try {
+                ArrayList<LiveChannelDelta.Operation> operations = new ArrayList<>();
+                for (int i = 0; i < operationsArray.length(); i++) {
+                    JSONObject operation = operationsArray.getJSONObject(i);
+                    LiveChannelDelta.Type type = parseDeltaType(operation.optString("op", operation.optString("type", "")));
+                    if (type == null) {
+                        Log.w(TAG, "Operacion de canal desconocida en indice " + i + ": " + operation);
                         continue;
                     }
 
-                    String channelName = channel.optString("name", channel.optString("title", "Canal"));
-                    channelNames.add(channelName);
-                    channelLogos.add(channel.optString("logo", ""));
-                    channelUrls.add(channelUrl);
+                    String id = operation.has("id") ? operation.optString("id", "") : null;
+                    String url = operation.has("url") ? operation.optString("url", "") : null;
+                    if (url != null && operation.has("mirrors")) {
+                        StreamMirrors.register(url, PlaybackPayloadParser.optStringList(operation, "mirrors"));
+                    }
+                    String key = operation.has("key")
+                        ? operation.optString("key", "")
+                        : LiveChannelDelta.channelKey(id, operation.optString("matchUrl", url));
+                    operations.add(new LiveChannelDelta.Operation(
+                        type,
+                        key,
+                        operation.optInt("index", Integer.MAX_VALUE),
+                        id,
+                        operation.has("name") ? operation.optString("name", "Canal") : null,
+                        operation.has("logo") ? operation.optString("logo", "") : null,
+                        url
+                    ));
                 }
+
+                PlaybackCatalogStore.Snapshot base = currentCatalogSnapshot();
+                LiveChannelDelta delta = LiveChannelDelta.of(base.id, operations);
+                ArrayList<String> channelIds = new ArrayList<>(base.channelIds);
+                ArrayList<String> channelNames = new ArrayList<>(base.channelNames);
+                ArrayList<String> channelLogos = new ArrayList<>(base.channelLogos);
+                ArrayList<String> channelUrls = new ArrayList<>(base.channelUrls);
+                delta.applyTo(channelIds, channelNames, channelLogos, channelUrls);
+
+                if (!delta.isEmpty()) {
+                    publishLiveChannels(base, channelIds, channelNames, channelLogos, channelUrls, delta);
+                }
+
+                call.resolve(buildLiveChannelsResult(delta, channelUrls.size()));
+            } catch (Exception e) {
+                Log.e(TAG, "Error applying live channel delta", e);
+                call.reject("Error applying live channel delta: " + e.getMessage());
             }
+        });
+    }
+
+    private PlaybackCatalogStore.Snapshot currentCatalogSnapshot() {
+        if (catalogSnapshot != null) {
+            return catalogSnapshot;
+        }
+        PlaybackCatalogStore.Snapshot latest = PlaybackCatalogStore.latest();
+        return latest != null ? latest : PlaybackCatalogStore.empty();
+    }
 
-            Intent intent = new Intent("UPDATE_LIVE_CHANNELS");
-            intent.setPackage(getContext().getPackageName());
-            intent.putStringArrayListExtra("channel_names", channelNames);
-            intent.putStringArrayListExtra("channel_logos", channelLogos);
-            intent.putStringArrayListExtra("channel_urls", channelUrls);
-            getContext().sendBroadcast(intent);
+    // El evento solo lleva ids de snapshot; el reproductor toma las listas del store.
+    private void publishLiveChannels(
+        PlaybackCatalogStore.Snapshot base,
+        ArrayList<String> channelIds,
+        ArrayList<String> channelNames,
+        ArrayList<String> channelLogos,
+        ArrayList<String> channelUrls,
+        LiveChannelDelta delta
+    ) {
+        catalogSnapshot = PlaybackCatalogStore.publishChannels(base, channelIds, channelNames, channelLogos, channelUrls, delta);
+        Log.d(TAG, "Canales actualizados (snapshot " + base.id + " -> " + catalogSnapshot.id + "): +"
+            + delta.count(LiveChannelDelta.Type.ADD) + " -" + delta.count(LiveChannelDelta.Type.REMOVE)
+            + " ~" + delta.count(LiveChannelDelta.Type.MOVE) + " *" + delta.count(LiveChannelDelta.Type.RENAME));
+
+        PlayerEventBus.post(new PlayerEventBus.ChannelsUpdated(catalogSnapshot.id, base.id));
+    }
 
-            JSObject result = new JSObject();
-            result.put("success", true);
-            result.put("count", channelNames.size());
-            call.resolve(result);
-        } catch (Exception e) {
-            Log.e(TAG, "Error updating live channels", e);
-            call.reject("Error updating live channels: " + e.getMessage());
+    private JSObject buildLiveChannelsResult(LiveChannelDelta delta, int count) {
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("count", count);
+        result.put("snapshotId", catalogSnapshot != null ? catalogSnapshot.id : 0L);
+        result.put("added", delta.count(LiveChannelDelta.Type.ADD));
+        result.put("removed", delta.count(LiveChannelDelta.Type.REMOVE));
+        result.put("moved", delta.count(LiveChannelDelta.Type.MOVE));
+        result.put("renamed", delta.count(LiveChannelDelta.Type.RENAME));
+        return result;
+    }
+
+    private LiveChannelDelta.Type parseDeltaType(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "add":
+                return LiveChannelDelta.Type.ADD;
+            case "remove":
+                return LiveChannelDelta.Type.REMOVE;
+            case "move":
+                return LiveChannelDelta.Type.MOVE;
+            case "rename":
+            case "update":
+                return LiveChannelDelta.Type.RENAME;
+            default:
+                return null;
         }
     }
 
     private void sendPlayerControl(String action, long position) {
-        Context context = getContext();
-        Intent intent = new Intent("VIDEO_PLAYER_CONTROL");
-        intent.putExtra("action", action);
-        if (position > 0) {
-            intent.putExtra("position", position);
-        }
-        intent.setPackage(context.getPackageName());
-        context.sendBroadcast(intent);
+        PlayerEventBus.post(new PlayerEventBus.Control(action, position > 0 ? position : -1L));
     }
 
     @PluginMethod
@@ -280,14 +423,8 @@ public class VideoPlayerPlugin extends Plugin {
 
         sendPlayerControl("stop", 0);
 
-        try {
-            Intent finishIntent = new Intent("FINISH_VLC_ACTIVITY");
-            finishIntent.setPackage(getContext().getPackageName());
-            getContext().sendBroadcast(finishIntent);
-            Log.d(TAG, "Sent FINISH_VLC_ACTIVITY broadcast");
-        } catch (Exception e) {
-            Log.e(TAG, "Error sending finish broadcast", e);
-        }
+        PlayerEventBus.post(new PlayerEventBus.Finish(false));
+        Log.d(TAG, "Sent finish event");
 
         JSObject result = new JSObject();
         result.put("success", true);
@@ -301,10 +438,8 @@ public class VideoPlayerPlugin extends Plugin {
         sendPlayerControl("stop", 0);
 
         try {
-            Intent finishIntent = new Intent("FORCE_FINISH_VLC_ACTIVITY");
-            finishIntent.setPackage(getContext().getPackageName());
-            getContext().sendBroadcast(finishIntent);
-            Log.d(TAG, "Sent FORCE_FINISH_VLC_ACTIVITY broadcast");
+            PlayerEventBus.post(new PlayerEventBus.Finish(true));
+            Log.d(TAG, "Sent force finish event");
 
             Intent closeIntent = new Intent(getContext(), VLCPlayerActivity.class);
             closeIntent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -331,10 +466,65 @@ public class VideoPlayerPlugin extends Plugin {
         call.resolve(result);
     }
 
+    // Pide la posicion exacta al reproductor activo y responde cuando contesta; si no contesta a tiempo
+    // se usa el ultimo progreso conocido.
     @PluginMethod
     public void getCurrentTime(PluginCall call) {
-        sendPlayerControl("getCurrentTime", 0);
+        final long requestId;
+        synchronized (pendingPositionCalls) {
+            requestId = nextPositionRequestId++;
+            pendingPositionCalls.put(requestId, new PendingPositionCall(call, System.nanoTime()));
+        }
 
+        if (!PlayerEventBus.post(new PlayerEventBus.Control("getCurrentTime", -1L, requestId))) {
+            resolvePositionFromCache(requestId, "no_player");
+            return;
+        }
+        positionTimeoutHandler.postDelayed(() -> resolvePositionFromCache(requestId, "timeout"), POSITION_REQUEST_TIMEOUT_MS);
+    }
+
+    private void resolvePositionReply(PlayerEventBus.PositionReply reply) {
+        PendingPositionCall pending;
+        synchronized (pendingPositionCalls) {
+            pending = pendingPositionCalls.remove(reply.requestId);
+        }
+        if (pending == null) {
+            Log.d(TAG, "Respuesta de posicion tardia ignorada: " + reply.requestId);
+            return;
+        }
+
+        long roundTripMs = (System.nanoTime() - pending.startedAtNanos) / 1_000_000L;
+        lastKnownCurrentTime = Math.max(0L, reply.positionMs / 1000L);
+        lastKnownCompleted = reply.completed;
+        if (reply.seasonIndex >= 0) lastKnownSeasonIndex = reply.seasonIndex;
+        if (reply.chapterIndex >= 0) lastKnownChapterIndex = reply.chapterIndex;
+
+        JSObject result = buildCurrentTimeResult(reply.requestId, "player", roundTripMs);
+        result.put("currentTimeMs", Math.max(0L, reply.positionMs));
+        if (reply.player != null) {
+            result.put("player", reply.player);
+        }
+        Log.d(TAG, "getCurrentTime " + reply.requestId + " = " + reply.positionMs + "ms (" + reply.player + ", rtt " + roundTripMs + "ms)");
+        pending.call.resolve(result);
+    }
+
+    private void resolvePositionFromCache(long requestId, String reason) {
+        PendingPositionCall pending;
+        synchronized (pendingPositionCalls) {
+            pending = pendingPositionCalls.remove(requestId);
+        }
+        if (pending == null) {
+            return;
+        }
+
+        long roundTripMs = (System.nanoTime() - pending.startedAtNanos) / 1_000_000L;
+        Log.w(TAG, "getCurrentTime " + requestId + " sin respuesta del reproductor (" + reason + "), usando cache");
+        JSObject result = buildCurrentTimeResult(requestId, "cache", roundTripMs);
+        result.put("fallbackReason", reason);
+        pending.call.resolve(result);
+    }
+
+    private JSObject buildCurrentTimeResult(long requestId, String source, long roundTripMs) {
         JSObject result = new JSObject();
         result.put("currentTime", lastKnownCurrentTime);
         result.put("completed", lastKnownCompleted);
@@ -344,22 +534,265 @@ public class VideoPlayerPlugin extends Plugin {
         if (lastKnownChapterIndex >= 0) {
             result.put("chapterIndex", lastKnownChapterIndex);
         }
+        result.put("requestId", requestId);
+        result.put("source", source);
+        result.put("roundTripMs", roundTripMs);
+        result.put("success", true);
+        return result;
+    }
+
+    // Posiciones guardadas en el diario local, para reconstruir "seguir viendo" sin ir al backend.
+    @PluginMethod
+    public void getResumePositions(PluginCall call) {
+        JSArray urlsArray = call.getArray("urls");
+        int limit = call.getInt("limit", 0);
+        ArrayList<String> urls = new ArrayList<>();
+        if (urlsArray != null) {
+            for (int i = 0; i < urlsArray.length(); i++) {
+                String url = urlsArray.optString(i, "");
+                if (!url.isEmpty()) {
+                    urls.add(url);
+                }
+            }
+        }
+
+        ResumeJournal.getInstance(getContext()).lookup(urls, entries -> {
+            JSArray positions = new JSArray();
+            int count = limit > 0 ? Math.min(limit, entries.size()) : entries.size();
+            for (int i = 0; i < count; i++) {
+                ResumeJournal.Entry entry = entries.get(i);
+                JSObject position = new JSObject();
+                position.put("url", entry.url);
+                position.put("currentTime", entry.positionMs / 1000L);
+                position.put("positionMs", entry.positionMs);
+                position.put("completed", entry.completed);
+                position.put("updatedAt", entry.updatedAtMs);
+                if (entry.seasonIndex >= 0) {
+                    position.put("seasonIndex", entry.seasonIndex);
+                }
+                if (entry.chapterIndex >= 0) {
+                    position.put("chapterIndex", entry.chapterIndex);
+                }
+                if (entry.chapterGlobalIndex >= 0) {
+                    position.put("chapterGlobalIndex", entry.chapterGlobalIndex);
+                }
+                positions.put(position);
+            }
+
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("count", count);
+            result.put("positions", positions);
+            call.resolve(result);
+        });
+    }
+
+    // Tiempos de arranque de las ultimas sesiones y resumen p50/p95 (total y por motor)
+    @PluginMethod
+    public void getPlaybackMetrics(PluginCall call) {
+        int limit = call.getInt("limit", 20);
+        JSArray sessions = new JSArray();
+        for (PlaybackMetrics.Session session : PlaybackMetrics.recent(limit)) {
+            sessions.put(buildMetricsSession(session));
+        }
+
+        JSObject summary = buildMetricsSummary(null);
+        JSObject byEngine = new JSObject();
+        for (String engine : PlaybackMetrics.countByEngine().keySet()) {
+            if (engine != null) {
+                byEngine.put(engine, buildMetricsSummary(engine));
+            }
+        }
+        summary.put("byEngine", byEngine);
+        // Primer frame de VLC con LibVLC ya precalentado frente a arranque en frio
+        JSObject libVlcStart = new JSObject();
+        libVlcStart.put("warm", buildFirstFramePercentiles("vlc", "libVlcWarm", "true"));
+        libVlcStart.put("cold", buildFirstFramePercentiles("vlc", "libVlcWarm", "false"));
+        summary.put("libVlcStart", libVlcStart);
+
+        JSArray mirrors = new JSArray();
+        for (StreamMirrors.SourceStats source : StreamMirrors.stats()) {
+            JSObject mirror = new JSObject();
+            mirror.put("url", source.url);
+            mirror.put("attempts", source.attempts);
+            mirror.put("wins", source.wins);
+            mirror.put("winRate", source.winRate());
+            mirrors.put(mirror);
+        }
+
+        DecoderCapabilities capabilities = DecoderCapabilities.getInstance(getContext());
+        JSObject decoders = new JSObject();
+        decoders.put("ready", capabilities.isReady());
+        decoders.put("mimeTypes", new JSArray(capabilities.mimeTypes()));
+        decoders.put("dolbyAudio", capabilities.supportsDolbyAudio());
+
+        JSObject result = new JSObject();
+        result.put("sessions", sessions);
+        result.put("summary", summary);
+        result.put("mirrors", mirrors);
+        result.put("decoders", decoders);
+        result.put("vodCache", buildVodCacheStats(VodMediaCache.getInstance(getContext()).stats()));
+        JSObject loadControl = new JSObject();
+        loadControl.put("tier", ExoLoadBudget.resolveTier(getContext()));
+        loadControl.put("live", buildLoadBudget(ExoLoadBudget.resolve(getContext(), true)));
+        loadControl.put("vod", buildLoadBudget(ExoLoadBudget.resolve(getContext(), false)));
+        result.put("loadControl", loadControl);
+
+        MediaHttpClient.Stats httpStats = MediaHttpClient.stats();
+        JSObject http = new JSObject();
+        http.put("calls", httpStats.calls);
+        http.put("connectionsAcquired", httpStats.connectionsAcquired);
+        http.put("newConnections", httpStats.newConnections);
+        http.put("reuseRatio", httpStats.reuseRatio());
+        http.put("http2", httpStats.http2Acquired);
+        http.put("pooledConnections", httpStats.pooledConnections);
+        http.put("idleConnections", httpStats.idleConnections);
+        result.put("http", http);
+        call.resolve(result);
+    }
+
+    // Vacia la cache en disco de VOD (I/O fuera del hilo del bridge) y devuelve las estadisticas resultantes
+    @PluginMethod
+    public void purgeVodCache(PluginCall call) {
+        payloadExecutor.execute(() -> call.resolve(buildVodCacheStats(VodMediaCache.getInstance(getContext()).purge())));
+    }
+
+    // Cuota de la cache de VOD en MB; se guarda y se aplica a las siguientes escrituras
+    @PluginMethod
+    public void setVodCacheQuota(PluginCall call) {
+        Integer maxMb = call.getInt("maxMb");
+        if (maxMb == null || maxMb <= 0) {
+            call.reject("maxMb is required");
+            return;
+        }
+        VodMediaCache cache = VodMediaCache.getInstance(getContext());
+        cache.setMaxBytes(maxMb * 1024L * 1024L);
+        call.resolve(buildVodCacheStats(cache.stats()));
+    }
+
+    // Timeouts propios para un proveedor lento (connectTimeoutMs/readTimeoutMs <= 0 vuelven al valor por defecto)
+    @PluginMethod
+    public void setHttpHostTimeouts(PluginCall call) {
+        String host = call.getString("host");
+        if (host == null || host.isEmpty()) {
+            call.reject("host is required");
+            return;
+        }
+        MediaHttpClient.setHostTimeouts(
+            getContext(),
+            host,
+            call.getInt("connectTimeoutMs", 0),
+            call.getInt("readTimeoutMs", 0)
+        );
+        JSObject result = new JSObject();
         result.put("success", true);
         call.resolve(result);
     }
 
+    private JSObject buildLoadBudget(ExoLoadBudget budget) {
+        JSObject data = new JSObject();
+        data.put("name", budget.name);
+        data.put("minBufferMs", budget.minBufferMs);
+        data.put("maxBufferMs", budget.maxBufferMs);
+        data.put("bufferForPlaybackMs", budget.bufferForPlaybackMs);
+        data.put("bufferForPlaybackAfterRebufferMs", budget.bufferForPlaybackAfterRebufferMs);
+        data.put("backBufferMs", budget.backBufferMs);
+        data.put("targetBufferBytes", budget.targetBufferBytes);
+        return data;
+    }
+
+    private JSObject buildVodCacheStats(VodMediaCache.Stats stats) {
+        JSObject data = new JSObject();
+        data.put("enabled", stats.enabled);
+        data.put("sizeBytes", stats.cacheSizeBytes);
+        data.put("maxBytes", stats.maxBytes);
+        data.put("hitRatio", stats.hitRatio());
+        data.put("bytesSaved", stats.cachedBytesRead);
+        data.put("networkBytes", stats.networkBytesRead);
+        data.put("ignoredReads", stats.ignoredReads);
+        return data;
+    }
+
+    private JSObject buildMetricsSession(PlaybackMetrics.Session session) {
+        JSObject phases = new JSObject();
+        for (int phase = 0; phase < PlaybackMetrics.PHASE_NAMES.length; phase++) {
+            long offsetMs = session.phaseOffsetMs(phase);
+            if (offsetMs >= 0) {
+                phases.put(PlaybackMetrics.PHASE_NAMES[phase], offsetMs);
+            }
+        }
+        JSObject attributes = new JSObject();
+        for (Map.Entry<String, String> attribute : session.attributes.entrySet()) {
+            attributes.put(attribute.getKey(), attribute.getValue());
+        }
+
+        JSObject data = new JSObject();
+        data.put("sessionId", session.id);
+        data.put("url", session.url);
+        data.put("engine", session.engine);
+        data.put("trigger", session.trigger);
+        data.put("outcome", session.outcome);
+        data.put("startedAt", session.startedAtWallMs);
+        data.put("timeToFirstFrameMs", session.timeToFirstFrameMs());
+        data.put("phases", phases);
+        data.put("attributes", attributes);
+        return data;
+    }
+
+    private JSObject buildFirstFramePercentiles(String engine, String attributeKey, String attributeValue) {
+        JSObject percentiles = new JSObject();
+        percentiles.put("p50", PlaybackMetrics.percentile(engine, attributeKey, attributeValue, PlaybackMetrics.PHASE_FIRST_FRAME, 50));
+        percentiles.put("p95", PlaybackMetrics.percentile(engine, attributeKey, attributeValue, PlaybackMetrics.PHASE_FIRST_FRAME, 95));
+        return percentiles;
+    }
+
+    private JSObject buildMetricsSummary(String engine) {
+        JSObject summary = new JSObject();
+        for (int phase = PlaybackMetrics.PHASE_ACTIVITY_CREATED; phase < PlaybackMetrics.PHASE_NAMES.length; phase++) {
+            JSObject percentiles = new JSObject();
+            percentiles.put("p50", PlaybackMetrics.percentile(engine, phase, 50));
+            percentiles.put("p95", PlaybackMetrics.percentile(engine, phase, 95));
+            summary.put(PlaybackMetrics.PHASE_NAMES[phase], percentiles);
+        }
+        return summary;
+    }
+
+    @Override
+    public void load() {
+        super.load();
+        // Copia en disco del catalogo para actividades recreadas tras la muerte del proceso
+        PlaybackCatalogStore.init(getContext());
+        // Cargar el diario de reanudacion en segundo plano antes de que se necesite
+        ResumeJournal.getInstance(getContext());
+        // Sondeo de decoders (o lectura de la cache) antes del primer playVideo
+        DecoderCapabilities.getInstance(getContext());
+        // Tipos de stream ya sondeados (por patron de URL)
+        StreamTypeProbe.getInstance(getContext());
+        // Abrir la cache de VOD en disco antes del primer VOD (hasta entonces se reproduce sin cache)
+        VodMediaCache.getInstance(getContext());
+        // Las respuestas de posicion se escuchan durante toda la vida del plugin: el reproductor suele
+        // estar en primer plano con la actividad principal detenida.
+        positionReplySubscription = PlayerEventBus.subscribe(PlayerEventBus.PositionReply.class, this::resolvePositionReply);
+        metricsSubscription = PlayerEventBus.subscribe(
+            PlayerEventBus.MetricsReady.class,
+            event -> notifyListeners("playbackMetrics", buildMetricsSession(event.session))
+        );
+    }
+
     @Override
     protected void handleOnStart() {
         super.handleOnStart();
-        registerProgressReceiver();
-        registerPlayerClosedReceiver();
+        registerProgressListener();
+        registerPlayerClosedListener();
+        // Progreso que el reproductor emitio mientras MainActivity estaba detenida
+        ProgressReporter.replayPending();
     }
 
     @Override
     protected void handleOnStop() {
         super.handleOnStop();
-        unregisterProgressReceiver();
-        unregisterPlayerClosedReceiver();
+        unregisterProgressListener();
+        unregisterPlayerClosedListener();
     }
 
     @Override
@@ -368,107 +801,81 @@ public class VideoPlayerPlugin extends Plugin {
         Log.d(TAG, "Plugin being destroyed - stopping VLC");
         sendPlayerControl("stop", 0);
 
-        try {
-            Intent finishIntent = new Intent("FORCE_FINISH_VLC_ACTIVITY");
-            finishIntent.setPackage(getContext().getPackageName());
-            getContext().sendBroadcast(finishIntent);
-        } catch (Exception e) {
-            Log.e(TAG, "Error stopping VLC on destroy", e);
-        }
-    }
-
-    private void registerProgressReceiver() {
-        if (progressReceiver == null) {
-            progressReceiver = new BroadcastReceiver() {
-                @Override
-                public void onReceive(Context context, Intent intent) {
-                    if ("VIDEO_PROGRESS_UPDATE".equals(intent.getAction())) {
-                        long currentTime = intent.getLongExtra("currentTime", 0);
-                        boolean completed = intent.getBooleanExtra("completed", false);
-                        boolean forceSync = intent.getBooleanExtra("forceSync", false);
-                        int seasonIndex = intent.getIntExtra("seasonIndex", -1);
-                        int chapterIndex = intent.getIntExtra("chapterIndex", -1);
-
-                        Log.d(TAG, "Progress received: " + currentTime + "s, completed: " + completed + ", forceSync=" + forceSync + ", seasonIndex=" + seasonIndex + ", chapterIndex=" + chapterIndex);
-
-                        lastKnownCurrentTime = currentTime;
-                        lastKnownCompleted = completed;
-                        lastKnownSeasonIndex = seasonIndex;
-                        lastKnownChapterIndex = chapterIndex;
-
-                        JSObject data = new JSObject();
-                        data.put("currentTime", currentTime);
-                        data.put("completed", completed);
-                        data.put("forceSync", forceSync);
-                        if (seasonIndex >= 0) {
-                            data.put("seasonIndex", seasonIndex);
-                        }
-                        if (chapterIndex >= 0) {
-                            data.put("chapterIndex", chapterIndex);
-                        }
-                        notifyListeners("timeupdate", data);
-                    }
-                }
-            };
+        PlayerEventBus.post(new PlayerEventBus.Finish(true));
 
-            IntentFilter filter = new IntentFilter("VIDEO_PROGRESS_UPDATE");
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                getContext().registerReceiver(progressReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-            } else {
-                getContext().registerReceiver(progressReceiver, filter);
-            }
-            Log.d(TAG, "Progress receiver registered");
+        payloadExecutor.shutdownNow();
+        PlaybackPrewarmer.discard();
+        PlayerEventBus.unsubscribe(positionReplySubscription);
+        positionReplySubscription = null;
+        PlayerEventBus.unsubscribe(metricsSubscription);
+        metricsSubscription = null;
+        positionTimeoutHandler.removeCallbacksAndMessages(null);
+        resolvePendingPositionsFromCache("destroyed");
+    }
+
+    // Sin timeout ni respuesta posible: las llamadas abiertas se resuelven con el ultimo progreso conocido
+    private void resolvePendingPositionsFromCache(String reason) {
+        ArrayList<Long> requestIds;
+        synchronized (pendingPositionCalls) {
+            requestIds = new ArrayList<>(pendingPositionCalls.keySet());
+        }
+        for (Long requestId : requestIds) {
+            resolvePositionFromCache(requestId, reason);
         }
     }
 
-    private void unregisterProgressReceiver() {
-        if (progressReceiver != null) {
-            try {
-                getContext().unregisterReceiver(progressReceiver);
-                progressReceiver = null;
-                Log.d(TAG, "Progress receiver unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering progress receiver", e);
-            }
+    private void registerProgressListener() {
+        if (progressSubscription == null) {
+            progressSubscription = PlayerEventBus.subscribe(PlayerEventBus.Progress.class, event -> {
+                Log.d(TAG, "Progress received: " + event.currentTimeSec + "s, completed: " + event.completed + ", forceSync=" + event.forceSync + ", seasonIndex=" + event.seasonIndex + ", chapterIndex=" + event.chapterIndex);
+
+                lastKnownCurrentTime = event.currentTimeSec;
+                lastKnownCompleted = event.completed;
+                lastKnownSeasonIndex = event.seasonIndex;
+                lastKnownChapterIndex = event.chapterIndex;
+
+                JSObject data = new JSObject();
+                data.put("currentTime", event.currentTimeSec);
+                data.put("completed", event.completed);
+                data.put("forceSync", event.forceSync);
+                if (event.seasonIndex >= 0) {
+                    data.put("seasonIndex", event.seasonIndex);
+                }
+                if (event.chapterIndex >= 0) {
+                    data.put("chapterIndex", event.chapterIndex);
+                }
+                notifyListeners("timeupdate", data);
+            });
+            Log.d(TAG, "Progress listener registered");
         }
     }
 
-    private void registerPlayerClosedReceiver() {
-        if (playerClosedReceiver == null) {
-            playerClosedReceiver = new BroadcastReceiver() {
-                @Override
-                public void onReceive(Context context, Intent intent) {
-                    if ("VIDEO_PLAYER_CLOSED".equals(intent.getAction())) {
-                        String reason = intent.getStringExtra("reason");
-                        if (reason == null) reason = "unknown";
-                        Log.d(TAG, "Player closed event received. Reason: " + reason);
+    private void unregisterProgressListener() {
+        if (progressSubscription != null) {
+            PlayerEventBus.unsubscribe(progressSubscription);
+            progressSubscription = null;
+            Log.d(TAG, "Progress listener unregistered");
+        }
+    }
 
-                        JSObject data = new JSObject();
-                        data.put("reason", reason);
-                        notifyListeners("playerClosed", data);
-                    }
-                }
-            };
+    private void registerPlayerClosedListener() {
+        if (playerClosedSubscription == null) {
+            playerClosedSubscription = PlayerEventBus.subscribe(PlayerEventBus.Closed.class, event -> {
+                Log.d(TAG, "Player closed event received. Reason: " + event.reason);
 
-            IntentFilter filter = new IntentFilter("VIDEO_PLAYER_CLOSED");
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                getContext().registerReceiver(playerClosedReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-            } else {
-                getContext().registerReceiver(playerClosedReceiver, filter);
-            }
-            Log.d(TAG, "Player closed receiver registered");
+                JSObject data = new JSObject();
+                data.put("reason", event.reason);
+                notifyListeners("playerClosed", data);
+            });
+            Log.d(TAG, "Player closed listener registered");
         }
     }
 
-    private void unregisterPlayerClosedReceiver() {
-        if (playerClosedReceiver != null) {
-            try {
-                getContext().unregisterReceiver(playerClosedReceiver);
-                playerClosedReceiver = null;
-                Log.d(TAG, "Player closed receiver unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering player closed receiver", e);
-            }
+    private void unregisterPlayerClosedListener() {
+        if (playerClosedSubscription != null) {
+            PlayerEventBus.unsubscribe(playerClosedSubscription);
+            playerClosedSubscription = null;
+            Log.d(TAG, "Player closed listener unregistered");
         }
     }
 
@@ -478,12 +885,50 @@ public class VideoPlayerPlugin extends Plugin {
         notifyListeners("timeupdate", data);
     }
 
-    private String resolvePlayerType(String requestedPlayerType, boolean isLiveTV, String contentType) {
+    // Contenedor y codecs opcionales del catalogo ("container", "videoCodec", "audioCodec").
+    private static DecoderCapabilities.StreamHints streamHints(PluginCall call, String url) {
+        return DecoderCapabilities.StreamHints.from(
+            url,
+            call.getString("container"),
+            call.getString("videoCodec"),
+            call.getString("audioCodec")
+        );
+    }
+
+    private String resolvePlayerType(
+        String requestedPlayerType,
+        boolean isLiveTV,
+        String contentType,
+        DecoderCapabilities.StreamHints hints
+    ) {
         if ("android-vlc".equalsIgnoreCase(requestedPlayerType)) {
             return "android-vlc";
         }
+        DecoderCapabilities capabilities = DecoderCapabilities.getInstance(getContext());
+        String exoBlocker = capabilities.exoBlocker(hints);
+        if (exoBlocker != null) {
+            Log.d(TAG, "Usando VLC: ExoPlayer no puede decodificar " + exoBlocker + ". contentType=" + contentType);
+            return "android-vlc";
+        }
         if (isAndroidTvDevice() && !Boolean.TRUE.equals(isLiveTV)) {
-            Log.d(TAG, "Forzando VLC en Android TV para VOD por compatibilidad AC3/E-AC3. contentType=" + contentType);
+            // Sin codec de audio conocido, ExoPlayer solo si el dispositivo decodifica o pasa AC3/E-AC3
+            boolean audioKnown = capabilities.isReady() && hints != null && hints.audioMime != null;
+            boolean requestedExo = "android-exoplayer".equalsIgnoreCase(requestedPlayerType);
+            if (requestedExo && (audioKnown || capabilities.supportsDolbyAudio())) {
+                return "android-exoplayer";
+            }
+            // Sin motor pedido: con el sondeo de decoders listo y nada que bloquee a ExoPlayer (ya
+            // comprobado arriba), el VOD va a ExoPlayer si el audio es conocido o AC3/E-AC3 estan cubiertos
+            if (capabilities.isReady() && (audioKnown || capabilities.supportsDolbyAudio())) {
+                Log.d(TAG, "VOD en Android TV con ExoPlayer: decoders sondeados y audio "
+                    + (audioKnown ? hints.audioMime : "Dolby soportado") + ". contentType=" + contentType);
+                return "android-exoplayer";
+            }
+            if (!capabilities.isReady()) {
+                Log.d(TAG, "Usando VLC en Android TV para VOD: decoders aun sin sondear. contentType=" + contentType);
+            } else {
+                Log.d(TAG, "Forzando VLC en Android TV para VOD por compatibilidad AC3/E-AC3 (audio desconocido). contentType=" + contentType);
+            }
             return "android-vlc";
         }
         if ("android-exoplayer".equalsIgnoreCase(requestedPlayerType)) {
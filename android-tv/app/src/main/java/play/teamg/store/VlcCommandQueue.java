@@ -0,0 +1,96 @@
+package play.teamg.store;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Hilo propio para las llamadas nativas de libvlc que pueden bloquear (stop, setMedia, play, release).
+// Los comandos se ejecutan en orden. Un comando con clave (submit) sustituye al pendiente con la misma
+// clave que aun no ha empezado: tres cambios de canal seguidos acaban abriendo solo el ultimo.
+// Los comandos sin clave (execute) nunca se descartan; se usan para liberar players. Con la cola ya
+// cerrada van a un hilo de liberacion comun que sobrevive a la actividad.
+// Los resultados que tocan la UI se publican con postResult() en el hilo principal.
+public final class VlcCommandQueue {
+    private static final String TAG = "VlcCommandQueue";
+    // stop()/release() tras quit(): nunca en el hilo que llama (suele ser el principal en onDestroy)
+    private static final ExecutorService releaseExecutor = Executors.newSingleThreadExecutor();
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HashMap<String, Object> pendingTokens = new HashMap<>();
+    private int droppedCommands = 0;
+    private boolean quit = false;
+
+    public VlcCommandQueue(String name) {
+        thread = new HandlerThread(name);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public synchronized void submit(final String key, final Runnable command) {
+        if (quit) {
+            return;
+        }
+        Object previous = pendingTokens.remove(key);
+        if (previous != null) {
+            handler.removeCallbacksAndMessages(previous);
+            droppedCommands++;
+            Log.d(TAG, "Comando '" + key + "' sustituido (descartados: " + droppedCommands + ")");
+        }
+        final Object token = new Object();
+        pendingTokens.put(key, token);
+        handler.postAtTime(() -> {
+            synchronized (VlcCommandQueue.this) {
+                if (pendingTokens.get(key) == token) {
+                    pendingTokens.remove(key);
+                }
+            }
+            run(key, command);
+        }, token, SystemClock.uptimeMillis());
+    }
+
+    // Descarta el comando pendiente con esa clave, si aun no ha empezado.
+    public synchronized void cancel(String key) {
+        Object previous = pendingTokens.remove(key);
+        if (previous != null) {
+            handler.removeCallbacksAndMessages(previous);
+        }
+    }
+
+    public void execute(final Runnable command) {
+        synchronized (this) {
+            if (!quit) {
+                handler.post(() -> run("execute", command));
+                return;
+            }
+        }
+        // Con la cola cerrada una liberacion no se puede perder
+        releaseExecutor.execute(() -> run("execute", command));
+    }
+
+    public void postResult(Runnable result) {
+        mainHandler.post(result);
+    }
+
+    // Ejecuta lo ya encolado y termina el hilo.
+    public synchronized void quit() {
+        quit = true;
+        pendingTokens.clear();
+        thread.quitSafely();
+    }
+
+    private static void run(String key, Runnable command) {
+        try {
+            command.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Error en comando VLC '" + key + "'", e);
+        }
+    }
+}
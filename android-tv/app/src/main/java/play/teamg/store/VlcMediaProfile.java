@@ -0,0 +1,95 @@
+package play.teamg.store;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import org.videolan.libvlc.LibVLC;
+import org.videolan.libvlc.Media;
+
+// Opciones de Media de VLC por tipo de reproduccion. Un solo valor de cache no sirve a la vez para
+// zapear rapido en directo y para que una pelicula no se corte, asi que se elige un perfil por sesion:
+// - live: cache corta para que el cambio de canal sea rapido.
+// - vod: cache larga (red y fichero) para aguantar microcortes del servidor.
+// - weak_device: TVs con poca RAM/CPU; cache intermedia y decodificacion mas barata.
+// Las opciones de la instancia LibVLC (VLCInstance) quedan como valores por defecto.
+public final class VlcMediaProfile {
+    private static final String TAG = "VlcMediaProfile";
+    private static final String USER_AGENT = "VLC/3.0.0 (Linux; Android 9)";
+    // Por debajo de esto (en MB de heap por app) se considera dispositivo debil.
+    private static final int WEAK_DEVICE_MEMORY_CLASS_MB = 128;
+
+    public static final VlcMediaProfile LIVE = new VlcMediaProfile("live", 1000, 1000, 0, false);
+    public static final VlcMediaProfile VOD = new VlcMediaProfile("vod", 3000, 0, 3000, false);
+    public static final VlcMediaProfile WEAK_DEVICE = new VlcMediaProfile("weak_device", 2000, 1500, 2000, true);
+
+    private static Boolean weakDevice;
+
+    final String name;
+    final int networkCachingMs;
+    final int liveCachingMs;
+    final int fileCachingMs;
+    final boolean cheapDecoding;
+
+    private VlcMediaProfile(String name, int networkCachingMs, int liveCachingMs, int fileCachingMs, boolean cheapDecoding) {
+        this.name = name;
+        this.networkCachingMs = networkCachingMs;
+        this.liveCachingMs = liveCachingMs;
+        this.fileCachingMs = fileCachingMs;
+        this.cheapDecoding = cheapDecoding;
+    }
+
+    public static VlcMediaProfile resolve(Context context, boolean isLiveTV) {
+        if (isWeakDevice(context)) {
+            return WEAK_DEVICE;
+        }
+        return isLiveTV ? LIVE : VOD;
+    }
+
+    public Media buildMedia(LibVLC libVlc, String url) {
+        return buildMedia(libVlc, url, 1.0);
+    }
+
+    public Media buildMedia(LibVLC libVlc, String url, double cachingFactor) {
+        return buildMedia(libVlc, url, cachingFactor, StreamTypeProbe.TYPE_UNKNOWN);
+    }
+
+    // cachingFactor: ajuste aprendido por host (NetworkCachingController) sobre la cache del perfil.
+    // streamType: tipo ya sondeado (StreamTypeProbe); un MPEG-TS conocido se abre sin que VLC pruebe demuxers.
+    public Media buildMedia(LibVLC libVlc, String url, double cachingFactor, int streamType) {
+        Media media = new Media(libVlc, Uri.parse(url));
+        media.setHWDecoderEnabled(true, false);
+        media.addOption(":network-caching=" + NetworkCachingController.scale(networkCachingMs, cachingFactor));
+        if (liveCachingMs > 0) {
+            media.addOption(":live-caching=" + NetworkCachingController.scale(liveCachingMs, cachingFactor));
+        }
+        if (fileCachingMs > 0) {
+            media.addOption(":file-caching=" + fileCachingMs);
+        }
+        if (cheapDecoding) {
+            // Sin filtro de deblocking y permitiendo saltar frames si el decoder no llega
+            media.addOption(":avcodec-skiploopfilter=4");
+            media.addOption(":avcodec-hurry-up");
+            media.addOption(":avcodec-fast");
+        }
+        if (streamType == StreamTypeProbe.TYPE_TS) {
+            media.addOption(":demux=ts");
+        }
+        media.addOption(":http-reconnect");
+        media.addOption(":http-user-agent=" + USER_AGENT);
+        return media;
+    }
+
+    static synchronized boolean isWeakDevice(Context context) {
+        if (weakDevice == null) {
+            ActivityManager activityManager = (ActivityManager) context.getApplicationContext().getSystemService(Context.ACTIVITY_SERVICE);
+            boolean lowRam = activityManager != null
+                && (activityManager.isLowRamDevice() || activityManager.getMemoryClass() < WEAK_DEVICE_MEMORY_CLASS_MB);
+            boolean fewCores = Runtime.getRuntime().availableProcessors() <= 2;
+            weakDevice = lowRam || fewCores;
+            Log.d(TAG, "Dispositivo debil: " + weakDevice + " (lowRam=" + lowRam + ", cores=" + Runtime.getRuntime().availableProcessors() + ")");
+        }
+        return weakDevice;
+    }
+}
@@ -0,0 +1,325 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+
+import org.videolan.libvlc.LibVLC;
+import org.videolan.libvlc.Media;
+import org.videolan.libvlc.MediaPlayer;
+import org.videolan.libvlc.util.VLCVideoLayout;
+
+// PlaybackEngine sobre LibVLC para que ExoPlayerActivity pase a VLC sin lanzar VLCPlayerActivity.
+// Usa la instancia compartida de VLCInstance, el perfil de cache de VlcMediaProfile y la cache aprendida
+// por host; las llamadas nativas (stop, setMedia, play, setRate, release) van por su propia VlcCommandQueue.
+// Si LibVLC aun no esta cargado, la apertura espera a VLCInstance.whenReady().
+final class VlcPlaybackEngine implements PlaybackEngine {
+    private static final String TAG = "VlcPlaybackEngine";
+    private static final String COMMAND_MEDIA = "media";
+    private static final String COMMAND_PLAYBACK = "playback";
+    private static final String COMMAND_SEEK = "seek";
+    private static final String COMMAND_RATE = "rate";
+
+    private final Context context;
+    private final VLCVideoLayout videoLayout;
+    private final Listener listener;
+    private final VlcMediaProfile profile;
+    private final VlcCommandQueue commands = new VlcCommandQueue("vlc-engine");
+    private MediaPlayer mediaPlayer;
+    // La instancia entregada por whenReady(); getInstance() bloquearia el hilo principal
+    private LibVLC libVlc;
+    private String pendingSourceUrl;
+    private long pendingStartMs = 0L;
+    private boolean waitingForLibVlc = false;
+    private boolean released = false;
+
+    private int state = STATE_IDLE;
+    private boolean playWhenReady = false;
+    private boolean playing = false;
+    private boolean firstFrameReported = false;
+    private long positionMs = 0L;
+    private long durationMs = C.TIME_UNSET;
+    private float speed = 1.0f;
+    // Ultimo recuento de salidas de video (evento Vout): no se pregunta al player nativo desde el hilo principal
+    private int voutCount = 0;
+
+    VlcPlaybackEngine(Context context, VLCVideoLayout videoLayout, boolean isLiveTV, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.videoLayout = videoLayout;
+        this.listener = listener;
+        this.profile = VlcMediaProfile.resolve(context, isLiveTV);
+    }
+
+    @Override
+    public String getName() {
+        return "vlc";
+    }
+
+    @Override
+    public String getPlayerType() {
+        return TYPE_VLC;
+    }
+
+    @Override
+    public void open(String sourceUrl, long startPositionMs) {
+        if (released) {
+            return;
+        }
+        pendingSourceUrl = sourceUrl;
+        pendingStartMs = Math.max(0L, startPositionMs);
+        positionMs = pendingStartMs;
+        durationMs = C.TIME_UNSET;
+        firstFrameReported = false;
+        setPlayWhenReady(true);
+        setState(STATE_BUFFERING);
+        if (mediaPlayer == null) {
+            createPlayerWhenReady();
+            return;
+        }
+        loadPendingSource();
+    }
+
+    @Override
+    public void play() {
+        setPlayWhenReady(true);
+        final MediaPlayer player = mediaPlayer;
+        if (player != null) {
+            commands.submit(COMMAND_PLAYBACK, player::play);
+        }
+    }
+
+    @Override
+    public void pause() {
+        setPlayWhenReady(false);
+        final MediaPlayer player = mediaPlayer;
+        if (player != null) {
+            commands.submit(COMMAND_PLAYBACK, player::pause);
+        }
+    }
+
+    @Override
+    public void seekTo(final long positionMs) {
+        this.positionMs = Math.max(0L, positionMs);
+        final MediaPlayer player = mediaPlayer;
+        if (player == null || pendingSourceUrl != null) {
+            // Aun sin abrir: se aplica como :start-time
+            pendingStartMs = this.positionMs;
+            return;
+        }
+        final long targetMs = this.positionMs;
+        commands.submit(COMMAND_SEEK, () -> player.setTime(targetMs));
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public boolean getPlayWhenReady() {
+        return playWhenReady;
+    }
+
+    @Override
+    public int getPlaybackState() {
+        return state;
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        return positionMs;
+    }
+
+    @Override
+    public long getDuration() {
+        return durationMs;
+    }
+
+    @Override
+    public void setSpeed(float speed) {
+        this.speed = speed;
+        applyRate();
+    }
+
+    @Override
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        pendingSourceUrl = null;
+        final MediaPlayer player = mediaPlayer;
+        mediaPlayer = null;
+        if (player != null) {
+            commands.cancel(COMMAND_MEDIA);
+            commands.cancel(COMMAND_PLAYBACK);
+            commands.cancel(COMMAND_SEEK);
+            commands.cancel(COMMAND_RATE);
+            player.setEventListener(null);
+            player.detachViews();
+            commands.execute(() -> {
+                player.stop();
+                player.release();
+            });
+            VLCInstance.releaseUse();
+        }
+        commands.quit();
+    }
+
+    private void createPlayerWhenReady() {
+        if (waitingForLibVlc) {
+            return;
+        }
+        waitingForLibVlc = true;
+        VLCInstance.whenReady(context, libVlc -> {
+            waitingForLibVlc = false;
+            if (released) {
+                return;
+            }
+            if (libVlc == null) {
+                Log.e(TAG, "LibVLC no disponible");
+                listener.onEngineError(this, PlaybackRecovery.FAILURE_DECODER, "libvlc", "LibVLC no disponible");
+                return;
+            }
+            createPlayer(libVlc);
+            loadPendingSource();
+        });
+    }
+
+    private void createPlayer(LibVLC libVlc) {
+        this.libVlc = libVlc;
+        mediaPlayer = new MediaPlayer(libVlc);
+        VLCInstance.acquire();
+        mediaPlayer.setAudioDigitalOutputEnabled(false);
+        mediaPlayer.setVolume(100);
+        mediaPlayer.attachViews(videoLayout, null, false, false);
+        mediaPlayer.setAspectRatio(null);
+        mediaPlayer.setScale(MediaPlayer.ScaleType.SURFACE_FIT_SCREEN.ordinal());
+        mediaPlayer.setEventListener(this::onPlayerEvent);
+    }
+
+    // setMedia + play en el hilo de comandos; una apertura posterior sustituye a esta si no ha empezado.
+    private void loadPendingSource() {
+        final MediaPlayer player = mediaPlayer;
+        final String sourceUrl = pendingSourceUrl;
+        if (player == null || sourceUrl == null) {
+            return;
+        }
+        pendingSourceUrl = null;
+        final long startMs = pendingStartMs;
+        final boolean startPlaying = playWhenReady;
+        final LibVLC instance = libVlc;
+        final double cachingFactor = NetworkCachingController.getInstance(context).factorFor(sourceUrl);
+        final int streamType = StreamTypeProbe.getInstance(context).peek(sourceUrl);
+        commands.submit(COMMAND_MEDIA, () -> {
+            player.stop();
+            Media media = profile.buildMedia(instance, sourceUrl, cachingFactor, streamType);
+            if (startMs > 0L) {
+                media.addOption(":start-time=" + (startMs / 1000L));
+            }
+            if (!startPlaying) {
+                media.addOption(":start-paused");
+            }
+            player.setMedia(media);
+            media.release();
+            player.play();
+        });
+    }
+
+    private void applyRate() {
+        final MediaPlayer player = mediaPlayer;
+        if (player == null) {
+            return;
+        }
+        final float rate = speed;
+        commands.submit(COMMAND_RATE, () -> player.setRate(rate));
+    }
+
+    private void onPlayerEvent(MediaPlayer.Event event) {
+        if (released) {
+            return;
+        }
+        switch (event.type) {
+            case MediaPlayer.Event.Opening:
+                setState(STATE_BUFFERING);
+                break;
+            case MediaPlayer.Event.Buffering:
+                if (event.getBuffering() < 100f) {
+                    setState(STATE_BUFFERING);
+                } else if (state == STATE_BUFFERING) {
+                    setState(STATE_READY);
+                }
+                break;
+            case MediaPlayer.Event.Playing:
+                if (speed != 1.0f) {
+                    applyRate();
+                }
+                setState(STATE_READY);
+                setPlaying(true);
+                break;
+            case MediaPlayer.Event.Paused:
+                setPlaying(false);
+                break;
+            case MediaPlayer.Event.Stopped:
+                // Tambien llega al cambiar de fuente (stop antes de setMedia): no es un cambio de estado
+                setPlaying(false);
+                break;
+            case MediaPlayer.Event.TimeChanged:
+                positionMs = event.getTimeChanged();
+                // Con el player reutilizado (nueva fuente) no llega un Vout nuevo
+                if (!firstFrameReported && voutCount > 0) {
+                    reportFirstFrame();
+                }
+                break;
+            case MediaPlayer.Event.Vout:
+                voutCount = event.getVoutCount();
+                if (event.getVoutCount() > 0 && !firstFrameReported) {
+                    reportFirstFrame();
+                }
+                break;
+            case MediaPlayer.Event.LengthChanged:
+                durationMs = event.getLengthChanged() > 0L ? event.getLengthChanged() : C.TIME_UNSET;
+                break;
+            case MediaPlayer.Event.EndReached:
+                setPlaying(false);
+                setState(STATE_ENDED);
+                break;
+            case MediaPlayer.Event.EncounteredError:
+                setPlaying(false);
+                listener.onEngineError(this, PlaybackRecovery.FAILURE_NETWORK, "vlc error event", "vlc error event");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void reportFirstFrame() {
+        firstFrameReported = true;
+        listener.onEngineFirstFrame(this);
+    }
+
+    private void setState(int newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        listener.onEngineStateChanged(this, newState);
+    }
+
+    private void setPlaying(boolean isPlaying) {
+        if (playing == isPlaying) {
+            return;
+        }
+        playing = isPlaying;
+        listener.onEngineIsPlayingChanged(this, isPlaying);
+    }
+
+    private void setPlayWhenReady(boolean value) {
+        if (playWhenReady == value) {
+            return;
+        }
+        playWhenReady = value;
+        listener.onEnginePlayWhenReadyChanged(this, value);
+    }
+}
@@ -0,0 +1,298 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Cache en disco de segmentos/rangos de VOD para ExoPlayer. Reanudar, volver atras o volver a ver un
+// capitulo lee del disco en vez de pedir otra vez los mismos bytes al proveedor (que limita el ancho de banda).
+// - Solo VOD: el directo no se repite y solo gastaria escrituras.
+// - LRU con cuota configurable (setMaxBytes, persistida) y sin bajar nunca de MIN_FREE_BYTES libres en el
+//   disco; si no queda sitio para una cache minima se reproduce sin cache.
+// - Cuenta bytes servidos desde cache y desde red para el ratio de aciertos.
+// - Abrir SimpleCache (indice y base de datos) y medir el disco son I/O: se hace en cacheExecutor. Hasta que
+//   la cache esta lista, wrap() devuelve la factory de red sin cache.
+public final class VodMediaCache {
+    private static final String TAG = "VodMediaCache";
+    private static final String PREFS_NAME = "vod_media_cache";
+    private static final String KEY_MAX_BYTES = "max_bytes";
+    private static final String DIRECTORY_NAME = "vod_media";
+    private static final long DEFAULT_MAX_BYTES = 512L * 1024L * 1024L;
+    private static final long MIN_CACHE_BYTES = 32L * 1024L * 1024L;
+    // Espacio que se deja siempre libre en el disco, ademas de lo que ya ocupa la cache
+    private static final long MIN_FREE_BYTES = 256L * 1024L * 1024L;
+
+    private static VodMediaCache instance;
+
+    private final Context context;
+    private final File directory;
+    private final SharedPreferences preferences;
+    private final QuotaEvictor evictor = new QuotaEvictor();
+    private final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor();
+    private SimpleCache cache;
+    // Resultado del ultimo calculo de espacio: false si el disco no da para una cache minima
+    private boolean cacheUsable = false;
+    private long configuredMaxBytes;
+    private long cachedBytesRead = 0L;
+    private long networkBytesRead = 0L;
+    private int ignoredReads = 0;
+
+    public static final class Stats {
+        final boolean enabled;
+        final long cacheSizeBytes;
+        final long maxBytes;
+        final long cachedBytesRead;
+        final long networkBytesRead;
+        final int ignoredReads;
+
+        Stats(boolean enabled, long cacheSizeBytes, long maxBytes, long cachedBytesRead, long networkBytesRead, int ignoredReads) {
+            this.enabled = enabled;
+            this.cacheSizeBytes = cacheSizeBytes;
+            this.maxBytes = maxBytes;
+            this.cachedBytesRead = cachedBytesRead;
+            this.networkBytesRead = networkBytesRead;
+            this.ignoredReads = ignoredReads;
+        }
+
+        // Fraccion de los bytes de VOD que salieron del disco
+        double hitRatio() {
+            long total = cachedBytesRead + networkBytesRead;
+            return total > 0L ? (double) cachedBytesRead / total : 0.0;
+        }
+    }
+
+    private final TransferListener networkListener = new TransferListener() {
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                synchronized (VodMediaCache.this) {
+                    networkBytesRead += bytesTransferred;
+                }
+            }
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        }
+    };
+
+    private final CacheDataSource.EventListener cacheListener = new CacheDataSource.EventListener() {
+        @Override
+        public void onCachedBytesRead(long cacheSizeBytes, long cachedBytes) {
+            synchronized (VodMediaCache.this) {
+                cachedBytesRead += cachedBytes;
+            }
+        }
+
+        @Override
+        public void onCacheIgnored(int reason) {
+            synchronized (VodMediaCache.this) {
+                ignoredReads++;
+            }
+        }
+    };
+
+    public static synchronized VodMediaCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new VodMediaCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private VodMediaCache(Context context) {
+        this.context = context;
+        directory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        configuredMaxBytes = Math.max(MIN_CACHE_BYTES, preferences.getLong(KEY_MAX_BYTES, DEFAULT_MAX_BYTES));
+        cacheExecutor.execute(this::refreshCache);
+    }
+
+    // Factory de VOD: cache delante de httpFactory, o la factory normal si la cache aun no esta abierta o el
+    // disco no da para ella. No hace I/O ni modifica httpFactory; el limite se recalcula en segundo plano.
+    public DataSource.Factory wrap(OkHttpDataSource.Factory httpFactory) {
+        cacheExecutor.execute(this::refreshCache);
+        SimpleCache activeCache;
+        synchronized (this) {
+            activeCache = cacheUsable ? cache : null;
+        }
+        if (activeCache == null) {
+            return new DefaultDataSource.Factory(context, httpFactory);
+        }
+        DataSource.Factory upstream = new DefaultDataSource.Factory(context, httpFactory)
+            .setTransferListener(networkListener);
+        return new CacheDataSource.Factory()
+            .setCache(activeCache)
+            .setUpstreamDataSourceFactory(upstream)
+            .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+            .setEventListener(cacheListener);
+    }
+
+    // Nueva cuota; se aplica en cuanto se recalcula el limite (la eviccion LRU recorta al escribir el siguiente fragmento).
+    public void setMaxBytes(long maxBytes) {
+        long quota = Math.max(MIN_CACHE_BYTES, maxBytes);
+        synchronized (this) {
+            configuredMaxBytes = quota;
+        }
+        preferences.edit().putLong(KEY_MAX_BYTES, quota).apply();
+        cacheExecutor.execute(this::refreshCache);
+        Log.d(TAG, "Cuota de cache VOD: " + quota + " bytes");
+    }
+
+    // Borra todo lo cacheado. Hace I/O: llamar fuera del hilo principal.
+    public Stats purge() {
+        SimpleCache activeCache;
+        synchronized (this) {
+            activeCache = cache;
+        }
+        if (activeCache != null) {
+            // Los fragmentos que esta leyendo un player activo se quedan hasta que los suelte
+            for (String key : new ArrayList<>(activeCache.getKeys())) {
+                activeCache.removeResource(key);
+            }
+            Log.d(TAG, "Cache VOD purgada, quedan " + activeCache.getCacheSpace() + " bytes");
+        }
+        synchronized (this) {
+            cachedBytesRead = 0L;
+            networkBytesRead = 0L;
+            ignoredReads = 0;
+        }
+        return stats();
+    }
+
+    public synchronized Stats stats() {
+        long cacheSizeBytes = cache != null ? cache.getCacheSpace() : 0L;
+        long maxBytes = cache != null ? evictor.getMaxBytes() : configuredMaxBytes;
+        return new Stats(cache != null && cacheUsable, cacheSizeBytes, maxBytes, cachedBytesRead, networkBytesRead, ignoredReads);
+    }
+
+    // Solo en cacheExecutor. SimpleCache se crea una vez (solo puede haber una instancia por directorio); el
+    // limite efectivo se recalcula en cada apertura de VOD segun el espacio libre.
+    private void refreshCache() {
+        SimpleCache activeCache;
+        long quota;
+        synchronized (this) {
+            activeCache = cache;
+            quota = configuredMaxBytes;
+        }
+        long currentSize = activeCache != null ? activeCache.getCacheSpace() : 0L;
+        long maxBytes = effectiveMaxBytes(currentSize, quota);
+        if (maxBytes < MIN_CACHE_BYTES) {
+            Log.w(TAG, "Poco espacio libre, VOD sin cache (limite " + maxBytes + " bytes)");
+            evictor.setMaxBytes(0L);
+            synchronized (this) {
+                cacheUsable = false;
+            }
+            return;
+        }
+        evictor.setMaxBytes(maxBytes);
+        if (activeCache == null) {
+            try {
+                activeCache = new SimpleCache(directory, evictor, new StandaloneDatabaseProvider(context));
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo abrir la cache VOD", e);
+                return;
+            }
+        }
+        synchronized (this) {
+            cache = activeCache;
+            cacheUsable = true;
+        }
+    }
+
+    private long effectiveMaxBytes(long currentSize, long quota) {
+        long usable = directory.exists() ? directory.getUsableSpace() : context.getCacheDir().getUsableSpace();
+        long available = currentSize + usable - MIN_FREE_BYTES;
+        return Math.min(quota, Math.max(0L, available));
+    }
+
+    // Mismo LRU que LeastRecentlyUsedCacheEvictor, pero con limite ajustable sin recrear la cache.
+    private static final class QuotaEvictor implements CacheEvictor {
+        private final TreeSet<CacheSpan> leastRecentlyUsed = new TreeSet<>(QuotaEvictor::compare);
+        private long currentSize = 0L;
+        private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+        void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        long getMaxBytes() {
+            return maxBytes;
+        }
+
+        @Override
+        public boolean requiresCacheSpanTouches() {
+            return true;
+        }
+
+        @Override
+        public void onCacheInitialized() {
+        }
+
+        @Override
+        public void onStartFile(Cache cache, String key, long position, long length) {
+            if (length != C.LENGTH_UNSET) {
+                evict(cache, length);
+            }
+        }
+
+        @Override
+        public void onSpanAdded(Cache cache, CacheSpan span) {
+            leastRecentlyUsed.add(span);
+            currentSize += span.length;
+            evict(cache, 0L);
+        }
+
+        @Override
+        public void onSpanRemoved(Cache cache, CacheSpan span) {
+            leastRecentlyUsed.remove(span);
+            currentSize -= span.length;
+        }
+
+        @Override
+        public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+            onSpanRemoved(cache, oldSpan);
+            onSpanAdded(cache, newSpan);
+        }
+
+        private void evict(Cache cache, long requiredSpace) {
+            while (currentSize + requiredSpace > maxBytes && !leastRecentlyUsed.isEmpty()) {
+                cache.removeSpan(leastRecentlyUsed.first());
+            }
+        }
+
+        private static int compare(CacheSpan first, CacheSpan second) {
+            long difference = first.lastTouchTimestamp - second.lastTouchTimestamp;
+            if (difference == 0L) {
+                return first.compareTo(second);
+            }
+            return first.lastTouchTimestamp < second.lastTouchTimestamp ? -1 : 1;
+        }
+    }
+}
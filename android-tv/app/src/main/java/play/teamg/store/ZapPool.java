@@ -0,0 +1,228 @@
+package play.teamg.store;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Canales probables (vecinos en la lista y recientes) ya abiertos y bufferizando sin imagen ni sonido,
+// para que un cambio de canal solo tenga que mover la superficie al player preparado. Lo usan VLC y
+// ExoPlayer con su propio Opener. Cada player preparado ocupa red, memoria y a veces un decodificador,
+// asi que el pool es opcional: sin zapPoolSize en la llamada el budget es 0 y no se abre nada.
+// Las entradas caducadas no se reabren solas; se renuevan en el siguiente refill o, una sola, con
+// touch() cuando el usuario se acerca a ese canal.
+// Todos los metodos publicos se llaman desde el hilo principal.
+public final class ZapPool<P> {
+    private static final long MAX_AGE_MS = 30000L;
+    private static final int MAX_RECENT_URLS = 4;
+    private static final int MAX_BUDGET = 4;
+    // Con zapPoolSize explicito, en dispositivos debiles no se pasa de aqui
+    private static final int WEAK_DEVICE_MAX_BUDGET = 1;
+
+    public interface Opener<P> {
+        // En openExecutor. Debe dejar el player bufferizando en pausa y sin sonido.
+        P open(String url) throws Exception;
+
+        // En openExecutor.
+        void release(P player);
+    }
+
+    private static final class Entry<P> {
+        final P player;
+        final long openedAtMs;
+
+        Entry(P player) {
+            this.player = player;
+            this.openedAtMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private final String tag;
+    private final int budget;
+    private final Opener<P> opener;
+    private final Executor openExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashMap<String, Entry<P>> entries = new LinkedHashMap<>();
+    private final HashSet<String> opening = new HashSet<>();
+    private final ArrayDeque<String> recentUrls = new ArrayDeque<>();
+    private HashSet<String> wanted = new HashSet<>();
+    private boolean closed = false;
+    private int hits = 0;
+    private int misses = 0;
+
+    // requested < 0: no pedido, pool desactivado.
+    public static int resolveBudget(Context context, int requested) {
+        if (requested <= 0) {
+            return 0;
+        }
+        int limit = VlcMediaProfile.isWeakDevice(context) ? WEAK_DEVICE_MAX_BUDGET : MAX_BUDGET;
+        return Math.min(requested, limit);
+    }
+
+    public ZapPool(String tag, int budget, Opener<P> opener, Executor openExecutor) {
+        this.tag = tag;
+        this.budget = Math.max(0, budget);
+        this.opener = opener;
+        this.openExecutor = openExecutor;
+    }
+
+    // Player preparado para la URL (sale del pool) o null si no lo hay.
+    public P take(String url) {
+        Entry<P> entry = url != null ? entries.remove(url) : null;
+        if (entry == null || SystemClock.elapsedRealtime() - entry.openedAtMs > MAX_AGE_MS) {
+            if (entry != null) {
+                releaseAsync(entry.player);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        Log.d(tag, "Zap desde el pool (" + hits + " aciertos, " + misses + " fallos)");
+        return entry.player;
+    }
+
+    // Canal al que probablemente se va a cambiar (resaltado en la lista): si su entrada caduco, se
+    // reabre solo esa.
+    public void touch(String url) {
+        if (closed || url == null || !wanted.contains(url) || opening.contains(url)) {
+            return;
+        }
+        Entry<P> entry = entries.get(url);
+        if (entry != null && SystemClock.elapsedRealtime() - entry.openedAtMs <= MAX_AGE_MS) {
+            return;
+        }
+        if (entry != null) {
+            entries.remove(url);
+            releaseAsync(entry.player);
+        }
+        openAsync(url);
+    }
+
+    // Canal que se esta viendo: entra en la lista de recientes.
+    public void noteWatched(String url) {
+        if (url == null) {
+            return;
+        }
+        recentUrls.remove(url);
+        recentUrls.addFirst(url);
+        while (recentUrls.size() > MAX_RECENT_URLS) {
+            recentUrls.pollLast();
+        }
+    }
+
+    // Vecinos del canal actual (siguiente, anterior) y el ultimo canal visto, en ese orden de prioridad.
+    public void refill(List<String> channelUrls, int currentIndex) {
+        if (closed || budget == 0 || channelUrls == null || channelUrls.isEmpty()) {
+            return;
+        }
+
+        int count = channelUrls.size();
+        String currentUrl = currentIndex >= 0 && currentIndex < count ? channelUrls.get(currentIndex) : null;
+        ArrayList<String> candidates = new ArrayList<>();
+        if (currentIndex >= 0) {
+            candidates.add(channelUrls.get((currentIndex + 1) % count));
+            candidates.add(channelUrls.get((currentIndex - 1 + count) % count));
+        }
+        for (String recentUrl : recentUrls) {
+            candidates.add(recentUrl);
+        }
+
+        HashSet<String> nextWanted = new HashSet<>();
+        for (String candidate : candidates) {
+            if (nextWanted.size() >= budget) {
+                break;
+            }
+            if (candidate != null && !candidate.isEmpty() && !candidate.equals(currentUrl)) {
+                nextWanted.add(candidate);
+            }
+        }
+        wanted = nextWanted;
+
+        Iterator<Map.Entry<String, Entry<P>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry<P>> entry = iterator.next();
+            boolean stale = SystemClock.elapsedRealtime() - entry.getValue().openedAtMs > MAX_AGE_MS;
+            if (stale || !wanted.contains(entry.getKey())) {
+                iterator.remove();
+                releaseAsync(entry.getValue().player);
+            }
+        }
+        for (String url : wanted) {
+            if (!entries.containsKey(url) && !opening.contains(url)) {
+                openAsync(url);
+            }
+        }
+    }
+
+    public void clear() {
+        closed = true;
+        wanted = new HashSet<>();
+        for (Entry<P> entry : entries.values()) {
+            releaseAsync(entry.player);
+        }
+        entries.clear();
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private void openAsync(final String url) {
+        opening.add(url);
+        openExecutor.execute(() -> {
+            P player = null;
+            try {
+                player = opener.open(url);
+            } catch (Exception e) {
+                Log.w(tag, "No se pudo pre-abrir canal para zapping", e);
+            }
+            final P opened = player;
+            mainHandler.post(() -> {
+                opening.remove(url);
+                if (opened == null) {
+                    return;
+                }
+                if (closed || !wanted.contains(url) || entries.containsKey(url)) {
+                    releaseAsync(opened);
+                    return;
+                }
+                entries.put(url, new Entry<>(opened));
+            });
+        });
+    }
+
+    private void releaseAsync(final P player) {
+        Runnable release = () -> {
+            try {
+                opener.release(player);
+            } catch (Exception e) {
+                Log.w(tag, "Error liberando player del pool de zapping", e);
+            }
+        };
+        try {
+            openExecutor.execute(release);
+        } catch (RejectedExecutionException e) {
+            // Executor ya cerrado (actividad destruida con una apertura en curso)
+            release.run();
+        }
+    }
+}
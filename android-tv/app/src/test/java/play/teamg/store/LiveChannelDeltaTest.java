@@ -0,0 +1,295 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+// compute/applyTo en ida y vuelta: aplicar sobre la lista base el delta calculado contra la lista destino
+// tiene que dar exactamente la lista destino (ids, nombres, logos y URLs, en el mismo orden).
+public class LiveChannelDeltaTest {
+
+    private static final class Lineup {
+        final ArrayList<String> ids = new ArrayList<>();
+        final ArrayList<String> names = new ArrayList<>();
+        final ArrayList<String> logos = new ArrayList<>();
+        final ArrayList<String> urls = new ArrayList<>();
+
+        // id vacio = canal sin id (se identifica por URL)
+        Lineup add(String id, String name, String logo, String url) {
+            ids.add(id);
+            names.add(name);
+            logos.add(logo);
+            urls.add(url);
+            return this;
+        }
+
+        Lineup add(String id, String url) {
+            return add(id, "Canal " + url, "logo/" + url, url);
+        }
+
+        Lineup copy() {
+            Lineup copy = new Lineup();
+            copy.ids.addAll(ids);
+            copy.names.addAll(names);
+            copy.logos.addAll(logos);
+            copy.urls.addAll(urls);
+            return copy;
+        }
+    }
+
+    private static LiveChannelDelta delta(Lineup base, Lineup target) {
+        return LiveChannelDelta.compute(
+            7L,
+            base.ids, base.names, base.logos, base.urls,
+            target.ids, target.names, target.logos, target.urls
+        );
+    }
+
+    private static LiveChannelDelta assertRoundTrip(Lineup base, Lineup target) {
+        LiveChannelDelta delta = delta(base, target);
+        Lineup applied = base.copy();
+        delta.applyTo(applied.ids, applied.names, applied.logos, applied.urls);
+        assertEquals(target.urls, applied.urls);
+        assertEquals(target.ids, applied.ids);
+        assertEquals(target.names, applied.names);
+        assertEquals(target.logos, applied.logos);
+        return delta;
+    }
+
+    private static Lineup sample() {
+        return new Lineup()
+            .add("1", "http://a/1")
+            .add("2", "http://a/2")
+            .add("3", "http://a/3")
+            .add("4", "http://a/4")
+            .add("5", "http://a/5");
+    }
+
+    @Test
+    public void identicalListsGiveEmptyDelta() {
+        LiveChannelDelta delta = assertRoundTrip(sample(), sample());
+        assertTrue(delta.isEmpty());
+        assertEquals(7L, delta.baseSnapshotId);
+    }
+
+    @Test
+    public void addsAtStartMiddleAndEnd() {
+        Lineup target = sample();
+        target.ids.add(0, "0");
+        target.names.add(0, "Nuevo 0");
+        target.logos.add(0, "");
+        target.urls.add(0, "http://a/0");
+        target.add("6", "http://a/6");
+        target.ids.add(3, "2b");
+        target.names.add(3, "Nuevo 2b");
+        target.logos.add(3, "logo/2b");
+        target.urls.add(3, "http://a/2b");
+
+        LiveChannelDelta delta = assertRoundTrip(sample(), target);
+        assertEquals(3, delta.count(LiveChannelDelta.Type.ADD));
+        assertEquals(0, delta.count(LiveChannelDelta.Type.MOVE));
+        assertEquals(0, delta.count(LiveChannelDelta.Type.REMOVE));
+    }
+
+    @Test
+    public void removesChannels() {
+        Lineup target = new Lineup()
+            .add("2", "http://a/2")
+            .add("4", "http://a/4");
+
+        LiveChannelDelta delta = assertRoundTrip(sample(), target);
+        assertEquals(3, delta.count(LiveChannelDelta.Type.REMOVE));
+        assertEquals(0, delta.count(LiveChannelDelta.Type.ADD));
+        assertTrue(delta.changesOrder());
+    }
+
+    @Test
+    public void movesOnlyChannelsOutsideTheLongestKeptRun() {
+        // 5 pasa al principio: el resto conserva su orden relativo
+        Lineup target = new Lineup()
+            .add("5", "http://a/5")
+            .add("1", "http://a/1")
+            .add("2", "http://a/2")
+            .add("3", "http://a/3")
+            .add("4", "http://a/4");
+
+        LiveChannelDelta delta = assertRoundTrip(sample(), target);
+        assertEquals(1, delta.count(LiveChannelDelta.Type.MOVE));
+        assertTrue(delta.touches("id:5"));
+
+        Lineup reversed = new Lineup();
+        for (int i = 5; i >= 1; i--) {
+            reversed.add(String.valueOf(i), "http://a/" + i);
+        }
+        assertEquals(4, assertRoundTrip(sample(), reversed).count(LiveChannelDelta.Type.MOVE));
+    }
+
+    @Test
+    public void renamesKeepPositionAndDoNotChangeOrder() {
+        Lineup target = sample();
+        target.names.set(1, "Canal 2 HD");
+        target.logos.set(3, "logo/4-nuevo");
+        // Mismo id, URL nueva: renombrado, no alta + baja
+        target.urls.set(4, "http://b/5");
+
+        LiveChannelDelta delta = assertRoundTrip(sample(), target);
+        assertEquals(3, delta.count(LiveChannelDelta.Type.RENAME));
+        assertEquals(0, delta.count(LiveChannelDelta.Type.ADD));
+        assertEquals(0, delta.count(LiveChannelDelta.Type.REMOVE));
+        assertFalse(delta.changesOrder());
+    }
+
+    @Test
+    public void channelsWithoutIdAreMatchedByUrl() {
+        Lineup base = new Lineup()
+            .add("", "http://x/1")
+            .add("", "http://x/2")
+            .add("9", "http://x/9")
+            .add("", "http://x/3");
+        Lineup target = new Lineup()
+            .add("", "http://x/3")
+            .add("", "Canal 1 renombrado", "logo/http://x/1", "http://x/1")
+            .add("9", "http://x/9")
+            .add("", "http://x/4");
+
+        LiveChannelDelta delta = assertRoundTrip(base, target);
+        assertEquals(1, delta.count(LiveChannelDelta.Type.REMOVE));
+        assertEquals(1, delta.count(LiveChannelDelta.Type.ADD));
+        assertEquals(1, delta.count(LiveChannelDelta.Type.RENAME));
+        assertTrue(delta.touches(LiveChannelDelta.channelKey(null, "http://x/3")));
+    }
+
+    @Test
+    public void duplicatedChannelsKeepTheirOwnData() {
+        // Mismo id dos veces (proveedor con el canal en dos grupos) y misma URL sin id dos veces
+        Lineup base = new Lineup()
+            .add("1", "Uno", "logo/1", "http://d/1")
+            .add("", "Sin id", "logo/x", "http://d/x")
+            .add("1", "Uno (deportes)", "logo/1b", "http://d/1b")
+            .add("2", "http://d/2")
+            .add("", "Sin id copia", "logo/x2", "http://d/x");
+        Lineup target = new Lineup()
+            .add("", "Sin id copia", "logo/x2", "http://d/x")
+            .add("1", "Uno (deportes) HD", "logo/1b", "http://d/1b")
+            .add("2", "http://d/2")
+            .add("1", "Uno", "logo/1", "http://d/1")
+            .add("", "Sin id", "logo/x", "http://d/x")
+            .add("1", "Uno (tercero)", "logo/1c", "http://d/1c");
+        assertRoundTrip(base, target);
+
+        Lineup withoutCopies = new Lineup()
+            .add("1", "Uno", "logo/1", "http://d/1")
+            .add("", "Sin id", "logo/x", "http://d/x")
+            .add("2", "http://d/2");
+        LiveChannelDelta delta = assertRoundTrip(base, withoutCopies);
+        assertEquals(2, delta.count(LiveChannelDelta.Type.REMOVE));
+        assertFalse(delta.touches("id:1"));
+        assertRoundTrip(withoutCopies, base);
+    }
+
+    @Test
+    public void mixedAddRemoveMoveRename() {
+        Lineup target = new Lineup()
+            .add("4", "Cuatro", "logo/4", "http://a/4")
+            .add("1", "http://a/1")
+            .add("7", "http://a/7")
+            .add("3", "http://a/3")
+            .add("2", "http://a/2");
+        assertRoundTrip(sample(), target);
+    }
+
+    @Test
+    public void emptyBaseAndEmptyTarget() {
+        assertEquals(5, assertRoundTrip(new Lineup(), sample()).count(LiveChannelDelta.Type.ADD));
+        assertEquals(5, assertRoundTrip(sample(), new Lineup()).count(LiveChannelDelta.Type.REMOVE));
+    }
+
+    @Test
+    public void randomListsRoundTrip() {
+        Random random = new Random(20261017L);
+        for (int round = 0; round < 300; round++) {
+            Lineup base = randomLineup(random, round, "b");
+            Lineup target = mutate(random, base, round);
+            assertRoundTrip(base, target);
+            assertRoundTrip(target, base);
+        }
+    }
+
+    @Test
+    public void moveFromJsWithOnlyKeyReusesOriginalData() {
+        Lineup base = sample();
+        LiveChannelDelta delta = LiveChannelDelta.of(3L, Arrays.asList(
+            new LiveChannelDelta.Operation(LiveChannelDelta.Type.MOVE, "id:1", 4, null, null, null, null),
+            new LiveChannelDelta.Operation(LiveChannelDelta.Type.RENAME, "id:3", 2, null, "Tres", null, null)
+        ));
+        Lineup applied = base.copy();
+        delta.applyTo(applied.ids, applied.names, applied.logos, applied.urls);
+
+        assertEquals(Arrays.asList("2", "3", "4", "5", "1"), applied.ids);
+        assertEquals(Arrays.asList("http://a/2", "http://a/3", "http://a/4", "http://a/5", "http://a/1"), applied.urls);
+        assertEquals("Tres", applied.names.get(1));
+        assertEquals("Canal http://a/1", applied.names.get(4));
+    }
+
+    // Ids en unas entradas, vacios (clave por URL) en otras, y algunas repeticiones de ambos
+    private static Lineup randomLineup(Random random, int round, String prefix) {
+        Lineup lineup = new Lineup();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && random.nextInt(6) == 0) {
+                int copy = random.nextInt(i);
+                lineup.add(lineup.ids.get(copy), "Copia " + i, "logo/" + i, lineup.urls.get(copy));
+                continue;
+            }
+            String url = "http://h/" + prefix + round + "/" + i;
+            lineup.add(random.nextInt(4) == 0 ? "" : prefix + round + "-" + i, url);
+        }
+        return lineup;
+    }
+
+    private static Lineup mutate(Random random, Lineup base, int round) {
+        ArrayList<Integer> order = new ArrayList<>();
+        for (int i = 0; i < base.urls.size(); i++) {
+            if (random.nextInt(5) != 0) {
+                order.add(i);
+            }
+        }
+        if (random.nextBoolean()) {
+            Collections.shuffle(order, random);
+        } else if (order.size() > 1) {
+            Collections.swap(order, random.nextInt(order.size()), random.nextInt(order.size()));
+        }
+        Lineup target = new Lineup();
+        for (int index : order) {
+            String name = base.names.get(index);
+            String logo = base.logos.get(index);
+            String url = base.urls.get(index);
+            int change = random.nextInt(8);
+            if (change == 0) {
+                name = name + " *";
+            } else if (change == 1) {
+                logo = logo + "?v2";
+            } else if (change == 2 && !base.ids.get(index).isEmpty()) {
+                url = url + "/mirror";
+            }
+            target.add(base.ids.get(index), name, logo, url);
+        }
+        int additions = random.nextInt(6);
+        for (int i = 0; i < additions; i++) {
+            String url = "http://h/new" + round + "/" + i;
+            int at = random.nextInt(target.urls.size() + 1);
+            target.ids.add(at, random.nextBoolean() ? "" : "new" + round + "-" + i);
+            target.names.add(at, "Nuevo " + i);
+            target.logos.add(at, "");
+            target.urls.add(at, url);
+        }
+        return target;
+    }
+}
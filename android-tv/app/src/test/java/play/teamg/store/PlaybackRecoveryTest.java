@@ -0,0 +1,96 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// Backoff exponencial con jitter y circuit breaker por URL. El estado del breaker es estatico y
+// compartido, asi que cada test usa URLs propias y tiempos explicitos en lugar de SystemClock.
+public class PlaybackRecoveryTest {
+    private static int urlCounter = 0;
+
+    private static synchronized String uniqueUrl() {
+        return "http://test/recovery/" + (urlCounter++) + ".m3u8";
+    }
+
+    @Test
+    public void backoffStaysWithinEqualJitterBounds() {
+        long step = 1000L;
+        for (int attempt = 1; attempt <= 8; attempt++) {
+            long low = PlaybackRecovery.backoffDelayMs(attempt, 0.0);
+            long high = PlaybackRecovery.backoffDelayMs(attempt, 0.999);
+            assertEquals("minimo del intento " + attempt, step / 2L, low);
+            assertTrue(high >= low && high <= step);
+            assertTrue(high > step * 9L / 10L);
+            step = Math.min(16000L, step * 2L);
+        }
+    }
+
+    @Test
+    public void backoffDoublesUntilTheCap() {
+        assertEquals(500L, PlaybackRecovery.backoffDelayMs(1, 0.0));
+        assertEquals(1000L, PlaybackRecovery.backoffDelayMs(2, 0.0));
+        assertEquals(2000L, PlaybackRecovery.backoffDelayMs(3, 0.0));
+        assertEquals(8000L, PlaybackRecovery.backoffDelayMs(5, 0.0));
+        assertEquals(8000L, PlaybackRecovery.backoffDelayMs(6, 0.0));
+        // Intentos muy altos no desbordan el desplazamiento
+        assertEquals(8000L, PlaybackRecovery.backoffDelayMs(64, 0.0));
+        assertTrue(PlaybackRecovery.backoffDelayMs(64, 0.999) <= 16000L);
+    }
+
+    @Test
+    public void breakerOpensAfterConsecutiveFailures() {
+        String url = uniqueUrl();
+        long now = 100000L;
+
+        assertEquals(0L, PlaybackRecovery.recordFailure(url, now));
+        assertEquals(0L, PlaybackRecovery.openRemainingMs(url, now));
+
+        assertEquals(30000L, PlaybackRecovery.recordFailure(url, now + 1000L));
+        assertEquals(20000L, PlaybackRecovery.openRemainingMs(url, now + 11000L));
+        // Otro fallo con el circuito abierto no alarga el plazo
+        assertEquals(20000L, PlaybackRecovery.recordFailure(url, now + 11000L));
+        assertEquals(0L, PlaybackRecovery.openRemainingMs(url, now + 31000L));
+        assertEquals(0L, PlaybackRecovery.openRemainingMs(uniqueUrl(), now));
+    }
+
+    @Test
+    public void halfOpenFailureReopensForTwiceAsLongUpToTheCap() {
+        String url = uniqueUrl();
+        long now = 0L;
+        PlaybackRecovery.recordFailure(url, now);
+        long openFor = PlaybackRecovery.recordFailure(url, now);
+        assertEquals(30000L, openFor);
+
+        long expected = 30000L;
+        for (int i = 0; i < 8; i++) {
+            now += openFor;
+            expected = Math.min(5 * 60 * 1000L, expected * 2L);
+            // Semiabierto: un solo fallo vuelve a abrir
+            openFor = PlaybackRecovery.recordFailure(url, now);
+            assertEquals("reapertura " + i, expected, openFor);
+        }
+        assertEquals(300000L, openFor);
+    }
+
+    @Test
+    public void successClosesTheBreakerAndResetsTheDuration() {
+        String url = uniqueUrl();
+        PlaybackRecovery.recordFailure(url, 0L);
+        assertEquals(30000L, PlaybackRecovery.recordFailure(url, 0L));
+        assertEquals(60000L, PlaybackRecovery.recordFailure(url, 30000L));
+
+        PlaybackRecovery.recordSuccess(url);
+        assertEquals(0L, PlaybackRecovery.openRemainingMs(url, 30000L));
+        assertEquals(0L, PlaybackRecovery.recordFailure(url, 30000L));
+        assertEquals(30000L, PlaybackRecovery.recordFailure(url, 30000L));
+    }
+
+    @Test
+    public void nullUrlNeverOpens() {
+        assertEquals(0L, PlaybackRecovery.recordFailure(null, 0L));
+        assertEquals(0L, PlaybackRecovery.recordFailure(null, 0L));
+        assertEquals(0L, PlaybackRecovery.openRemainingMs(null, 0L));
+    }
+}
@@ -0,0 +1,203 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Diario de reanudacion sobre un fichero temporal: persistencia al reabrir, compactacion de registros
+// obsoletos y recuperacion de una cola rota (registro a medias o con CRC incorrecto tras un kill).
+public class ResumeJournalTest {
+    // Formato del registro: MAGIC, longitud y CRC32 (12 bytes) seguidos del payload
+    private static final int MAGIC = 0x524A4E31;
+    private static final int HEADER_BYTES = 12;
+
+    private File directory;
+    private File file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = File.createTempFile("resume-journal", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        file = new File(directory, "resume_journal.bin");
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    // lookup va por el mismo hilo que record: al volver, todo lo encolado antes ya esta escrito
+    private static List<ResumeJournal.Entry> lookup(ResumeJournal journal, List<String> urls) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<ResumeJournal.Entry> result = new ArrayList<>();
+        journal.lookup(urls, entries -> {
+            result.addAll(entries);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static ResumeJournal.Entry find(ResumeJournal journal, String url) throws InterruptedException {
+        List<ResumeJournal.Entry> entries = lookup(journal, Collections.singletonList(url));
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    // Offsets de los registros con MAGIC, recorriendo el fichero como hace la carga (sin validar CRC)
+    private List<Integer> recordOffsets() throws IOException {
+        ArrayList<Integer> offsets = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long offset = 0;
+            while (offset + HEADER_BYTES <= raf.length()) {
+                raf.seek(offset);
+                if (raf.readInt() != MAGIC) {
+                    break;
+                }
+                int length = raf.readInt();
+                offsets.add((int) offset);
+                offset += HEADER_BYTES + length;
+            }
+        }
+        return offsets;
+    }
+
+    @Test
+    public void entriesSurviveReopen() throws Exception {
+        ResumeJournal journal = new ResumeJournal(file);
+        journal.record("http://vod/a.mp4", 3, 1, 2, 61000L, false);
+        journal.record("http://vod/b.mp4", 0, 0, 0, 5000L, false);
+        journal.record("http://vod/a.mp4", 4, 1, 3, 12000L, true);
+        journal.record("", 0, 0, 0, 1000L, false);
+        assertEquals(2, lookup(journal, null).size());
+
+        ResumeJournal reopened = new ResumeJournal(file);
+        ResumeJournal.Entry a = find(reopened, "http://vod/a.mp4");
+        assertNotNull(a);
+        assertEquals(4, a.chapterGlobalIndex);
+        assertEquals(1, a.seasonIndex);
+        assertEquals(3, a.chapterIndex);
+        assertEquals(12000L, a.positionMs);
+        assertTrue(a.completed);
+        ResumeJournal.Entry b = find(reopened, "http://vod/b.mp4");
+        assertNotNull(b);
+        assertEquals(5000L, b.positionMs);
+        assertFalse(b.completed);
+        assertNull(find(reopened, "http://vod/c.mp4"));
+        assertEquals(3, recordOffsets().size());
+    }
+
+    @Test
+    public void compactionKeepsOnlyTheLatestRecordPerUrl() throws Exception {
+        ResumeJournal journal = new ResumeJournal(file);
+        for (int i = 1; i <= 200; i++) {
+            journal.record("http://vod/serie.mp4", i, 0, i, i * 1000L, false);
+            journal.record("http://vod/peli.mp4", 0, 0, 0, i * 500L, false);
+        }
+        assertEquals(2, lookup(journal, null).size());
+        // Sin compactar habria 400 registros; el umbral es max(64, vivas * 8)
+        assertTrue(recordOffsets().size() <= 65);
+
+        ResumeJournal reopened = new ResumeJournal(file);
+        ResumeJournal.Entry serie = find(reopened, "http://vod/serie.mp4");
+        assertNotNull(serie);
+        assertEquals(200, serie.chapterGlobalIndex);
+        assertEquals(200000L, serie.positionMs);
+        assertEquals(100000L, find(reopened, "http://vod/peli.mp4").positionMs);
+        assertFalse(new File(directory, "resume_journal.bin.tmp").exists());
+    }
+
+    @Test
+    public void corruptedLastRecordIsDropped() throws Exception {
+        ResumeJournal journal = new ResumeJournal(file);
+        journal.record("http://vod/a.mp4", 0, 0, 0, 1000L, false);
+        journal.record("http://vod/b.mp4", 0, 0, 0, 2000L, false);
+        journal.record("http://vod/a.mp4", 0, 0, 0, 3000L, false);
+        lookup(journal, null);
+
+        List<Integer> offsets = recordOffsets();
+        assertEquals(3, offsets.size());
+        // Payload escrito a medias: el CRC de la cabecera ya no cuadra
+        int last = offsets.get(2);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(last + HEADER_BYTES + 5);
+            int value = raf.read();
+            raf.seek(last + HEADER_BYTES + 5);
+            raf.write(value ^ 0xFF);
+        }
+
+        ResumeJournal reopened = new ResumeJournal(file);
+        assertEquals(1000L, find(reopened, "http://vod/a.mp4").positionMs);
+        assertEquals(2000L, find(reopened, "http://vod/b.mp4").positionMs);
+
+        // Lo siguiente se escribe encima del registro roto y sobrevive a otra apertura
+        reopened.record("http://vod/c.mp4", 0, 0, 0, 4000L, false);
+        lookup(reopened, null);
+        ResumeJournal again = new ResumeJournal(file);
+        assertEquals(4000L, find(again, "http://vod/c.mp4").positionMs);
+        assertEquals(1000L, find(again, "http://vod/a.mp4").positionMs);
+        assertEquals(3, recordOffsets().size());
+    }
+
+    @Test
+    public void recordWithoutMagicIsIgnored() throws Exception {
+        ResumeJournal journal = new ResumeJournal(file);
+        journal.record("http://vod/a.mp4", 0, 0, 0, 1000L, false);
+        lookup(journal, null);
+
+        // Kill antes de escribir MAGIC: longitud, CRC y payload presentes, cabecera sin marcar
+        int tail = recordOffsets().get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(tail + 4);
+            int length = raf.readInt();
+            int next = tail + HEADER_BYTES + length;
+            raf.seek(next + 4);
+            raf.writeInt(length);
+            raf.writeInt(0x12345678);
+            byte[] garbage = new byte[length];
+            Arrays.fill(garbage, (byte) 7);
+            raf.write(garbage);
+        }
+
+        ResumeJournal reopened = new ResumeJournal(file);
+        List<ResumeJournal.Entry> entries = lookup(reopened, null);
+        assertEquals(1, entries.size());
+        assertEquals("http://vod/a.mp4", entries.get(0).url);
+        assertEquals(1, recordOffsets().size());
+    }
+
+    @Test
+    public void lookupWithoutUrlsIsSortedByRecency() throws Exception {
+        ResumeJournal journal = new ResumeJournal(file);
+        journal.record("http://vod/a.mp4", 0, 0, 0, 1000L, false);
+        lookup(journal, null);
+        Thread.sleep(5L);
+        journal.record("http://vod/b.mp4", 0, 0, 0, 2000L, false);
+
+        List<ResumeJournal.Entry> entries = lookup(journal, Collections.<String>emptyList());
+        assertEquals(2, entries.size());
+        assertEquals("http://vod/b.mp4", entries.get(0).url);
+        assertEquals("http://vod/a.mp4", entries.get(1).url);
+    }
+}
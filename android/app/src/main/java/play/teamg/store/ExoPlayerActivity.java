@@ -36,7 +36,6 @@ import com.google.android.exoplayer2.util.Util;
 public class ExoPlayerActivity extends AppCompatActivity {
     private static final String TAG = "ExoPlayerActivity";
     private static final long PROGRESS_UPDATE_INTERVAL_MS = 15000L;
-    private static final long SESSION_VALIDATE_INTERVAL_MS = 20000L;
 
     private PlayerView playerView;
     private ExoPlayer player;
@@ -49,10 +48,10 @@ public class ExoPlayerActivity extends AppCompatActivity {
     private String sessionToken = "";
     private String deviceId = "";
     private String apiBaseUrl = "";
-    private boolean sessionValidationInFlight = false;
+    private boolean sessionValidationEnabled = false;
+    private SessionValidationHelper.Subscription sessionSubscription;
 
     private final Handler progressHandler = new Handler(Looper.getMainLooper());
-    private final Handler sessionValidationHandler = new Handler(Looper.getMainLooper());
 
     private final Runnable progressRunnable = new Runnable() {
         @Override
@@ -64,12 +63,6 @@ public class ExoPlayerActivity extends AppCompatActivity {
         }
     };
 
-    private final Runnable sessionValidationRunnable = new Runnable() {
-        @Override
-        public void run() {
-            queueSessionValidation();
-        }
-    };
 
     private final BroadcastReceiver controlReceiver = new BroadcastReceiver() {
         @Override
@@ -129,6 +122,7 @@ public class ExoPlayerActivity extends AppCompatActivity {
         sessionToken = getIntent().getStringExtra("session_token");
         deviceId = getIntent().getStringExtra("device_id");
         apiBaseUrl = getIntent().getStringExtra("api_base_url");
+        sessionValidationEnabled = getIntent().getBooleanExtra("session_validation", false);
 
         if (videoUrl == null || videoUrl.isEmpty()) {
             Toast.makeText(this, "URL de video no valida", Toast.LENGTH_SHORT).show();
@@ -229,46 +223,30 @@ public class ExoPlayerActivity extends AppCompatActivity {
     }
 
     private void scheduleSessionValidation() {
-        if (!SessionValidationHelper.hasSessionContext(apiBaseUrl, sessionToken, deviceId)) {
-          return;
+        if (sessionSubscription != null) {
+            return;
         }
 
-        sessionValidationHandler.removeCallbacks(sessionValidationRunnable);
-        sessionValidationHandler.postDelayed(sessionValidationRunnable, SESSION_VALIDATE_INTERVAL_MS);
+        sessionSubscription = SessionValidationHelper.subscribe(sessionValidationEnabled, apiBaseUrl, sessionToken, deviceId, () -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            handleSessionRevoked();
+        });
     }
 
     private void stopSessionValidation() {
-        sessionValidationHandler.removeCallbacks(sessionValidationRunnable);
+        SessionValidationHelper.unsubscribe(sessionSubscription);
+        sessionSubscription = null;
     }
 
     private void queueSessionValidation() {
-        if (isFinishing() || isDestroyed() || sessionValidationInFlight) {
-            return;
-        }
-
-        if (!SessionValidationHelper.hasSessionContext(apiBaseUrl, sessionToken, deviceId)) {
+        if (isFinishing() || isDestroyed()) {
             return;
         }
 
-        sessionValidationInFlight = true;
-        new Thread(() -> {
-            SessionValidationHelper.ValidationResult result =
-                SessionValidationHelper.validate(apiBaseUrl, sessionToken, deviceId);
-
-            runOnUiThread(() -> {
-                sessionValidationInFlight = false;
-                if (isFinishing() || isDestroyed()) {
-                    return;
-                }
-
-                if (result == SessionValidationHelper.ValidationResult.INVALID) {
-                    handleSessionRevoked();
-                    return;
-                }
-
-                scheduleSessionValidation();
-            });
-        }).start();
+        scheduleSessionValidation();
+        SessionValidationHelper.requestValidation(sessionSubscription);
     }
 
     private void handleSessionRevoked() {
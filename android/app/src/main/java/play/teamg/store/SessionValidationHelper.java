@@ -1,14 +1,48 @@
 package play.teamg.store;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+// Validacion de sesion compartida por todo el proceso.
+// - Un solo hilo programado para todas las validaciones: las peticiones salen en serie y reutilizan la
+//   conexion keep-alive del pool de HttpURLConnection (se lee la respuesta entera y no se llama a
+//   disconnect()).
+// - Las actividades se suscriben por sesion (base + token + dispositivo). VLC y ExoPlayer con la misma
+//   sesion comparten un unico temporizador y una sola peticion en vuelo.
+// - If-None-Match con el ultimo ETag: un 304 cuenta como sesion valida sin transferir el cuerpo.
+// - Intervalo adaptativo: se alarga mientras la sesion sigue valida y, si el servidor falla, backoff
+//   exponencial con jitter para no repetir peticiones contra un backend caido.
+// - Revocacion confirmada: un 401 se vuelve a comprobar a los CONFIRM_REVOCATION_MS sin ETag y solo un
+//   segundo 401 seguido revoca (un 401 suelto de un proxy o un reinicio del backend no cierra el player).
+//   Un 403 es de plan/limite de dispositivos, no de sesion: se sigue reintentando.
+// La revocacion se entrega a los suscriptores en el hilo principal.
+// Desactivada por defecto, como antes: solo valida si playVideo la pide con sessionValidation=true.
 public final class SessionValidationHelper {
     private static final String TAG = "SessionValidation";
 
-    private SessionValidationHelper() {}
+    private static final long BASE_INTERVAL_MS = 20000L;
+    private static final long MAX_VALID_INTERVAL_MS = 60000L;
+    private static final long MAX_RETRY_INTERVAL_MS = 5 * 60 * 1000L;
+    // Validaciones validas seguidas antes de empezar a alargar el intervalo
+    private static final int STABLE_VALIDATIONS = 3;
+    // Peticiones inmediatas (onStart, PiP...) mas cercanas que esto a la ultima respuesta se ignoran
+    private static final long MIN_REVALIDATE_MS = 5000L;
+    private static final int TIMEOUT_MS = 8000;
+    private static final long CONFIRM_REVOCATION_MS = 3000L;
 
     public enum ValidationResult {
         VALID,
@@ -16,15 +50,199 @@ public final class SessionValidationHelper {
         RETRY
     }
 
-    public static boolean hasSessionContext(String apiBaseUrl, String sessionToken, String deviceId) {
-        return false;
+    public interface Listener {
+        void onSessionRevoked();
     }
 
-    public static ValidationResult validate(String apiBaseUrl, String sessionToken, String deviceId) {
-        if (!hasSessionContext(apiBaseUrl, sessionToken, deviceId)) {
-            return ValidationResult.RETRY;
+    public static final class Subscription {
+        final String key;
+        final Listener listener;
+
+        Subscription(String key, Listener listener) {
+            this.key = key;
+            this.listener = listener;
         }
+    }
+
+    static final class SessionState {
+        final String apiBaseUrl;
+        final String sessionToken;
+        final String deviceId;
+        final ArrayList<Subscription> subscribers = new ArrayList<>();
+        ScheduledFuture<?> scheduled;
+        // Identifica la ejecucion programada vigente: una cancelada que ya habia arrancado no hace nada
+        Object scheduledToken;
+        boolean inFlight;
+        String etag;
+        long lastResponseMs;
+        long intervalMs = BASE_INTERVAL_MS;
+        int consecutiveValid;
+        int consecutiveRetries;
+        // Ultima respuesta fue 401; a la espera de confirmarlo
+        boolean unauthorizedOnce;
+
+        SessionState(String apiBaseUrl, String sessionToken, String deviceId) {
+            this.apiBaseUrl = apiBaseUrl;
+            this.sessionToken = sessionToken;
+            this.deviceId = deviceId;
+        }
+    }
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-validation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final HashMap<String, SessionState> sessions = new HashMap<>();
+    private static final Random random = new Random();
 
+    private SessionValidationHelper() {}
+
+    public static boolean hasSessionContext(boolean validationEnabled, String apiBaseUrl, String sessionToken, String deviceId) {
+        return validationEnabled
+            && apiBaseUrl != null && !apiBaseUrl.isEmpty()
+            && sessionToken != null && !sessionToken.isEmpty()
+            && deviceId != null && !deviceId.isEmpty();
+    }
+
+    // Empieza la validacion periodica de la sesion. Devuelve null si no esta activada o no hay contexto de sesion.
+    public static synchronized Subscription subscribe(boolean validationEnabled, String apiBaseUrl, String sessionToken, String deviceId, Listener listener) {
+        if (!hasSessionContext(validationEnabled, apiBaseUrl, sessionToken, deviceId) || listener == null) {
+            return null;
+        }
+        String key = apiBaseUrl + "|" + sessionToken + "|" + deviceId;
+        SessionState state = sessions.get(key);
+        if (state == null) {
+            state = new SessionState(apiBaseUrl, sessionToken, deviceId);
+            sessions.put(key, state);
+        }
+        Subscription subscription = new Subscription(key, listener);
+        state.subscribers.add(subscription);
+        if (state.scheduled == null && !state.inFlight) {
+            scheduleLocked(state, state.intervalMs);
+        }
+        return subscription;
+    }
+
+    public static synchronized void unsubscribe(Subscription subscription) {
+        if (subscription == null) {
+            return;
+        }
+        SessionState state = sessions.get(subscription.key);
+        if (state == null) {
+            return;
+        }
+        state.subscribers.remove(subscription);
+        if (state.subscribers.isEmpty()) {
+            if (state.scheduled != null) {
+                state.scheduled.cancel(false);
+                state.scheduled = null;
+            }
+            sessions.remove(subscription.key);
+        }
+    }
+
+    // Validacion inmediata. Se une a la que este en vuelo y no repite una respuesta reciente.
+    public static synchronized void requestValidation(Subscription subscription) {
+        SessionState state = subscription != null ? sessions.get(subscription.key) : null;
+        if (state == null || state.inFlight) {
+            return;
+        }
+        if (state.lastResponseMs > 0L && SystemClock.elapsedRealtime() - state.lastResponseMs < MIN_REVALIDATE_MS) {
+            return;
+        }
+        scheduleLocked(state, 0L);
+    }
+
+    private static void scheduleLocked(final SessionState state, long delayMs) {
+        if (state.scheduled != null) {
+            state.scheduled.cancel(false);
+        }
+        final Object token = new Object();
+        state.scheduledToken = token;
+        state.scheduled = executor.schedule(() -> runValidation(state, token), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runValidation(SessionState state, Object token) {
+        String etag;
+        synchronized (SessionValidationHelper.class) {
+            if (sessions.get(keyOf(state)) != state || state.inFlight || state.scheduledToken != token) {
+                return;
+            }
+            state.scheduled = null;
+            state.scheduledToken = null;
+            state.inFlight = true;
+            etag = state.etag;
+        }
+
+        String[] responseEtag = new String[1];
+        ValidationResult result = validate(state.apiBaseUrl, state.sessionToken, state.deviceId, etag, responseEtag);
+
+        ArrayList<Subscription> revoked = null;
+        synchronized (SessionValidationHelper.class) {
+            state.inFlight = false;
+            state.lastResponseMs = SystemClock.elapsedRealtime();
+            if (responseEtag[0] != null) {
+                state.etag = responseEtag[0];
+            }
+            boolean current = sessions.get(keyOf(state)) == state;
+            if (result == ValidationResult.INVALID && !state.unauthorizedOnce) {
+                state.unauthorizedOnce = true;
+                // La confirmacion va sin If-None-Match: tiene que ser una respuesta completa
+                state.etag = null;
+                Log.w(TAG, "Sesion rechazada (401), se confirma en " + CONFIRM_REVOCATION_MS + "ms");
+                if (current) {
+                    scheduleLocked(state, CONFIRM_REVOCATION_MS);
+                }
+            } else if (result == ValidationResult.INVALID) {
+                revoked = new ArrayList<>(state.subscribers);
+                if (current) {
+                    sessions.remove(keyOf(state));
+                }
+            } else {
+                state.unauthorizedOnce = false;
+                if (current) {
+                    state.intervalMs = nextInterval(state, result);
+                    scheduleLocked(state, state.intervalMs);
+                }
+            }
+        }
+
+        if (revoked != null) {
+            final ArrayList<Subscription> subscribers = revoked;
+            mainHandler.post(() -> {
+                for (Subscription subscription : subscribers) {
+                    subscription.listener.onSessionRevoked();
+                }
+            });
+        }
+    }
+
+    static long nextInterval(SessionState state, ValidationResult result) {
+        if (result == ValidationResult.VALID) {
+            state.consecutiveRetries = 0;
+            state.consecutiveValid++;
+            if (state.consecutiveValid <= STABLE_VALIDATIONS) {
+                return BASE_INTERVAL_MS;
+            }
+            return Math.min(MAX_VALID_INTERVAL_MS, state.intervalMs + state.intervalMs / 2L);
+        }
+        // Backoff con "equal jitter": entre la mitad y el total del escalon
+        state.consecutiveValid = 0;
+        state.consecutiveRetries++;
+        long step = Math.min(MAX_RETRY_INTERVAL_MS, BASE_INTERVAL_MS << Math.min(state.consecutiveRetries - 1, 8));
+        long half = step / 2L;
+        long delayMs = Math.max(BASE_INTERVAL_MS, half + (long) (random.nextDouble() * half));
+        Log.d(TAG, "Validacion sin respuesta valida (" + state.consecutiveRetries + "), siguiente en " + delayMs + "ms");
+        return delayMs;
+    }
+
+    private static String keyOf(SessionState state) {
+        return state.apiBaseUrl + "|" + state.sessionToken + "|" + state.deviceId;
+    }
+
+    static ValidationResult validate(String apiBaseUrl, String sessionToken, String deviceId, String etag, String[] responseEtag) {
         HttpURLConnection connection = null;
 
         try {
@@ -32,18 +250,35 @@ public final class SessionValidationHelper {
             URL url = new URL(normalizedBaseUrl + "/api/auth/session");
             connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("GET");
-            connection.setConnectTimeout(8000);
-            connection.setReadTimeout(8000);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setUseCaches(false);
             connection.setRequestProperty("Authorization", "Bearer " + sessionToken);
             connection.setRequestProperty("x-device-id", deviceId);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
 
             int statusCode = connection.getResponseCode();
+            responseEtag[0] = connection.getHeaderField("ETag");
+            drain(connection, statusCode);
+
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return ValidationResult.VALID;
+            }
+
             if (statusCode >= 200 && statusCode < 300) {
                 return ValidationResult.VALID;
             }
 
-            if (statusCode == 401 || statusCode == 403) {
-                Log.w(TAG, "Validacion nativa recibio HTTP " + statusCode + ". Se ignorara para evitar cierres falsos de sesion.");
+            if (statusCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                // runValidation solo revoca si el siguiente intento tambien es 401
+                Log.w(TAG, "Validacion nativa recibio HTTP 401");
+                return ValidationResult.INVALID;
+            }
+
+            if (statusCode == HttpURLConnection.HTTP_FORBIDDEN) {
+                Log.w(TAG, "Validacion nativa recibio HTTP 403 (plan o dispositivos). Se reintentara.");
                 return ValidationResult.RETRY;
             }
 
@@ -51,11 +286,27 @@ public final class SessionValidationHelper {
             return ValidationResult.RETRY;
         } catch (Exception error) {
             Log.w(TAG, "Error validando sesion nativa. Se reintentara.", error);
-            return ValidationResult.RETRY;
-        } finally {
+            // Una conexion que fallo a medias no debe volver al pool
             if (connection != null) {
                 connection.disconnect();
             }
+            return ValidationResult.RETRY;
+        }
+    }
+
+    // Leer el cuerpo hasta el final y cerrar el stream devuelve la conexion al pool keep-alive.
+    private static void drain(HttpURLConnection connection, int statusCode) throws IOException {
+        InputStream stream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (stream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) != -1) {
+                // descartar
+            }
+        } finally {
+            stream.close();
         }
     }
 }
@@ -48,7 +48,6 @@ import java.util.ArrayList;
 public class VLCPlayerActivity extends AppCompatActivity implements GestureDetector.OnGestureListener {
 
     private static final String TAG = "VLCPlayerActivity";
-    private static final long SESSION_VALIDATE_INTERVAL_MS = 20000L;
 
     // Player components
     private LibVLC libVlc;
@@ -119,17 +118,17 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     private boolean isRecoveringPlayback = false;
     private boolean forceAudioRecoveryPending = false;
     private boolean hasSentPlayerClosedEvent = false;
-    private boolean sessionValidationInFlight = false;
+    private SessionValidationHelper.Subscription sessionSubscription;
     private String closeReason = "unknown";
     private String playbackSessionId = "";
     private String sessionToken = "";
     private String deviceId = "";
     private String apiBaseUrl = "";
+    private boolean sessionValidationEnabled = false;
     private int recoveryAttempts = 0;
     private long lastTimeChangedSystemMs = 0L;
     private long lastPlaybackPositionMs = 0L;
     private final Handler recoveryHandler = new Handler(Looper.getMainLooper());
-    private final Handler sessionValidationHandler = new Handler(Looper.getMainLooper());
     private final Runnable stallWatchdogRunnable = new Runnable() {
         @Override
         public void run() {
@@ -151,12 +150,6 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
             }
         }
     };
-    private final Runnable sessionValidationRunnable = new Runnable() {
-        @Override
-        public void run() {
-            queueSessionValidation();
-        }
-    };
 
     private BroadcastReceiver controlReceiver;
     private BroadcastReceiver finishReceiver;
@@ -206,6 +199,7 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
         sessionToken = getIntent().getStringExtra("session_token");
         deviceId = getIntent().getStringExtra("device_id");
         apiBaseUrl = getIntent().getStringExtra("api_base_url");
+        sessionValidationEnabled = getIntent().getBooleanExtra("session_validation", false);
         if (lastPosition > 0) {
             isSeekPending = true;
         }
@@ -471,46 +465,30 @@ public class VLCPlayerActivity extends AppCompatActivity implements GestureDetec
     }
 
     private void scheduleSessionValidation() {
-        if (!SessionValidationHelper.hasSessionContext(apiBaseUrl, sessionToken, deviceId)) {
+        if (sessionSubscription != null) {
             return;
         }
 
-        sessionValidationHandler.removeCallbacks(sessionValidationRunnable);
-        sessionValidationHandler.postDelayed(sessionValidationRunnable, SESSION_VALIDATE_INTERVAL_MS);
+        sessionSubscription = SessionValidationHelper.subscribe(sessionValidationEnabled, apiBaseUrl, sessionToken, deviceId, () -> {
+            if (isActivityClosing || isFinishing()) {
+                return;
+            }
+            handleSessionRevoked();
+        });
     }
 
     private void stopSessionValidation() {
-        sessionValidationHandler.removeCallbacks(sessionValidationRunnable);
+        SessionValidationHelper.unsubscribe(sessionSubscription);
+        sessionSubscription = null;
     }
 
     private void queueSessionValidation() {
-        if (isActivityClosing || isFinishing() || sessionValidationInFlight) {
+        if (isActivityClosing || isFinishing()) {
             return;
         }
 
-        if (!SessionValidationHelper.hasSessionContext(apiBaseUrl, sessionToken, deviceId)) {
-            return;
-        }
-
-        sessionValidationInFlight = true;
-        new Thread(() -> {
-            SessionValidationHelper.ValidationResult result =
-                SessionValidationHelper.validate(apiBaseUrl, sessionToken, deviceId);
-
-            runOnUiThread(() -> {
-                sessionValidationInFlight = false;
-                if (isActivityClosing || isFinishing()) {
-                    return;
-                }
-
-                if (result == SessionValidationHelper.ValidationResult.INVALID) {
-                    handleSessionRevoked();
-                    return;
-                }
-
-                scheduleSessionValidation();
-            });
-        }).start();
+        scheduleSessionValidation();
+        SessionValidationHelper.requestValidation(sessionSubscription);
     }
 
     private void handleSessionRevoked() {
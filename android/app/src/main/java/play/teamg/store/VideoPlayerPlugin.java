@@ -36,16 +36,18 @@ public class VideoPlayerPlugin extends Plugin {
         String title = call.getString("title", "Video");
         String playbackSessionId = call.getString("sessionId", "");
         Long startTime = call.getLong("startTime", 0L);
-        JSArray chaptersArray = call.getArray("chapters");
+        JSArray chaptersArray = readArray(call, "chapters", "chaptersJson");
         String requestedPlayerType = call.getString("playerType", "");
         int seasonIndex = call.getInt("seasonIndex", -1);
         int chapterIndex = call.getInt("chapterIndex", -1);
-        JSArray channelsArray = call.getArray("channels");  // ← NUEVO
+        JSArray channelsArray = readArray(call, "channels", "channelsJson");  // ← NUEVO
         Boolean isLiveTV = call.getBoolean("isLiveTV", false);  // ← NUEVO
         String contentType = call.getString("contentType", "series");  // ← NUEVO
         String sessionToken = call.getString("sessionToken", "");
         String deviceId = call.getString("deviceId", "");
         String apiBaseUrl = call.getString("apiBaseUrl", "");
+        // Validacion periodica de sesion (cierra el player tras dos 401 seguidos); desactivada salvo peticion expresa
+        boolean sessionValidation = Boolean.TRUE.equals(call.getBoolean("sessionValidation", false));
 
         if (url == null) {
             call.reject("URL is required");
@@ -77,6 +79,7 @@ public class VideoPlayerPlugin extends Plugin {
             intent.putExtra("session_token", sessionToken);
             intent.putExtra("device_id", deviceId);
             intent.putExtra("api_base_url", apiBaseUrl);
+            intent.putExtra("session_validation", sessionValidation);
 
             if (chaptersArray != null) {
                 ArrayList<String> chapterTitles = new ArrayList<>();
@@ -182,6 +185,7 @@ public class VideoPlayerPlugin extends Plugin {
                 fallbackIntent.putExtra("session_token", sessionToken);
                 fallbackIntent.putExtra("device_id", deviceId);
                 fallbackIntent.putExtra("api_base_url", apiBaseUrl);
+                fallbackIntent.putExtra("session_validation", sessionValidation);
 
                 getActivity().startActivity(fallbackIntent);
 
@@ -197,9 +201,23 @@ public class VideoPlayerPlugin extends Plugin {
         }
     }
 
+    // El frontend manda las listas serializadas (chaptersJson/channelsJson); las llamadas antiguas, como array
+    private static JSArray readArray(PluginCall call, String arrayKey, String jsonKey) {
+        String json = call.getString(jsonKey);
+        if (json == null) {
+            return call.getArray(arrayKey);
+        }
+        try {
+            return new JSArray(json);
+        } catch (JSONException e) {
+            Log.w(TAG, "No se pudo leer " + jsonKey, e);
+            return null;
+        }
+    }
+
     @PluginMethod
     public void updateLiveChannels(PluginCall call) {
-        JSArray channelsArray = call.getArray("channels");
+        JSArray channelsArray = readArray(call, "channels", "channelsJson");
         ArrayList<String> channelNames = new ArrayList<>();
         ArrayList<String> channelLogos = new ArrayList<>();
         ArrayList<String> channelUrls = new ArrayList<>();
@@ -0,0 +1,196 @@
+package play.teamg.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Validacion de sesion contra un servidor local (com.sun.net.httpserver): ETag/304, una sola peticion
+// en vuelo por sesion, backoff, reutilizacion de la conexion keep-alive y desactivada salvo opt-in.
+public class SessionValidationHelperTest {
+    private static final String ETAG = "\"session-v1\"";
+    private static final String DEVICE_ID = "device-test";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> ifNoneMatch = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<>());
+    private volatile int forcedStatus = 0;
+    private volatile long responseDelayMs = 0L;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/auth/session", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatch.add(etag);
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        if (responseDelayMs > 0L) {
+            try {
+                Thread.sleep(responseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (forcedStatus > 0) {
+            byte[] body = "{\"error\":\"denied\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(forcedStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        if (ETAG.equals(etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = "{\"valid\":true}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    public void sendsStoredEtagAndTreats304AsValid() {
+        String[] responseEtag = new String[1];
+        assertEquals(SessionValidationHelper.ValidationResult.VALID,
+            SessionValidationHelper.validate(baseUrl, "token-etag", DEVICE_ID, null, responseEtag));
+        assertEquals(ETAG, responseEtag[0]);
+
+        String[] revalidatedEtag = new String[1];
+        assertEquals(SessionValidationHelper.ValidationResult.VALID,
+            SessionValidationHelper.validate(baseUrl, "token-etag", DEVICE_ID, responseEtag[0], revalidatedEtag));
+
+        assertEquals(2, requests.get());
+        assertNull(ifNoneMatch.get(0));
+        assertEquals(ETAG, ifNoneMatch.get(1));
+    }
+
+    @Test
+    public void reusesKeepAliveConnection() {
+        String[] responseEtag = new String[1];
+        SessionValidationHelper.validate(baseUrl, "token-reuse", DEVICE_ID, null, responseEtag);
+        SessionValidationHelper.validate(baseUrl, "token-reuse", DEVICE_ID, responseEtag[0], new String[1]);
+
+        assertEquals(2, clientPorts.size());
+        // Mismo puerto de origen = misma conexion TCP
+        assertEquals(clientPorts.get(0), clientPorts.get(1));
+    }
+
+    @Test
+    public void mapsUnauthorizedToInvalidAndForbiddenToRetry() {
+        forcedStatus = 401;
+        assertEquals(SessionValidationHelper.ValidationResult.INVALID,
+            SessionValidationHelper.validate(baseUrl, "token-401", DEVICE_ID, null, new String[1]));
+        forcedStatus = 403;
+        assertEquals(SessionValidationHelper.ValidationResult.RETRY,
+            SessionValidationHelper.validate(baseUrl, "token-403", DEVICE_ID, null, new String[1]));
+        forcedStatus = 503;
+        assertEquals(SessionValidationHelper.ValidationResult.RETRY,
+            SessionValidationHelper.validate(baseUrl, "token-503", DEVICE_ID, null, new String[1]));
+    }
+
+    @Test
+    public void periodicValidationIsOffUnlessRequested() throws Exception {
+        forcedStatus = 401;
+        assertNull(SessionValidationHelper.subscribe(false, baseUrl, "token-off", DEVICE_ID, () -> {}));
+        assertNull(SessionValidationHelper.subscribe(true, "", "token-off", DEVICE_ID, () -> {}));
+        SessionValidationHelper.Subscription subscription = SessionValidationHelper.subscribe(false, baseUrl, "token-off", DEVICE_ID, () -> {});
+        SessionValidationHelper.requestValidation(subscription);
+        Thread.sleep(300L);
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void coalescesConcurrentValidationRequests() throws Exception {
+        responseDelayMs = 500L;
+        SessionValidationHelper.Subscription first = SessionValidationHelper.subscribe(true, baseUrl, "token-coalesce", DEVICE_ID, () -> {});
+        SessionValidationHelper.Subscription second = SessionValidationHelper.subscribe(true, baseUrl, "token-coalesce", DEVICE_ID, () -> {});
+        assertNotNull(first);
+        assertNotNull(second);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            ArrayList<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final SessionValidationHelper.Subscription subscription = i % 2 == 0 ? first : second;
+                Thread caller = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    SessionValidationHelper.requestValidation(subscription);
+                });
+                caller.start();
+                callers.add(caller);
+            }
+            start.countDown();
+            for (Thread caller : callers) {
+                caller.join(TimeUnit.SECONDS.toMillis(2));
+            }
+            // Peticiones mientras la primera sigue en vuelo
+            Thread.sleep(100L);
+            SessionValidationHelper.requestValidation(first);
+            SessionValidationHelper.requestValidation(second);
+            Thread.sleep(responseDelayMs + 700L);
+
+            assertEquals(1, requests.get());
+        } finally {
+            SessionValidationHelper.unsubscribe(first);
+            SessionValidationHelper.unsubscribe(second);
+        }
+    }
+
+    @Test
+    public void backoffGrowsWithJitterAndResetsOnValid() {
+        SessionValidationHelper.SessionState state = new SessionValidationHelper.SessionState(baseUrl, "token-backoff", DEVICE_ID);
+        long base = 20000L;
+        long cap = 5 * 60 * 1000L;
+        long previousStep = 0L;
+        for (int retry = 1; retry <= 8; retry++) {
+            long delayMs = SessionValidationHelper.nextInterval(state, SessionValidationHelper.ValidationResult.RETRY);
+            long step = Math.min(cap, base << Math.min(retry - 1, 8));
+            assertTrue("reintento " + retry + ": " + delayMs, delayMs >= Math.max(base, step / 2L));
+            assertTrue("reintento " + retry + ": " + delayMs, delayMs <= step);
+            assertTrue(step >= previousStep);
+            previousStep = step;
+        }
+        assertEquals(cap, previousStep);
+
+        assertEquals(base, SessionValidationHelper.nextInterval(state, SessionValidationHelper.ValidationResult.VALID));
+        assertEquals(0, state.consecutiveRetries);
+    }
+}
@@ -192,8 +192,9 @@ export default function VideoPlayer({ url, itemId, startTime, initialAutoplay, t
           metaLine: metaLine || "",
           sessionId: nativePlaybackSessionIdRef.current,
           startTime: normalizedStartTime,
-          chapters: allChapters,
-          channels: channels,
+          // Serializado: el plugin lo lee en streaming fuera del hilo del bridge
+          chaptersJson: JSON.stringify(allChapters || []),
+          channelsJson: JSON.stringify(channels || []),
           isLiveTV: isLiveTV,
           contentType: contentType,
           playerType: effectivePlayerType,
@@ -307,8 +308,9 @@ export default function VideoPlayer({ url, itemId, startTime, initialAutoplay, t
           metaLine: metaLine || "",
           sessionId: nativePlaybackSessionIdRef.current,
           startTime: normalizedStartTime,
-          chapters: allChapters,
-          channels: channels,
+          // Serializado: el plugin lo lee en streaming fuera del hilo del bridge
+          chaptersJson: JSON.stringify(allChapters || []),
+          channelsJson: JSON.stringify(channels || []),
           isLiveTV: isLiveTV,
           contentType: contentType,
           playerType: effectivePlayerType,
@@ -361,7 +363,7 @@ export default function VideoPlayer({ url, itemId, startTime, initialAutoplay, t
       return;
     }
 
-    VideoPlayerPlugin.updateLiveChannels({ channels }).catch((error) => {
+    VideoPlayerPlugin.updateLiveChannels({ channelsJson: JSON.stringify(channels) }).catch((error) => {
       console.warn('[VideoPlayer] No se pudo actualizar lista nativa de canales:', error);
     });
   }, [channels, isAndroidExoplayer, isAndroidVlc, isLiveTV]);